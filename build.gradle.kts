@@ -4,6 +4,7 @@ plugins {
     id("io.spring.dependency-management") version "1.1.4"
     id("jacoco")
     id("org.sonarqube") version "4.4.1.3373"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "ru.Edje_7"
@@ -31,6 +32,7 @@ dependencies {
     implementation("org.springframework.boot:spring-boot-starter-security")
     implementation("org.springframework.boot:spring-boot-starter-validation")
     implementation("org.springframework.boot:spring-boot-starter-cache")
+    implementation("org.springframework.boot:spring-boot-starter-actuator")
 
     // Database
     implementation("org.postgresql:postgresql")
@@ -45,6 +47,9 @@ dependencies {
     // Caching
     implementation("com.github.ben-manes.caffeine:caffeine:3.1.8")
 
+    // Search
+    implementation("org.roaringbitmap:RoaringBitmap:1.0.6")
+
     // Utilities
     compileOnly("org.projectlombok:lombok")
     annotationProcessor("org.projectlombok:lombok")
@@ -85,6 +90,10 @@ sonar {
     }
 }
 
+jmh {
+    jmhVersion = "1.37"
+}
+
 tasks.bootJar {
     archiveFileName.set("blog-api.jar")
 }
@@ -64,6 +64,10 @@ export interface PaginationResponse<T> {
   first: boolean;
   last: boolean;
   empty: boolean;
+  nextCursor?: string;
+  prevCursor?: string;
+  hasNext?: boolean;
+  hasPrevious?: boolean;
 }
 
 export interface ApiResponse<T> {
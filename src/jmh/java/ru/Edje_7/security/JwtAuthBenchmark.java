@@ -0,0 +1,91 @@
+package ru.Edje_7.security;
+
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.io.Encoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость проверки JWT на один аутентифицированный запрос.
+ * legacy — прежний путь фильтра: ключ и парсер на каждый вызов, токен разбирается
+ * трижды (extractUsername, затем isTokenValid); parseOnce — одна проверка готовым
+ * парсером (промах кэша JwtVerifier); verifierCached — повторный запрос с тем же токеном.
+ * <p>
+ * Запуск: ./gradlew jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAuthBenchmark {
+
+    private String secret;
+    private JwtVerifier verifier;
+    private JwtParser parser;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        // одноразовый ключ: секрет из application.yml в бенчмарк не копируется
+        secret = Encoders.BASE64.encode(Keys.secretKeyFor(SignatureAlgorithm.HS256).getEncoded());
+        verifier = new JwtVerifier(secret, 10_000);
+        parser = Jwts.parserBuilder().setSigningKey(verifier.signingKey()).build();
+        token = Jwts.builder()
+                .setClaims(Map.of(
+                        JwtService.USER_ID_CLAIM, 42L,
+                        JwtService.VERSION_CLAIM, 0,
+                        JwtService.ROLES_CLAIM, List.of("ROLE_USER")))
+                .setSubject("alice")
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1)))
+                .signWith(verifier.signingKey(), SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    @Benchmark
+    public void legacy(Blackhole blackhole) {
+        blackhole.consume(legacyClaims().getSubject());
+        blackhole.consume(legacyClaims().getSubject());
+        blackhole.consume(legacyClaims().getExpiration().before(new Date()));
+    }
+
+    @Benchmark
+    public Claims parseOnce() {
+        return parser.parseClaimsJws(token).getBody();
+    }
+
+    @Benchmark
+    public Claims verifierCached() {
+        return verifier.verify(token);
+    }
+
+    private Claims legacyClaims() {
+        return Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret)))
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+}
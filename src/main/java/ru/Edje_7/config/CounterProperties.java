@@ -0,0 +1,15 @@
+package ru.Edje_7.config;
+
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "blog.counters")
+public class CounterProperties {
+
+    // Сколько пользователей пересчитывать одним UPDATE (и одной транзакцией)
+    private int repairChunkSize = 500;
+}
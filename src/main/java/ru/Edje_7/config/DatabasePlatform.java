@@ -0,0 +1,36 @@
+package ru.Edje_7.config;
+
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Определяет СУБД, на которой запущено приложение (PostgreSQL в docker, H2 локально).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DatabasePlatform {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile String productName;
+
+    public boolean isPostgres() {
+        return "PostgreSQL".equalsIgnoreCase(getProductName());
+    }
+
+    public String getProductName() {
+        String name = productName;
+        if (name == null) {
+            name = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            productName = name;
+            log.info("Detected database platform: {}", name);
+        }
+        return name;
+    }
+}
@@ -0,0 +1,32 @@
+package ru.Edje_7.config;
+
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import ru.Edje_7.dto.CountMode;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "blog.pagination")
+public class PaginationProperties {
+
+    private int defaultPageSize = 20;
+
+    private int maxPageSize = 100;
+
+    private Duration countCacheTtl = Duration.ofMinutes(1);
+
+    private long countCacheSize = 1000;
+
+    // Режим подсчёта totalElements для каждого endpoint'а, по умолчанию EXACT
+    private Map<String, CountMode> countModes = new HashMap<>();
+
+    public CountMode getCountMode(String endpoint) {
+        return countModes.getOrDefault(endpoint, CountMode.EXACT);
+    }
+}
@@ -0,0 +1,26 @@
+package ru.Edje_7.config;
+
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "blog.password-hashing")
+public class PasswordHashingProperties {
+
+    // Потоков для BCrypt: столько ядер максимум занимает хэширование паролей
+    private int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    // Сколько операций может ждать свободного потока; сверх этого — сразу 503
+    private int queueCapacity = 32;
+
+    // Сколько запрос ждёт результата (очередь + хэширование), прежде чем получить 503
+    private Duration timeout = Duration.ofSeconds(5);
+
+    // Значение заголовка Retry-After при перегрузке
+    private Duration retryAfter = Duration.ofSeconds(1);
+}
@@ -0,0 +1,27 @@
+package ru.Edje_7.config;
+
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "blog.popularity")
+public class PopularityProperties {
+
+    // За это время вклад события в рейтинг уменьшается вдвое
+    private Duration halfLife = Duration.ofHours(24);
+
+    private int capacity = 10_000;
+
+    private double publishWeight = 10;
+
+    private double viewWeight = 1;
+
+    private double likeWeight = 5;
+
+    private double commentWeight = 3;
+}
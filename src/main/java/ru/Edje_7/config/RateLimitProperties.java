@@ -0,0 +1,47 @@
+package ru.Edje_7.config;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "blog.rate-limit")
+public class RateLimitProperties {
+
+    // false — фильтр пропускает все запросы без учёта
+    private boolean enabled = true;
+
+    // Сколько бакетов (класс маршрута + клиент) держать в памяти; лишние вытесняются
+    private long maxBuckets = 100_000;
+
+    // Бакет без запросов дольше этого удаляется; не меньше самого длинного периода,
+    // иначе удалённый бакет мог быть ещё не полон
+    private Duration idleTimeout = Duration.ofMinutes(10);
+
+    // Поиск и подсказки
+    private Budget search = new Budget(60, Duration.ofMinutes(1));
+
+    // POST, PUT, PATCH, DELETE
+    private Budget write = new Budget(30, Duration.ofMinutes(1));
+
+    // POST /auth/login, /auth/register, /auth/refresh
+    private Budget auth = new Budget(10, Duration.ofMinutes(1));
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Budget {
+
+        // Запросов подряд без ожидания (размер бакета)
+        private int capacity;
+
+        // За какое время бакет наполняется с нуля
+        private Duration period;
+    }
+}
@@ -0,0 +1,24 @@
+package ru.Edje_7.config;
+
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "blog.recommendations")
+public class RecommendationProperties {
+
+    // Сколько кандидатов (друзей друзей) отбирается по числу общих подписок до учёта тегов
+    private int candidatePoolSize = 100;
+
+    // Верхняя граница просматриваемых рёбер «подписки подписок» на один запрос
+    private int maxScannedEdges = 200_000;
+
+    // По скольким подпискам пользователя строится его профиль тегов
+    private int profileAuthors = 200;
+
+    // Вес тематической близости (косинус по тегам, 0..1) относительно одной общей подписки
+    private double tagWeight = 2.0;
+}
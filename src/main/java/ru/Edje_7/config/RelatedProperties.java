@@ -0,0 +1,34 @@
+package ru.Edje_7.config;
+
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "blog.related")
+public class RelatedProperties {
+
+    // Число слов в шингле текста
+    private int shingleSize = 2;
+
+    // Для длинных постов хранится не больше стольких шинглов (с наименьшими хешами)
+    private int maxShingles = 1000;
+
+    // LSH: bands x rows хешей в сигнатуре; порог сходства примерно (1 / bands)^(1 / rows)
+    private int tagBands = 16;
+
+    private int tagRows = 2;
+
+    private int contentBands = 32;
+
+    private int contentRows = 2;
+
+    // Сколько кандидатов брать из одной LSH-корзины (самые новые посты). Корзины полос тегов
+    // у частого набора тегов содержат все его посты, остальных кандидатов дают полосы текста
+    private int maxBucketCandidates = 200;
+
+    // Доля сходства тегов в итоговой оценке, остальное — сходство текста
+    private double tagWeight = 0.5;
+}
@@ -0,0 +1,46 @@
+package ru.Edje_7.config;
+
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "blog.search")
+public class SearchProperties {
+
+    // Каталог для сегментов индекса; пересоздаётся при старте
+    private Path indexDir = Path.of("data", "search-index");
+
+    // Сколько изменённых документов копить в памяти до записи нового сегмента
+    private int mergeThreshold = 1000;
+
+    // Сколько сегментов одного размерного яруса сливать в один
+    private int segmentsPerTier = 10;
+
+    private int rebuildBatchSize = 500;
+
+    // Параметры BM25
+    private double k1 = 1.2;
+
+    private double b = 0.75;
+
+    // Во сколько раз слово в заголовке или теге весомее слова в тексте
+    private int titleWeight = 3;
+
+    private int tagWeight = 2;
+
+    // Общий поиск: ветки (посты, пользователи) выполняются параллельно и ждутся не дольше таймаута
+    private Duration globalSearchTimeout = Duration.ofMillis(800);
+
+    private int fanOutThreads = 4;
+
+    private int fanOutQueueCapacity = 64;
+
+    // Порог похожести для поиска пользователей по триграммам (как pg_trgm.word_similarity_threshold)
+    private double userSimilarityThreshold = 0.6;
+}
@@ -1,6 +1,7 @@
 
 package ru.Edje_7.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -22,7 +23,9 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
+import ru.Edje_7.security.BoundedPasswordEncoder;
 import ru.Edje_7.security.JwtAuthenticationFilter;
+import ru.Edje_7.security.RateLimitFilter;
 
 import java.util.Arrays;
 
@@ -33,10 +36,11 @@ import java.util.Arrays;
 public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtAuthFilter;
+    private final RateLimitFilter rateLimitFilter;
     private final UserDetailsService userDetailsService;
 
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http, AuthenticationProvider authenticationProvider) throws Exception {
         http
                 .cors(Customizer.withDefaults())
                 .csrf(csrf -> csrf.disable())
@@ -52,8 +56,10 @@ public class SecurityConfig {
                         // 2. H2 Console
                         .requestMatchers("/h2-console/**").permitAll()
 
-                        // 3. Actuator endpoints
-                        .requestMatchers("/actuator/**").permitAll()
+                        // 3. Actuator endpoints: публично только health, метрики (JVM, пул соединений,
+                        // URI запросов) — только администратору
+                        .requestMatchers("/actuator/health", "/actuator/health/**").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
 
                         // 4. Публичные endpoint'ы API 
                         // ВАЖНО: context-path = /api, поэтому пути БЕЗ префикса /api
@@ -65,6 +71,7 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.GET, "/tags/**").permitAll()       // Чтение тегов
                         .requestMatchers(HttpMethod.GET, "/comments/**").permitAll()  // Чтение комментариев
                         .requestMatchers(HttpMethod.GET, "/users/**").permitAll()     // Публичная информация о пользователях
+                        .requestMatchers(HttpMethod.GET, "/search/**").permitAll()    // Поиск
 
                         // 6. Защищенные endpoint'ы (требуют аутентификации)
                         // POST, PUT, DELETE для постов требуют токен
@@ -83,8 +90,9 @@ public class SecurityConfig {
                         // 8. Все остальные запросы требуют аутентификации
                         .anyRequest().authenticated()
                 )
-                .authenticationProvider(authenticationProvider())
+                .authenticationProvider(authenticationProvider)
                 .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterAfter(rateLimitFilter, JwtAuthenticationFilter.class)  // Лимиты по пользователю или IP
                 .headers(headers -> headers.frameOptions(frame -> frame.disable()));  // Для H2 console
 
         return http.build();
@@ -107,7 +115,8 @@ public class SecurityConfig {
                 "Access-Control-Request-Headers"
         ));
         configuration.setExposedHeaders(Arrays.asList(
-                "Access-Control-Allow-Origin", "Access-Control-Allow-Credentials"
+                "Access-Control-Allow-Origin", "Access-Control-Allow-Credentials", "Retry-After",
+                "RateLimit-Limit", "RateLimit-Remaining", "RateLimit-Reset"
         ));
         configuration.setAllowCredentials(true);
         configuration.setMaxAge(3600L); // 1 час кеширования preflight
@@ -118,10 +127,10 @@ public class SecurityConfig {
     }
 
     @Bean
-    public AuthenticationProvider authenticationProvider() {
+    public AuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
-        authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setPasswordEncoder(passwordEncoder);
         return authProvider;
     }
 
@@ -131,7 +140,8 @@ public class SecurityConfig {
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(PasswordHashingProperties properties, MeterRegistry meterRegistry) {
+        // BCrypt — в отдельном ограниченном пуле, а не на потоках запросов
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(), properties, meterRegistry);
     }
 }
\ No newline at end of file
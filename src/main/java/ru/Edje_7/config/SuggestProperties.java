@@ -0,0 +1,15 @@
+package ru.Edje_7.config;
+
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "blog.suggest")
+public class SuggestProperties {
+
+    // Сколько изменений копить поверх снимка, прежде чем фоновое слияние перестроит его
+    private int maxPending = 256;
+}
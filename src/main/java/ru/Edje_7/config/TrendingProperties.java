@@ -0,0 +1,29 @@
+package ru.Edje_7.config;
+
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "blog.trending")
+public class TrendingProperties {
+
+    // Шаг скользящего окна; должен делить сутки нацело
+    private Duration bucket = Duration.ofHours(3);
+
+    // Запросы за больший период выполняются по БД
+    private int maxDays = 30;
+
+    // Ошибка оценки не больше e / width от числа событий в окне
+    private int sketchWidth = 512;
+
+    // Вероятность превысить ошибку не больше e^-depth
+    private int sketchDepth = 4;
+
+    // Сколько самых частых тегов помнить в каждом интервале
+    private int candidatesPerBucket = 64;
+}
@@ -5,9 +5,11 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.Edje_7.dto.request.LoginRequest;
+import ru.Edje_7.dto.request.RefreshTokenRequest;
 import ru.Edje_7.dto.request.RegisterRequest;
 import ru.Edje_7.dto.response.ApiResponse;
 import ru.Edje_7.dto.response.AuthResponse;
@@ -36,6 +38,25 @@ public class AuthController {
         return ResponseEntity.ok(ApiResponse.success(response, "Registration successful"));
     }
 
+    @Operation(summary = "Exchange refresh token for a new token pair")
+    @PostMapping("/refresh")
+    public ResponseEntity<ApiResponse<AuthResponse>> refresh(@Valid @RequestBody RefreshTokenRequest request) {
+        AuthResponse response = authService.refresh(request);
+        return ResponseEntity.ok(ApiResponse.success(response, "Token refreshed"));
+    }
+
+    @Operation(summary = "Logout: revoke refresh token and current access token")
+    @PostMapping("/logout")
+    public ResponseEntity<ApiResponse<Void>> logout(
+            @Valid @RequestBody RefreshTokenRequest request,
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        String accessToken = authorization != null && authorization.startsWith("Bearer ")
+                ? authorization.substring("Bearer ".length()).trim()
+                : null;
+        authService.logout(request, accessToken);
+        return ResponseEntity.ok(ApiResponse.success("Logout successful"));
+    }
+
     @Operation(summary = "Get current user profile")
     @GetMapping("/me")
     public ResponseEntity<ApiResponse<UserResponse>> getCurrentUser() {
@@ -14,14 +14,18 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import ru.Edje_7.dto.PaginationResponse;
+import ru.Edje_7.dto.PostView;
 import ru.Edje_7.dto.request.PostRequest;
 import ru.Edje_7.dto.response.ApiResponse;
+import ru.Edje_7.dto.response.BatchResponse;
 import ru.Edje_7.dto.response.PostResponse;
 import ru.Edje_7.entity.User;
 import ru.Edje_7.exceptions.UnauthorizedException;
 import ru.Edje_7.service.AuthService;
 import ru.Edje_7.service.PostService;
+import ru.Edje_7.service.ViewCountService;
 
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -32,41 +36,70 @@ public class PostController {
 
     private final PostService postService;
     private final AuthService authService;
+    private final ViewCountService viewCountService;
 
     @Operation(summary = "Get all published posts")
     @GetMapping
     public ResponseEntity<ApiResponse<PaginationResponse<PostResponse>>> getAllPosts(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
-            @RequestParam(defaultValue = "publishedAt,desc") String[] sort) {
+            @RequestParam(defaultValue = "publishedAt,desc") String[] sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "full") String view) {
+
+        if (cursor != null) {
+            PaginationResponse<PostResponse> response = PaginationResponse.fromCursorPage(
+                    postService.getAllPosts(cursor, size, PostView.from(view)));
+            return ResponseEntity.ok(ApiResponse.success(response, "Posts retrieved successfully"));
+        }
 
         Sort.Direction direction = sort.length > 1 && "desc".equalsIgnoreCase(sort[1])
                 ? Sort.Direction.DESC
                 : Sort.Direction.ASC;
         Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sort[0]));
 
-        Page<PostResponse> posts = postService.getAllPosts(pageable);
+        Page<PostResponse> posts = postService.getAllPosts(pageable, PostView.from(view));
         PaginationResponse<PostResponse> response = PaginationResponse.fromPage(posts);
 
         return ResponseEntity.ok(ApiResponse.success(response, "Posts retrieved successfully"));
     }
 
+    @Operation(summary = "Get published posts by IDs")
+    @GetMapping(params = "ids")
+    public ResponseEntity<ApiResponse<BatchResponse<PostResponse>>> getPostsByIds(@RequestParam List<Long> ids) {
+        BatchResponse<PostResponse> posts = postService.getPostsByIds(ids);
+        posts.setItems(posts.getItems().stream().map(viewCountService::withPendingViews).toList());
+        return ResponseEntity.ok(ApiResponse.success(posts, "Posts retrieved successfully"));
+    }
+
     @Operation(summary = "Get post by ID")
     @GetMapping("/{id}")
     public ResponseEntity<ApiResponse<PostResponse>> getPostById(@PathVariable Long id) {
-        PostResponse post = postService.getPostById(id);
+        PostResponse post = viewCountService.recordView(postService.getPostById(id));
         return ResponseEntity.ok(ApiResponse.success(post, "Post retrieved successfully"));
     }
 
+    @Operation(summary = "Get related posts")
+    @GetMapping("/{id}/related")
+    public ResponseEntity<ApiResponse<List<PostResponse>>> getRelatedPosts(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "5") int limit,
+            @RequestParam(defaultValue = "summary") String view) {
+
+        List<PostResponse> posts = postService.getRelatedPosts(id, limit, PostView.from(view));
+        return ResponseEntity.ok(ApiResponse.success(posts, "Related posts"));
+    }
+
     @Operation(summary = "Search posts")
     @GetMapping("/search")
     public ResponseEntity<ApiResponse<PaginationResponse<PostResponse>>> searchPosts(
             @RequestParam String q,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "full") String view) {
 
         Pageable pageable = PageRequest.of(page, size);
-        Page<PostResponse> posts = postService.searchPosts(q, pageable);
+        Page<PostResponse> posts = postService.searchPosts(q, pageable, PostView.from(view));
         PaginationResponse<PostResponse> response = PaginationResponse.fromPage(posts);
 
         return ResponseEntity.ok(ApiResponse.success(response, "Search results"));
@@ -76,10 +109,11 @@ public class PostController {
     @GetMapping("/popular")
     public ResponseEntity<ApiResponse<PaginationResponse<PostResponse>>> getPopularPosts(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "full") String view) {
 
         Pageable pageable = PageRequest.of(page, size);
-        Page<PostResponse> posts = postService.getPopularPosts(pageable);
+        Page<PostResponse> posts = postService.getPopularPosts(pageable, PostView.from(view));
         PaginationResponse<PostResponse> response = PaginationResponse.fromPage(posts);
 
         return ResponseEntity.ok(ApiResponse.success(response, "Popular posts"));
@@ -154,10 +188,18 @@ public class PostController {
     public ResponseEntity<ApiResponse<PaginationResponse<PostResponse>>> getPostsByTag(
             @PathVariable String tagName,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "full") String view) {
+
+        if (cursor != null) {
+            PaginationResponse<PostResponse> response = PaginationResponse.fromCursorPage(
+                    postService.getPostsByTag(tagName, cursor, size, PostView.from(view)));
+            return ResponseEntity.ok(ApiResponse.success(response, "Posts by tag"));
+        }
 
         Pageable pageable = PageRequest.of(page, size);
-        Page<PostResponse> posts = postService.getPostsByTag(tagName, pageable);
+        Page<PostResponse> posts = postService.getPostsByTag(tagName, pageable, PostView.from(view));
         PaginationResponse<PostResponse> response = PaginationResponse.fromPage(posts);
 
         return ResponseEntity.ok(ApiResponse.success(response, "Posts by tag"));
@@ -168,10 +210,18 @@ public class PostController {
     public ResponseEntity<ApiResponse<PaginationResponse<PostResponse>>> getPostsByAuthor(
             @PathVariable Long authorId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "full") String view) {
+
+        if (cursor != null) {
+            PaginationResponse<PostResponse> response = PaginationResponse.fromCursorPage(
+                    postService.getPostsByAuthor(authorId, cursor, size, PostView.from(view)));
+            return ResponseEntity.ok(ApiResponse.success(response, "Posts by author"));
+        }
 
         Pageable pageable = PageRequest.of(page, size);
-        Page<PostResponse> posts = postService.getPostsByAuthor(authorId, pageable);
+        Page<PostResponse> posts = postService.getPostsByAuthor(authorId, pageable, PostView.from(view));
         PaginationResponse<PostResponse> response = PaginationResponse.fromPage(posts);
 
         return ResponseEntity.ok(ApiResponse.success(response, "Posts by author"));
@@ -198,4 +248,34 @@ public class PostController {
 
         return ResponseEntity.ok(ApiResponse.success(response, "My posts"));
     }
+
+    @Operation(
+            summary = "Get posts from followed authors",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @PreAuthorize("isAuthenticated()")
+    @GetMapping("/feed")
+    public ResponseEntity<ApiResponse<PaginationResponse<PostResponse>>> getSubscriptionFeed(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "full") String view) {
+
+        User currentUser = authService.getCurrentUser();
+        if (currentUser == null) {
+            throw new UnauthorizedException("Authentication required");
+        }
+
+        if (cursor != null) {
+            PaginationResponse<PostResponse> response = PaginationResponse.fromCursorPage(
+                    postService.getSubscriptionFeed(currentUser, cursor, size, PostView.from(view)));
+            return ResponseEntity.ok(ApiResponse.success(response, "Subscription feed"));
+        }
+
+        Pageable pageable = PageRequest.of(page, size);
+        Page<PostResponse> posts = postService.getSubscriptionFeed(currentUser, pageable, PostView.from(view));
+        PaginationResponse<PostResponse> response = PaginationResponse.fromPage(posts);
+
+        return ResponseEntity.ok(ApiResponse.success(response, "Subscription feed"));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,95 @@
+package ru.Edje_7.controller;
+
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ru.Edje_7.dto.PaginationResponse;
+import ru.Edje_7.dto.PostView;
+import ru.Edje_7.dto.request.PostFilter;
+import ru.Edje_7.dto.response.ApiResponse;
+import ru.Edje_7.dto.response.PostResponse;
+import ru.Edje_7.dto.response.SearchFacetsResponse;
+import ru.Edje_7.service.SearchService;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/search")
+@RequiredArgsConstructor
+@Tag(name = "Search", description = "Search endpoints")
+public class SearchController {
+
+    private final SearchService searchService;
+
+    @Operation(summary = "Search posts and users at once")
+    @GetMapping
+    public ResponseEntity<ApiResponse<Map<String, Object>>> globalSearch(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+
+        Map<String, Object> results = searchService.globalSearch(q, PageRequest.of(page, size));
+
+        return ResponseEntity.ok(ApiResponse.success(results, "Search results"));
+    }
+
+    @Operation(summary = "Match counts per type and post facets per tag, author and publish month")
+    @GetMapping("/facets")
+    public ResponseEntity<ApiResponse<SearchFacetsResponse>> getSearchFacets(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit) {
+
+        SearchFacetsResponse facets = searchService.getSearchFacets(q, limit);
+
+        return ResponseEntity.ok(ApiResponse.success(facets, "Search facets"));
+    }
+
+    @Operation(summary = "Search posts by text, author, tag, publication date, featured flag and engagement")
+    @GetMapping("/posts")
+    public ResponseEntity<ApiResponse<PaginationResponse<PostResponse>>> advancedPostSearch(
+            PostFilter filter,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String[] sort,
+            @RequestParam(defaultValue = "summary") String view) {
+
+        Pageable pageable = PageRequest.of(page, size);
+        if (sort != null && sort.length > 0) {
+            Sort.Direction direction = sort.length > 1 && "desc".equalsIgnoreCase(sort[1])
+                    ? Sort.Direction.DESC
+                    : Sort.Direction.ASC;
+            pageable = PageRequest.of(page, size, Sort.by(direction, sort[0]));
+        }
+
+        PaginationResponse<PostResponse> response = PaginationResponse.fromPage(
+                searchService.advancedPostSearch(filter, pageable, PostView.from(view)));
+
+        return ResponseEntity.ok(ApiResponse.success(response, "Search results"));
+    }
+
+    @Operation(summary = "Search posts by tags: all of, any of, none of")
+    @GetMapping("/tags")
+    public ResponseEntity<ApiResponse<PaginationResponse<PostResponse>>> searchByTags(
+            @RequestParam(defaultValue = "") List<String> all,
+            @RequestParam(defaultValue = "") List<String> any,
+            @RequestParam(defaultValue = "") List<String> none,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "summary") String view) {
+
+        PaginationResponse<PostResponse> response = PaginationResponse.fromCursorPage(
+                searchService.searchByTags(all, any, none, cursor, size, PostView.from(view)));
+
+        return ResponseEntity.ok(ApiResponse.success(response, "Posts by tags"));
+    }
+}
@@ -10,6 +10,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.Edje_7.dto.PaginationResponse;
 import ru.Edje_7.dto.response.ApiResponse;
+import ru.Edje_7.dto.response.SuggestionResponse;
 import ru.Edje_7.dto.response.TagResponse;
 import ru.Edje_7.service.TagService;
 
@@ -65,6 +66,16 @@ public class TagController {
         return ResponseEntity.ok(ApiResponse.success(tag, "Tag retrieved successfully"));
     }
 
+    @Operation(summary = "Suggest tags by name prefix")
+    @GetMapping("/suggest")
+    public ResponseEntity<ApiResponse<List<SuggestionResponse>>> suggestTags(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit) {
+
+        List<SuggestionResponse> tags = tagService.suggestTags(q, limit);
+        return ResponseEntity.ok(ApiResponse.success(tags, "Tag suggestions"));
+    }
+
     @Operation(summary = "Search tags")
     @GetMapping("/search")
     public ResponseEntity<ApiResponse<PaginationResponse<TagResponse>>> searchTags(
@@ -12,13 +12,19 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import ru.Edje_7.dto.PaginationResponse;
+import ru.Edje_7.dto.request.BulkFollowRequest;
 import ru.Edje_7.dto.request.UpdateUserRequest;
 import ru.Edje_7.dto.response.ApiResponse;
+import ru.Edje_7.dto.response.BatchResponse;
+import ru.Edje_7.dto.response.RecommendationResponse;
+import ru.Edje_7.dto.response.SuggestionResponse;
 import ru.Edje_7.dto.response.UserResponse;
 import ru.Edje_7.entity.User;
 import ru.Edje_7.service.AuthService;
+import ru.Edje_7.service.RecommendationService;
 import ru.Edje_7.service.UserService;
 
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -28,6 +34,7 @@ import java.util.Map;
 public class UserController {
 
     private final UserService userService;
+    private final RecommendationService recommendationService;
     private final AuthService authService;
 
     @Operation(summary = "Get current user profile")
@@ -81,6 +88,13 @@ public class UserController {
         ));
     }
 
+    @Operation(summary = "Get users by IDs")
+    @GetMapping(params = "ids")
+    public ResponseEntity<ApiResponse<BatchResponse<UserResponse>>> getUsersByIds(@RequestParam List<Long> ids) {
+        BatchResponse<UserResponse> users = userService.getUsersByIds(ids);
+        return ResponseEntity.ok(ApiResponse.success(users, "Users retrieved successfully"));
+    }
+
     @Operation(summary = "Get user by ID")
     @GetMapping("/{id}")
     public ResponseEntity<ApiResponse<UserResponse>> getUserById(@PathVariable Long id) {
@@ -95,6 +109,16 @@ public class UserController {
         return ResponseEntity.ok(ApiResponse.success(user, "User retrieved successfully"));
     }
 
+    @Operation(summary = "Suggest users by username or name prefix")
+    @GetMapping("/suggest")
+    public ResponseEntity<ApiResponse<List<SuggestionResponse>>> suggestUsers(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit) {
+
+        List<SuggestionResponse> users = userService.suggestUsers(q, limit);
+        return ResponseEntity.ok(ApiResponse.success(users, "User suggestions"));
+    }
+
     @Operation(summary = "Search users")
     @GetMapping("/search")
     public ResponseEntity<ApiResponse<PaginationResponse<UserResponse>>> searchUsers(
@@ -147,6 +171,37 @@ public class UserController {
         ));
     }
 
+    @Operation(
+            summary = "Follow several users at once",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @PreAuthorize("isAuthenticated()")
+    @PostMapping("/me/following")
+    public ResponseEntity<ApiResponse<Map<String, List<Long>>>> followUsers(
+            @Valid @RequestBody BulkFollowRequest request) {
+        User currentUser = authService.getCurrentUser();
+        List<Long> followed = userService.followUsers(currentUser.getId(), request.getUserIds());
+
+        return ResponseEntity.ok(ApiResponse.success(
+                Map.of("followed", followed),
+                "Users followed successfully"
+        ));
+    }
+
+    @Operation(
+            summary = "Who to follow: friends of friends ranked by mutual follows and shared tags",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @PreAuthorize("isAuthenticated()")
+    @GetMapping("/me/recommendations")
+    public ResponseEntity<ApiResponse<List<RecommendationResponse>>> getRecommendations(
+            @RequestParam(defaultValue = "10") int limit) {
+        User currentUser = authService.getCurrentUser();
+        List<RecommendationResponse> recommendations = recommendationService.recommend(currentUser.getId(), limit);
+
+        return ResponseEntity.ok(ApiResponse.success(recommendations, "Recommendations retrieved successfully"));
+    }
+
     @Operation(
             summary = "Unfollow user",
             security = @SecurityRequirement(name = "bearerAuth")
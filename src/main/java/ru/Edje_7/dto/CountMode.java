@@ -0,0 +1,8 @@
+package ru.Edje_7.dto;
+
+public enum CountMode {
+    EXACT,
+    CACHED,
+    ESTIMATED,
+    NONE
+}
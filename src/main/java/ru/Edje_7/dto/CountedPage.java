@@ -0,0 +1,64 @@
+package ru.Edje_7.dto;
+
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Страница, у которой totalElements может быть приближённым или неизвестным.
+ * hasNext всегда берётся из выборки (size + 1 строк), а не из total.
+ */
+public class CountedPage<T> extends PageImpl<T> {
+
+    private final boolean totalKnown;
+
+    private final boolean totalExact;
+
+    private final boolean hasNextContent;
+
+    public CountedPage(List<T> content, Pageable pageable, long total, boolean totalExact, boolean hasNext) {
+        super(content, pageable, Math.max(total, pageable.getOffset() + content.size() + (hasNext ? 1 : 0)));
+        this.totalKnown = true;
+        this.totalExact = totalExact;
+        this.hasNextContent = hasNext;
+    }
+
+    private CountedPage(List<T> content, Pageable pageable, boolean hasNext) {
+        super(content, pageable, pageable.getOffset() + content.size() + (hasNext ? 1 : 0));
+        this.totalKnown = false;
+        this.totalExact = false;
+        this.hasNextContent = hasNext;
+    }
+
+    public static <T> CountedPage<T> withoutTotal(List<T> content, Pageable pageable, boolean hasNext) {
+        return new CountedPage<>(content, pageable, hasNext);
+    }
+
+    public boolean isTotalKnown() {
+        return totalKnown;
+    }
+
+    public boolean isTotalExact() {
+        return totalExact;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return hasNextContent;
+    }
+
+    @Override
+    public <U> CountedPage<U> map(Function<? super T, ? extends U> converter) {
+        return withContent(getContent().stream().<U>map(converter).toList());
+    }
+
+    public <U> CountedPage<U> withContent(List<U> content) {
+        if (!totalKnown) {
+            return withoutTotal(content, getPageable(), hasNextContent);
+        }
+        return new CountedPage<>(content, getPageable(), getTotalElements(), totalExact, hasNextContent);
+    }
+}
@@ -0,0 +1,38 @@
+package ru.Edje_7.dto;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.function.Function;
+
+@Getter
+@AllArgsConstructor
+public class CursorPage<T> {
+
+    private final List<T> content;
+
+    private final int size;
+
+    private final String nextCursor;
+
+    private final String prevCursor;
+
+    private final boolean hasNext;
+
+    private final boolean hasPrevious;
+
+    // null, если выборка не знает общего числа строк
+    private final Long totalElements;
+
+    public CursorPage(List<T> content, int size, String nextCursor, String prevCursor,
+                      boolean hasNext, boolean hasPrevious) {
+        this(content, size, nextCursor, prevCursor, hasNext, hasPrevious, null);
+    }
+
+    public <R> CursorPage<R> map(Function<? super T, ? extends R> mapper) {
+        List<R> mapped = content.stream().<R>map(mapper).toList();
+        return new CursorPage<>(mapped, size, nextCursor, prevCursor, hasNext, hasPrevious, totalElements);
+    }
+}
@@ -19,13 +19,13 @@ public class PaginationResponse<T> {
 
     private List<T> content;
 
-    private int page;
+    private Integer page;
 
     private int size;
 
-    private long totalElements;
+    private Long totalElements;
 
-    private int totalPages;
+    private Integer totalPages;
 
     private boolean first;
 
@@ -35,13 +35,30 @@ public class PaginationResponse<T> {
 
     private List<SortInfo> sort;
 
+    private String nextCursor;
+
+    private String prevCursor;
+
+    private Boolean hasNext;
+
+    private Boolean hasPrevious;
+
+    // false, если totalElements взят из кэша или оценки планировщика
+    private Boolean totalExact;
+
     public static <T> PaginationResponse<T> fromPage(Page<T> page) {
+        boolean totalKnown = !(page instanceof CountedPage<?> counted) || counted.isTotalKnown();
+        boolean totalExact = !(page instanceof CountedPage<?> counted) || counted.isTotalExact();
+
         return PaginationResponse.<T>builder()
                 .content(page.getContent())
                 .page(page.getNumber())
                 .size(page.getSize())
-                .totalElements(page.getTotalElements())
-                .totalPages(page.getTotalPages())
+                .totalElements(totalKnown ? page.getTotalElements() : null)
+                .totalPages(totalKnown ? page.getTotalPages() : null)
+                .totalExact(totalKnown ? totalExact : null)
+                .hasNext(page.hasNext())
+                .hasPrevious(page.hasPrevious())
                 .first(page.isFirst())
                 .last(page.isLast())
                 .empty(page.isEmpty())
@@ -54,6 +71,22 @@ public class PaginationResponse<T> {
                 .build();
     }
 
+    public static <T> PaginationResponse<T> fromCursorPage(CursorPage<T> page) {
+        return PaginationResponse.<T>builder()
+                .content(page.getContent())
+                .size(page.getSize())
+                .first(!page.isHasPrevious())
+                .last(!page.isHasNext())
+                .empty(page.getContent().isEmpty())
+                .nextCursor(page.getNextCursor())
+                .prevCursor(page.getPrevCursor())
+                .hasNext(page.isHasNext())
+                .hasPrevious(page.isHasPrevious())
+                .totalElements(page.getTotalElements())
+                .totalExact(page.getTotalElements() != null ? true : null)
+                .build();
+    }
+
     @Data
     @Builder
     @NoArgsConstructor
@@ -0,0 +1,59 @@
+package ru.Edje_7.dto;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Непрозрачный курсор для keyset-пагинации по (published_at, id).
+ * publishedAt = null — позиция среди постов без даты публикации (они идут последними).
+ */
+@Getter
+@AllArgsConstructor
+public class PostCursor {
+
+    public enum Direction {
+        NEXT,
+        PREV
+    }
+
+    private final LocalDateTime publishedAt;
+
+    private final Long id;
+
+    private final Direction direction;
+
+    public static PostCursor first(LocalDateTime now) {
+        return new PostCursor(now, Long.MAX_VALUE, Direction.NEXT);
+    }
+
+    public String encode() {
+        String raw = (direction == Direction.NEXT ? "n" : "p") + "|" + (publishedAt != null ? publishedAt : "") + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PostCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            Direction direction = switch (parts[0]) {
+                case "n" -> Direction.NEXT;
+                case "p" -> Direction.PREV;
+                default -> throw new IllegalArgumentException("Invalid cursor");
+            };
+            LocalDateTime publishedAt = parts[1].isEmpty() ? null : LocalDateTime.parse(parts[1]);
+            return new PostCursor(publishedAt, Long.parseLong(parts[2]), direction);
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package ru.Edje_7.dto;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import ru.Edje_7.entity.Post;
+
+import java.time.LocalDateTime;
+
+/**
+ * Проекция поста для списков — без content.
+ */
+@Data
+@AllArgsConstructor
+public class PostSummary {
+
+    private Long id;
+
+    private String title;
+
+    private String slug;
+
+    private String excerpt;
+
+    private Post.Status status;
+
+    private Integer viewCount;
+
+    private Integer likeCount;
+
+    private Integer commentCount;
+
+    private Boolean featured;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+
+    private LocalDateTime publishedAt;
+
+    private Long authorId;
+
+    private String authorUsername;
+
+    private String authorAvatar;
+}
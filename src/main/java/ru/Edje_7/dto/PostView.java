@@ -0,0 +1,21 @@
+package ru.Edje_7.dto;
+
+
+/**
+ * Представление поста в списках: FULL — с content, SUMMARY — только excerpt.
+ */
+public enum PostView {
+    FULL,
+    SUMMARY;
+
+    public static PostView from(String value) {
+        if (value == null || value.isBlank()) {
+            return FULL;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid view: " + value + ", expected full or summary");
+        }
+    }
+}
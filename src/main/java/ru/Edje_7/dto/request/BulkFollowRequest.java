@@ -0,0 +1,14 @@
+package ru.Edje_7.dto.request;
+
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BulkFollowRequest {
+
+    @NotEmpty(message = "User ids are required")
+    private List<Long> userIds;
+}
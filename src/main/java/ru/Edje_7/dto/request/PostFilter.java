@@ -0,0 +1,32 @@
+package ru.Edje_7.dto.request;
+
+
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+/**
+ * Фильтры расширенного поиска постов; незаданные поля не ограничивают выборку.
+ */
+@Data
+public class PostFilter {
+
+    private String query;
+
+    private Long authorId;
+
+    private Long tagId;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime from;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime to;
+
+    private Boolean featured;
+
+    private Integer minViews;
+
+    private Integer minLikes;
+}
@@ -19,5 +19,10 @@ public class AuthResponse {
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
     private LocalDateTime expiresAt;
 
+    private String refreshToken;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime refreshExpiresAt;
+
     private UserResponse user;
 }
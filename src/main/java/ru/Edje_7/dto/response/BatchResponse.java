@@ -0,0 +1,22 @@
+package ru.Edje_7.dto.response;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Ответ пакетного запроса по id: найденные объекты в порядке запроса
+ * и id, которых нет (или которые недоступны).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchResponse<T> {
+
+    private List<T> items;
+
+    private List<Long> notFound;
+}
@@ -3,12 +3,17 @@ package ru.Edje_7.dto.response;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.With;
 
 import java.time.LocalDateTime;
 import java.util.Set;
 
 @Data
+@NoArgsConstructor
+@AllArgsConstructor
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class PostResponse {
 
@@ -24,6 +29,7 @@ public class PostResponse {
 
     private String status;
 
+    @With
     private Integer viewCount;
 
     private Integer likeCount;
@@ -0,0 +1,32 @@
+package ru.Edje_7.dto.response;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Рекомендация «на кого подписаться»: mutualCount — сколько ваших подписок
+ * подписаны на пользователя, commonTags — общие с вашей лентой темы.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecommendationResponse {
+
+    private Long id;
+
+    private String username;
+
+    private String fullName;
+
+    private String avatarUrl;
+
+    private int followerCount;
+
+    private int mutualCount;
+
+    private List<String> commonTags;
+}
@@ -0,0 +1,39 @@
+package ru.Edje_7.dto.response;
+
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class SearchFacetsResponse {
+
+    private String query;
+
+    // число совпадений по типам: posts, users, tags
+    private Map<String, Long> counts;
+
+    private List<FacetCount> tags;
+
+    private List<FacetCount> authors;
+
+    // ключ — месяц публикации в формате yyyy-MM
+    private List<FacetCount> months;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class FacetCount {
+
+        private String key;
+
+        private String label;
+
+        private long count;
+    }
+}
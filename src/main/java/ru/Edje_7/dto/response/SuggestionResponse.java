@@ -0,0 +1,30 @@
+package ru.Edje_7.dto.response;
+
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Подсказка в строке поиска: тег (name, slug, число постов)
+ * или пользователь (username, полное имя, аватар, число подписчиков).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SuggestionResponse {
+
+    private Long id;
+
+    private String name;
+
+    private String slug;
+
+    private String fullName;
+
+    private String avatarUrl;
+
+    private long count;
+}
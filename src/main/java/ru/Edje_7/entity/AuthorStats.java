@@ -0,0 +1,56 @@
+package ru.Edje_7.entity;
+
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Сводная статистика автора по всем его постам: итоги и скользящие окна 7 и 30 дней.
+ * Строка меняется только SQL-инкрементами из AuthorStatsService, сущность — для чтения.
+ */
+@Entity
+@Table(name = "author_stats")
+@Data
+@NoArgsConstructor
+public class AuthorStats {
+
+    @Id
+    @Column(name = "author_id")
+    private Long authorId;
+
+    @Column(name = "likes_received", nullable = false)
+    private long likesReceived;
+
+    @Column(name = "comments_received", nullable = false)
+    private long commentsReceived;
+
+    @Column(name = "views_received", nullable = false)
+    private long viewsReceived;
+
+    @Column(name = "likes_7d", nullable = false)
+    private long likes7d;
+
+    @Column(name = "comments_7d", nullable = false)
+    private long comments7d;
+
+    @Column(name = "views_7d", nullable = false)
+    private long views7d;
+
+    @Column(name = "likes_30d", nullable = false)
+    private long likes30d;
+
+    @Column(name = "comments_30d", nullable = false)
+    private long comments30d;
+
+    @Column(name = "views_30d", nullable = false)
+    private long views30d;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
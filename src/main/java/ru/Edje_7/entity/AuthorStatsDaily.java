@@ -0,0 +1,52 @@
+package ru.Edje_7.entity;
+
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Приращения статистики автора за один день; из них пересчитываются окна 7 и 30 дней.
+ */
+@Entity
+@Table(name = "author_stats_daily")
+@IdClass(AuthorStatsDaily.Key.class)
+@Data
+@NoArgsConstructor
+public class AuthorStatsDaily {
+
+    @Id
+    @Column(name = "author_id")
+    private Long authorId;
+
+    @Id
+    @Column(name = "stat_date")
+    private LocalDate day;
+
+    @Column(nullable = false)
+    private long likes;
+
+    @Column(nullable = false)
+    private long comments;
+
+    @Column(nullable = false)
+    private long views;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+
+        private Long authorId;
+
+        private LocalDate day;
+    }
+}
@@ -10,8 +10,6 @@ import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 import org.hibernate.annotations.BatchSize;
-import org.hibernate.annotations.Fetch;
-import org.hibernate.annotations.FetchMode;
 
 import java.time.LocalDateTime;
 import java.util.HashSet;
@@ -23,7 +21,9 @@ import java.util.Set;
                 @Index(name = "idx_posts_slug", columnList = "slug"),
                 @Index(name = "idx_posts_status_created", columnList = "status, created_at"),
                 @Index(name = "idx_posts_published", columnList = "published_at"),
-                @Index(name = "idx_posts_featured", columnList = "is_featured")
+                @Index(name = "idx_posts_featured", columnList = "is_featured"),
+                @Index(name = "idx_posts_status_published_id", columnList = "status, published_at, id"),
+                @Index(name = "idx_posts_author_status_published_id", columnList = "author_id, status, published_at, id")
         })
 @Data
 @EqualsAndHashCode(callSuper = true, onlyExplicitlyIncluded = true)
@@ -68,7 +68,9 @@ public class Post extends AuditEntity {
     @Column(nullable = false, length = 20)
     private Status status = Status.DRAFT;
 
-    @Column(name = "view_count", nullable = false)
+    // меняется только инкрементом в ViewCountService.flush: сохранение поста
+    // не должно перезаписывать его устаревшим значением
+    @Column(name = "view_count", nullable = false, updatable = false)
     private Integer viewCount = 0;
 
     @Column(name = "like_count", nullable = false)
@@ -99,7 +101,6 @@ public class Post extends AuditEntity {
             joinColumns = @JoinColumn(name = "post_id"),
             inverseJoinColumns = @JoinColumn(name = "tag_id"))
     @BatchSize(size = 20)
-    @Fetch(FetchMode.SUBSELECT)
     private Set<Tag> tags = new HashSet<>();
 
     @ManyToMany(mappedBy = "likedPosts", fetch = FetchType.LAZY)
@@ -0,0 +1,48 @@
+package ru.Edje_7.entity;
+
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * JWT, отозванный до истечения срока (выход, обмен refresh-токена). Строка нужна
+ * только до expires_at: после него токен отклоняется и без неё.
+ */
+@Entity
+@Table(name = "revoked_tokens", indexes = {
+        @Index(name = "idx_revoked_tokens_expires_at", columnList = "expires_at"),
+        @Index(name = "idx_revoked_tokens_type_expires_at", columnList = "token_type, expires_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevokedToken {
+
+    public enum Type {
+        ACCESS,
+        REFRESH
+    }
+
+    @Id
+    @Column(length = 36)
+    private String jti;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    // в фильтр Блума попадают только access-токены: refresh-токен отклоняется
+    // фильтром JWT до проверки отзыва, а его повторное использование видно по PK
+    @Enumerated(EnumType.STRING)
+    @Column(name = "token_type", nullable = false, length = 16)
+    private Type type = Type.ACCESS;
+}
@@ -70,6 +70,23 @@ public class User extends AuditEntity {
     @Column(name = "email_verified", nullable = false)
     private Boolean emailVerified = false;
 
+    // Денормализованные счётчики: меняются только атомарными UPDATE в UserRepository,
+    // расхождения исправляет UserCounterService. Сохранение сущности их не пишет,
+    // иначе устаревшее значение из загруженной строки затёрло бы чужие инкременты.
+    @Column(name = "follower_count", nullable = false, updatable = false)
+    private Integer followerCount = 0;
+
+    @Column(name = "following_count", nullable = false, updatable = false)
+    private Integer followingCount = 0;
+
+    @Column(name = "post_count", nullable = false, updatable = false)
+    private Integer postCount = 0;
+
+    // Версия учётных данных в JWT: растёт при блокировке, смене ролей, логина или пароля,
+    // токены со старой версией отклоняются (TokenVersionRegistry)
+    @Column(name = "security_version", nullable = false)
+    private Integer securityVersion = 0;
+
 
     @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(name = "user_roles",
@@ -134,6 +151,10 @@ public class User extends AuditEntity {
         return hasRole(Role.RoleName.ROLE_MODERATOR);
     }
 
+    public void revokeTokens() {
+        this.securityVersion = securityVersion + 1;
+    }
+
     public void updateLastLogin() {
         this.lastLoginAt = LocalDateTime.now();
     }
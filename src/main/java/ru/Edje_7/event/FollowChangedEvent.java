@@ -0,0 +1,21 @@
+package ru.Edje_7.event;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Пользователь подписался на авторов или отписался от них; authorIds — только реально изменённые подписки.
+ */
+@Data
+@AllArgsConstructor
+public class FollowChangedEvent {
+
+    private Long followerId;
+
+    private List<Long> authorIds;
+
+    private boolean followed;
+}
@@ -0,0 +1,59 @@
+package ru.Edje_7.event;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import ru.Edje_7.entity.Post;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Пост создан, изменён или удалён. Публикуется после сохранения в рамках транзакции.
+ */
+@Data
+@AllArgsConstructor
+public class PostChangedEvent {
+
+    public enum Type {
+        SAVED,
+        DELETED
+    }
+
+    private Long postId;
+
+    private Type type;
+
+    private boolean published;
+
+    private LocalDateTime publishedAt;
+
+    private LocalDateTime createdAt;
+
+    // теги после изменения; для DELETED — пусто
+    private Set<Long> tagIds;
+
+    // теги до изменения; для нового поста — пусто
+    private Set<Long> previousTagIds;
+
+    public static PostChangedEvent created(Post post) {
+        return saved(post, Set.of());
+    }
+
+    public static PostChangedEvent saved(Post post, Set<Long> previousTagIds) {
+        return new PostChangedEvent(post.getId(), Type.SAVED, post.isPublished(), post.getPublishedAt(),
+                post.getCreatedAt(), tagIds(post), previousTagIds);
+    }
+
+    public static PostChangedEvent deleted(Post post) {
+        return new PostChangedEvent(post.getId(), Type.DELETED, false, null,
+                post.getCreatedAt(), Set.of(), tagIds(post));
+    }
+
+    public static Set<Long> tagIds(Post post) {
+        return post.getTags().stream()
+                .map(tag -> tag.getId())
+                .collect(Collectors.toSet());
+    }
+}
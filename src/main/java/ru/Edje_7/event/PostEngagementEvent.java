@@ -0,0 +1,32 @@
+package ru.Edje_7.event;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Взаимодействие пользователя с опубликованным постом.
+ */
+@Data
+@AllArgsConstructor
+public class PostEngagementEvent {
+
+    public enum Type {
+        VIEW,
+        LIKE,
+        UNLIKE,
+        COMMENT
+    }
+
+    private Long postId;
+
+    private Type type;
+
+    private LocalDateTime occurredAt;
+
+    public static PostEngagementEvent of(Long postId, Type type) {
+        return new PostEngagementEvent(postId, type, LocalDateTime.now());
+    }
+}
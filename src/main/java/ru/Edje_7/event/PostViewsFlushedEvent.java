@@ -0,0 +1,17 @@
+package ru.Edje_7.event;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * Накопленные просмотры записаны в posts.view_count: postId -> число новых просмотров.
+ */
+@Data
+@AllArgsConstructor
+public class PostViewsFlushedEvent {
+
+    private Map<Long, Long> views;
+}
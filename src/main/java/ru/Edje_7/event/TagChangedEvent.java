@@ -0,0 +1,15 @@
+package ru.Edje_7.event;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Тег создан, переименован, удалён или слит с другим.
+ */
+@Data
+@AllArgsConstructor
+public class TagChangedEvent {
+
+    private Long tagId;
+}
@@ -0,0 +1,15 @@
+package ru.Edje_7.event;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Токен с данным jti отозван; публикуется TokenRevocationStore и применяется к фильтру после коммита.
+ */
+@Data
+@AllArgsConstructor
+public class TokenRevokedEvent {
+
+    private String jti;
+}
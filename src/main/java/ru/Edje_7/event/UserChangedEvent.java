@@ -0,0 +1,15 @@
+package ru.Edje_7.event;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Пользователь зарегистрирован, изменил имя или аватар, отключён.
+ */
+@Data
+@AllArgsConstructor
+public class UserChangedEvent {
+
+    private Long userId;
+}
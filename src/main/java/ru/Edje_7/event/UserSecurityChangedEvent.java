@@ -0,0 +1,30 @@
+package ru.Edje_7.event;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import ru.Edje_7.entity.User;
+
+/**
+ * У пользователя сменилась версия учётных данных (блокировка, роли, логин, пароль)
+ * или он удалён: выданные ему токены больше не действительны.
+ */
+@Data
+@AllArgsConstructor
+public class UserSecurityChangedEvent {
+
+    // версия удалённого пользователя: не совпадает ни с одним токеном
+    public static final int DELETED = -1;
+
+    private Long userId;
+
+    private int securityVersion;
+
+    public static UserSecurityChangedEvent of(User user) {
+        return new UserSecurityChangedEvent(user.getId(), user.getSecurityVersion());
+    }
+
+    public static UserSecurityChangedEvent deleted(Long userId) {
+        return new UserSecurityChangedEvent(userId, DELETED);
+    }
+}
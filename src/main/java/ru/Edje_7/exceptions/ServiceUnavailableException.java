@@ -0,0 +1,18 @@
+package ru.Edje_7.exceptions;
+
+/**
+ * Ресурс временно перегружен; клиенту стоит повторить запрос через retryAfterSeconds.
+ */
+public class ServiceUnavailableException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public ServiceUnavailableException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
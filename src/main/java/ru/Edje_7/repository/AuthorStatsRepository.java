@@ -0,0 +1,10 @@
+package ru.Edje_7.repository;
+
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import ru.Edje_7.entity.AuthorStats;
+
+@Repository
+public interface AuthorStatsRepository extends JpaRepository<AuthorStats, Long> {
+}
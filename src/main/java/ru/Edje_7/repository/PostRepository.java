@@ -2,20 +2,39 @@ package ru.Edje_7.repository;
 
 
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import ru.Edje_7.dto.PostSummary;
 import ru.Edje_7.entity.Post;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface PostRepository extends JpaRepository<Post, Long> {
+public interface PostRepository extends JpaRepository<Post, Long>, JpaSpecificationExecutor<Post>, PostRepositoryCustom {
+
+    // Видимость опубликованного поста, как в findPublishedPostIds: без даты или дата уже наступила
+    String VISIBLE = "(p.publishedAt IS NULL OR p.publishedAt <= :now) ";
+
+    // Keyset по (published_at DESC NULLS LAST, id DESC), как в постраничных запросах;
+    // курсор с пустой датой указывает в хвост постов без даты публикации
+    String SEEK_OLDER = "((:publishedAt IS NULL AND p.publishedAt IS NULL AND p.id < :id) " +
+            "OR (:publishedAt IS NOT NULL AND (p.publishedAt IS NULL OR p.publishedAt < :publishedAt " +
+            "OR (p.publishedAt = :publishedAt AND p.id < :id)))) " +
+            "ORDER BY p.publishedAt DESC NULLS LAST, p.id DESC";
+
+    String SEEK_NEWER = "((:publishedAt IS NULL AND (p.publishedAt IS NOT NULL OR p.id > :id)) " +
+            "OR p.publishedAt > :publishedAt OR (p.publishedAt = :publishedAt AND p.id > :id)) " +
+            "ORDER BY p.publishedAt ASC NULLS FIRST, p.id ASC";
 
     @Cacheable(value = "posts", key = "#slug")
     Optional<Post> findBySlug(String slug);
@@ -25,6 +44,29 @@ public interface PostRepository extends JpaRepository<Post, Long> {
 
     Page<Post> findByAuthorIdAndStatus(Long authorId, Post.Status status, Pageable pageable);
 
+    @Query("SELECT p.id FROM Post p WHERE p.author.id = :authorId AND p.status = :status")
+    Slice<Long> findPostIdsByAuthorIdAndStatus(@Param("authorId") Long authorId,
+                                               @Param("status") Post.Status status,
+                                               Pageable pageable);
+
+    long countByAuthorIdAndStatus(Long authorId, Post.Status status);
+
+    @Query("SELECT p.id AS id, p.publishedAt AS publishedAt FROM Post p WHERE p.author.id = :authorId AND p.status = :status AND " +
+            SEEK_OLDER)
+    List<PostKey> findByAuthorIdAndStatusBefore(@Param("authorId") Long authorId,
+                                                @Param("status") Post.Status status,
+                                                @Param("publishedAt") LocalDateTime publishedAt,
+                                                @Param("id") Long id,
+                                                Limit limit);
+
+    @Query("SELECT p.id AS id, p.publishedAt AS publishedAt FROM Post p WHERE p.author.id = :authorId AND p.status = :status AND " +
+            SEEK_NEWER)
+    List<PostKey> findByAuthorIdAndStatusAfter(@Param("authorId") Long authorId,
+                                               @Param("status") Post.Status status,
+                                               @Param("publishedAt") LocalDateTime publishedAt,
+                                               @Param("id") Long id,
+                                               Limit limit);
+
     Page<Post> findByStatus(Post.Status status, Pageable pageable);
 
     @Query("SELECT p FROM Post p WHERE p.status = 'PUBLISHED' AND " +
@@ -32,18 +74,68 @@ public interface PostRepository extends JpaRepository<Post, Long> {
             "ORDER BY p.publishedAt DESC NULLS LAST")
     Page<Post> findPublishedPosts(@Param("now") LocalDateTime now, Pageable pageable);
 
+    @Query("SELECT p.id FROM Post p WHERE p.status = 'PUBLISHED' AND " +
+            "(p.publishedAt IS NULL OR p.publishedAt <= :now) " +
+            "ORDER BY p.publishedAt DESC NULLS LAST")
+    Slice<Long> findPublishedPostIds(@Param("now") LocalDateTime now, Pageable pageable);
+
+    @Query("SELECT COUNT(p) FROM Post p WHERE p.status = 'PUBLISHED' AND " +
+            "(p.publishedAt IS NULL OR p.publishedAt <= :now)")
+    long countPublishedPosts(@Param("now") LocalDateTime now);
+
+    @Query("SELECT p.id AS id, p.publishedAt AS publishedAt FROM Post p WHERE p.status = 'PUBLISHED' AND " + VISIBLE + "AND " +
+            SEEK_OLDER)
+    List<PostKey> findPublishedPostsBefore(@Param("now") LocalDateTime now,
+                                           @Param("publishedAt") LocalDateTime publishedAt,
+                                           @Param("id") Long id,
+                                           Limit limit);
+
+    @Query("SELECT p.id AS id, p.publishedAt AS publishedAt FROM Post p WHERE p.status = 'PUBLISHED' AND " + VISIBLE + "AND " +
+            SEEK_NEWER)
+    List<PostKey> findPublishedPostsAfter(@Param("now") LocalDateTime now,
+                                          @Param("publishedAt") LocalDateTime publishedAt,
+                                          @Param("id") Long id,
+                                          Limit limit);
+
     @Cacheable(value = "popularPosts", key = "#pageable.pageNumber + '-' + #pageable.pageSize")
     @Query("SELECT p FROM Post p WHERE p.status = 'PUBLISHED' AND " +
             "(p.publishedAt IS NULL OR p.publishedAt <= :now) " +
             "ORDER BY p.viewCount DESC, p.likeCount DESC, p.publishedAt DESC")
     Page<Post> findPopularPosts(@Param("now") LocalDateTime now, Pageable pageable);
 
+    @Query("SELECT p.id FROM Post p WHERE p.status = 'PUBLISHED' AND " +
+            "(p.publishedAt IS NULL OR p.publishedAt <= :now) " +
+            "ORDER BY p.viewCount DESC, p.likeCount DESC, p.publishedAt DESC")
+    Slice<Long> findPopularPostIds(@Param("now") LocalDateTime now, Pageable pageable);
+
     @Query("SELECT p FROM Post p JOIN p.tags t WHERE t.id = :tagId AND p.status = 'PUBLISHED'")
     Page<Post> findByTagId(@Param("tagId") Long tagId, Pageable pageable);
 
     @Query("SELECT p FROM Post p JOIN p.tags t WHERE t.name = :tagName AND p.status = 'PUBLISHED'")
     Page<Post> findByTagName(@Param("tagName") String tagName, Pageable pageable);
 
+    @Query("SELECT p.id FROM Post p JOIN p.tags t WHERE t.name = :tagName AND p.status = 'PUBLISHED' AND " + VISIBLE)
+    Slice<Long> findPostIdsByTagName(@Param("tagName") String tagName, @Param("now") LocalDateTime now, Pageable pageable);
+
+    @Query("SELECT COUNT(p) FROM Post p JOIN p.tags t WHERE t.name = :tagName AND p.status = 'PUBLISHED' AND " + VISIBLE)
+    long countByTagName(@Param("tagName") String tagName, @Param("now") LocalDateTime now);
+
+    @Query("SELECT p.id AS id, p.publishedAt AS publishedAt FROM Post p JOIN p.tags t WHERE t.name = :tagName AND p.status = 'PUBLISHED' AND " + VISIBLE + "AND " +
+            SEEK_OLDER)
+    List<PostKey> findByTagNameBefore(@Param("tagName") String tagName,
+                                      @Param("now") LocalDateTime now,
+                                      @Param("publishedAt") LocalDateTime publishedAt,
+                                      @Param("id") Long id,
+                                      Limit limit);
+
+    @Query("SELECT p.id AS id, p.publishedAt AS publishedAt FROM Post p JOIN p.tags t WHERE t.name = :tagName AND p.status = 'PUBLISHED' AND " + VISIBLE + "AND " +
+            SEEK_NEWER)
+    List<PostKey> findByTagNameAfter(@Param("tagName") String tagName,
+                                     @Param("now") LocalDateTime now,
+                                     @Param("publishedAt") LocalDateTime publishedAt,
+                                     @Param("id") Long id,
+                                     Limit limit);
+
     @Query("SELECT p FROM Post p WHERE p.featured = true AND p.status = 'PUBLISHED'")
     Page<Post> findFeaturedPosts(Pageable pageable);
 
@@ -72,6 +164,41 @@ public interface PostRepository extends JpaRepository<Post, Long> {
             nativeQuery = true)
     Page<Post> fullTextSearch(@Param("query") String query, Pageable pageable);
 
+    @Query(value = """
+        SELECT p.id FROM posts p 
+        WHERE p.status = 'PUBLISHED' 
+        AND (p.search_vector @@ plainto_tsquery('english', :query)
+             OR LOWER(p.title) LIKE LOWER(CONCAT('%', :query, '%'))
+             OR LOWER(p.content) LIKE LOWER(CONCAT('%', :query, '%')))
+        ORDER BY ts_rank(p.search_vector, plainto_tsquery('english', :query)) DESC, 
+                 p.published_at DESC NULLS LAST
+        """,
+            nativeQuery = true)
+    Slice<Long> fullTextSearchIds(@Param("query") String query, Pageable pageable);
+
+    @Query(value = """
+        SELECT COUNT(*) FROM posts p 
+        WHERE p.status = 'PUBLISHED' 
+        AND (p.search_vector @@ plainto_tsquery('english', :query)
+             OR LOWER(p.title) LIKE LOWER(CONCAT('%', :query, '%'))
+             OR LOWER(p.content) LIKE LOWER(CONCAT('%', :query, '%')))
+        """,
+            nativeQuery = true)
+    long countFullTextSearch(@Param("query") String query);
+
+    @Query("SELECT p FROM Post p JOIN FETCH p.author WHERE p.id IN :ids")
+    List<Post> findAllWithAuthorByIdIn(@Param("ids") Collection<Long> ids);
+
+    // без колонки content: для списков достаточно excerpt
+    @Query("SELECT new ru.Edje_7.dto.PostSummary(p.id, p.title, p.slug, p.excerpt, p.status, " +
+            "p.viewCount, p.likeCount, p.commentCount, p.featured, p.createdAt, p.updatedAt, p.publishedAt, " +
+            "a.id, a.username, a.avatarUrl) " +
+            "FROM Post p JOIN p.author a WHERE p.id IN :ids")
+    List<PostSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT p.id AS postId, t.name AS name FROM Post p JOIN p.tags t WHERE p.id IN :postIds")
+    List<PostTagName> findTagNamesByPostIds(@Param("postIds") Collection<Long> postIds);
+
     @Query("SELECT COUNT(p) > 0 FROM Post p JOIN p.likedBy u WHERE p.id = :postId AND u.id = :userId")
     boolean isLikedByUser(@Param("postId") Long postId, @Param("userId") Long userId);
 
@@ -81,8 +208,146 @@ public interface PostRepository extends JpaRepository<Post, Long> {
     @Query("SELECT p FROM Post p JOIN p.author.subscribers s WHERE s.id = :userId AND p.status = 'PUBLISHED'")
     Page<Post> findPostsFromSubscriptions(@Param("userId") Long userId, Pageable pageable);
 
+    @Query(value = "SELECT p.id FROM Post p JOIN p.author.subscribers s WHERE s.id = :userId AND p.status = 'PUBLISHED' AND " + VISIBLE,
+            countQuery = "SELECT COUNT(p) FROM Post p JOIN p.author.subscribers s WHERE s.id = :userId AND p.status = 'PUBLISHED' AND " + VISIBLE)
+    Page<Long> findPostIdsFromSubscriptions(@Param("userId") Long userId, @Param("now") LocalDateTime now, Pageable pageable);
+
+    @Query("SELECT p.id AS id, p.publishedAt AS publishedAt FROM Post p JOIN p.author.subscribers s WHERE s.id = :userId AND p.status = 'PUBLISHED' AND " + VISIBLE + "AND " +
+            SEEK_OLDER)
+    List<PostKey> findPostsFromSubscriptionsBefore(@Param("userId") Long userId,
+                                                   @Param("now") LocalDateTime now,
+                                                   @Param("publishedAt") LocalDateTime publishedAt,
+                                                   @Param("id") Long id,
+                                                   Limit limit);
+
+    @Query("SELECT p.id AS id, p.publishedAt AS publishedAt FROM Post p JOIN p.author.subscribers s WHERE s.id = :userId AND p.status = 'PUBLISHED' AND " + VISIBLE + "AND " +
+            SEEK_NEWER)
+    List<PostKey> findPostsFromSubscriptionsAfter(@Param("userId") Long userId,
+                                                  @Param("now") LocalDateTime now,
+                                                  @Param("publishedAt") LocalDateTime publishedAt,
+                                                  @Param("id") Long id,
+                                                  Limit limit);
+
     Long countByAuthorId(Long authorId);
 
+    @Query("SELECT p.id AS id, p.publishedAt AS publishedAt, p.viewCount AS viewCount, " +
+            "p.likeCount AS likeCount, p.commentCount AS commentCount " +
+            "FROM Post p WHERE p.status = 'PUBLISHED' AND p.publishedAt <= :now")
+    List<PostEngagement> findPublishedEngagement(@Param("now") LocalDateTime now);
+
+    @Query("SELECT p.id AS id, p.title AS title, p.excerpt AS excerpt, p.content AS content " +
+            "FROM Post p WHERE p.status = 'PUBLISHED' AND p.id > :afterId ORDER BY p.id")
+    List<PostText> findPublishedTextsAfter(@Param("afterId") Long afterId, Limit limit);
+
+    @Query("SELECT p.id AS id, p.title AS title, p.excerpt AS excerpt, p.content AS content " +
+            "FROM Post p WHERE p.status = 'PUBLISHED' AND p.id = :id")
+    Optional<PostText> findPublishedText(@Param("id") Long id);
+
+    @Query("SELECT p.id AS postId, t.id AS tagId FROM Post p JOIN p.tags t")
+    List<PostTagLink> findAllTagLinks();
+
+    @Query("SELECT p.id AS postId, t.id AS tagId FROM Post p JOIN p.tags t WHERE p.id IN :postIds")
+    List<PostTagLink> findTagLinksByPostIds(@Param("postIds") Collection<Long> postIds);
+
+    @Query("SELECT p.id FROM Post p JOIN p.tags t " +
+            "WHERE t.id IN (SELECT t2.id FROM Post p2 JOIN p2.tags t2 WHERE p2.id = :postId) " +
+            "AND p.id <> :postId AND p.status = 'PUBLISHED' GROUP BY p.id ORDER BY COUNT(t) DESC, p.id DESC")
+    List<Long> findPublishedIdsSharingTags(@Param("postId") Long postId, Limit limit);
+
+    @Query("SELECT p.author.id AS authorId, t.id AS tagId, COUNT(p) AS postCount FROM Post p JOIN p.tags t " +
+            "WHERE p.author.id IN :authorIds AND p.status = 'PUBLISHED' GROUP BY p.author.id, t.id")
+    List<AuthorTagCount> findAuthorTagCounts(@Param("authorIds") Collection<Long> authorIds);
+
+    @Query("SELECT p.id AS postId, p.author.id AS authorId FROM Post p WHERE p.id IN :postIds")
+    List<PostAuthor> findAuthorsByPostIds(@Param("postIds") Collection<Long> postIds);
+
+    @Query("SELECT p.id FROM Post p WHERE p.status = 'PUBLISHED'")
+    List<Long> findAllPublishedIds();
+
+    @Query("SELECT p.id AS id, p.author.id AS authorId, p.publishedAt AS publishedAt FROM Post p WHERE p.status = 'PUBLISHED'")
+    List<PostFacetKey> findAllPublishedFacetKeys();
+
+    @Query("SELECT p.id AS id, p.author.id AS authorId, p.publishedAt AS publishedAt FROM Post p " +
+            "WHERE p.status = 'PUBLISHED' AND p.id = :id")
+    Optional<PostFacetKey> findPublishedFacetKey(@Param("id") Long id);
+
+    @Query("SELECT p.id AS id, p.author.id AS authorId, p.publishedAt AS publishedAt FROM Post p " +
+            "WHERE p.status = 'PUBLISHED' AND p.id IN :ids")
+    List<PostFacetKey> findPublishedFacetKeysByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT p.id AS postId, p.createdAt AS createdAt, t.id AS tagId FROM Post p JOIN p.tags t WHERE p.createdAt >= :since")
+    List<PostTagRef> findTagRefsCreatedSince(@Param("since") LocalDateTime since);
+
     @Query("SELECT p FROM Post p WHERE p.status = 'PUBLISHED' AND p.createdAt >= :startDate")
     List<Post> findRecentPosts(@Param("startDate") LocalDateTime startDate);
+
+    interface PostKey {
+        Long getId();
+
+        LocalDateTime getPublishedAt();
+    }
+
+    interface PostEngagement {
+        Long getId();
+
+        LocalDateTime getPublishedAt();
+
+        Integer getViewCount();
+
+        Integer getLikeCount();
+
+        Integer getCommentCount();
+    }
+
+    interface PostText {
+        Long getId();
+
+        String getTitle();
+
+        String getExcerpt();
+
+        String getContent();
+    }
+
+    interface PostAuthor {
+        Long getPostId();
+
+        Long getAuthorId();
+    }
+
+    interface AuthorTagCount {
+        Long getAuthorId();
+
+        Long getTagId();
+
+        Long getPostCount();
+    }
+
+    interface PostTagLink {
+        Long getPostId();
+
+        Long getTagId();
+    }
+
+    interface PostTagRef {
+        Long getPostId();
+
+        LocalDateTime getCreatedAt();
+
+        Long getTagId();
+    }
+
+    interface PostTagName {
+        Long getPostId();
+
+        String getName();
+    }
+
+    interface PostFacetKey {
+        Long getId();
+
+        Long getAuthorId();
+
+        LocalDateTime getPublishedAt();
+    }
 }
\ No newline at end of file
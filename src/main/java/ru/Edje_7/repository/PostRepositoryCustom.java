@@ -0,0 +1,16 @@
+package ru.Edje_7.repository;
+
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+import ru.Edje_7.entity.Post;
+
+public interface PostRepositoryCustom {
+
+    /**
+     * Только id постов по условию; сортировка и limit/offset выполняются в SQL,
+     * для определения hasNext читается одна лишняя строка.
+     */
+    Slice<Long> findIds(Specification<Post> spec, Pageable pageable);
+}
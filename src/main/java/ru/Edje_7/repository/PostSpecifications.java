@@ -0,0 +1,100 @@
+package ru.Edje_7.repository;
+
+
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.jpa.domain.Specification;
+import ru.Edje_7.entity.Post;
+import ru.Edje_7.entity.Tag;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * Условия на посты для расширенного поиска. Каждое условие — отдельная
+ * Specification, их порядок в WHERE задаёт PostQueryPlanner.
+ */
+public final class PostSpecifications {
+
+    private PostSpecifications() {
+    }
+
+    public static Specification<Post> published(LocalDateTime now) {
+        return (root, query, cb) -> cb.and(
+                cb.equal(root.get("status"), Post.Status.PUBLISHED),
+                cb.lessThanOrEqualTo(root.get("publishedAt"), now));
+    }
+
+    public static Specification<Post> status(Post.Status status) {
+        return (root, query, cb) -> cb.equal(root.get("status"), status);
+    }
+
+    public static Specification<Post> idIn(Collection<Long> ids) {
+        return (root, query, cb) -> root.get("id").in(ids);
+    }
+
+    public static Specification<Post> idBefore(long id) {
+        return (root, query, cb) -> cb.lessThan(root.get("id"), id);
+    }
+
+    public static Specification<Post> authorId(Long authorId) {
+        return (root, query, cb) -> cb.equal(root.get("author").get("id"), authorId);
+    }
+
+    public static Specification<Post> hasTag(Long tagId) {
+        return (root, query, cb) -> {
+            Subquery<Long> tagged = query.subquery(Long.class);
+            Root<Post> post = tagged.correlate(root);
+            Join<Post, Tag> tag = post.join("tags");
+            tagged.select(tag.get("id")).where(cb.equal(tag.get("id"), tagId));
+            return cb.exists(tagged);
+        };
+    }
+
+    /**
+     * Хотя бы один тег из tagIds.
+     */
+    public static Specification<Post> hasAnyTag(Collection<Long> tagIds) {
+        return (root, query, cb) -> {
+            Subquery<Long> tagged = query.subquery(Long.class);
+            Root<Post> post = tagged.correlate(root);
+            Join<Post, Tag> tag = post.join("tags");
+            tagged.select(tag.get("id")).where(tag.get("id").in(tagIds));
+            return cb.exists(tagged);
+        };
+    }
+
+    public static Specification<Post> publishedFrom(LocalDateTime from) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("publishedAt"), from);
+    }
+
+    public static Specification<Post> publishedTo(LocalDateTime to) {
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("publishedAt"), to);
+    }
+
+    public static Specification<Post> featured(boolean featured) {
+        return (root, query, cb) -> cb.equal(root.get("featured"), featured);
+    }
+
+    public static Specification<Post> minViews(int minViews) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("viewCount"), minViews);
+    }
+
+    public static Specification<Post> minLikes(int minLikes) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("likeCount"), minLikes);
+    }
+
+    /**
+     * Подстрока в заголовке или тексте; используется, пока не построен полнотекстовый индекс.
+     */
+    public static Specification<Post> containsText(String text) {
+        String pattern = "%" + text.toLowerCase()
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_") + "%";
+        return (root, query, cb) -> cb.or(
+                cb.like(cb.lower(root.get("title")), pattern, '\\'),
+                cb.like(cb.lower(root.get("content")), pattern, '\\'));
+    }
+}
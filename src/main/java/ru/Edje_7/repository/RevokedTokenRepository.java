@@ -0,0 +1,34 @@
+package ru.Edje_7.repository;
+
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.Edje_7.entity.RevokedToken;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, String> {
+
+    // 0 строк, если токен уже отозван: так обнаруживается повторное использование refresh-токена
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO revoked_tokens (jti, expires_at, token_type) VALUES (:jti, :expiresAt, :type) " +
+            "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("jti") String jti,
+                       @Param("expiresAt") LocalDateTime expiresAt,
+                       @Param("type") String type);
+
+    @Query("SELECT r.jti FROM RevokedToken r WHERE r.type = :type AND r.expiresAt > :now")
+    List<String> findActiveJtis(@Param("type") RevokedToken.Type type, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM RevokedToken r WHERE r.expiresAt <= :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -1,6 +1,7 @@
 package ru.Edje_7.repository;
 
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -10,6 +11,7 @@ import org.springframework.stereotype.Repository;
 import ru.Edje_7.entity.Tag;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,6 +20,8 @@ public interface TagRepository extends JpaRepository<Tag, Long> {
 
     Optional<Tag> findByName(String name);
 
+    List<Tag> findByNameIn(Collection<String> names);
+
     Optional<Tag> findBySlug(String slug);
 
     boolean existsByName(String name);
@@ -25,6 +29,22 @@ public interface TagRepository extends JpaRepository<Tag, Long> {
     @Query("SELECT t FROM Tag t WHERE LOWER(t.name) LIKE LOWER(CONCAT('%', :query, '%'))")
     Page<Tag> searchTags(@Param("query") String query, Pageable pageable);
 
+    @Query("SELECT COUNT(t) FROM Tag t WHERE LOWER(t.name) LIKE LOWER(CONCAT('%', :query, '%'))")
+    long countSearchTags(@Param("query") String query);
+
+    @Query("SELECT t.id AS id, t.name AS name FROM Tag t WHERE t.id IN :ids")
+    List<TagName> findNamesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT t.id AS id, t.name AS name, t.slug AS slug, t.postCount AS postCount FROM Tag t")
+    List<TagSuggestion> findAllSuggestions();
+
+    @Query("SELECT t.id AS id, t.name AS name, t.slug AS slug, t.postCount AS postCount FROM Tag t " +
+            "WHERE LOWER(t.name) LIKE :pattern ESCAPE '\\' ORDER BY t.postCount DESC, t.id")
+    List<TagSuggestion> findSuggestionsLike(@Param("pattern") String pattern, Limit limit);
+
+    @Query("SELECT t.id AS id, t.name AS name, t.slug AS slug, t.postCount AS postCount FROM Tag t WHERE t.id = :id")
+    Optional<TagSuggestion> findSuggestion(@Param("id") Long id);
+
     @Query("SELECT t FROM Tag t JOIN t.posts p WHERE p.id = :postId")
     List<Tag> findByPostId(@Param("postId") Long postId);
 
@@ -41,4 +61,20 @@ public interface TagRepository extends JpaRepository<Tag, Long> {
             nativeQuery = true)
     List<Tag> findTrendingTagsWithLimit(@Param("since") LocalDateTime since,
                                         @Param("limit") int limit);
+
+    interface TagName {
+        Long getId();
+
+        String getName();
+    }
+
+    interface TagSuggestion {
+        Long getId();
+
+        String getName();
+
+        String getSlug();
+
+        Integer getPostCount();
+    }
 }
\ No newline at end of file
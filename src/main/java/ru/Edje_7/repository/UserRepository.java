@@ -3,19 +3,23 @@ package ru.Edje_7.repository;
 
 
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.Edje_7.entity.User;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
 
     @Cacheable(value = "users", key = "#email")
     Optional<User> findByEmail(String email);
@@ -28,11 +32,137 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     boolean existsByUsername(String username);
 
-    @Query("SELECT u FROM User u WHERE LOWER(u.username) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
-            "LOWER(u.email) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
-            "LOWER(u.firstName) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
-            "LOWER(u.lastName) LIKE LOWER(CONCAT('%', :query, '%'))")
-    Page<User> searchUsers(@Param("query") String query, Pageable pageable);
+    // Только PostgreSQL: LIKE и <% обслуживаются GIN-индексами pg_trgm (V5)
+    @Query(value = """
+        SELECT u.id FROM users u
+        WHERE lower(u.username) LIKE :pattern ESCAPE '\\'
+           OR lower(coalesce(u.first_name, '') || ' ' || coalesce(u.last_name, '')) LIKE :pattern ESCAPE '\\'
+           OR :query <% lower(u.username)
+           OR :query <% lower(coalesce(u.first_name, '') || ' ' || coalesce(u.last_name, ''))
+           OR (:withEmail AND (lower(u.email) LIKE :pattern ESCAPE '\\' OR :query <% lower(u.email)))
+        ORDER BY GREATEST(
+                word_similarity(:query, lower(u.username)),
+                word_similarity(:query, lower(coalesce(u.first_name, '') || ' ' || coalesce(u.last_name, ''))),
+                CASE WHEN :withEmail THEN word_similarity(:query, lower(u.email)) ELSE 0 END) DESC,
+            u.id
+        """,
+            nativeQuery = true)
+    Slice<Long> trigramSearchIds(@Param("query") String query,
+                                 @Param("pattern") String pattern,
+                                 @Param("withEmail") boolean withEmail,
+                                 Pageable pageable);
+
+    @Query(value = """
+        SELECT COUNT(*) FROM users u
+        WHERE lower(u.username) LIKE :pattern ESCAPE '\\'
+           OR lower(coalesce(u.first_name, '') || ' ' || coalesce(u.last_name, '')) LIKE :pattern ESCAPE '\\'
+           OR :query <% lower(u.username)
+           OR :query <% lower(coalesce(u.first_name, '') || ' ' || coalesce(u.last_name, ''))
+           OR (:withEmail AND (lower(u.email) LIKE :pattern ESCAPE '\\' OR :query <% lower(u.email)))
+        """,
+            nativeQuery = true)
+    long countTrigramSearch(@Param("query") String query,
+                            @Param("pattern") String pattern,
+                            @Param("withEmail") boolean withEmail);
+
+    // Без pg_trgm, пока UserTrigramIndex не построен: только вхождение подстроки
+    @Query("SELECT u.id FROM User u WHERE LOWER(u.username) LIKE :pattern ESCAPE '\\' " +
+            "OR LOWER(CONCAT(COALESCE(u.firstName, ''), ' ', COALESCE(u.lastName, ''))) LIKE :pattern ESCAPE '\\' " +
+            "OR (:withEmail = true AND LOWER(u.email) LIKE :pattern ESCAPE '\\') " +
+            "ORDER BY u.id")
+    Slice<Long> searchIdsLike(@Param("pattern") String pattern,
+                              @Param("withEmail") boolean withEmail,
+                              Pageable pageable);
+
+    @Query("SELECT COUNT(u) FROM User u WHERE LOWER(u.username) LIKE :pattern ESCAPE '\\' " +
+            "OR LOWER(CONCAT(COALESCE(u.firstName, ''), ' ', COALESCE(u.lastName, ''))) LIKE :pattern ESCAPE '\\' " +
+            "OR (:withEmail = true AND LOWER(u.email) LIKE :pattern ESCAPE '\\')")
+    long countSearchLike(@Param("pattern") String pattern, @Param("withEmail") boolean withEmail);
+
+    @Query("SELECT u.id AS id, u.username AS username, u.email AS email, u.firstName AS firstName, " +
+            "u.lastName AS lastName FROM User u")
+    List<UserSearchKey> findAllSearchKeys();
+
+    @Query("SELECT u.id AS id, u.username AS username, u.email AS email, u.firstName AS firstName, " +
+            "u.lastName AS lastName FROM User u WHERE u.id = :id")
+    Optional<UserSearchKey> findSearchKey(@Param("id") Long id);
+
+    @Query("SELECT u.id AS id, u.username AS username FROM User u WHERE u.id IN :ids")
+    List<UserName> findUsernamesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT u.id AS id, u.username AS username, u.firstName AS firstName, u.lastName AS lastName, " +
+            "u.avatarUrl AS avatarUrl, u.followerCount AS followerCount FROM User u WHERE u.enabled = true AND u.locked = false")
+    List<UserSuggestion> findAllSuggestions();
+
+    @Query("SELECT u.id AS id, u.username AS username, u.firstName AS firstName, u.lastName AS lastName, " +
+            "u.avatarUrl AS avatarUrl, u.followerCount AS followerCount FROM User u " +
+            "WHERE u.enabled = true AND u.locked = false AND (LOWER(u.username) LIKE :pattern ESCAPE '\\' " +
+            "OR LOWER(CONCAT(COALESCE(u.firstName, ''), ' ', COALESCE(u.lastName, ''))) LIKE :pattern ESCAPE '\\' " +
+            "OR LOWER(u.lastName) LIKE :pattern ESCAPE '\\') " +
+            "ORDER BY u.followerCount DESC, u.id")
+    List<UserSuggestion> findSuggestionsLike(@Param("pattern") String pattern, Limit limit);
+
+    @Query("SELECT u.id AS id, u.username AS username, u.firstName AS firstName, u.lastName AS lastName, " +
+            "u.avatarUrl AS avatarUrl, u.followerCount AS followerCount FROM User u " +
+            "WHERE u.enabled = true AND u.locked = false AND u.id = :id")
+    Optional<UserSuggestion> findSuggestion(@Param("id") Long id);
+
+    // Подписка без загрузки коллекций: 0 строк, если она уже есть.
+    // ON CONFLICT поддерживают PostgreSQL и H2 в режиме PostgreSQL
+    @Modifying
+    @Query(value = "INSERT INTO subscriptions (subscriber_id, author_id) VALUES (:subscriberId, :authorId) " +
+            "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertSubscription(@Param("subscriberId") Long subscriberId, @Param("authorId") Long authorId);
+
+    @Modifying
+    @Query(value = "DELETE FROM subscriptions WHERE subscriber_id = :subscriberId AND author_id = :authorId",
+            nativeQuery = true)
+    int deleteSubscription(@Param("subscriberId") Long subscriberId, @Param("authorId") Long authorId);
+
+    @Query("SELECT u.id FROM User u WHERE u.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("UPDATE User u SET u.followerCount = u.followerCount + :delta WHERE u.id IN :userIds")
+    int adjustFollowerCounts(@Param("userIds") Collection<Long> userIds, @Param("delta") int delta);
+
+    @Modifying
+    @Query("UPDATE User u SET u.followerCount = u.followerCount + :delta WHERE u.id = :userId")
+    int adjustFollowerCount(@Param("userId") Long userId, @Param("delta") int delta);
+
+    @Modifying
+    @Query("UPDATE User u SET u.followingCount = u.followingCount + :delta WHERE u.id = :userId")
+    int adjustFollowingCount(@Param("userId") Long userId, @Param("delta") int delta);
+
+    @Modifying
+    @Query("UPDATE User u SET u.postCount = u.postCount + :delta WHERE u.id = :userId")
+    int adjustPostCount(@Param("userId") Long userId, @Param("delta") int delta);
+
+    @Query("SELECT u.id FROM User u WHERE u.enabled = true AND u.locked = false ORDER BY u.followerCount DESC, u.id")
+    List<Long> findMostFollowedIds(Limit limit);
+
+    @Query(value = "SELECT author_id FROM subscriptions WHERE subscriber_id = :userId ORDER BY author_id",
+            nativeQuery = true)
+    List<Long> findFollowingIds(@Param("userId") Long userId);
+
+    // Друзья друзей запросом к БД, пока FollowGraph не построен
+    @Query(value = """
+        SELECT s2.author_id AS userId, COUNT(*) AS mutualCount
+        FROM subscriptions s1
+        JOIN subscriptions s2 ON s2.subscriber_id = s1.author_id
+        WHERE s1.subscriber_id = :userId
+          AND s2.author_id <> :userId
+          AND NOT EXISTS (SELECT 1 FROM subscriptions own
+                          WHERE own.subscriber_id = :userId AND own.author_id = s2.author_id)
+        GROUP BY s2.author_id
+        ORDER BY COUNT(*) DESC, s2.author_id
+        LIMIT :limit
+        """,
+            nativeQuery = true)
+    List<FollowCandidate> findFriendsOfFriends(@Param("userId") Long userId, @Param("limit") int limit);
+
+    @Query("SELECT u.id AS id, u.securityVersion AS securityVersion FROM User u WHERE u.securityVersion > 0")
+    List<UserSecurityVersion> findChangedSecurityVersions();
 
     @Query("SELECT u FROM User u JOIN u.roles r WHERE r.name = 'ROLE_ADMIN'")
     List<User> findAdmins();
@@ -48,4 +178,48 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     @Query("SELECT s FROM User u JOIN u.subscriptions s WHERE u.id = :userId")
     Page<User> findFollowing(@Param("userId") Long userId, Pageable pageable);
+
+    interface UserName {
+        Long getId();
+
+        String getUsername();
+    }
+
+    interface FollowCandidate {
+        Long getUserId();
+
+        Long getMutualCount();
+    }
+
+    interface UserSecurityVersion {
+        Long getId();
+
+        Integer getSecurityVersion();
+    }
+
+    interface UserSearchKey {
+        Long getId();
+
+        String getUsername();
+
+        String getEmail();
+
+        String getFirstName();
+
+        String getLastName();
+    }
+
+    interface UserSuggestion {
+        Long getId();
+
+        String getUsername();
+
+        String getFirstName();
+
+        String getLastName();
+
+        String getAvatarUrl();
+
+        Integer getFollowerCount();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package ru.Edje_7.repository;
+
+
+import java.util.List;
+
+public interface UserRepositoryCustom {
+
+    /**
+     * Подписывает subscriberId на всех authorIds одним многострочным INSERT;
+     * существующие подписки пропускаются.
+     *
+     * @return id авторов, подписка на которых действительно добавлена
+     */
+    List<Long> insertSubscriptions(Long subscriberId, List<Long> authorIds);
+}
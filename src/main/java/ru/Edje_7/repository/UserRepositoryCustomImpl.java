@@ -0,0 +1,52 @@
+package ru.Edje_7.repository;
+
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.Edje_7.config.DatabasePlatform;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@RequiredArgsConstructor
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+    private static final String INSERT_SUBSCRIPTIONS_SQL =
+            "INSERT INTO subscriptions (subscriber_id, author_id) VALUES %s ON CONFLICT DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DatabasePlatform databasePlatform;
+
+    @Override
+    public List<Long> insertSubscriptions(Long subscriberId, List<Long> authorIds) {
+        if (authorIds.isEmpty()) {
+            return List.of();
+        }
+
+        String insert = INSERT_SUBSCRIPTIONS_SQL.formatted(
+                String.join(", ", Collections.nCopies(authorIds.size(), "(?, ?)")));
+        // добавленные строки возвращает сам INSERT: счётчик числа строк из batch драйвер
+        // может не сообщить (SUCCESS_NO_INFO при reWriteBatchedInserts); H2 не знает RETURNING
+        String sql = databasePlatform.isPostgres()
+                ? insert + " RETURNING author_id"
+                : "SELECT author_id FROM FINAL TABLE (" + insert + ")";
+
+        Object[] args = new Object[authorIds.size() * 2];
+        for (int i = 0; i < authorIds.size(); i++) {
+            args[2 * i] = subscriberId;
+            args[2 * i + 1] = authorIds.get(i);
+        }
+        Set<Long> inserted = new HashSet<>(jdbcTemplate.queryForList(sql, Long.class, args));
+
+        List<Long> followed = new ArrayList<>(inserted.size());
+        for (Long authorId : authorIds) {
+            if (inserted.contains(authorId)) {
+                followed.add(authorId);
+            }
+        }
+        return followed;
+    }
+}
@@ -0,0 +1,288 @@
+package ru.Edje_7.search;
+
+
+/**
+ * Стеммер Портера для английского языка (M.F. Porter, 1980).
+ * Ожидает слово в нижнем регистре из латинских букв.
+ */
+final class EnglishStemmer {
+
+    private char[] b;
+    private int k;
+    private int j;
+
+    String stem(String word) {
+        if (word.length() <= 2) {
+            return word;
+        }
+        b = word.toCharArray();
+        k = b.length - 1;
+
+        step1ab();
+        if (k > 0) {
+            step1c();
+            step2();
+            step3();
+            step4();
+            step5();
+        }
+        return new String(b, 0, k + 1);
+    }
+
+    private boolean cons(int i) {
+        switch (b[i]) {
+            case 'a', 'e', 'i', 'o', 'u':
+                return false;
+            case 'y':
+                return i == 0 || !cons(i - 1);
+            default:
+                return true;
+        }
+    }
+
+    // число последовательностей гласные-согласные в b[0..j]
+    private int m() {
+        int n = 0;
+        int i = 0;
+        while (true) {
+            if (i > j) {
+                return n;
+            }
+            if (!cons(i)) {
+                break;
+            }
+            i++;
+        }
+        i++;
+        while (true) {
+            while (true) {
+                if (i > j) {
+                    return n;
+                }
+                if (cons(i)) {
+                    break;
+                }
+                i++;
+            }
+            i++;
+            n++;
+            while (true) {
+                if (i > j) {
+                    return n;
+                }
+                if (!cons(i)) {
+                    break;
+                }
+                i++;
+            }
+            i++;
+        }
+    }
+
+    private boolean vowelInStem() {
+        for (int i = 0; i <= j; i++) {
+            if (!cons(i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean doubleConsonant(int i) {
+        return i >= 1 && b[i] == b[i - 1] && cons(i);
+    }
+
+    // согласная-гласная-согласная, причём последняя не w, x или y
+    private boolean cvc(int i) {
+        if (i < 2 || !cons(i) || cons(i - 1) || !cons(i - 2)) {
+            return false;
+        }
+        char ch = b[i];
+        return ch != 'w' && ch != 'x' && ch != 'y';
+    }
+
+    private boolean ends(String s) {
+        int length = s.length();
+        int offset = k - length + 1;
+        if (offset < 0) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (b[offset + i] != s.charAt(i)) {
+                return false;
+            }
+        }
+        j = k - length;
+        return true;
+    }
+
+    private void setTo(String s) {
+        int length = s.length();
+        int offset = j + 1;
+        if (offset + length > b.length) {
+            char[] grown = new char[offset + length];
+            System.arraycopy(b, 0, grown, 0, b.length);
+            b = grown;
+        }
+        for (int i = 0; i < length; i++) {
+            b[offset + i] = s.charAt(i);
+        }
+        k = j + length;
+    }
+
+    private void replace(String s) {
+        if (m() > 0) {
+            setTo(s);
+        }
+    }
+
+    // множественное число и -ed, -ing
+    private void step1ab() {
+        if (b[k] == 's') {
+            if (ends("sses")) {
+                k -= 2;
+            } else if (ends("ies")) {
+                setTo("i");
+            } else if (b[k - 1] != 's') {
+                k--;
+            }
+        }
+        if (ends("eed")) {
+            if (m() > 0) {
+                k--;
+            }
+        } else if ((ends("ed") || ends("ing")) && vowelInStem()) {
+            k = j;
+            if (ends("at")) {
+                setTo("ate");
+            } else if (ends("bl")) {
+                setTo("ble");
+            } else if (ends("iz")) {
+                setTo("ize");
+            } else if (doubleConsonant(k)) {
+                k--;
+                char ch = b[k];
+                if (ch == 'l' || ch == 's' || ch == 'z') {
+                    k++;
+                }
+            } else if (m() == 1 && cvc(k)) {
+                setTo("e");
+            }
+        }
+    }
+
+    private void step1c() {
+        if (ends("y") && vowelInStem()) {
+            b[k] = 'i';
+        }
+    }
+
+    // двойные суффиксы: -ization -> -ize и т.п.
+    private void step2() {
+        if (k == 0) {
+            return;
+        }
+        switch (b[k - 1]) {
+            case 'a' -> {
+                if (ends("ational")) replace("ate");
+                else if (ends("tional")) replace("tion");
+            }
+            case 'c' -> {
+                if (ends("enci")) replace("ence");
+                else if (ends("anci")) replace("ance");
+            }
+            case 'e' -> {
+                if (ends("izer")) replace("ize");
+            }
+            case 'l' -> {
+                if (ends("bli")) replace("ble");
+                else if (ends("alli")) replace("al");
+                else if (ends("entli")) replace("ent");
+                else if (ends("eli")) replace("e");
+                else if (ends("ousli")) replace("ous");
+            }
+            case 'o' -> {
+                if (ends("ization")) replace("ize");
+                else if (ends("ation")) replace("ate");
+                else if (ends("ator")) replace("ate");
+            }
+            case 's' -> {
+                if (ends("alism")) replace("al");
+                else if (ends("iveness")) replace("ive");
+                else if (ends("fulness")) replace("ful");
+                else if (ends("ousness")) replace("ous");
+            }
+            case 't' -> {
+                if (ends("aliti")) replace("al");
+                else if (ends("iviti")) replace("ive");
+                else if (ends("biliti")) replace("ble");
+            }
+            case 'g' -> {
+                if (ends("logi")) replace("log");
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void step3() {
+        switch (b[k]) {
+            case 'e' -> {
+                if (ends("icate")) replace("ic");
+                else if (ends("ative")) replace("");
+                else if (ends("alize")) replace("al");
+            }
+            case 'i' -> {
+                if (ends("iciti")) replace("ic");
+            }
+            case 'l' -> {
+                if (ends("ical")) replace("ic");
+                else if (ends("ful")) replace("");
+            }
+            case 's' -> {
+                if (ends("ness")) replace("");
+            }
+            default -> {
+            }
+        }
+    }
+
+    // -ant, -ence и т.п. при m() > 1
+    private void step4() {
+        if (k == 0) {
+            return;
+        }
+        boolean found = switch (b[k - 1]) {
+            case 'a' -> ends("al");
+            case 'c' -> ends("ance") || ends("ence");
+            case 'e' -> ends("er");
+            case 'i' -> ends("ic");
+            case 'l' -> ends("able") || ends("ible");
+            case 'n' -> ends("ant") || ends("ement") || ends("ment") || ends("ent");
+            case 'o' -> (ends("ion") && j >= 0 && (b[j] == 's' || b[j] == 't')) || ends("ou");
+            case 's' -> ends("ism");
+            case 't' -> ends("ate") || ends("iti");
+            case 'u' -> ends("ous");
+            case 'v' -> ends("ive");
+            case 'z' -> ends("ize");
+            default -> false;
+        };
+        if (found && m() > 1) {
+            k = j;
+        }
+    }
+
+    // конечная -e и двойная -ll
+    private void step5() {
+        j = k;
+        if (b[k] == 'e') {
+            int a = m();
+            if (a > 1 || (a == 1 && !cvc(k - 1))) {
+                k--;
+            }
+        }
+        if (b[k] == 'l' && doubleConsonant(k) && m() > 1) {
+            k--;
+        }
+    }
+}
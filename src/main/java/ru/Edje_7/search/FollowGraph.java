@@ -0,0 +1,331 @@
+package ru.Edje_7.search;
+
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.Edje_7.event.FollowChangedEvent;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Граф подписок в памяти: для каждого пользователя — отсортированный int[] id авторов,
+ * на которых он подписан, строки индексируются id пользователя. Без коробочных типов
+ * граф занимает около 4 байт на ребро плюс заголовок массива на пользователя с подписками,
+ * так что миллионы рёбер — это десятки мегабайт.
+ * <p>
+ * Строки не меняются на месте: подписка и отписка заменяют строку копией, поэтому
+ * выданный наружу массив остаётся неизменным. Граф строится заново при старте и
+ * периодически (подписки удалённых пользователей исчезают каскадом в БД), между
+ * перестройками обновляется событиями FollowChangedEvent. Рёбра читаются курсором
+ * порциями по EDGES_FETCH_SIZE, события, пришедшие во время чтения, применяются
+ * к новому графу после подмены.
+ */
+@Component
+@Slf4j
+public class FollowGraph {
+
+    private static final String EDGES_SQL = "SELECT subscriber_id, author_id FROM subscriptions ORDER BY subscriber_id, author_id";
+
+    // PostgreSQL отдаёт строки курсором только с fetch size и вне autocommit
+    private static final int EDGES_FETCH_SIZE = 10_000;
+
+    private static final int[] EMPTY = new int[0];
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // following[userId] — id авторов по возрастанию; null — подписок нет
+    private int[][] following = new int[0][];
+    private long edgeCount;
+
+    // события, пришедшие во время перестройки; null — перестройка не идёт
+    private List<FollowChangedEvent> changedDuringRebuild;
+
+    private volatile boolean ready;
+
+    public FollowGraph(DataSource dataSource, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = new JdbcTemplate();
+        this.jdbcTemplate.setDataSource(dataSource);
+        this.jdbcTemplate.setFetchSize(EDGES_FETCH_SIZE);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public long edgeCount() {
+        lock.readLock().lock();
+        try {
+            return edgeCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return id авторов, на которых подписан пользователь, по возрастанию; массив не изменять
+     */
+    public int[] following(long userId) {
+        lock.readLock().lock();
+        try {
+            return row(Math.toIntExact(userId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean follows(long followerId, long authorId) {
+        return Arrays.binarySearch(following(followerId), Math.toIntExact(authorId)) >= 0;
+    }
+
+    /**
+     * Друзья друзей: авторы, на которых подписаны те, на кого подписан пользователь,
+     * кроме него самого и уже отслеживаемых. mutualCount — через сколько его подписок
+     * найден кандидат. Просматривается не больше maxScannedEdges рёбер.
+     *
+     * @return не больше limit кандидатов, по убыванию mutualCount, затем по id
+     */
+    public List<Candidate> friendsOfFriends(long userId, int limit, int maxScannedEdges) {
+        int user = Math.toIntExact(userId);
+        int[] own;
+        int[] reached;
+        int scanned = 0;
+
+        lock.readLock().lock();
+        try {
+            own = row(user);
+            reached = new int[Math.min(maxScannedEdges, 1024)];
+            for (int followed : own) {
+                int[] next = row(followed);
+                int take = Math.min(next.length, maxScannedEdges - scanned);
+                if (scanned + take > reached.length) {
+                    reached = Arrays.copyOf(reached, Math.min(maxScannedEdges, Math.max(scanned + take, reached.length * 2)));
+                }
+                System.arraycopy(next, 0, reached, scanned, take);
+                scanned += take;
+                if (scanned >= maxScannedEdges) {
+                    break;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // сортировка и подсчёт серий вместо карты id -> счётчик
+        Arrays.sort(reached, 0, scanned);
+        long[] keys = new long[scanned];
+        int candidates = 0;
+        for (int i = 0; i < scanned; ) {
+            int candidate = reached[i];
+            int run = 1;
+            while (i + run < scanned && reached[i + run] == candidate) {
+                run++;
+            }
+            i += run;
+            if (candidate != user && Arrays.binarySearch(own, candidate) < 0) {
+                // больший ключ — больше общих подписок, при равенстве меньший id
+                keys[candidates++] = ((long) run << 32) | (Integer.MAX_VALUE - candidate);
+            }
+        }
+
+        Arrays.sort(keys, 0, candidates);
+        List<Candidate> result = new ArrayList<>(Math.min(limit, candidates));
+        for (int i = candidates - 1; i >= 0 && result.size() < limit; i--) {
+            int mutual = (int) (keys[i] >>> 32);
+            int candidate = Integer.MAX_VALUE - (int) keys[i];
+            result.add(new Candidate(candidate, mutual));
+        }
+        return result;
+    }
+
+    public void follow(long followerId, long authorId) {
+        int follower = Math.toIntExact(followerId);
+        int author = Math.toIntExact(authorId);
+        lock.writeLock().lock();
+        try {
+            int[] row = row(follower);
+            int position = Arrays.binarySearch(row, author);
+            if (position >= 0) {
+                return;
+            }
+            int insertAt = -position - 1;
+            int[] updated = new int[row.length + 1];
+            System.arraycopy(row, 0, updated, 0, insertAt);
+            updated[insertAt] = author;
+            System.arraycopy(row, insertAt, updated, insertAt + 1, row.length - insertAt);
+            setRow(follower, updated);
+            edgeCount++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void unfollow(long followerId, long authorId) {
+        int follower = Math.toIntExact(followerId);
+        int author = Math.toIntExact(authorId);
+        lock.writeLock().lock();
+        try {
+            int[] row = row(follower);
+            int position = Arrays.binarySearch(row, author);
+            if (position < 0) {
+                return;
+            }
+            int[] updated = new int[row.length - 1];
+            System.arraycopy(row, 0, updated, 0, position);
+            System.arraycopy(row, position + 1, updated, position, row.length - position - 1);
+            setRow(follower, updated.length == 0 ? null : updated);
+            edgeCount--;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFollowChanged(FollowChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.add(event);
+            }
+            apply(event);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${blog.recommendations.rebuild-interval:3600000}",
+            initialDelayString = "${blog.recommendations.rebuild-interval:3600000}")
+    public synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        RowsBuilder builder;
+        try {
+            builder = loadEdges();
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        int[][] rebuilt = builder.build();
+
+        int replayed;
+        lock.writeLock().lock();
+        try {
+            following = rebuilt;
+            edgeCount = builder.edges;
+            // снимок мог быть прочитан до или после события: повтор идемпотентен
+            replayed = changedDuringRebuild.size();
+            changedDuringRebuild.forEach(this::apply);
+            changedDuringRebuild = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        ready = true;
+        log.debug("Built follow graph with {} edges, replayed {} follow changes", builder.edges, replayed);
+    }
+
+    RowsBuilder loadEdges() {
+        return readOnlyTransaction.execute(status -> {
+            RowsBuilder builder = new RowsBuilder();
+            jdbcTemplate.query(EDGES_SQL, (RowCallbackHandler) rs -> builder.add(rs.getInt(1), rs.getInt(2)));
+            return builder;
+        });
+    }
+
+    private void apply(FollowChangedEvent event) {
+        for (Long authorId : event.getAuthorIds()) {
+            if (event.isFollowed()) {
+                follow(event.getFollowerId(), authorId);
+            } else {
+                unfollow(event.getFollowerId(), authorId);
+            }
+        }
+    }
+
+    private int[] row(int userId) {
+        int[] row = userId >= 0 && userId < following.length ? following[userId] : null;
+        return row != null ? row : EMPTY;
+    }
+
+    private void setRow(int userId, int[] row) {
+        if (userId >= following.length) {
+            following = Arrays.copyOf(following, Math.max(userId + 1, following.length * 2));
+        }
+        following[userId] = row;
+    }
+
+    public record Candidate(long userId, int mutualCount) {
+    }
+
+    /**
+     * Собирает строки из рёбер, упорядоченных по (subscriber_id, author_id).
+     */
+    static final class RowsBuilder {
+
+        private int[][] rows = new int[1024][];
+        private int[] current = new int[16];
+        private int currentUser = -1;
+        private int currentSize;
+        private long edges;
+
+        void add(int subscriberId, int authorId) {
+            if (subscriberId != currentUser) {
+                flush();
+                currentUser = subscriberId;
+            }
+            if (currentSize == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+            current[currentSize++] = authorId;
+            edges++;
+        }
+
+        int[][] build() {
+            flush();
+            return rows;
+        }
+
+        private void flush() {
+            if (currentUser < 0 || currentSize == 0) {
+                return;
+            }
+            if (currentUser >= rows.length) {
+                rows = Arrays.copyOf(rows, Math.max(currentUser + 1, rows.length * 2));
+            }
+            rows[currentUser] = Arrays.copyOf(current, currentSize);
+            currentSize = 0;
+        }
+    }
+}
@@ -0,0 +1,439 @@
+package ru.Edje_7.search;
+
+
+import org.roaringbitmap.RoaringBitmap;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Неизменяемый сегмент индекса в файле, отображённом в память.
+ * <p>
+ * Формат (big-endian):
+ * <pre>
+ * заголовок:  magic, version, docCount, termCount (int), totalLength (long), termBytesLength (int)
+ * документы:  docCount x (postId long, length int), по возрастанию postId
+ * термы:      termCount x (bytesOffset int, bytesLength int, postingsIndex int, df int),
+ *             по возрастанию UTF-8 байтов терма
+ * байты термов
+ * постинги:   (docOrdinal int, tf int), сгруппированы по термам
+ * </pre>
+ * Размер сегмента ограничен 2 ГБ (одно отображение).
+ * <p>
+ * Небольшие сегменты пишутся из памяти ({@link #write}), крупные получаются слиянием
+ * существующих ({@link #merge}) — потоково, без загрузки постингов в кучу.
+ */
+final class IndexSegment {
+
+    private static final int MAGIC = 0x50534958;
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 28;
+    private static final int DOC_SIZE = 12;
+    private static final int TERM_SIZE = 16;
+    private static final int POSTING_SIZE = 8;
+
+    private final Path file;
+    private final ByteBuffer buffer;
+    private final int docCount;
+    private final int termCount;
+    private final long totalLength;
+    private final int termsStart;
+    private final int termBytesStart;
+    private final int postingsStart;
+
+    private IndexSegment(Path file, ByteBuffer buffer) {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalStateException("Not a search index segment: " + file);
+        }
+        this.file = file;
+        this.buffer = buffer;
+        this.docCount = buffer.getInt(8);
+        this.termCount = buffer.getInt(12);
+        this.totalLength = buffer.getLong(16);
+        int termBytesLength = buffer.getInt(24);
+        this.termsStart = HEADER_SIZE + docCount * DOC_SIZE;
+        this.termBytesStart = termsStart + termCount * TERM_SIZE;
+        this.postingsStart = termBytesStart + termBytesLength;
+    }
+
+    static IndexSegment open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new IndexSegment(file, buffer);
+        }
+    }
+
+    /**
+     * Записывает сегмент во временный файл, переименовывает его в file и отображает в память.
+     *
+     * @param docLengths длины документов по postId
+     * @param postings   терм -> (postId -> tf); postId должны присутствовать в docLengths
+     */
+    static IndexSegment write(Path file,
+                              SortedMap<Long, Integer> docLengths,
+                              Map<String, ? extends Map<Long, Integer>> postings) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            writeTo(out, docLengths, postings);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return open(file);
+    }
+
+    private static void writeTo(OutputStream target,
+                                SortedMap<Long, Integer> docLengths,
+                                Map<String, ? extends Map<Long, Integer>> postings) throws IOException {
+        Map<Long, Integer> ordinals = new HashMap<>(docLengths.size() * 2);
+        long totalLength = 0;
+        for (Map.Entry<Long, Integer> doc : docLengths.entrySet()) {
+            ordinals.put(doc.getKey(), ordinals.size());
+            totalLength += doc.getValue();
+        }
+
+        List<Map.Entry<byte[], ? extends Map<Long, Integer>>> terms = new ArrayList<>(postings.size());
+        int termBytesLength = 0;
+        for (Map.Entry<String, ? extends Map<Long, Integer>> entry : postings.entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                continue;
+            }
+            byte[] bytes = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            terms.add(Map.entry(bytes, entry.getValue()));
+            termBytesLength += bytes.length;
+        }
+        terms.sort((a, b) -> Arrays.compareUnsigned(a.getKey(), b.getKey()));
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(target, 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(docLengths.size());
+        out.writeInt(terms.size());
+        out.writeLong(totalLength);
+        out.writeInt(termBytesLength);
+
+        for (Map.Entry<Long, Integer> doc : docLengths.entrySet()) {
+            out.writeLong(doc.getKey());
+            out.writeInt(doc.getValue());
+        }
+
+        int bytesOffset = 0;
+        int postingsIndex = 0;
+        for (Map.Entry<byte[], ? extends Map<Long, Integer>> term : terms) {
+            int df = term.getValue().size();
+            out.writeInt(bytesOffset);
+            out.writeInt(term.getKey().length);
+            out.writeInt(postingsIndex);
+            out.writeInt(df);
+            bytesOffset += term.getKey().length;
+            postingsIndex += df;
+        }
+
+        for (Map.Entry<byte[], ? extends Map<Long, Integer>> term : terms) {
+            out.write(term.getKey());
+        }
+
+        for (Map.Entry<byte[], ? extends Map<Long, Integer>> term : terms) {
+            int[][] entries = term.getValue().entrySet().stream()
+                    .map(posting -> new int[]{ordinals.get(posting.getKey()), posting.getValue()})
+                    .sorted((a, b) -> Integer.compare(a[0], b[0]))
+                    .toArray(int[][]::new);
+            for (int[] posting : entries) {
+                out.writeInt(posting[0]);
+                out.writeInt(posting[1]);
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Сливает живые документы сегментов inputs в новый сегмент file.
+     * <p>
+     * Документы, термы и постинги читаются из отображений по порядку и сразу пишутся
+     * во временные файлы секций; в куче остаются только таблицы перенумерации документов.
+     * Если один postId жив в нескольких входах, берётся версия из более позднего.
+     *
+     * @param deleted удалённые порядковые номера документов, по одному набору на вход
+     */
+    static IndexSegment merge(Path file, List<IndexSegment> inputs, List<RoaringBitmap> deleted) throws IOException {
+        int count = inputs.size();
+        Path docsFile = file.resolveSibling(file.getFileName() + ".docs");
+        Path termsFile = file.resolveSibling(file.getFileName() + ".terms");
+        Path bytesFile = file.resolveSibling(file.getFileName() + ".bytes");
+        Path postingsFile = file.resolveSibling(file.getFileName() + ".postings");
+        try {
+            // документы: k-путевое слияние по postId
+            int[][] ordinals = new int[count][];
+            int[] positions = new int[count];
+            for (int i = 0; i < count; i++) {
+                ordinals[i] = new int[inputs.get(i).docCount()];
+                Arrays.fill(ordinals[i], -1);
+            }
+            int docCount = 0;
+            long totalLength = 0;
+            try (DataOutputStream docs = openSection(docsFile)) {
+                while (true) {
+                    int best = -1;
+                    long bestId = Long.MAX_VALUE;
+                    for (int i = 0; i < count; i++) {
+                        IndexSegment input = inputs.get(i);
+                        while (positions[i] < input.docCount() && deleted.get(i).contains(positions[i])) {
+                            positions[i]++;
+                        }
+                        if (positions[i] < input.docCount() && input.postId(positions[i]) <= bestId) {
+                            best = i;
+                            bestId = input.postId(positions[i]);
+                        }
+                    }
+                    if (best < 0) {
+                        break;
+                    }
+                    for (int i = 0; i < best; i++) {
+                        if (positions[i] < inputs.get(i).docCount() && inputs.get(i).postId(positions[i]) == bestId) {
+                            positions[i]++;
+                        }
+                    }
+                    int length = inputs.get(best).length(positions[best]);
+                    docs.writeLong(bestId);
+                    docs.writeInt(length);
+                    totalLength += length;
+                    ordinals[best][positions[best]++] = docCount++;
+                }
+            }
+
+            // термы: k-путевое слияние по байтам терма, постинги — по новым номерам
+            int termCount = 0;
+            int termBytesLength = 0;
+            int postingsIndex = 0;
+            int[] termIndexes = new int[count];
+            byte[][] current = new byte[count][];
+            for (int i = 0; i < count; i++) {
+                current[i] = inputs.get(i).termCount > 0 ? inputs.get(i).termBytes(0) : null;
+            }
+            int[] cursors = new int[count];
+            int[] ends = new int[count];
+            try (DataOutputStream terms = openSection(termsFile);
+                 DataOutputStream bytes = openSection(bytesFile);
+                 DataOutputStream postings = openSection(postingsFile)) {
+                while (true) {
+                    byte[] term = null;
+                    for (byte[] candidate : current) {
+                        if (candidate != null && (term == null || Arrays.compareUnsigned(candidate, term) < 0)) {
+                            term = candidate;
+                        }
+                    }
+                    if (term == null) {
+                        break;
+                    }
+                    for (int i = 0; i < count; i++) {
+                        if (current[i] != null && Arrays.equals(current[i], term)) {
+                            cursors[i] = inputs.get(i).postingsIndex(termIndexes[i]);
+                            ends[i] = cursors[i] + inputs.get(i).df(termIndexes[i]);
+                        } else {
+                            cursors[i] = ends[i] = 0;
+                        }
+                    }
+
+                    int df = 0;
+                    while (true) {
+                        int best = -1;
+                        int bestOrdinal = Integer.MAX_VALUE;
+                        for (int i = 0; i < count; i++) {
+                            IndexSegment input = inputs.get(i);
+                            while (cursors[i] < ends[i] && ordinals[i][input.postingOrdinal(cursors[i])] < 0) {
+                                cursors[i]++;
+                            }
+                            if (cursors[i] < ends[i]) {
+                                int ordinal = ordinals[i][input.postingOrdinal(cursors[i])];
+                                if (ordinal < bestOrdinal) {
+                                    best = i;
+                                    bestOrdinal = ordinal;
+                                }
+                            }
+                        }
+                        if (best < 0) {
+                            break;
+                        }
+                        postings.writeInt(bestOrdinal);
+                        postings.writeInt(inputs.get(best).postingTf(cursors[best]++));
+                        df++;
+                    }
+
+                    if (df > 0) {
+                        terms.writeInt(termBytesLength);
+                        terms.writeInt(term.length);
+                        terms.writeInt(postingsIndex);
+                        terms.writeInt(df);
+                        bytes.write(term);
+                        termBytesLength += term.length;
+                        postingsIndex += df;
+                        termCount++;
+                    }
+
+                    for (int i = 0; i < count; i++) {
+                        if (current[i] != null && Arrays.equals(current[i], term)) {
+                            termIndexes[i]++;
+                            current[i] = termIndexes[i] < inputs.get(i).termCount
+                                    ? inputs.get(i).termBytes(termIndexes[i]) : null;
+                        }
+                    }
+                }
+            }
+
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (OutputStream target = Files.newOutputStream(tmp)) {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(target, 1 << 16));
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(docCount);
+                out.writeInt(termCount);
+                out.writeLong(totalLength);
+                out.writeInt(termBytesLength);
+                for (Path section : List.of(docsFile, termsFile, bytesFile, postingsFile)) {
+                    Files.copy(section, out);
+                }
+                out.flush();
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return open(file);
+        } finally {
+            for (Path section : List.of(docsFile, termsFile, bytesFile, postingsFile)) {
+                Files.deleteIfExists(section);
+            }
+        }
+    }
+
+    private static DataOutputStream openSection(Path file) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+    }
+
+    Path file() {
+        return file;
+    }
+
+    int docCount() {
+        return docCount;
+    }
+
+    long totalLength() {
+        return totalLength;
+    }
+
+    long postId(int ordinal) {
+        return buffer.getLong(HEADER_SIZE + ordinal * DOC_SIZE);
+    }
+
+    int length(int ordinal) {
+        return buffer.getInt(HEADER_SIZE + ordinal * DOC_SIZE + 8);
+    }
+
+    /**
+     * @return порядковый номер документа или -1
+     */
+    int findDoc(long postId) {
+        int low = 0;
+        int high = docCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long current = postId(mid);
+            if (current < postId) {
+                low = mid + 1;
+            } else if (current > postId) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int postingsIndex(int termIndex) {
+        return buffer.getInt(termsStart + termIndex * TERM_SIZE + 8);
+    }
+
+    private int df(int termIndex) {
+        return buffer.getInt(termsStart + termIndex * TERM_SIZE + 12);
+    }
+
+    private int postingOrdinal(int postingIndex) {
+        return buffer.getInt(postingsStart + postingIndex * POSTING_SIZE);
+    }
+
+    private int postingTf(int postingIndex) {
+        return buffer.getInt(postingsStart + postingIndex * POSTING_SIZE + 4);
+    }
+
+    void forEachPosting(String term, PostingConsumer consumer) {
+        int termIndex = findTerm(term.getBytes(StandardCharsets.UTF_8));
+        if (termIndex >= 0) {
+            readPostings(termIndex, consumer);
+        }
+    }
+
+    private void readPostings(int termIndex, PostingConsumer consumer) {
+        int entry = termsStart + termIndex * TERM_SIZE;
+        int position = postingsStart + buffer.getInt(entry + 8) * POSTING_SIZE;
+        int df = buffer.getInt(entry + 12);
+        for (int i = 0; i < df; i++, position += POSTING_SIZE) {
+            consumer.accept(buffer.getInt(position), buffer.getInt(position + 4));
+        }
+    }
+
+    private int findTerm(byte[] term) {
+        int low = 0;
+        int high = termCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareTerm(mid, term);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int compareTerm(int termIndex, byte[] term) {
+        int entry = termsStart + termIndex * TERM_SIZE;
+        int offset = termBytesStart + buffer.getInt(entry);
+        int length = buffer.getInt(entry + 4);
+        int common = Math.min(length, term.length);
+        for (int i = 0; i < common; i++) {
+            int cmp = Integer.compare(buffer.get(offset + i) & 0xFF, term[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(length, term.length);
+    }
+
+    private byte[] termBytes(int termIndex) {
+        int entry = termsStart + termIndex * TERM_SIZE;
+        byte[] bytes = new byte[buffer.getInt(entry + 4)];
+        buffer.get(termBytesStart + buffer.getInt(entry), bytes);
+        return bytes;
+    }
+
+    @FunctionalInterface
+    interface PostingConsumer {
+        void accept(int ordinal, int tf);
+    }
+}
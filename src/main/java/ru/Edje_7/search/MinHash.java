@@ -0,0 +1,68 @@
+package ru.Edje_7.search;
+
+
+import java.util.Arrays;
+
+/**
+ * MinHash-сигнатуры и точный коэффициент Жаккара для множеств int-признаков.
+ * Множества передаются отсортированными массивами без повторов.
+ */
+final class MinHash {
+
+    private MinHash() {
+    }
+
+    static int[] signature(int[] features, int size) {
+        int[] signature = new int[size];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (int feature : features) {
+            for (int i = 0; i < size; i++) {
+                int h = hash(feature, i);
+                if (h < signature[i]) {
+                    signature[i] = h;
+                }
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * Хеш полосы rows значений сигнатуры, начиная с band * rows.
+     */
+    static int bandHash(int[] signature, int band, int rows) {
+        int h = 1;
+        for (int i = band * rows; i < (band + 1) * rows; i++) {
+            h = 31 * h + signature[i];
+        }
+        return h;
+    }
+
+    static double jaccard(int[] a, int[] b) {
+        if (a.length == 0 && b.length == 0) {
+            return 0;
+        }
+        int i = 0;
+        int j = 0;
+        int common = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                common++;
+                i++;
+                j++;
+            }
+        }
+        return (double) common / (a.length + b.length - common);
+    }
+
+    // финализатор splitmix64 над признаком и номером хеш-функции
+    static int hash(long value, int seed) {
+        long h = value + 0x9E3779B97F4A7C15L * (seed + 1);
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return (int) (h ^ (h >>> 31));
+    }
+}
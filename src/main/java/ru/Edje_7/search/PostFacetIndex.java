@@ -0,0 +1,229 @@
+package ru.Edje_7.search;
+
+
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.Edje_7.event.PostChangedEvent;
+import ru.Edje_7.repository.PostRepository;
+
+import java.time.YearMonth;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Автор и месяц публикации -> опубликованные посты в виде битовых карт.
+ * Фасеты для произвольного множества постов считаются пересечением карт
+ * без загрузки постов из БД. Фасеты по тегам — в TagBitmapIndex.
+ */
+@Component
+@Slf4j
+public class PostFacetIndex {
+
+    private final PostRepository postRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Facets facets = new Facets();
+
+    // посты, изменённые во время перестройки; null — перестройка не идёт
+    private Set<Long> changedDuringRebuild;
+
+    private volatile boolean ready;
+
+    public PostFacetIndex(PostRepository postRepository) {
+        this.postRepository = postRepository;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return число постов из posts по авторам, limit самых частых авторов
+     */
+    public Map<Long, Long> countByAuthor(RoaringBitmap posts, int limit) {
+        lock.readLock().lock();
+        try {
+            return top(count(facets.postsByAuthor, posts), limit, Comparator.naturalOrder());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return число постов из posts по месяцам публикации, от новых месяцев к старым
+     */
+    public Map<YearMonth, Long> countByMonth(RoaringBitmap posts) {
+        Map<YearMonth, Long> counts;
+        lock.readLock().lock();
+        try {
+            counts = count(facets.postsByMonth, posts);
+        } finally {
+            lock.readLock().unlock();
+        }
+        Map<YearMonth, Long> ordered = new LinkedHashMap<>();
+        counts.entrySet().stream()
+                .sorted(Map.Entry.<YearMonth, Long>comparingByKey().reversed())
+                .forEach(entry -> ordered.put(entry.getKey(), entry.getValue()));
+        return ordered;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostChanged(PostChangedEvent event) {
+        if (event.getType() == PostChangedEvent.Type.DELETED || !event.isPublished()) {
+            update(event.getPostId(), null);
+        } else {
+            refresh(event.getPostId());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Строит карты без блокировки и подменяет их; посты, изменённые во время
+     * загрузки, после подмены перечитываются из БД.
+     */
+    public synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Facets rebuilt = new Facets();
+        try {
+            for (PostRepository.PostFacetKey facetKey : postRepository.findAllPublishedFacetKeys()) {
+                rebuilt.add(facetKey.getId(), key(facetKey));
+            }
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        rebuilt.postsByAuthor.values().forEach(RoaringBitmap::runOptimize);
+        rebuilt.postsByMonth.values().forEach(RoaringBitmap::runOptimize);
+
+        Set<Long> changed;
+        lock.writeLock().lock();
+        try {
+            facets = rebuilt;
+            changed = changedDuringRebuild;
+            changedDuringRebuild = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        changed.forEach(this::refresh);
+
+        ready = true;
+        log.debug("Built facet bitmaps for {} authors, {} months",
+                rebuilt.postsByAuthor.size(), rebuilt.postsByMonth.size());
+    }
+
+    private void refresh(Long postId) {
+        update(postId, postRepository.findPublishedFacetKey(postId).map(PostFacetIndex::key).orElse(null));
+    }
+
+    private void update(Long postId, Key key) {
+        lock.writeLock().lock();
+        try {
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.add(postId);
+            }
+            facets.remove(postId);
+            if (key != null) {
+                facets.add(postId, key);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return limit ключей с наибольшими значениями; при равенстве — по возрастанию ключа
+     */
+    public static <K> Map<K, Long> top(Map<K, Long> counts, int limit, Comparator<? super K> keyOrder) {
+        Map<K, Long> top = new LinkedHashMap<>();
+        counts.entrySet().stream()
+                .sorted(Map.Entry.<K, Long>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey(keyOrder)))
+                .limit(limit)
+                .forEach(entry -> top.put(entry.getKey(), entry.getValue()));
+        return top;
+    }
+
+    private static <K> Map<K, Long> count(Map<K, RoaringBitmap> bitmaps, RoaringBitmap posts) {
+        Map<K, Long> counts = new HashMap<>();
+        bitmaps.forEach((key, bitmap) -> {
+            long count = RoaringBitmap.andCardinality(posts, bitmap);
+            if (count > 0) {
+                counts.put(key, count);
+            }
+        });
+        return counts;
+    }
+
+    private static <K> void remove(Map<K, RoaringBitmap> bitmaps, K key, int postId) {
+        RoaringBitmap posts = bitmaps.get(key);
+        if (posts != null) {
+            posts.remove(postId);
+            if (posts.isEmpty()) {
+                bitmaps.remove(key);
+            }
+        }
+    }
+
+    private static Key key(PostRepository.PostFacetKey facetKey) {
+        return new Key(facetKey.getAuthorId(),
+                facetKey.getPublishedAt() == null ? null : YearMonth.from(facetKey.getPublishedAt()));
+    }
+
+    private record Key(Long authorId, YearMonth month) {
+    }
+
+    private static final class Facets {
+
+        final Map<Long, RoaringBitmap> postsByAuthor = new HashMap<>();
+        final Map<YearMonth, RoaringBitmap> postsByMonth = new HashMap<>();
+        // пост -> его значения фасетов, чтобы снять пост со старых значений при изменении
+        final Map<Long, Key> keys = new HashMap<>();
+
+        void add(Long postId, Key key) {
+            int id = Math.toIntExact(postId);
+            keys.put(postId, key);
+            postsByAuthor.computeIfAbsent(key.authorId(), authorId -> new RoaringBitmap()).add(id);
+            if (key.month() != null) {
+                postsByMonth.computeIfAbsent(key.month(), month -> new RoaringBitmap()).add(id);
+            }
+        }
+
+        void remove(Long postId) {
+            Key previous = keys.remove(postId);
+            if (previous == null) {
+                return;
+            }
+            int id = Math.toIntExact(postId);
+            PostFacetIndex.remove(postsByAuthor, previous.authorId(), id);
+            if (previous.month() != null) {
+                PostFacetIndex.remove(postsByMonth, previous.month(), id);
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package ru.Edje_7.search;
+
+
+import lombok.RequiredArgsConstructor;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+import ru.Edje_7.dto.request.PostFilter;
+import ru.Edje_7.entity.Post;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static ru.Edje_7.repository.PostSpecifications.*;
+
+/**
+ * План расширенного поиска постов. Текст и тег оцениваются точно по in-memory
+ * индексам; если они дают не больше MAX_DRIVING_IDS постов, то становятся
+ * ведущим условием id IN (...). Тег с большим числом постов уходит в SQL, а текст
+ * с большим числом совпадений фильтрует строки SQL в памяти — ранжированным списком
+ * или битовой картой индекса, с той же семантикой «любой терм запроса». LIKE по тексту
+ * остаётся только пока индекс не построен. Остальные условия идут в WHERE от индексных
+ * к неиндексным. Сортировка и limit/offset выполняются в SQL, кроме сортировки
+ * по релевантности и фильтрации текстом в памяти.
+ */
+@Component
+@RequiredArgsConstructor
+public class PostQueryPlanner {
+
+    static final int MAX_DRIVING_IDS = 1000;
+
+    private static final List<String> SORTABLE = List.of(
+            "id", "publishedAt", "createdAt", "viewCount", "likeCount", "commentCount");
+    private static final Sort DEFAULT_SORT = Sort.by(Sort.Order.desc("publishedAt"), Sort.Order.desc("id"));
+
+    private final PostSearchIndex postSearchIndex;
+    private final TagBitmapIndex tagBitmapIndex;
+
+    public Plan plan(PostFilter filter, Sort sort, LocalDateTime now) {
+        validate(filter);
+        List<String> steps = new ArrayList<>();
+        List<Specification<Post>> conditions = new ArrayList<>();
+
+        String text = filter.getQuery() == null || filter.getQuery().isBlank() ? null : filter.getQuery().trim();
+        boolean textResolved = false;
+        List<Long> drivingIds = null;
+        // совпадения широкого текстового запроса, не поместившиеся в id IN (...)
+        RoaringBitmap textIds = null;
+        List<Long> rankedText = null;
+
+        if (text != null && postSearchIndex.isReady()) {
+            PostSearchIndex.Hits hits = postSearchIndex.search(text, 0, MAX_DRIVING_IDS);
+            steps.add("text index: " + hits.total() + " hits");
+            if (hits.total() <= MAX_DRIVING_IDS) {
+                drivingIds = hits.postIds();
+            } else {
+                textIds = postSearchIndex.matchingIds(text);
+                if (!sort.isSorted()) {
+                    rankedText = postSearchIndex.search(text, 0, Math.toIntExact(hits.total())).postIds();
+                }
+                steps.add("text bitmap filters SQL rows in memory");
+            }
+            textResolved = true;
+        }
+
+        boolean tagResolved = false;
+        if (filter.getTagId() != null && tagBitmapIndex.isReady()) {
+            TagBitmapIndex.Result tagged = tagBitmapIndex.query(
+                    List.of(filter.getTagId()), List.of(), List.of(), Long.MAX_VALUE, MAX_DRIVING_IDS);
+            steps.add("tag bitmap: " + tagged.total() + " posts");
+            if (!tagged.hasMore()) {
+                if (textIds != null) {
+                    RoaringBitmap matching = textIds;
+                    drivingIds = tagged.postIds().stream().filter(id -> matching.contains(Math.toIntExact(id))).toList();
+                    steps.add("text AND tag in memory: " + drivingIds.size());
+                } else if (drivingIds == null) {
+                    drivingIds = tagged.postIds();
+                } else {
+                    Set<Long> taggedIds = new HashSet<>(tagged.postIds());
+                    drivingIds = drivingIds.stream().filter(taggedIds::contains).toList();
+                    steps.add("text AND tag in memory: " + drivingIds.size());
+                }
+                tagResolved = true;
+            }
+        }
+
+        if (drivingIds != null) {
+            if (drivingIds.isEmpty()) {
+                steps.add("empty driving set, SQL skipped");
+                return new Plan(null, null, null, Sort.unsorted(), true, String.join("; ", steps));
+            }
+            conditions.add(idIn(drivingIds));
+            steps.add("id IN (" + drivingIds.size() + " ids) [pk]");
+        }
+        if (filter.getAuthorId() != null) {
+            conditions.add(authorId(filter.getAuthorId()));
+            steps.add("author_id = ? [idx_posts_author_status_published_id]");
+        }
+        conditions.add(published(now));
+        if (filter.getFrom() != null) {
+            conditions.add(publishedFrom(filter.getFrom()));
+        }
+        if (filter.getTo() != null) {
+            conditions.add(publishedTo(filter.getTo()));
+        }
+        steps.add("status = PUBLISHED, published_at range [idx_posts_status_published_id]");
+        if (filter.getTagId() != null && !tagResolved) {
+            conditions.add(hasTag(filter.getTagId()));
+            steps.add("EXISTS post_tags.tag_id = ? [idx_post_tags_tag_id]");
+        }
+        if (filter.getFeatured() != null) {
+            conditions.add(featured(filter.getFeatured()));
+            steps.add("is_featured = " + filter.getFeatured() + (filter.getFeatured() ? " [idx_posts_featured]" : " [filter]"));
+        }
+        if (filter.getMinViews() != null) {
+            conditions.add(minViews(filter.getMinViews()));
+            steps.add("view_count >= ? [filter]");
+        }
+        if (filter.getMinLikes() != null) {
+            conditions.add(minLikes(filter.getMinLikes()));
+            steps.add("like_count >= ? [filter]");
+        }
+        if (text != null && !textResolved) {
+            // индекс ещё строится после старта
+            conditions.add(containsText(text));
+            steps.add("title/content LIKE [scan]");
+        }
+
+        List<Long> rankedIds = null;
+        Sort order;
+        if (sort.isSorted()) {
+            order = resolveSort(sort);
+            steps.add("ORDER BY " + order + " LIMIT/OFFSET in SQL");
+        } else if (textResolved) {
+            rankedIds = rankedText != null ? rankedText : drivingIds;
+            order = Sort.unsorted();
+            steps.add("order by relevance in memory");
+        } else {
+            order = DEFAULT_SORT;
+            steps.add("ORDER BY " + order + " LIMIT/OFFSET in SQL [idx_posts_status_published_id]");
+        }
+
+        // ранжированный список сам ограничивает совпадения, битовая карта нужна без него
+        return new Plan(Specification.allOf(conditions), rankedIds, rankedIds == null ? textIds : null,
+                order, false, String.join("; ", steps));
+    }
+
+    private static Sort resolveSort(Sort sort) {
+        for (Sort.Order order : sort) {
+            if (!SORTABLE.contains(order.getProperty())) {
+                throw new IllegalArgumentException("Unsupported sort property: " + order.getProperty()
+                        + ", expected one of " + SORTABLE);
+            }
+        }
+        // id — для стабильного порядка при равных значениях
+        return sort.getOrderFor("id") == null ? sort.and(Sort.by(Sort.Order.desc("id"))) : sort;
+    }
+
+    private static void validate(PostFilter filter) {
+        if (filter.getFrom() != null && filter.getTo() != null && filter.getFrom().isAfter(filter.getTo())) {
+            throw new IllegalArgumentException("'from' must not be after 'to'");
+        }
+        if (filter.getMinViews() != null && filter.getMinViews() < 0) {
+            throw new IllegalArgumentException("minViews must not be negative");
+        }
+        if (filter.getMinLikes() != null && filter.getMinLikes() < 0) {
+            throw new IllegalArgumentException("minLikes must not be negative");
+        }
+    }
+
+    /**
+     * @param rankedIds не null, если результат упорядочивается по релевантности
+     *                  в памяти: это id в порядке убывания релевантности
+     * @param textIds   не null, если строки SQL в порядке sort нужно отфильтровать
+     *                  в памяти: остаются только id из этой карты
+     * @param empty     результат заведомо пуст, SQL не нужен
+     * @param explain   описание плана для отладочного лога
+     */
+    public record Plan(Specification<Post> filter, List<Long> rankedIds, RoaringBitmap textIds,
+                       Sort sort, boolean empty, String explain) {
+    }
+}
@@ -0,0 +1,585 @@
+package ru.Edje_7.search;
+
+
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.Edje_7.config.SearchProperties;
+import ru.Edje_7.event.PostChangedEvent;
+import ru.Edje_7.repository.PostRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Полнотекстовый индекс опубликованных постов по заголовку, анонсу, тексту и тегам.
+ * <p>
+ * Индекс состоит из нескольких неизменяемых сегментов на диске, отображённых в память
+ * (вне кучи), и небольшого буфера в памяти (delta). Новые версии документов попадают
+ * в delta, старые помечаются удалёнными в своём сегменте. Заполненный буфер
+ * записывается отдельным маленьким сегментом; сегменты одного размерного яруса
+ * периодически сливаются потоково ({@link IndexSegment#merge}) вне блокировки.
+ * При старте индекс строится заново по БД теми же сегментами, не держа корпус в куче.
+ * <p>
+ * Ранжирование — BM25 по сумме термов запроса (любой терм запроса даёт совпадение).
+ */
+@Component
+@Slf4j
+public class PostSearchIndex {
+
+    private static final Comparator<Hit> ORDER = Comparator.comparingDouble(Hit::score).reversed()
+            .thenComparing(Comparator.comparingLong(Hit::postId).reversed());
+
+    private final PostRepository postRepository;
+    private final SearchProperties properties;
+    private final TextAnalyzer analyzer = new TextAnalyzer();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // перестройка и слияния сегментов не выполняются одновременно
+    private final Object maintenance = new Object();
+    private final AtomicLong generation = new AtomicLong();
+
+    private List<Segment> segments = new ArrayList<>();
+
+    private final Map<Long, Document> delta = new HashMap<>();
+    private final Map<String, Map<Long, Integer>> deltaPostings = new HashMap<>();
+    private long deltaLength;
+
+    // посты, изменённые во время перестройки; null — перестройка не идёт
+    private Set<Long> changedDuringRebuild;
+
+    private volatile boolean ready;
+
+    public PostSearchIndex(PostRepository postRepository, SearchProperties properties) {
+        this.postRepository = postRepository;
+        this.properties = properties;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return Math.toIntExact(liveDocs());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int segmentCount() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return id постов страницы по убыванию релевантности и общее число совпадений
+     */
+    public Hits search(String query, long offset, int limit) {
+        Set<String> terms = new LinkedHashSet<>(analyzer.analyze(query));
+        if (terms.isEmpty()) {
+            return new Hits(List.of(), 0);
+        }
+
+        Map<Long, Double> scores = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            long docCount = liveDocs();
+            if (docCount == 0) {
+                return new Hits(List.of(), 0);
+            }
+            long totalLength = deltaLength;
+            for (Segment segment : segments) {
+                totalLength += segment.liveLength();
+            }
+            double averageLength = (double) totalLength / docCount;
+
+            for (String term : terms) {
+                List<long[]> matches = new ArrayList<>();
+                for (Segment segment : segments) {
+                    IndexSegment data = segment.data;
+                    data.forEachPosting(term, (ordinal, tf) -> {
+                        if (!segment.deleted.contains(ordinal)) {
+                            matches.add(new long[]{data.postId(ordinal), tf, data.length(ordinal)});
+                        }
+                    });
+                }
+                deltaPostings.getOrDefault(term, Map.of()).forEach((postId, tf) ->
+                        matches.add(new long[]{postId, tf, delta.get(postId).length()}));
+
+                double idf = Math.log(1 + (docCount - matches.size() + 0.5) / (matches.size() + 0.5));
+                for (long[] match : matches) {
+                    double tf = match[1];
+                    double norm = properties.getK1() * (1 - properties.getB() + properties.getB() * match[2] / averageLength);
+                    double score = idf * tf * (properties.getK1() + 1) / (tf + norm);
+                    scores.merge(match[0], score, Double::sum);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Long> postIds = scores.entrySet().stream()
+                .map(entry -> new Hit(entry.getKey(), entry.getValue()))
+                .sorted(ORDER)
+                .skip(offset)
+                .limit(limit)
+                .map(Hit::postId)
+                .toList();
+        return new Hits(postIds, scores.size());
+    }
+
+    /**
+     * Все посты, в которых есть хотя бы один терм запроса, без ранжирования.
+     */
+    public RoaringBitmap matchingIds(String query) {
+        Set<String> terms = new LinkedHashSet<>(analyzer.analyze(query));
+        RoaringBitmap matches = new RoaringBitmap();
+        lock.readLock().lock();
+        try {
+            for (String term : terms) {
+                for (Segment segment : segments) {
+                    segment.data.forEachPosting(term, (ordinal, tf) -> {
+                        if (!segment.deleted.contains(ordinal)) {
+                            matches.add(Math.toIntExact(segment.data.postId(ordinal)));
+                        }
+                    });
+                }
+                deltaPostings.getOrDefault(term, Map.of()).keySet()
+                        .forEach(postId -> matches.add(Math.toIntExact(postId)));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return matches;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostChanged(PostChangedEvent event) {
+        if (event.getType() == PostChangedEvent.Type.DELETED || !event.isPublished()) {
+            remove(event.getPostId());
+            return;
+        }
+        reindex(event.getPostId());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            rebuild();
+        } catch (UncheckedIOException e) {
+            // поиск продолжит работать через БД
+            log.error("Failed to build search index in {}", properties.getIndexDir(), e);
+        }
+    }
+
+    /**
+     * Строит индекс по БД в новые сегменты, не блокируя поиск, и подменяет ими текущие.
+     * Изменения постов, пришедшие во время загрузки, после подмены перечитываются из БД.
+     */
+    public void rebuild() {
+        synchronized (maintenance) {
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = new HashSet<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            List<Segment> built;
+            try {
+                Files.createDirectories(properties.getIndexDir());
+                if (!ready) {
+                    // файлы прошлого запуска
+                    deleteSegments(properties.getIndexDir());
+                }
+                built = build();
+            } catch (IOException e) {
+                lock.writeLock().lock();
+                try {
+                    changedDuringRebuild = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                throw new UncheckedIOException(e);
+            }
+
+            List<Segment> previous;
+            Set<Long> changed;
+            lock.writeLock().lock();
+            try {
+                previous = segments;
+                segments = built;
+                delta.clear();
+                deltaPostings.clear();
+                deltaLength = 0;
+                changed = changedDuringRebuild;
+                changedDuringRebuild = null;
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            previous.forEach(segment -> deleteFile(segment.data));
+            changed.forEach(this::reindex);
+            log.debug("Built search index: {} posts in {} segments", size(), built.size());
+        }
+    }
+
+    /**
+     * Записывает буфер в новый сегмент и сливает сегменты по ярусам.
+     */
+    @Scheduled(fixedDelayString = "${blog.search.merge-interval:60000}")
+    public void mergeIfNeeded() {
+        if (!ready) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            flushLocked();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        synchronized (maintenance) {
+            while (mergeTier()) {
+                // сливаем, пока есть заполненные ярусы
+            }
+        }
+    }
+
+    void index(PostRepository.PostText text, Map<Long, List<String>> tags) {
+        Document document = analyze(text, tags);
+        lock.writeLock().lock();
+        try {
+            removeLocked(text.getId());
+            delta.put(text.getId(), document);
+            deltaLength += document.length();
+            document.termFrequencies().forEach((term, tf) ->
+                    deltaPostings.computeIfAbsent(term, t -> new HashMap<>()).put(text.getId(), tf));
+            if (ready && delta.size() >= properties.getMergeThreshold()) {
+                flushLocked();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(Long postId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(postId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void reindex(Long postId) {
+        postRepository.findPublishedText(postId)
+                .ifPresentOrElse(text -> index(text, loadTags(List.of(text.getId()))),
+                        () -> remove(postId));
+    }
+
+    private void removeLocked(Long postId) {
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.add(postId);
+        }
+        Document previous = delta.remove(postId);
+        if (previous != null) {
+            deltaLength -= previous.length();
+            for (String term : previous.termFrequencies().keySet()) {
+                Map<Long, Integer> termPostings = deltaPostings.get(term);
+                termPostings.remove(postId);
+                if (termPostings.isEmpty()) {
+                    deltaPostings.remove(term);
+                }
+            }
+        }
+        for (Segment segment : segments) {
+            segment.delete(postId);
+        }
+    }
+
+    private long liveDocs() {
+        long count = delta.size();
+        for (Segment segment : segments) {
+            count += segment.liveDocs();
+        }
+        return count;
+    }
+
+    /**
+     * Записывает delta в новый маленький сегмент. Вызывается под блокировкой записи.
+     */
+    private void flushLocked() {
+        if (delta.isEmpty()) {
+            return;
+        }
+        try {
+            segments.add(new Segment(writeSegment(delta, deltaPostings)));
+            delta.clear();
+            deltaPostings.clear();
+            deltaLength = 0;
+        } catch (IOException e) {
+            // изменения остаются в памяти до следующей попытки
+            log.error("Failed to flush search index buffer", e);
+        }
+    }
+
+    /**
+     * Сливает один заполненный ярус сегментов. Файл пишется без блокировки;
+     * удаления, сделанные за это время во входных сегментах, переносятся в новый.
+     *
+     * @return false, если сливать нечего
+     */
+    private boolean mergeTier() {
+        List<Segment> inputs;
+        List<RoaringBitmap> deleted = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            inputs = selectMerge(segments);
+            for (Segment input : inputs) {
+                deleted.add(input.deleted.clone());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (inputs.isEmpty()) {
+            return false;
+        }
+
+        IndexSegment merged;
+        try {
+            merged = IndexSegment.merge(nextFile(), inputs.stream().map(Segment::data).toList(), deleted);
+        } catch (IOException e) {
+            log.error("Failed to merge search index segments", e);
+            return false;
+        }
+
+        lock.writeLock().lock();
+        try {
+            Segment result = new Segment(merged);
+            for (int i = 0; i < inputs.size(); i++) {
+                Segment input = inputs.get(i);
+                RoaringBitmap.andNot(input.deleted, deleted.get(i))
+                        .forEach((int ordinal) -> result.delete(input.data.postId(ordinal)));
+            }
+            segments.removeAll(inputs);
+            if (merged.docCount() > 0) {
+                segments.add(result);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        inputs.forEach(input -> deleteFile(input.data));
+        if (merged.docCount() == 0) {
+            deleteFile(merged);
+        }
+        log.debug("Merged {} search index segments: {} posts", inputs.size(), merged.docCount());
+        return true;
+    }
+
+    /**
+     * Сегмент, в котором удалено больше половины документов, переписывается отдельно;
+     * иначе сливаются segmentsPerTier самых маленьких сегментов первого заполненного яруса.
+     */
+    private List<Segment> selectMerge(List<Segment> candidates) {
+        for (Segment segment : candidates) {
+            if (segment.deleted.getCardinality() * 2L > segment.data.docCount()) {
+                return List.of(segment);
+            }
+        }
+        int factor = Math.max(2, properties.getSegmentsPerTier());
+        Map<Integer, List<Segment>> tiers = new TreeMap<>();
+        for (Segment segment : candidates) {
+            tiers.computeIfAbsent(tier(segment.liveDocs(), factor), t -> new ArrayList<>()).add(segment);
+        }
+        for (List<Segment> tier : tiers.values()) {
+            if (tier.size() >= factor) {
+                tier.sort(Comparator.comparingInt(Segment::liveDocs));
+                return List.copyOf(tier.subList(0, factor));
+            }
+        }
+        return List.of();
+    }
+
+    /**
+     * Ярус 0 — сегменты не больше буфера, каждый следующий в factor раз крупнее.
+     */
+    private int tier(int docs, int factor) {
+        int tier = 0;
+        for (long bound = Math.max(1, properties.getMergeThreshold()); docs > bound; bound *= factor) {
+            tier++;
+        }
+        return tier;
+    }
+
+    /**
+     * Загружает опубликованные посты пачками; каждые mergeThreshold документов
+     * записываются отдельным сегментом, заполненные ярусы сразу сливаются.
+     */
+    private List<Segment> build() throws IOException {
+        List<Segment> built = new ArrayList<>();
+        Map<Long, Document> buffer = new HashMap<>();
+        Map<String, Map<Long, Integer>> bufferPostings = new HashMap<>();
+
+        long afterId = 0;
+        while (true) {
+            List<PostRepository.PostText> batch = postRepository.findPublishedTextsAfter(
+                    afterId, Limit.of(properties.getRebuildBatchSize()));
+            if (batch.isEmpty()) {
+                break;
+            }
+            Map<Long, List<String>> tags = loadTags(batch.stream().map(PostRepository.PostText::getId).toList());
+            for (PostRepository.PostText text : batch) {
+                Document document = analyze(text, tags);
+                buffer.put(text.getId(), document);
+                document.termFrequencies().forEach((term, tf) ->
+                        bufferPostings.computeIfAbsent(term, t -> new HashMap<>()).put(text.getId(), tf));
+            }
+            if (buffer.size() >= properties.getMergeThreshold()) {
+                built.add(new Segment(writeSegment(buffer, bufferPostings)));
+                buffer.clear();
+                bufferPostings.clear();
+                compact(built);
+            }
+            afterId = batch.get(batch.size() - 1).getId();
+        }
+        if (!buffer.isEmpty()) {
+            built.add(new Segment(writeSegment(buffer, bufferPostings)));
+            compact(built);
+        }
+        return built;
+    }
+
+    private void compact(List<Segment> built) throws IOException {
+        for (List<Segment> inputs = selectMerge(built); !inputs.isEmpty(); inputs = selectMerge(built)) {
+            IndexSegment merged = IndexSegment.merge(nextFile(), inputs.stream().map(Segment::data).toList(),
+                    inputs.stream().map(input -> input.deleted).toList());
+            built.removeAll(inputs);
+            built.add(new Segment(merged));
+            inputs.forEach(input -> deleteFile(input.data));
+        }
+    }
+
+    private IndexSegment writeSegment(Map<Long, Document> documents,
+                                      Map<String, Map<Long, Integer>> postings) throws IOException {
+        TreeMap<Long, Integer> docLengths = new TreeMap<>();
+        documents.forEach((postId, document) -> docLengths.put(postId, document.length()));
+        return IndexSegment.write(nextFile(), docLengths, postings);
+    }
+
+    private Path nextFile() {
+        return properties.getIndexDir().resolve(String.format("segment-%06d.idx", generation.incrementAndGet()));
+    }
+
+    private void deleteFile(IndexSegment segment) {
+        // отображение остаётся действительным до сборки буфера, файл можно удалить сразу
+        try {
+            Files.deleteIfExists(segment.file());
+        } catch (IOException e) {
+            log.warn("Failed to delete old search index segment {}: {}", segment.file(), e.getMessage());
+        }
+    }
+
+    private Document analyze(PostRepository.PostText text, Map<Long, List<String>> tags) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        int length = 0;
+        length += addTerms(frequencies, text.getTitle(), properties.getTitleWeight());
+        length += addTerms(frequencies, text.getExcerpt(), 1);
+        length += addTerms(frequencies, text.getContent(), 1);
+        for (String tag : tags.getOrDefault(text.getId(), List.of())) {
+            length += addTerms(frequencies, tag, properties.getTagWeight());
+        }
+        return new Document(length, frequencies);
+    }
+
+    private int addTerms(Map<String, Integer> frequencies, String text, int weight) {
+        List<String> terms = analyzer.analyze(text);
+        for (String term : terms) {
+            frequencies.merge(term, weight, Integer::sum);
+        }
+        return terms.size() * weight;
+    }
+
+    private Map<Long, List<String>> loadTags(List<Long> postIds) {
+        Map<Long, List<String>> tags = new HashMap<>();
+        for (PostRepository.PostTagName row : postRepository.findTagNamesByPostIds(postIds)) {
+            tags.computeIfAbsent(row.getPostId(), id -> new ArrayList<>()).add(row.getName());
+        }
+        return tags;
+    }
+
+    private void deleteSegments(Path dir) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "segment-*.idx*")) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    public record Hits(List<Long> postIds, long total) {
+    }
+
+    private record Hit(long postId, double score) {
+    }
+
+    private record Document(int length, Map<String, Integer> termFrequencies) {
+    }
+
+    /**
+     * Сегмент на диске и его удалённые документы (порядковые номера); меняется под блокировкой записи.
+     */
+    private static final class Segment {
+
+        private final IndexSegment data;
+        private final RoaringBitmap deleted = new RoaringBitmap();
+        private long deletedLength;
+
+        private Segment(IndexSegment data) {
+            this.data = data;
+        }
+
+        private IndexSegment data() {
+            return data;
+        }
+
+        private int liveDocs() {
+            return data.docCount() - deleted.getCardinality();
+        }
+
+        private long liveLength() {
+            return data.totalLength() - deletedLength;
+        }
+
+        private void delete(long postId) {
+            int ordinal = data.findDoc(postId);
+            if (ordinal >= 0 && deleted.checkedAdd(ordinal)) {
+                deletedLength += data.length(ordinal);
+            }
+        }
+    }
+}
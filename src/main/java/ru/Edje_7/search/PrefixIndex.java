@@ -0,0 +1,325 @@
+package ru.Edje_7.search;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Подсказки по префиксу: записи с несколькими ключами и весом, по префиксу
+ * возвращаются limit записей с наибольшим весом.
+ * <p>
+ * Основа — неизменяемый снимок: отсортированный массив ключей и дерево отрезков
+ * с позицией максимального веса в каждом узле. Ключи с префиксом образуют
+ * непрерывный диапазон массива, лучшие записи диапазона достаются из дерева
+ * за O((limit) * log n) независимо от его длины. Изменения после снимка лежат
+ * в pending и просматриваются целиком; когда их больше maxPending, compactIfNeeded
+ * (вызывается по расписанию) сливает их в новый снимок. Изменения, пришедшие во
+ * время полной перестройки или слияния, остаются в pending поверх нового снимка.
+ */
+public final class PrefixIndex<T> {
+
+    private final int maxPending;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Snapshot<T> snapshot = new Snapshot<>(List.of());
+    // id -> новая версия записи; null — запись удалена
+    private Map<Long, Entry<T>> pending = new HashMap<>();
+    // изменения с начала полной перестройки; null — перестройка не идёт
+    private Map<Long, Entry<T>> changedDuringRebuild;
+
+    public PrefixIndex(int maxPending) {
+        this.maxPending = maxPending;
+    }
+
+    public static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT).replace('ё', 'е');
+    }
+
+    public List<T> suggest(String prefix, int limit) {
+        String normalized = normalize(prefix);
+        if (normalized.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        List<Entry<T>> candidates = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            snapshot.collect(normalized, limit, pending.keySet(), candidates);
+            for (Entry<T> entry : pending.values()) {
+                if (entry != null && entry.matches(normalized)) {
+                    candidates.add(entry);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return candidates.stream()
+                .sorted(Comparator.comparingLong(Entry<T>::weight).reversed())
+                .limit(limit)
+                .map(Entry::value)
+                .toList();
+    }
+
+    public void put(Entry<T> entry) {
+        change(entry.id(), entry);
+    }
+
+    public void remove(long id) {
+        change(id, null);
+    }
+
+    public void rebuild(Collection<Entry<T>> entries) {
+        rebuild(() -> entries);
+    }
+
+    /**
+     * Строит снимок из loader без блокировки; put и remove, вызванные во время
+     * загрузки, применяются поверх нового снимка.
+     */
+    public synchronized void rebuild(Supplier<? extends Collection<Entry<T>>> loader) {
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = new HashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Snapshot<T> rebuilt;
+        try {
+            rebuilt = new Snapshot<>(loader.get());
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            snapshot = rebuilt;
+            pending = changedDuringRebuild;
+            changedDuringRebuild = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            int size = snapshot.entries.size();
+            for (Map.Entry<Long, Entry<T>> change : pending.entrySet()) {
+                boolean inSnapshot = snapshot.ids.contains(change.getKey());
+                if (change.getValue() == null && inSnapshot) {
+                    size--;
+                } else if (change.getValue() != null && !inSnapshot) {
+                    size++;
+                }
+            }
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Сливает pending в новый снимок, если изменений больше maxPending. Снимок
+     * строится без блокировки; изменения, пришедшие во время сборки, остаются в pending.
+     */
+    public synchronized void compactIfNeeded() {
+        List<Entry<T>> base;
+        Map<Long, Entry<T>> compacted;
+        lock.readLock().lock();
+        try {
+            if (pending.size() <= maxPending) {
+                return;
+            }
+            base = snapshot.entries;
+            compacted = new HashMap<>(pending);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Map<Long, Entry<T>> merged = new LinkedHashMap<>();
+        base.forEach(existing -> merged.put(existing.id(), existing));
+        compacted.forEach((id, entry) -> {
+            if (entry == null) {
+                merged.remove(id);
+            } else {
+                merged.put(id, entry);
+            }
+        });
+        Snapshot<T> rebuilt = new Snapshot<>(merged.values());
+
+        lock.writeLock().lock();
+        try {
+            snapshot = rebuilt;
+            // запись, изменённая ещё раз во время сборки, остаётся в pending
+            compacted.forEach(pending::remove);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void change(long id, Entry<T> entry) {
+        lock.writeLock().lock();
+        try {
+            pending.put(id, entry);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.put(id, entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param keys  строки, по префиксу которых находится запись (имя, логин, полное имя)
+     * @param value то, что возвращается в подсказке
+     */
+    public record Entry<T>(long id, List<String> keys, long weight, T value) {
+
+        public Entry {
+            keys = keys.stream()
+                    .map(PrefixIndex::normalize)
+                    .filter(key -> !key.isEmpty())
+                    .distinct()
+                    .toList();
+        }
+
+        boolean matches(String prefix) {
+            for (String key : keys) {
+                if (key.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class Snapshot<T> {
+
+        final List<Entry<T>> entries;
+        final Set<Long> ids = new HashSet<>();
+        // ключи по возрастанию и запись, которой принадлежит каждый ключ
+        final String[] keys;
+        final int[] owners;
+        // дерево отрезков над позициями ключей: узел -> позиция с наибольшим весом, -1 — пусто
+        final int leaves;
+        final int[] tree;
+
+        Snapshot(Collection<Entry<T>> entries) {
+            this.entries = List.copyOf(entries);
+            List<Integer> positions = new ArrayList<>();
+            List<String> allKeys = new ArrayList<>();
+            for (int i = 0; i < this.entries.size(); i++) {
+                ids.add(this.entries.get(i).id());
+                for (String key : this.entries.get(i).keys()) {
+                    allKeys.add(key);
+                    positions.add(i);
+                }
+            }
+
+            Integer[] order = new Integer[allKeys.size()];
+            Arrays.setAll(order, i -> i);
+            Arrays.sort(order, Comparator.comparing(allKeys::get));
+            keys = new String[order.length];
+            owners = new int[order.length];
+            for (int i = 0; i < order.length; i++) {
+                keys[i] = allKeys.get(order[i]);
+                owners[i] = positions.get(order[i]);
+            }
+
+            leaves = Math.max(1, Integer.highestOneBit(Math.max(1, keys.length - 1)) << 1);
+            tree = new int[2 * leaves];
+            Arrays.fill(tree, -1);
+            for (int i = 0; i < keys.length; i++) {
+                tree[leaves + i] = i;
+            }
+            for (int node = leaves - 1; node > 0; node--) {
+                tree[node] = better(tree[2 * node], tree[2 * node + 1]);
+            }
+        }
+
+        void collect(String prefix, int limit, Set<Long> skip, List<Entry<T>> out) {
+            int from = lowerBound(prefix);
+            int to = lowerBound(prefix + Character.MAX_VALUE);
+            if (from >= to) {
+                return;
+            }
+
+            PriorityQueue<Integer> nodes = new PriorityQueue<>((a, b) -> tree[a] == better(tree[a], tree[b]) ? -1 : 1);
+            for (int left = from + leaves, right = to + leaves; left < right; left >>= 1, right >>= 1) {
+                if ((left & 1) == 1) {
+                    nodes.add(left++);
+                }
+                if ((right & 1) == 1) {
+                    nodes.add(--right);
+                }
+            }
+
+            Set<Long> seen = new HashSet<>();
+            int found = 0;
+            while (!nodes.isEmpty() && found < limit) {
+                int node = nodes.poll();
+                if (node >= leaves) {
+                    Entry<T> entry = entries.get(owners[node - leaves]);
+                    if (!skip.contains(entry.id()) && seen.add(entry.id())) {
+                        out.add(entry);
+                        found++;
+                    }
+                    continue;
+                }
+                for (int child = 2 * node; child <= 2 * node + 1; child++) {
+                    if (tree[child] >= 0) {
+                        nodes.add(child);
+                    }
+                }
+            }
+        }
+
+        private int better(int a, int b) {
+            if (a < 0) {
+                return b;
+            }
+            if (b < 0) {
+                return a;
+            }
+            long weightA = entries.get(owners[a]).weight();
+            long weightB = entries.get(owners[b]).weight();
+            return weightA > weightB || (weightA == weightB && a < b) ? a : b;
+        }
+
+        private int lowerBound(String key) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (keys[mid].compareTo(key) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package ru.Edje_7.search;
+
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.Edje_7.config.RelatedProperties;
+import ru.Edje_7.event.PostChangedEvent;
+import ru.Edje_7.repository.PostRepository;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongConsumer;
+
+/**
+ * Похожие посты: MinHash-сигнатуры множества тегов и множества шинглов текста,
+ * LSH-корзины по полосам сигнатур для отбора кандидатов и точный коэффициент
+ * Жаккара для их ранжирования. Сигнатуры считаются при сохранении поста.
+ * Из каждой корзины берётся не больше maxBucketCandidates самых новых постов:
+ * иначе у поста с частым тегом кандидатами оказались бы все посты с этим тегом.
+ * <p>
+ * Перестройка собирает новые структуры без блокировки и подменяет ими текущие;
+ * изменения постов, пришедшие во время загрузки, применяются после подмены.
+ */
+@Component
+@Slf4j
+public class RelatedPostIndex {
+
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    private final PostRepository postRepository;
+    private final RelatedProperties properties;
+    private final TextAnalyzer analyzer = new TextAnalyzer();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Map<Long, Features> posts = new HashMap<>();
+    // (номер полосы, хеш полосы) -> посты
+    private Map<Long, NavigableSet<Long>> buckets = new HashMap<>();
+
+    // пост -> новые признаки (null — удалён), пока идёт перестройка; иначе null
+    private Map<Long, Features> changedDuringRebuild;
+
+    private volatile boolean ready;
+
+    public RelatedPostIndex(PostRepository postRepository, RelatedProperties properties) {
+        this.postRepository = postRepository;
+        this.properties = properties;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public boolean contains(Long postId) {
+        lock.readLock().lock();
+        try {
+            return posts.containsKey(postId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return до limit похожих опубликованных постов по убыванию сходства;
+     * пусто, если пост не опубликован
+     */
+    public List<Long> findRelated(Long postId, int limit) {
+        lock.readLock().lock();
+        try {
+            Features target = posts.get(postId);
+            if (target == null || limit <= 0) {
+                return List.of();
+            }
+
+            Set<Long> candidates = new HashSet<>();
+            forEachBucketKey(target, key -> {
+                NavigableSet<Long> members = buckets.get(key);
+                if (members == null) {
+                    return;
+                }
+                Iterator<Long> newest = members.descendingIterator();
+                int taken = 0;
+                while (newest.hasNext() && taken < properties.getMaxBucketCandidates()) {
+                    Long candidateId = newest.next();
+                    if (!candidateId.equals(postId)) {
+                        candidates.add(candidateId);
+                        taken++;
+                    }
+                }
+            });
+
+            PriorityQueue<Scored> top = new PriorityQueue<>(limit + 1, Scored.ORDER.reversed());
+            for (Long candidateId : candidates) {
+                Features candidate = posts.get(candidateId);
+                double score = properties.getTagWeight() * MinHash.jaccard(target.tags(), candidate.tags())
+                        + (1 - properties.getTagWeight()) * MinHash.jaccard(target.shingles(), candidate.shingles());
+                if (score <= 0) {
+                    continue;
+                }
+                top.add(new Scored(candidateId, score));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+
+            return top.stream()
+                    .sorted(Scored.ORDER)
+                    .map(Scored::postId)
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostChanged(PostChangedEvent event) {
+        Optional<PostRepository.PostText> text = event.getType() == PostChangedEvent.Type.DELETED || !event.isPublished()
+                ? Optional.empty()
+                : postRepository.findPublishedText(event.getPostId());
+
+        Features features = text.map(t -> features(t, event.getTagIds())).orElse(null);
+        lock.writeLock().lock();
+        try {
+            apply(posts, buckets, event.getPostId(), features);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.put(event.getPostId(), features);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    public synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = new HashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Map<Long, Features> builtPosts = new HashMap<>();
+        Map<Long, NavigableSet<Long>> builtBuckets = new HashMap<>();
+        try {
+            long afterId = 0;
+            while (true) {
+                List<PostRepository.PostText> batch = postRepository.findPublishedTextsAfter(
+                        afterId, Limit.of(REBUILD_BATCH_SIZE));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                Map<Long, Set<Long>> tagIds = new HashMap<>();
+                for (PostRepository.PostTagLink link : postRepository.findTagLinksByPostIds(
+                        batch.stream().map(PostRepository.PostText::getId).toList())) {
+                    tagIds.computeIfAbsent(link.getPostId(), id -> new HashSet<>()).add(link.getTagId());
+                }
+                for (PostRepository.PostText text : batch) {
+                    add(builtPosts, builtBuckets, text.getId(), features(text, tagIds.getOrDefault(text.getId(), Set.of())));
+                }
+                afterId = batch.get(batch.size() - 1).getId();
+            }
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild.forEach((postId, features) -> apply(builtPosts, builtBuckets, postId, features));
+            changedDuringRebuild = null;
+            posts = builtPosts;
+            buckets = builtBuckets;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.debug("Built related-posts index for {} posts, {} buckets", builtPosts.size(), builtBuckets.size());
+    }
+
+    Features features(PostRepository.PostText text, Collection<Long> tagIds) {
+        int[] tags = tagIds.stream()
+                .mapToInt(tagId -> MinHash.hash(tagId, -1))
+                .sorted()
+                .distinct()
+                .toArray();
+
+        List<String> terms = analyzer.analyze(join(text.getTitle(), text.getExcerpt(), text.getContent()));
+        int size = properties.getShingleSize();
+        int[] shingles;
+        if (terms.size() < size) {
+            shingles = terms.isEmpty() ? new int[0] : new int[]{String.join(" ", terms).hashCode()};
+        } else {
+            shingles = new int[terms.size() - size + 1];
+            for (int i = 0; i < shingles.length; i++) {
+                shingles[i] = String.join(" ", terms.subList(i, i + size)).hashCode();
+            }
+        }
+        shingles = Arrays.stream(shingles)
+                .map(shingle -> MinHash.hash(shingle, -1))
+                .sorted()
+                .distinct()
+                // нижние k хешей — равномерная выборка шинглов
+                .limit(properties.getMaxShingles())
+                .toArray();
+
+        return new Features(tags, shingles,
+                tags.length == 0 ? null : MinHash.signature(tags, properties.getTagBands() * properties.getTagRows()),
+                shingles.length == 0 ? null : MinHash.signature(shingles, properties.getContentBands() * properties.getContentRows()));
+    }
+
+    private void apply(Map<Long, Features> posts, Map<Long, NavigableSet<Long>> buckets, Long postId, Features features) {
+        remove(posts, buckets, postId);
+        if (features != null) {
+            add(posts, buckets, postId, features);
+        }
+    }
+
+    private void add(Map<Long, Features> posts, Map<Long, NavigableSet<Long>> buckets, Long postId, Features features) {
+        posts.put(postId, features);
+        forEachBucketKey(features, key -> buckets.computeIfAbsent(key, k -> new TreeSet<>()).add(postId));
+    }
+
+    private void remove(Map<Long, Features> posts, Map<Long, NavigableSet<Long>> buckets, Long postId) {
+        Features previous = posts.remove(postId);
+        if (previous == null) {
+            return;
+        }
+        forEachBucketKey(previous, key -> {
+            NavigableSet<Long> members = buckets.get(key);
+            if (members != null) {
+                members.remove(postId);
+                if (members.isEmpty()) {
+                    buckets.remove(key);
+                }
+            }
+        });
+    }
+
+    // полосы тегов и текста нумеруются подряд, чтобы их корзины не пересекались
+    private void forEachBucketKey(Features features, LongConsumer consumer) {
+        if (features.tagSignature() != null) {
+            for (int band = 0; band < properties.getTagBands(); band++) {
+                consumer.accept(bucketKey(band, MinHash.bandHash(features.tagSignature(), band, properties.getTagRows())));
+            }
+        }
+        if (features.contentSignature() != null) {
+            for (int band = 0; band < properties.getContentBands(); band++) {
+                int hash = MinHash.bandHash(features.contentSignature(), band, properties.getContentRows());
+                consumer.accept(bucketKey(properties.getTagBands() + band, hash));
+            }
+        }
+    }
+
+    private static long bucketKey(int band, int hash) {
+        return ((long) band << 32) | (hash & 0xFFFFFFFFL);
+    }
+
+    private static String join(String... parts) {
+        StringBuilder sb = new StringBuilder();
+        for (String part : parts) {
+            if (part != null) {
+                sb.append(part).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    record Features(int[] tags, int[] shingles, int[] tagSignature, int[] contentSignature) {
+    }
+
+    private record Scored(long postId, double score) {
+        static final Comparator<Scored> ORDER = Comparator.comparingDouble(Scored::score).reversed()
+                .thenComparing(Comparator.comparingLong(Scored::postId).reversed());
+    }
+}
@@ -0,0 +1,172 @@
+package ru.Edje_7.search;
+
+
+/**
+ * Стеммер Snowball для русского языка.
+ * Ожидает слово в нижнем регистре, ё уже заменена на е.
+ */
+final class RussianStemmer {
+
+    private static final String VOWELS = "аеиоуыэюя";
+
+    private static final String[] PERFECTIVE_GERUND_1 = {"вшись", "вши", "в"};
+    private static final String[] PERFECTIVE_GERUND_2 = {"ившись", "ывшись", "ивши", "ывши", "ив", "ыв"};
+
+    private static final String[] ADJECTIVE = {
+            "ими", "ыми", "его", "ого", "ему", "ому",
+            "ее", "ие", "ые", "ое", "ей", "ий", "ый", "ой", "ем", "им", "ым", "ом",
+            "их", "ых", "ую", "юю", "ая", "яя", "ою", "ею"
+    };
+
+    private static final String[] PARTICIPLE_1 = {"ем", "нн", "вш", "ющ", "щ"};
+    private static final String[] PARTICIPLE_2 = {"ивш", "ывш", "ующ"};
+
+    private static final String[] REFLEXIVE = {"ся", "сь"};
+
+    private static final String[] VERB_1 = {
+            "ете", "йте", "ешь", "нно",
+            "ла", "на", "ли", "ем", "ло", "но", "ет", "ют", "ны", "ть",
+            "й", "л", "н"
+    };
+    private static final String[] VERB_2 = {
+            "ейте", "уйте",
+            "ила", "ыла", "ена", "ите", "или", "ыли", "ило", "ыло", "ено", "ует", "уют", "ены", "ить", "ыть", "ишь",
+            "ей", "уй", "ил", "ыл", "им", "ым", "ен", "ят", "ит", "ыт", "ую",
+            "ю"
+    };
+
+    private static final String[] NOUN = {
+            "иями", "ями", "ами", "ией", "иям", "ием", "иях",
+            "ев", "ов", "ие", "ье", "еи", "ии", "ей", "ой", "ий", "ям", "ем", "ам", "ом", "ах", "ях", "ию", "ью", "ия", "ья",
+            "а", "е", "и", "й", "о", "у", "ы", "ь", "ю", "я"
+    };
+
+    private static final String[] SUPERLATIVE = {"ейше", "ейш"};
+
+    private static final String[] DERIVATIONAL = {"ость", "ост"};
+
+    String stem(String word) {
+        int rv = regionAfterVowel(word, 0);
+        if (rv >= word.length()) {
+            return word;
+        }
+        int r1 = regionAfterConsonant(word, rv);
+        int r2 = regionAfterConsonant(word, r1 + 1);
+        StringBuilder sb = new StringBuilder(word);
+
+        // шаг 1
+        if (!removeGrouped(sb, rv, PERFECTIVE_GERUND_1, PERFECTIVE_GERUND_2)) {
+            removeLongest(sb, rv, REFLEXIVE);
+            if (!removeAdjectival(sb, rv)
+                    && !removeGrouped(sb, rv, VERB_1, VERB_2)) {
+                removeLongest(sb, rv, NOUN);
+            }
+        }
+
+        // шаг 2
+        removeLongest(sb, rv, new String[]{"и"});
+
+        // шаг 3
+        removeLongest(sb, r2, DERIVATIONAL);
+
+        // шаг 4
+        if (endsWith(sb, rv, "нн")) {
+            sb.setLength(sb.length() - 1);
+        } else if (removeLongest(sb, rv, SUPERLATIVE)) {
+            if (endsWith(sb, rv, "нн")) {
+                sb.setLength(sb.length() - 1);
+            }
+        } else {
+            removeLongest(sb, rv, new String[]{"ь"});
+        }
+
+        return sb.toString();
+    }
+
+    private boolean removeAdjectival(StringBuilder sb, int region) {
+        if (!removeLongest(sb, region, ADJECTIVE)) {
+            return false;
+        }
+        removeGrouped(sb, region, PARTICIPLE_1, PARTICIPLE_2);
+        return true;
+    }
+
+    /**
+     * Окончания первой группы удаляются только после а или я. Как и в Snowball,
+     * выбирается самое длинное совпадение; если для него условие не выполнено,
+     * более короткие не проверяются.
+     */
+    private boolean removeGrouped(StringBuilder sb, int region, String[] afterAOrYa, String[] plain) {
+        String first = longestMatch(sb, region, afterAOrYa);
+        String second = longestMatch(sb, region, plain);
+        if (second != null && (first == null || second.length() >= first.length())) {
+            sb.setLength(sb.length() - second.length());
+            return true;
+        }
+        if (first == null) {
+            return false;
+        }
+        int before = sb.length() - first.length() - 1;
+        if (before < region || (sb.charAt(before) != 'а' && sb.charAt(before) != 'я')) {
+            return false;
+        }
+        sb.setLength(sb.length() - first.length());
+        return true;
+    }
+
+    private boolean removeLongest(StringBuilder sb, int region, String[] suffixes) {
+        String match = longestMatch(sb, region, suffixes);
+        if (match == null) {
+            return false;
+        }
+        sb.setLength(sb.length() - match.length());
+        return true;
+    }
+
+    private String longestMatch(StringBuilder sb, int region, String[] suffixes) {
+        String longest = null;
+        for (String suffix : suffixes) {
+            if ((longest == null || suffix.length() > longest.length()) && endsWith(sb, region, suffix)) {
+                longest = suffix;
+            }
+        }
+        return longest;
+    }
+
+    private boolean endsWith(StringBuilder sb, int region, String suffix) {
+        int start = sb.length() - suffix.length();
+        if (start < region) {
+            return false;
+        }
+        for (int i = 0; i < suffix.length(); i++) {
+            if (sb.charAt(start + i) != suffix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // позиция после первой гласной начиная с from
+    private int regionAfterVowel(String word, int from) {
+        for (int i = from; i < word.length(); i++) {
+            if (isVowel(word.charAt(i))) {
+                return i + 1;
+            }
+        }
+        return word.length();
+    }
+
+    // позиция после первой согласной, следующей за гласной, начиная с from
+    private int regionAfterConsonant(String word, int from) {
+        for (int i = Math.max(from, 1); i < word.length(); i++) {
+            if (!isVowel(word.charAt(i)) && isVowel(word.charAt(i - 1))) {
+                return i + 1;
+            }
+        }
+        return word.length();
+    }
+
+    private boolean isVowel(char ch) {
+        return VOWELS.indexOf(ch) >= 0;
+    }
+}
@@ -0,0 +1,110 @@
+package ru.Edje_7.search;
+
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.Edje_7.config.SearchProperties;
+
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Параллельные ветки поиска на ограниченном пуле потоков. Каждая ветка
+ * выполняется в своей read-only транзакции с таймаутом до дедлайна запроса:
+ * он становится таймаутом SQL-запросов ветки, так что драйвер прерывает их
+ * и после отмены future. Ветка, не успевшая к дедлайну, отменяется,
+ * и запрос отдаёт результат без неё.
+ */
+@Component
+@Slf4j
+public class SearchFanOut {
+
+    private final SearchProperties properties;
+    private final PlatformTransactionManager transactionManager;
+    private final ThreadPoolExecutor executor;
+
+    public SearchFanOut(SearchProperties properties, PlatformTransactionManager transactionManager) {
+        this.properties = properties;
+        this.transactionManager = transactionManager;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                properties.getFanOutThreads(), properties.getFanOutThreads(),
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(properties.getFanOutQueueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "search-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @return момент (System.nanoTime), к которому должны завершиться ветки запроса
+     */
+    public long deadline() {
+        return System.nanoTime() + properties.getGlobalSearchTimeout().toNanos();
+    }
+
+    /**
+     * @param deadline момент из {@link #deadline()}; оставшееся до него время —
+     *                 таймаут транзакции ветки. Hibernate отдаёт запросам остаток таймаута
+     *                 в целых секундах с округлением вниз и при нуле отклоняет запрос,
+     *                 поэтому к времени, округлённому вверх, добавляется секунда.
+     */
+    public <T> Future<T> submit(Supplier<T> branch, long deadline) {
+        try {
+            return executor.submit(() -> {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new TransactionTimedOutException("Search branch was queued past its deadline");
+                }
+                TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+                transaction.setReadOnly(true);
+                transaction.setTimeout((int) Math.ceil(remaining / 1e9) + 1);
+                return transaction.execute(status -> branch.get());
+            });
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * @return результат ветки или пусто, если она не успела к дедлайну, упала
+     * или не поместилась в очередь пула
+     */
+    public <T> Optional<T> await(Future<T> future, long deadline, String branch) {
+        try {
+            return Optional.ofNullable(future.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS));
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            log.warn("Search branch '{}' missed the deadline of {}", branch, properties.getGlobalSearchTimeout());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.warn("Search branch '{}' failed: {}", branch, e.getCause().toString());
+        }
+        return Optional.empty();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
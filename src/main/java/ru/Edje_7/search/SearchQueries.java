@@ -0,0 +1,24 @@
+package ru.Edje_7.search;
+
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Нормализация поисковой строки для ключей кэшей: один и тот же запрос в разном
+ * регистре или с лишними пробелами попадает в одну запись.
+ */
+public final class SearchQueries {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private SearchQueries() {
+    }
+
+    public static String normalize(String query) {
+        if (query == null) {
+            return "";
+        }
+        return WHITESPACE.matcher(query.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,149 @@
+package ru.Edje_7.search;
+
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.Edje_7.config.SuggestProperties;
+import ru.Edje_7.dto.response.SuggestionResponse;
+import ru.Edje_7.event.TagChangedEvent;
+import ru.Edje_7.event.UserChangedEvent;
+import ru.Edje_7.repository.TagRepository;
+import ru.Edje_7.repository.UserRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Подсказки для строки поиска: теги по имени (вес — число постов) и пользователи
+ * по логину, имени и фамилии (вес — число подписчиков). Всё в памяти, БД на запрос
+ * не читается. Изменения тегов и пользователей приходят событиями, веса
+ * обновляются периодической перестройкой, накопленные изменения сливаются
+ * в снимок по расписанию вне потоков запросов. Индекс строится только после старта
+ * и по расписанию; до первой сборки подсказки ищутся запросом LIKE по БД.
+ */
+@Component
+@Slf4j
+public class SuggestIndex {
+
+    private final TagRepository tagRepository;
+    private final UserRepository userRepository;
+
+    private final PrefixIndex<SuggestionResponse> tags;
+    private final PrefixIndex<SuggestionResponse> users;
+
+    private volatile boolean ready;
+
+    public SuggestIndex(TagRepository tagRepository, UserRepository userRepository, SuggestProperties properties) {
+        this.tagRepository = tagRepository;
+        this.userRepository = userRepository;
+        this.tags = new PrefixIndex<>(properties.getMaxPending());
+        this.users = new PrefixIndex<>(properties.getMaxPending());
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public List<SuggestionResponse> suggestTags(String prefix, int limit) {
+        if (!ready) {
+            String pattern = likePrefix(prefix);
+            return pattern == null || limit <= 0 ? List.of() : tagRepository.findSuggestionsLike(pattern, Limit.of(limit)).stream()
+                    .map(tag -> entry(tag).value())
+                    .toList();
+        }
+        return tags.suggest(prefix, limit);
+    }
+
+    public List<SuggestionResponse> suggestUsers(String prefix, int limit) {
+        if (!ready) {
+            String pattern = likePrefix(prefix);
+            return pattern == null || limit <= 0 ? List.of() : userRepository.findSuggestionsLike(pattern, Limit.of(limit)).stream()
+                    .map(user -> entry(user).value())
+                    .toList();
+        }
+        return users.suggest(prefix, limit);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTagChanged(TagChangedEvent event) {
+        tagRepository.findSuggestion(event.getTagId())
+                .ifPresentOrElse(tag -> tags.put(entry(tag)), () -> tags.remove(event.getTagId()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        userRepository.findSuggestion(event.getUserId())
+                .ifPresentOrElse(user -> users.put(entry(user)), () -> users.remove(event.getUserId()));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${blog.suggest.refresh-interval:600000}",
+            initialDelayString = "${blog.suggest.refresh-interval:600000}")
+    public void rebuild() {
+        tags.rebuild(() -> tagRepository.findAllSuggestions().stream().map(SuggestIndex::entry).toList());
+        users.rebuild(() -> userRepository.findAllSuggestions().stream().map(SuggestIndex::entry).toList());
+
+        ready = true;
+        log.debug("Built suggest index for {} tags, {} users", tags.size(), users.size());
+    }
+
+    @Scheduled(fixedDelayString = "${blog.suggest.compact-interval:5000}")
+    public void compactIfNeeded() {
+        tags.compactIfNeeded();
+        users.compactIfNeeded();
+    }
+
+    /**
+     * @return шаблон LIKE для префикса или null, если префикс пуст
+     */
+    private static String likePrefix(String prefix) {
+        String normalized = PrefixIndex.normalize(prefix);
+        if (normalized.isEmpty()) {
+            return null;
+        }
+        return normalized
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_") + "%";
+    }
+
+    private static PrefixIndex.Entry<SuggestionResponse> entry(TagRepository.TagSuggestion tag) {
+        long postCount = tag.getPostCount() == null ? 0 : tag.getPostCount();
+        SuggestionResponse suggestion = new SuggestionResponse(
+                tag.getId(), tag.getName(), tag.getSlug(), null, null, postCount);
+        return new PrefixIndex.Entry<>(tag.getId(), List.of(tag.getName()), postCount, suggestion);
+    }
+
+    private static PrefixIndex.Entry<SuggestionResponse> entry(UserRepository.UserSuggestion user) {
+        long followerCount = user.getFollowerCount() == null ? 0 : user.getFollowerCount();
+        String fullName = fullName(user.getFirstName(), user.getLastName());
+
+        List<String> keys = new ArrayList<>();
+        keys.add(user.getUsername());
+        if (fullName != null) {
+            // по полному имени находится и имя; фамилия — отдельным ключом
+            keys.add(fullName);
+        }
+        if (user.getLastName() != null) {
+            keys.add(user.getLastName());
+        }
+
+        SuggestionResponse suggestion = new SuggestionResponse(
+                user.getId(), user.getUsername(), null, fullName, user.getAvatarUrl(), followerCount);
+        return new PrefixIndex.Entry<>(user.getId(), keys, followerCount, suggestion);
+    }
+
+    private static String fullName(String firstName, String lastName) {
+        String fullName = ((firstName == null ? "" : firstName) + " " + (lastName == null ? "" : lastName)).trim();
+        return fullName.isEmpty() ? null : fullName;
+    }
+}
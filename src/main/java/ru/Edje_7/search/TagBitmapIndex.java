@@ -0,0 +1,217 @@
+package ru.Edje_7.search;
+
+
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.Edje_7.event.PostChangedEvent;
+import ru.Edje_7.repository.PostRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Тег -> множество id постов в виде сжатых битовых карт (Roaring).
+ * Фильтры по нескольким тегам считаются пересечением и объединением карт
+ * без обращения к post_tags. Id постов должны помещаться в int.
+ */
+@Component
+@Slf4j
+public class TagBitmapIndex {
+
+    private final PostRepository postRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Map<Long, RoaringBitmap> postsByTag = new HashMap<>();
+    private RoaringBitmap published = new RoaringBitmap();
+
+    // изменения постов во время перестройки; null — перестройка не идёт
+    private List<PostChangedEvent> changedDuringRebuild;
+
+    private volatile boolean ready;
+
+    public TagBitmapIndex(PostRepository postRepository) {
+        this.postRepository = postRepository;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Опубликованные посты, у которых есть все теги allOf, хотя бы один из anyOf
+     * (если задан) и ни одного из noneOf. Пустые allOf и anyOf — все опубликованные посты.
+     * Страница — limit постов с id меньше beforeId по убыванию id.
+     */
+    public Result query(Collection<Long> allOf, Collection<Long> anyOf, Collection<Long> noneOf,
+                        long beforeId, int limit) {
+        RoaringBitmap matches;
+        lock.readLock().lock();
+        try {
+            List<RoaringBitmap> required = new ArrayList<>();
+            required.add(published);
+            for (Long tagId : allOf) {
+                required.add(postsByTag.getOrDefault(tagId, new RoaringBitmap()));
+            }
+            if (!anyOf.isEmpty()) {
+                required.add(FastAggregation.or(bitmaps(anyOf)));
+            }
+            matches = required.size() == 1 ? published.clone() : FastAggregation.and(required.iterator());
+            if (!noneOf.isEmpty()) {
+                matches.andNot(FastAggregation.or(bitmaps(noneOf)));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        long total = matches.getLongCardinality();
+        if (beforeId <= Integer.MAX_VALUE) {
+            matches.remove(Math.max(beforeId, 0), 1L << 32);
+        }
+
+        List<Long> postIds = new ArrayList<>(limit);
+        IntIterator iterator = matches.getReverseIntIterator();
+        while (iterator.hasNext() && postIds.size() <= limit) {
+            postIds.add(Integer.toUnsignedLong(iterator.next()));
+        }
+        boolean hasMore = postIds.size() > limit;
+        return new Result(hasMore ? postIds.subList(0, limit) : postIds, total, hasMore);
+    }
+
+    /**
+     * @return число опубликованных постов из posts по каждому тегу, limit самых частых тегов
+     */
+    public Map<Long, Long> countByTag(RoaringBitmap posts, int limit) {
+        Map<Long, Long> counts = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            RoaringBitmap candidates = RoaringBitmap.and(posts, published);
+            postsByTag.forEach((tagId, tagged) -> {
+                long count = RoaringBitmap.andCardinality(candidates, tagged);
+                if (count > 0) {
+                    counts.put(tagId, count);
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        return PostFacetIndex.top(counts, limit, Comparator.naturalOrder());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostChanged(PostChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.add(event);
+            }
+            apply(event, postsByTag, published);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Строит карты без блокировки и подменяет их; изменения, пришедшие во время
+     * загрузки, применяются к новым картам по порядку.
+     */
+    public synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Map<Long, RoaringBitmap> rebuiltByTag = new HashMap<>();
+        RoaringBitmap rebuiltPublished = new RoaringBitmap();
+        try {
+            for (PostRepository.PostTagLink link : postRepository.findAllTagLinks()) {
+                rebuiltByTag.computeIfAbsent(link.getTagId(), id -> new RoaringBitmap()).add(toInt(link.getPostId()));
+            }
+            for (Long postId : postRepository.findAllPublishedIds()) {
+                rebuiltPublished.add(toInt(postId));
+            }
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        rebuiltByTag.values().forEach(RoaringBitmap::runOptimize);
+        rebuiltPublished.runOptimize();
+
+        int replayed;
+        lock.writeLock().lock();
+        try {
+            // событие несёт полный набор тегов поста, повтор уже учтённого ничего не меняет
+            changedDuringRebuild.forEach(event -> apply(event, rebuiltByTag, rebuiltPublished));
+            replayed = changedDuringRebuild.size();
+            postsByTag = rebuiltByTag;
+            published = rebuiltPublished;
+            changedDuringRebuild = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        ready = true;
+        log.debug("Built tag bitmaps for {} tags, {} published posts, replayed {} changes",
+                rebuiltByTag.size(), rebuiltPublished.getCardinality(), replayed);
+    }
+
+    private static void apply(PostChangedEvent event, Map<Long, RoaringBitmap> postsByTag, RoaringBitmap published) {
+        int postId = toInt(event.getPostId());
+        for (Long tagId : event.getPreviousTagIds()) {
+            if (!event.getTagIds().contains(tagId)) {
+                RoaringBitmap posts = postsByTag.get(tagId);
+                if (posts != null) {
+                    posts.remove(postId);
+                    if (posts.isEmpty()) {
+                        postsByTag.remove(tagId);
+                    }
+                }
+            }
+        }
+        for (Long tagId : event.getTagIds()) {
+            postsByTag.computeIfAbsent(tagId, id -> new RoaringBitmap()).add(postId);
+        }
+        if (event.getType() != PostChangedEvent.Type.DELETED && event.isPublished()) {
+            published.add(postId);
+        } else {
+            published.remove(postId);
+        }
+    }
+
+    private RoaringBitmap[] bitmaps(Collection<Long> tagIds) {
+        return tagIds.stream()
+                .map(tagId -> postsByTag.getOrDefault(tagId, new RoaringBitmap()))
+                .toArray(RoaringBitmap[]::new);
+    }
+
+    private static int toInt(Long postId) {
+        return Math.toIntExact(postId);
+    }
+
+    public record Result(List<Long> postIds, long total, boolean hasMore) {
+    }
+}
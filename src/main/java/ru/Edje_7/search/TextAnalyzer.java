@@ -0,0 +1,79 @@
+package ru.Edje_7.search;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Разбивает текст на термы: слова из букв и цифр в нижнем регистре без стоп-слов,
+ * кириллица приводится к основе русским стеммером, латиница — английским.
+ * Один и тот же анализатор используется для документов и для запросов.
+ */
+public class TextAnalyzer {
+
+    private static final int MAX_TOKEN_LENGTH = 40;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "but", "by", "for", "if", "in", "into", "is", "it",
+            "no", "not", "of", "on", "or", "such", "that", "the", "their", "then", "there", "these",
+            "they", "this", "to", "was", "will", "with",
+            "и", "в", "во", "не", "что", "он", "на", "я", "с", "со", "как", "а", "то", "все", "она", "так",
+            "его", "но", "да", "ты", "к", "у", "же", "вы", "за", "бы", "по", "только", "ее", "мне", "было",
+            "вот", "от", "меня", "еще", "нет", "о", "из", "ему", "ли", "если", "или", "ни", "быть", "был",
+            "до", "вас", "нибудь", "уже", "для", "при", "без", "это", "эти", "этот", "там", "где"
+    );
+
+    public List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return terms;
+        }
+
+        EnglishStemmer englishStemmer = new EnglishStemmer();
+        RussianStemmer russianStemmer = new RussianStemmer();
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char ch = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(ch)) {
+                token.append(ch == 'ё' || ch == 'Ё' ? 'е' : Character.toLowerCase(ch));
+                continue;
+            }
+            if (!token.isEmpty()) {
+                String term = term(token.toString(), englishStemmer, russianStemmer);
+                if (term != null) {
+                    terms.add(term);
+                }
+                token.setLength(0);
+            }
+        }
+        return terms;
+    }
+
+    private String term(String word, EnglishStemmer englishStemmer, RussianStemmer russianStemmer) {
+        if (word.length() > MAX_TOKEN_LENGTH || STOP_WORDS.contains(word)) {
+            return null;
+        }
+        if (word.length() < 2 && !Character.isDigit(word.charAt(0))) {
+            return null;
+        }
+        if (isAlphabet(word, 'а', 'я')) {
+            return russianStemmer.stem(word);
+        }
+        if (isAlphabet(word, 'a', 'z')) {
+            return englishStemmer.stem(word);
+        }
+        return word.toLowerCase(Locale.ROOT);
+    }
+
+    private boolean isAlphabet(String word, char first, char last) {
+        for (int i = 0; i < word.length(); i++) {
+            char ch = word.charAt(i);
+            if (ch < first || ch > last) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,315 @@
+package ru.Edje_7.search;
+
+
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.Edje_7.config.DatabasePlatform;
+import ru.Edje_7.config.SearchProperties;
+import ru.Edje_7.event.UserChangedEvent;
+import ru.Edje_7.repository.UserRepository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Триграммный индекс пользователей по логину, полному имени и email — замена
+ * pg_trgm для H2. Триграммы строятся как в pg_trgm: по словам из букв и цифр,
+ * дополненным двумя пробелами слева и одним справа.
+ * <p>
+ * Пользователь находится, если поле содержит запрос как подстроку или похоже
+ * на него не меньше userSimilarityThreshold. Похожесть поля — максимум по самому
+ * полю и его словам (приближение word_similarity), результаты упорядочены по ней.
+ * Email участвует только по флагу withEmail.
+ * <p>
+ * Нужен только без PostgreSQL: на нём поиск идёт по pg_trgm, и индекс не строится
+ * и не обновляется.
+ */
+@Component
+@Slf4j
+public class UserTrigramIndex {
+
+    private static final Comparator<Hit> ORDER = Comparator.comparingDouble(Hit::score).reversed()
+            .thenComparingLong(Hit::userId);
+
+    private final UserRepository userRepository;
+    private final SearchProperties properties;
+    private final DatabasePlatform databasePlatform;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, Document> documents = new HashMap<>();
+    // триграмма -> пользователи, у которых она есть в логине или имени / в email
+    private final Map<String, RoaringBitmap> namePostings = new HashMap<>();
+    private final Map<String, RoaringBitmap> emailPostings = new HashMap<>();
+
+    // пользователи, изменённые во время перестройки; null — перестройка не идёт
+    private Set<Long> changedDuringRebuild;
+
+    private volatile boolean ready;
+
+    public UserTrigramIndex(UserRepository userRepository, SearchProperties properties,
+                            DatabasePlatform databasePlatform) {
+        this.userRepository = userRepository;
+        this.properties = properties;
+        this.databasePlatform = databasePlatform;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return id подходящих пользователей, от самых похожих к менее похожим
+     */
+    public List<Long> search(String query, boolean withEmail) {
+        String normalized = normalize(query);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        Set<String> queryGrams = trigrams(normalized);
+
+        List<Hit> hits = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (long userId : candidates(normalized, queryGrams, withEmail)) {
+                Document document = documents.get(userId);
+                if (document == null) {
+                    continue;
+                }
+                double score = 0;
+                boolean contains = false;
+                for (String field : document.fields(withEmail)) {
+                    score = Math.max(score, fieldSimilarity(queryGrams, field));
+                    contains |= field.contains(normalized);
+                }
+                if (contains || score >= properties.getUserSimilarityThreshold()) {
+                    hits.add(new Hit(userId, score));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        hits.sort(ORDER);
+        return hits.stream().map(Hit::userId).toList();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (databasePlatform.isPostgres()) {
+            return;
+        }
+        refresh(event.getUserId());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (databasePlatform.isPostgres()) {
+            log.debug("User trigram index is not built: search uses pg_trgm");
+            return;
+        }
+        rebuild();
+    }
+
+    /**
+     * Загружает пользователей без блокировки и подменяет индекс; пользователи,
+     * изменённые во время загрузки, после подмены перечитываются из БД.
+     */
+    public synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        List<Document> loaded;
+        try {
+            loaded = userRepository.findAllSearchKeys().stream()
+                    .map(UserTrigramIndex::document)
+                    .toList();
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        Set<Long> changed;
+        lock.writeLock().lock();
+        try {
+            documents.clear();
+            namePostings.clear();
+            emailPostings.clear();
+            loaded.forEach(this::index);
+            changed = changedDuringRebuild;
+            changedDuringRebuild = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        changed.forEach(this::refresh);
+
+        ready = true;
+        log.debug("Built user trigram index for {} users", loaded.size());
+    }
+
+    private void refresh(Long userId) {
+        Document document = userRepository.findSearchKey(userId)
+                .map(UserTrigramIndex::document)
+                .orElse(null);
+
+        lock.writeLock().lock();
+        try {
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.add(userId);
+            }
+            unindex(userId);
+            if (document != null) {
+                index(document);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    static Set<String> trigrams(String text) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (String word : words(text)) {
+            String padded = "  " + word + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                grams.add(padded.substring(i, i + 3));
+            }
+        }
+        return grams;
+    }
+
+    static double similarity(Set<String> a, Set<String> b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return 0;
+        }
+        int shared = 0;
+        for (String gram : a) {
+            if (b.contains(gram)) {
+                shared++;
+            }
+        }
+        return (double) shared / (a.size() + b.size() - shared);
+    }
+
+    private static double fieldSimilarity(Set<String> queryGrams, String field) {
+        double score = similarity(queryGrams, trigrams(field));
+        for (String word : words(field)) {
+            score = Math.max(score, similarity(queryGrams, trigrams(word)));
+        }
+        return score;
+    }
+
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        for (String word : text.split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    private RoaringBitmap candidates(String query, Set<String> queryGrams, boolean withEmail) {
+        // подстрока короче триграммы может не дать ни одной общей триграммы — проверяем всех
+        boolean shortWord = words(query).stream().anyMatch(word -> word.length() < 3);
+        if (shortWord) {
+            RoaringBitmap all = new RoaringBitmap();
+            documents.keySet().forEach(userId -> all.add(Math.toIntExact(userId)));
+            return all;
+        }
+
+        RoaringBitmap candidates = new RoaringBitmap();
+        for (String gram : queryGrams) {
+            RoaringBitmap names = namePostings.get(gram);
+            if (names != null) {
+                candidates.or(names);
+            }
+            RoaringBitmap emails = withEmail ? emailPostings.get(gram) : null;
+            if (emails != null) {
+                candidates.or(emails);
+            }
+        }
+        return candidates;
+    }
+
+    private void index(Document document) {
+        documents.put(document.userId(), document);
+        int userId = Math.toIntExact(document.userId());
+        for (String field : document.names()) {
+            trigrams(field).forEach(gram -> namePostings.computeIfAbsent(gram, g -> new RoaringBitmap()).add(userId));
+        }
+        trigrams(document.email()).forEach(gram -> emailPostings.computeIfAbsent(gram, g -> new RoaringBitmap()).add(userId));
+    }
+
+    private void unindex(long userId) {
+        Document document = documents.remove(userId);
+        if (document == null) {
+            return;
+        }
+        for (String field : document.names()) {
+            trigrams(field).forEach(gram -> remove(namePostings, gram, userId));
+        }
+        trigrams(document.email()).forEach(gram -> remove(emailPostings, gram, userId));
+    }
+
+    private static void remove(Map<String, RoaringBitmap> postings, String gram, long userId) {
+        RoaringBitmap users = postings.get(gram);
+        if (users != null) {
+            users.remove(Math.toIntExact(userId));
+            if (users.isEmpty()) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    private static Document document(UserRepository.UserSearchKey user) {
+        List<String> names = new ArrayList<>();
+        names.add(normalize(user.getUsername()));
+        String fullName = normalize((user.getFirstName() == null ? "" : user.getFirstName())
+                + " " + (user.getLastName() == null ? "" : user.getLastName()));
+        if (!fullName.isEmpty()) {
+            names.add(fullName);
+        }
+        return new Document(user.getId(), List.copyOf(names), normalize(user.getEmail()));
+    }
+
+    private record Document(long userId, List<String> names, String email) {
+
+        List<String> fields(boolean withEmail) {
+            if (!withEmail || email.isEmpty()) {
+                return names;
+            }
+            List<String> fields = new ArrayList<>(names);
+            fields.add(email);
+            return fields;
+        }
+    }
+
+    private record Hit(long userId, double score) {
+    }
+}
@@ -0,0 +1,132 @@
+package ru.Edje_7.security;
+
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import ru.Edje_7.config.PasswordHashingProperties;
+import ru.Edje_7.exceptions.ServiceUnavailableException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * PasswordEncoder, выполняющий хэширование и проверку паролей в отдельном пуле
+ * фиксированного размера с ограниченной очередью. BCrypt намеренно медленный: на потоках
+ * Tomcat волна логинов занимала все ядра и тормозила остальные эндпоинты. Теперь
+ * хэширование занимает не больше blog.password-hashing.threads ядер, а при заполненной
+ * очереди или истёкшем ожидании запрос сразу получает ServiceUnavailableException (503).
+ * <p>
+ * Метрики: blog.password.hash (время хэширования, тег operation), blog.password.hash.active,
+ * blog.password.hash.queued, blog.password.hash.saturation (доля занятой очереди)
+ * и blog.password.hash.rejected.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, DisposableBean {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+    private final long retryAfterSeconds;
+
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejected;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate,
+                                  PasswordHashingProperties properties,
+                                  MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.timeoutMillis = properties.getTimeout().toMillis();
+        this.retryAfterSeconds = Math.max(1, properties.getRetryAfter().toSeconds());
+
+        int queueCapacity = properties.getQueueCapacity();
+        this.executor = new ThreadPoolExecutor(properties.getThreads(), properties.getThreads(),
+                0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                new HashingThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+
+        this.encodeTimer = Timer.builder("blog.password.hash").tag("operation", "encode").register(meterRegistry);
+        this.matchesTimer = Timer.builder("blog.password.hash").tag("operation", "matches").register(meterRegistry);
+        this.rejected = Counter.builder("blog.password.hash.rejected").register(meterRegistry);
+        Gauge.builder("blog.password.hash.active", executor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+        Gauge.builder("blog.password.hash.queued", executor, pool -> pool.getQueue().size())
+                .register(meterRegistry);
+        Gauge.builder("blog.password.hash.saturation", executor,
+                        pool -> (double) pool.getQueue().size() / queueCapacity)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return execute(encodeTimer, () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return execute(matchesTimer, () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private <T> T execute(Timer timer, Supplier<T> operation) {
+        Future<T> future;
+        try {
+            future = executor.submit(() -> timer.record(operation));
+        } catch (RejectedExecutionException e) {
+            throw busy();
+        }
+
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw busy();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw busy();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    private ServiceUnavailableException busy() {
+        rejected.increment();
+        return new ServiceUnavailableException("Authentication is temporarily overloaded, please retry later",
+                retryAfterSeconds);
+    }
+
+    private static final class HashingThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "password-hash-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
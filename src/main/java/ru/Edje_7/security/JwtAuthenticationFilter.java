@@ -1,6 +1,7 @@
 package ru.Edje_7.security;
 
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -29,6 +30,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final TokenVersionRegistry tokenVersionRegistry;
+    private final TokenRevocationStore tokenRevocationStore;
 
     @Override
     protected void doFilterInternal(
@@ -65,12 +68,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         final String username;
 
         try {
-            username = jwtService.extractUsername(jwt);
+            Claims claims = jwtService.parseClaims(jwt);
+            username = claims.getSubject();
 
             if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+                UserDetails userDetails = resolvePrincipal(claims);
 
-                if (jwtService.isTokenValid(jwt, userDetails)) {
+                if (userDetails != null) {
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                             userDetails,
                             null,
@@ -81,7 +85,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
                     log.debug("Authenticated user: {}", username);
                 } else {
-                    log.warn("Invalid or expired JWT token for user: {}", username);
+                    log.warn("Revoked JWT token for user: {}", username);
                 }
             }
         } catch (io.jsonwebtoken.ExpiredJwtException e) {
@@ -94,4 +98,26 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
+
+    /**
+     * Principal строится из claims; блокировка, смена ролей и т.п. проверяются по версии
+     * в TokenVersionRegistry, отзыв отдельного токена — в TokenRevocationStore. Токены
+     * без claims (выданные до их появления) проверяются по БД.
+     *
+     * @return null, если токен отозван или это refresh-токен
+     */
+    private UserDetails resolvePrincipal(Claims claims) {
+        if (jwtService.isRefreshToken(claims) || tokenRevocationStore.isRevoked(claims.getId())) {
+            return null;
+        }
+
+        UserDetails userDetails = jwtService.toUserDetails(claims);
+        if (userDetails == null) {
+            return userDetailsService.loadUserByUsername(claims.getSubject());
+        }
+
+        Long userId = claims.get(JwtService.USER_ID_CLAIM, Long.class);
+        Integer securityVersion = claims.get(JwtService.VERSION_CLAIM, Integer.class);
+        return tokenVersionRegistry.isCurrent(userId, securityVersion) ? userDetails : null;
+    }
 }
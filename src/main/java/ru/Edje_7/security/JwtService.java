@@ -3,31 +3,43 @@ package ru.Edje_7.security;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.io.Decoders;
-import io.jsonwebtoken.security.Keys;
 import lombok.Getter;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
-import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class JwtService {
 
-    @Value("${blog.jwt.secret}")
-    private String secretKey;
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String ROLES_CLAIM = "roles";
+    public static final String VERSION_CLAIM = "ver";
+    public static final String TYPE_CLAIM = "typ";
+    public static final String REFRESH_TYPE = "refresh";
+
+    private final JwtVerifier jwtVerifier;
 
     @Getter
     @Value("${blog.jwt.expiration}")
     private long expirationTime;
 
+    @Getter
+    @Value("${blog.jwt.refresh-expiration:2592000000}")
+    private long refreshExpirationTime;
+
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
@@ -41,16 +53,82 @@ public class JwtService {
         return generateToken(new HashMap<>(), userDetails);
     }
 
+    /**
+     * Токен с id пользователя, ролями и версией учётных данных: по нему фильтр
+     * восстанавливает principal без запроса к БД. jti позволяет отозвать токен до истечения.
+     */
+    public String generateToken(UserDetails userDetails, Long userId, int securityVersion) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(USER_ID_CLAIM, userId);
+        claims.put(VERSION_CLAIM, securityVersion);
+        claims.put(ROLES_CLAIM, userDetails.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .distinct()
+                .toList());
+        return Jwts.builder()
+                .setClaims(claims)
+                .setId(UUID.randomUUID().toString())
+                .setSubject(userDetails.getUsername())
+                .setIssuedAt(new Date(System.currentTimeMillis()))
+                .setExpiration(new Date(System.currentTimeMillis() + expirationTime))
+                .signWith(jwtVerifier.signingKey(), SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    /**
+     * Долгоживущий токен только для /auth/refresh: без ролей, одноразовый — при обмене
+     * его jti отзывается.
+     */
+    public String generateRefreshToken(String username, Long userId, int securityVersion) {
+        return Jwts.builder()
+                .claim(TYPE_CLAIM, REFRESH_TYPE)
+                .claim(USER_ID_CLAIM, userId)
+                .claim(VERSION_CLAIM, securityVersion)
+                .setId(UUID.randomUUID().toString())
+                .setSubject(username)
+                .setIssuedAt(new Date(System.currentTimeMillis()))
+                .setExpiration(new Date(System.currentTimeMillis() + refreshExpirationTime))
+                .signWith(jwtVerifier.signingKey(), SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    public boolean isRefreshToken(Claims claims) {
+        return REFRESH_TYPE.equals(claims.get(TYPE_CLAIM));
+    }
+
     public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails) {
         return Jwts.builder()
                 .setClaims(extraClaims)
                 .setSubject(userDetails.getUsername())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expirationTime))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .signWith(jwtVerifier.signingKey(), SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    /**
+     * Проверяет подпись и срок действия; повторные проверки того же токена берутся из кэша JwtVerifier.
+     *
+     * @throws io.jsonwebtoken.JwtException если токен недействителен или истёк
+     */
+    public Claims parseClaims(String token) {
+        return extractAllClaims(token);
+    }
+
+    /**
+     * Principal из claims токена; null, если токен выдан до появления uid/roles/ver.
+     */
+    public UserDetails toUserDetails(Claims claims) {
+        Object roles = claims.get(ROLES_CLAIM);
+        if (claims.get(USER_ID_CLAIM) == null || claims.get(VERSION_CLAIM) == null || !(roles instanceof List<?> names)) {
+            return null;
+        }
+        List<SimpleGrantedAuthority> authorities = names.stream()
+                .map(name -> new SimpleGrantedAuthority(name.toString()))
+                .toList();
+        return new org.springframework.security.core.userdetails.User(claims.getSubject(), "", authorities);
+    }
+
     public boolean isTokenValid(String token, UserDetails userDetails) {
         final String username = extractUsername(token);
         return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
@@ -65,23 +143,6 @@ public class JwtService {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-    }
-
-    private Key getSignInKey() {
-        try {
-            byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-            return Keys.hmacShaKeyFor(keyBytes);
-        } catch (IllegalArgumentException e) {
-            if (secretKey.length() < 32) {
-                throw new IllegalArgumentException("JWT secret key must be at least 32 characters long or valid BASE64 encoded");
-            }
-            return Keys.hmacShaKeyFor(secretKey.getBytes());
-        }
+        return jwtVerifier.verify(token);
     }
-
-}
\ No newline at end of file
+}
@@ -0,0 +1,130 @@
+package ru.Edje_7.security;
+
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.io.DecodingException;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Проверка подписи и срока JWT. Ключ и парсер создаются один раз (при первом обращении,
+ * чтобы неверный секрет не мешал старту без токенов), проверенные claims кэшируются
+ * по SHA-256 токена до истечения его срока — повторный запрос с тем же токеном
+ * обходится без HMAC и разбора JSON.
+ * <p>
+ * В кэше только результат проверки подписи: отзыв токенов проверяется на каждом запросе
+ * в TokenVersionRegistry и TokenRevocationStore. Claims из кэша общие для всех потоков — не изменять.
+ */
+@Component
+public class JwtVerifier {
+
+    private final String secret;
+
+    private final Cache<ByteBuffer, Claims> verified;
+
+    private volatile Key signingKey;
+    private volatile JwtParser parser;
+
+    public JwtVerifier(@Value("${blog.jwt.secret}") String secret,
+                       @Value("${blog.jwt.verified-cache-size:10000}") long verifiedCacheSize) {
+        this.secret = secret;
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheSize)
+                .expireAfter(new UntilTokenExpires())
+                .build();
+    }
+
+    /**
+     * @throws io.jsonwebtoken.JwtException если подпись неверна или токен истёк
+     */
+    public Claims verify(String token) {
+        ByteBuffer hash = sha256(token);
+        Claims claims = verified.getIfPresent(hash);
+        // кэш вытесняет по истечении с запаздыванием, поэтому срок проверяется и здесь
+        if (claims != null && claims.getExpiration().after(new Date())) {
+            return claims;
+        }
+
+        claims = parser().parseClaimsJws(token).getBody();
+        if (claims.getExpiration() != null) {
+            verified.put(hash, claims);
+        }
+        return claims;
+    }
+
+    Key signingKey() {
+        Key key = signingKey;
+        if (key == null) {
+            synchronized (this) {
+                key = signingKey;
+                if (key == null) {
+                    key = createKey(secret);
+                    signingKey = key;
+                }
+            }
+        }
+        return key;
+    }
+
+    private JwtParser parser() {
+        JwtParser current = parser;
+        if (current == null) {
+            current = Jwts.parserBuilder().setSigningKey(signingKey()).build();
+            parser = current;
+        }
+        return current;
+    }
+
+    private static Key createKey(String secret) {
+        try {
+            return Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
+        } catch (IllegalArgumentException | DecodingException e) {
+            if (secret.length() < 32) {
+                throw new IllegalArgumentException("JWT secret key must be at least 32 characters long or valid BASE64 encoded");
+            }
+            return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static ByteBuffer sha256(String token) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static final class UntilTokenExpires implements Expiry<ByteBuffer, Claims> {
+
+        @Override
+        public long expireAfterCreate(ByteBuffer key, Claims claims, long currentTime) {
+            long remaining = claims.getExpiration().getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remaining));
+        }
+
+        @Override
+        public long expireAfterUpdate(ByteBuffer key, Claims claims, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, claims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(ByteBuffer key, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package ru.Edje_7.security;
+
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.Edje_7.config.RateLimitProperties;
+import ru.Edje_7.dto.response.ApiResponse;
+
+import java.io.IOException;
+
+/**
+ * Ограничение частоты запросов. Стоит сразу после JwtAuthenticationFilter: каждый запрос
+ * списывается с бакета IP, а запрос аутентифицированного пользователя — ещё и с бакета
+ * пользователя, так что ни один IP не обойдёт лимит через много учётных записей.
+ * IP клиента за nginx берётся из X-Forwarded-For доверенного прокси
+ * (server.forward-headers-strategy). Лимитируются только поиск, запись и вход,
+ * регистрация и обмен refresh-токена, у каждого класса свой бюджет.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    static final String LIMIT_HEADER = "RateLimit-Limit";
+    static final String REMAINING_HEADER = "RateLimit-Remaining";
+    static final String RESET_HEADER = "RateLimit-Reset";
+
+    private final RateLimiter rateLimiter;
+    private final RateLimitProperties properties;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        RateLimiter.RouteClass routeClass = properties.isEnabled() ? routeClass(request) : null;
+        if (routeClass == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String client = "ip:" + request.getRemoteAddr();
+        RateLimiter.Decision decision = rateLimiter.tryAcquire(routeClass, client);
+        String user = user();
+        if (user != null && decision.allowed()) {
+            RateLimiter.Decision userDecision = rateLimiter.tryAcquire(routeClass, user);
+            if (!userDecision.allowed() || userDecision.remaining() < decision.remaining()) {
+                client = user;
+                decision = userDecision;
+            }
+        }
+        response.setHeader(LIMIT_HEADER, String.valueOf(decision.limit()));
+        response.setHeader(REMAINING_HEADER, String.valueOf(decision.remaining()));
+        response.setHeader(RESET_HEADER, String.valueOf(decision.reset()));
+
+        if (!decision.allowed()) {
+            log.debug("Rate limit exceeded: {} {} by {}", routeClass, request.getRequestURI(), client);
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader("Retry-After", String.valueOf(decision.retryAfter()));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(),
+                    ApiResponse.error("Too many requests, please try again later", "RATE_LIMITED"));
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    static RateLimiter.RouteClass routeClass(HttpServletRequest request) {
+        // context-path = /api, правила — по пути без него
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String method = request.getMethod();
+
+        // /auth/me и выход проверяют сессию при обычной навигации — это не подбор пароля
+        if ("POST".equals(method)
+                && (path.equals("/auth/login") || path.equals("/auth/register") || path.equals("/auth/refresh"))) {
+            return RateLimiter.RouteClass.AUTH;
+        }
+        if ("GET".equals(method)
+                && (path.startsWith("/search") || path.endsWith("/search") || path.endsWith("/suggest"))) {
+            return RateLimiter.RouteClass.SEARCH;
+        }
+        return switch (method) {
+            case "POST", "PUT", "PATCH", "DELETE" -> RateLimiter.RouteClass.WRITE;
+            default -> null;
+        };
+    }
+
+    private static String user() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return "user:" + authentication.getName();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,96 @@
+package ru.Edje_7.security;
+
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.Edje_7.config.RateLimitProperties;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket на клиента и класс маршрута в виде GCRA: состояние бакета — одно число,
+ * теоретическое время прихода следующего запроса (TAT), которое меняется CAS-ом без
+ * блокировок. Запрос проходит, если TAT не дальше от текущего момента, чем capacity - 1
+ * интервалов, и сдвигает TAT на один интервал (period / capacity).
+ * <p>
+ * Бакеты лежат в Caffeine с ограничением по размеру и по времени простоя: простаивающий
+ * бакет к моменту удаления уже полон, так что его удаление ничего не меняет.
+ */
+@Component
+public class RateLimiter {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final RateLimitProperties properties;
+    private final LongSupplier clock;
+    private final Cache<String, AtomicLong> buckets;
+
+    @Autowired
+    public RateLimiter(RateLimitProperties properties) {
+        this(properties, System::nanoTime);
+    }
+
+    RateLimiter(RateLimitProperties properties, LongSupplier clock) {
+        this.properties = properties;
+        this.clock = clock;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxBuckets())
+                .expireAfterAccess(properties.getIdleTimeout())
+                .build();
+    }
+
+    public Decision tryAcquire(RouteClass routeClass, String client) {
+        RateLimitProperties.Budget budget = budget(routeClass);
+        int capacity = budget.getCapacity();
+        long interval = Math.max(1, budget.getPeriod().toNanos() / capacity);
+        long tolerance = interval * (capacity - 1);
+
+        AtomicLong tat = buckets.get(routeClass.name() + ':' + client, key -> new AtomicLong(clock.getAsLong()));
+        while (true) {
+            long now = clock.getAsLong();
+            long current = tat.get();
+            long base = Math.max(current, now);
+            if (base - now > tolerance) {
+                return new Decision(false, capacity, 0, seconds(current - now), seconds(current - tolerance - now));
+            }
+            long next = base + interval;
+            if (tat.compareAndSet(current, next)) {
+                long remaining = (now + tolerance - next) / interval + 1;
+                return new Decision(true, capacity, remaining, seconds(next - now), 0);
+            }
+        }
+    }
+
+    long size() {
+        buckets.cleanUp();
+        return buckets.estimatedSize();
+    }
+
+    private RateLimitProperties.Budget budget(RouteClass routeClass) {
+        return switch (routeClass) {
+            case SEARCH -> properties.getSearch();
+            case WRITE -> properties.getWrite();
+            case AUTH -> properties.getAuth();
+        };
+    }
+
+    private static long seconds(long nanos) {
+        return nanos <= 0 ? 0 : (nanos + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND;
+    }
+
+    public enum RouteClass {
+        SEARCH, WRITE, AUTH
+    }
+
+    /**
+     * @param remaining  сколько запросов ещё пройдёт без ожидания
+     * @param reset      через сколько секунд бакет снова будет полон
+     * @param retryAfter через сколько секунд пройдёт следующий запрос (0, если прошёл этот)
+     */
+    public record Decision(boolean allowed, int limit, long remaining, long reset, long retryAfter) {
+    }
+}
@@ -0,0 +1,150 @@
+package ru.Edje_7.security;
+
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.Edje_7.entity.RevokedToken;
+import ru.Edje_7.event.TokenRevokedEvent;
+import ru.Edje_7.repository.RevokedTokenRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Отозванные JWT по jti. Источник истины — таблица revoked_tokens, перед ней фильтр Блума
+ * с неистёкшими отозванными access-токенами: для почти всех запросов проверка — несколько
+ * хэшей без обращения к БД. Срабатывание фильтра проверяется по таблице, ответ
+ * запоминается в небольшом точном наборе (confirmed), так что отозванный токен
+ * или ложное срабатывание обходятся одним запросом. Refresh-токены живут дольше
+ * и составляют большинство строк, но в фильтр не попадают: запросы с ними фильтр JWT
+ * отклоняет сразу, а повторный обмен обнаруживается по первичному ключу.
+ * <p>
+ * Фильтр пересобирается периодически: удаляются истёкшие строки, подхватываются
+ * отзывы с других экземпляров. Пока не пересобран, отзыв на другом экземпляре
+ * может быть не виден — не дольше refresh-interval.
+ */
+@Component
+@Slf4j
+public class TokenRevocationStore {
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final long expectedTokens;
+
+    // ответы БД на срабатывания фильтра: jti -> отозван ли
+    private final Cache<String, Boolean> confirmed;
+
+    private final Object filterLock = new Object();
+
+    private volatile BloomFilter filter;
+
+    // jti, отозванные во время пересборки; null — пересборка не идёт
+    private List<String> revokedDuringRebuild;
+
+    public TokenRevocationStore(RevokedTokenRepository revokedTokenRepository,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${blog.jwt.revocation.expected-tokens:100000}") long expectedTokens,
+                                @Value("${blog.jwt.revocation.exact-size:10000}") long exactSize,
+                                @Value("${blog.jwt.revocation.refresh-interval:60000}") long refreshInterval) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.eventPublisher = eventPublisher;
+        this.expectedTokens = expectedTokens;
+        this.confirmed = Caffeine.newBuilder()
+                .maximumSize(exactSize)
+                .expireAfterWrite(Duration.ofMillis(refreshInterval))
+                .build();
+        this.filter = new BloomFilter(expectedTokens, FALSE_POSITIVE_RATE);
+    }
+
+    @PostConstruct
+    public void load() {
+        rebuild();
+    }
+
+    public boolean isRevoked(String jti) {
+        if (jti == null || !filter.mightContain(jti)) {
+            return false;
+        }
+        return confirmed.get(jti, revokedTokenRepository::existsById);
+    }
+
+    /**
+     * Отзывает токен до его истечения; access-токен попадает в фильтр после коммита
+     * текущей транзакции.
+     *
+     * @return false, если токен уже был отозван
+     */
+    public boolean revoke(String jti, Date expiresAt, RevokedToken.Type type) {
+        LocalDateTime expires = LocalDateTime.ofInstant(expiresAt.toInstant(), ZoneId.systemDefault());
+        boolean revoked = revokedTokenRepository.insertIfAbsent(jti, expires, type.name()) > 0;
+        if (revoked && type == RevokedToken.Type.ACCESS) {
+            eventPublisher.publishEvent(new TokenRevokedEvent(jti));
+        }
+        return revoked;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTokenRevoked(TokenRevokedEvent event) {
+        synchronized (filterLock) {
+            filter.put(event.getJti());
+            if (revokedDuringRebuild != null) {
+                revokedDuringRebuild.add(event.getJti());
+            }
+        }
+        confirmed.put(event.getJti(), true);
+    }
+
+    /**
+     * Удаляет истёкшие строки и собирает новый фильтр по оставшимся access-токенам без
+     * блокировки: отзывы на время загрузки запоминаются и добавляются в новый фильтр
+     * перед подменой.
+     */
+    @Scheduled(fixedDelayString = "${blog.jwt.revocation.refresh-interval:60000}",
+            initialDelayString = "${blog.jwt.revocation.refresh-interval:60000}")
+    public synchronized void rebuild() {
+        synchronized (filterLock) {
+            revokedDuringRebuild = new ArrayList<>();
+        }
+
+        int pruned;
+        List<String> active;
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            pruned = revokedTokenRepository.deleteExpired(now);
+            active = revokedTokenRepository.findActiveJtis(RevokedToken.Type.ACCESS, now);
+        } catch (RuntimeException e) {
+            synchronized (filterLock) {
+                revokedDuringRebuild = null;
+            }
+            throw e;
+        }
+
+        // запас вдвое, чтобы доля ложных срабатываний не росла до следующей пересборки
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedTokens, active.size() * 2L), FALSE_POSITIVE_RATE);
+        active.forEach(rebuilt::put);
+
+        int replayed;
+        synchronized (filterLock) {
+            replayed = revokedDuringRebuild.size();
+            revokedDuringRebuild.forEach(rebuilt::put);
+            revokedDuringRebuild = null;
+            filter = rebuilt;
+        }
+        confirmed.invalidateAll();
+        log.debug("Rebuilt revocation filter with {} tokens ({} revoked during load), {} expired pruned",
+                active.size() + replayed, replayed, pruned);
+    }
+}
@@ -0,0 +1,103 @@
+package ru.Edje_7.security;
+
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.Edje_7.event.UserSecurityChangedEvent;
+import ru.Edje_7.repository.UserRepository;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static ru.Edje_7.event.UserSecurityChangedEvent.DELETED;
+
+/**
+ * Текущие версии учётных данных пользователей для проверки JWT без обращения к БД.
+ * Хранятся только пользователи с версией больше 0 (когда-либо блокированные, сменившие
+ * роли, логин или пароль) — у остальных версия 0 по умолчанию, поэтому карта маленькая.
+ * Загружается до приёма запросов, обновляется событиями UserSecurityChangedEvent и
+ * периодически перечитывается из БД, чтобы видеть изменения на других экземплярах.
+ * <p>
+ * Версия только растёт: значения сливаются по максимуму, DELETED не перезаписывается.
+ * Пользователь с версией больше 0, пропавший из БД, считается удалённым.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TokenVersionRegistry {
+
+    private final UserRepository userRepository;
+
+    private final ConcurrentHashMap<Long, Integer> versions = new ConcurrentHashMap<>();
+
+    // пользователи, изменённые во время перечитывания; null — перечитывание не идёт
+    private Set<Long> changedDuringReload;
+
+    @PostConstruct
+    public void load() {
+        reload();
+    }
+
+    /**
+     * Сливает версии из БД с текущими. Пользователи, изменённые во время загрузки,
+     * не считаются удалёнными, даже если выборка их не видит.
+     */
+    @Scheduled(fixedDelayString = "${blog.jwt.security-versions.refresh-interval:60000}",
+            initialDelayString = "${blog.jwt.security-versions.refresh-interval:60000}")
+    public synchronized void reload() {
+        synchronized (versions) {
+            changedDuringReload = new HashSet<>();
+        }
+
+        Map<Long, Integer> loaded = new HashMap<>();
+        try {
+            userRepository.findChangedSecurityVersions()
+                    .forEach(user -> loaded.put(user.getId(), user.getSecurityVersion()));
+        } catch (RuntimeException e) {
+            synchronized (versions) {
+                changedDuringReload = null;
+            }
+            throw e;
+        }
+
+        int deleted = 0;
+        synchronized (versions) {
+            loaded.forEach(this::update);
+            for (Map.Entry<Long, Integer> known : versions.entrySet()) {
+                if (known.getValue() > 0 && !loaded.containsKey(known.getKey())
+                        && !changedDuringReload.contains(known.getKey())) {
+                    versions.put(known.getKey(), DELETED);
+                    deleted++;
+                }
+            }
+            changedDuringReload = null;
+        }
+        log.debug("Loaded security versions for {} users, {} deleted elsewhere", loaded.size(), deleted);
+    }
+
+    public boolean isCurrent(Long userId, int securityVersion) {
+        return versions.getOrDefault(userId, 0) == securityVersion;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSecurityChanged(UserSecurityChangedEvent event) {
+        synchronized (versions) {
+            if (changedDuringReload != null) {
+                changedDuringReload.add(event.getUserId());
+            }
+            update(event.getUserId(), event.getSecurityVersion());
+        }
+    }
+
+    private void update(Long userId, int securityVersion) {
+        versions.merge(userId, securityVersion,
+                (current, next) -> current == DELETED || next == DELETED ? DELETED : Math.max(current, next));
+    }
+}
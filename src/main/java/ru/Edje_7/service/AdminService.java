@@ -3,6 +3,7 @@ package ru.Edje_7.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -10,6 +11,8 @@ import org.springframework.transaction.annotation.Transactional;
 import ru.Edje_7.dto.response.UserResponse;
 import ru.Edje_7.entity.Role;
 import ru.Edje_7.entity.User;
+import ru.Edje_7.event.UserChangedEvent;
+import ru.Edje_7.event.UserSecurityChangedEvent;
 import ru.Edje_7.exceptions.ResourceNotFoundException;
 import ru.Edje_7.repository.RoleRepository;
 import ru.Edje_7.repository.UserRepository;
@@ -27,11 +30,15 @@ public class AdminService {
     private final RoleRepository roleRepository;
     private final PostService postService;
     private final UserService userService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public UserResponse updateUser(Long id, Map<String, Object> updates) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
+        String username = user.getUsername();
+        Boolean enabled = user.getEnabled();
+        Boolean locked = user.getLocked();
 
         updates.forEach((key, value) -> {
             switch (key) {
@@ -89,7 +96,13 @@ public class AdminService {
             }
         });
 
+        if (!username.equals(user.getUsername()) || !enabled.equals(user.getEnabled())
+                || !locked.equals(user.getLocked())) {
+            revokeTokens(user);
+        }
+
         User updatedUser = userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(id));
         log.info("Admin updated user with id: {}", id);
 
         return userService.convertToResponse(updatedUser);
@@ -101,6 +114,8 @@ public class AdminService {
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
 
         userRepository.delete(user);
+        eventPublisher.publishEvent(new UserChangedEvent(id));
+        eventPublisher.publishEvent(UserSecurityChangedEvent.deleted(id));
         log.info("Admin deleted user with id: {}", id);
     }
 
@@ -110,7 +125,9 @@ public class AdminService {
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
 
         user.setLocked(true);
+        revokeTokens(user);
         User updatedUser = userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(id));
 
         log.info("Admin banned user with id: {}", id);
 
@@ -123,7 +140,9 @@ public class AdminService {
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
 
         user.setLocked(false);
+        revokeTokens(user);
         User updatedUser = userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(id));
 
         log.info("Admin unbanned user with id: {}", id);
 
@@ -143,6 +162,7 @@ public class AdminService {
 
         if (!user.getRoles().contains(adminRole)) {
             user.addRole(adminRole);
+            revokeTokens(user);
             User updatedUser = userRepository.save(user);
 
             log.info("Assigned ADMIN role to user: {}", user.getUsername());
@@ -162,6 +182,7 @@ public class AdminService {
 
         if (user.getRoles().contains(adminRole)) {
             user.removeRole(adminRole);
+            revokeTokens(user);
             User updatedUser = userRepository.save(user);
 
             log.info("Removed ADMIN role from user: {}", user.getUsername());
@@ -235,6 +256,7 @@ public class AdminService {
 
         if (!user.getRoles().contains(moderatorRole)) {
             user.addRole(moderatorRole);
+            revokeTokens(user);
             User updatedUser = userRepository.save(user);
 
             log.info("Assigned MODERATOR role to user: {}", user.getUsername());
@@ -254,6 +276,7 @@ public class AdminService {
 
         if (user.getRoles().contains(moderatorRole)) {
             user.removeRole(moderatorRole);
+            revokeTokens(user);
             User updatedUser = userRepository.save(user);
 
             log.info("Removed MODERATOR role from user: {}", user.getUsername());
@@ -262,4 +285,9 @@ public class AdminService {
 
         return userService.convertToResponse(user);
     }
+
+    private void revokeTokens(User user) {
+        user.revokeTokens();
+        eventPublisher.publishEvent(UserSecurityChangedEvent.of(user));
+    }
 }
@@ -1,9 +1,12 @@
 package ru.Edje_7.service;
 
 
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import jakarta.validation.ValidationException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -15,15 +18,22 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.Edje_7.dto.request.LoginRequest;
+import ru.Edje_7.dto.request.RefreshTokenRequest;
 import ru.Edje_7.dto.request.RegisterRequest;
 import ru.Edje_7.dto.response.AuthResponse;
 import ru.Edje_7.dto.response.UserResponse;
+import ru.Edje_7.entity.RevokedToken;
 import ru.Edje_7.entity.Role;
 import ru.Edje_7.entity.User;
+import ru.Edje_7.event.UserChangedEvent;
+import ru.Edje_7.event.UserSecurityChangedEvent;
+import ru.Edje_7.exceptions.ServiceUnavailableException;
 import ru.Edje_7.exceptions.UnauthorizedException;
 import ru.Edje_7.repository.RoleRepository;
 import ru.Edje_7.repository.UserRepository;
 import ru.Edje_7.security.JwtService;
+import ru.Edje_7.security.TokenRevocationStore;
+import ru.Edje_7.security.TokenVersionRegistry;
 
 import java.time.LocalDateTime;
 import java.util.Set;
@@ -39,6 +49,9 @@ public class AuthService {
     private final RoleRepository roleRepository;
     private final PasswordEncoder passwordEncoder;
     private final UserDetailsService userDetailsService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TokenVersionRegistry tokenVersionRegistry;
+    private final TokenRevocationStore tokenRevocationStore;
 
     @Transactional
     public AuthResponse login(LoginRequest request) {
@@ -60,17 +73,13 @@ public class AuthService {
             userRepository.save(user);
 
             UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-            String jwt = jwtService.generateToken(userDetails);
-            LocalDateTime expiresAt = LocalDateTime.now().plusSeconds(jwtService.getExpirationTime() / 1000);
 
             log.info("User logged in: {}", user.getUsername());
 
-            return AuthResponse.builder()
-                    .token(jwt)
-                    .expiresAt(expiresAt)
-                    .user(convertToUserResponse(user))
-                    .build();
+            return issueTokens(user, userDetails);
 
+        } catch (ServiceUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Login failed for user: {}", request.getUsernameOrEmail());
             throw new UnauthorizedException("Invalid username/email or password");
@@ -105,18 +114,93 @@ public class AuthService {
 
         user.addRole(userRole);
         User savedUser = userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(savedUser.getId()));
 
         UserDetails userDetails = createUserDetails(savedUser);
-        String jwt = jwtService.generateToken(userDetails);
-
-        LocalDateTime expiresAt = LocalDateTime.now().plusSeconds(jwtService.getExpirationTime() / 1000);
 
         log.info("User registered: {}", savedUser.getUsername());
 
+        return issueTokens(savedUser, userDetails);
+    }
+
+    /**
+     * Обмен refresh-токена на новую пару: старый отзывается, поэтому каждый refresh-токен
+     * одноразовый. Повторное предъявление уже обменянного токена значит, что он утёк, —
+     * тогда отзываются все токены пользователя (версия учётных данных увеличивается).
+     */
+    @Transactional(noRollbackFor = UnauthorizedException.class)
+    public AuthResponse refresh(RefreshTokenRequest request) {
+        Claims claims = parseRefreshToken(request.getRefreshToken());
+        Long userId = claims.get(JwtService.USER_ID_CLAIM, Long.class);
+        Integer securityVersion = claims.get(JwtService.VERSION_CLAIM, Integer.class);
+        if (userId == null || securityVersion == null || claims.getId() == null
+                || !tokenVersionRegistry.isCurrent(userId, securityVersion)) {
+            throw new UnauthorizedException("Refresh token has been revoked");
+        }
+
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new UnauthorizedException("User not found"));
+
+        if (!tokenRevocationStore.revoke(claims.getId(), claims.getExpiration(), RevokedToken.Type.REFRESH)) {
+            log.warn("Refresh token reuse detected for user: {}", user.getUsername());
+            user.revokeTokens();
+            userRepository.save(user);
+            eventPublisher.publishEvent(UserSecurityChangedEvent.of(user));
+            throw new UnauthorizedException("Refresh token has been revoked");
+        }
+
+        if (!Boolean.TRUE.equals(user.getEnabled()) || Boolean.TRUE.equals(user.getLocked())) {
+            throw new UnauthorizedException("Account is disabled");
+        }
+
+        log.debug("Refreshed tokens for user: {}", user.getUsername());
+        return issueTokens(user, createUserDetails(user));
+    }
+
+    /**
+     * Отзывает refresh-токен и, если передан, текущий access-токен. Недействительные
+     * и уже отозванные токены пропускаются.
+     */
+    @Transactional
+    public void logout(RefreshTokenRequest request, String accessToken) {
+        revokeQuietly(request.getRefreshToken());
+        if (accessToken != null) {
+            revokeQuietly(accessToken);
+        }
+    }
+
+    private Claims parseRefreshToken(String token) {
+        try {
+            Claims claims = jwtService.parseClaims(token);
+            if (jwtService.isRefreshToken(claims)) {
+                return claims;
+            }
+        } catch (JwtException | IllegalArgumentException e) {
+            log.debug("Invalid refresh token: {}", e.getMessage());
+        }
+        throw new UnauthorizedException("Invalid refresh token");
+    }
+
+    private void revokeQuietly(String token) {
+        try {
+            Claims claims = jwtService.parseClaims(token);
+            if (claims.getId() != null) {
+                tokenRevocationStore.revoke(claims.getId(), claims.getExpiration(),
+                        jwtService.isRefreshToken(claims) ? RevokedToken.Type.REFRESH : RevokedToken.Type.ACCESS);
+            }
+        } catch (JwtException | IllegalArgumentException e) {
+            log.debug("Skipping invalid token on logout: {}", e.getMessage());
+        }
+    }
+
+    private AuthResponse issueTokens(User user, UserDetails userDetails) {
+        LocalDateTime now = LocalDateTime.now();
         return AuthResponse.builder()
-                .token(jwt)
-                .expiresAt(expiresAt)
-                .user(convertToUserResponse(savedUser))
+                .token(jwtService.generateToken(userDetails, user.getId(), user.getSecurityVersion()))
+                .expiresAt(now.plusSeconds(jwtService.getExpirationTime() / 1000))
+                .refreshToken(jwtService.generateRefreshToken(user.getUsername(), user.getId(), user.getSecurityVersion()))
+                .refreshExpiresAt(now.plusSeconds(jwtService.getRefreshExpirationTime() / 1000))
+                .user(convertToUserResponse(user))
                 .build();
     }
 
@@ -0,0 +1,201 @@
+package ru.Edje_7.service;
+
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.Edje_7.event.PostEngagementEvent;
+import ru.Edje_7.event.PostViewsFlushedEvent;
+import ru.Edje_7.repository.PostRepository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Сводная статистика авторов (author_stats) и её дневные приращения (author_stats_daily).
+ * <p>
+ * Лайки и комментарии применяются сразу после коммита, просмотры — пачкой при сбросе
+ * счётчиков ViewCountService. Каждое изменение прибавляется к итогам, к окнам 7 и 30 дней
+ * и к строке текущего дня. Раз в сутки окна пересчитываются по дневным строкам (иначе
+ * в них остались бы выпавшие из окна дни), а итоги сверяются со счётчиками постов —
+ * так учитываются удалённые посты и комментарии.
+ */
+@Service
+@Slf4j
+public class AuthorStatsService {
+
+    private static final int WEEK = 7;
+    private static final int MONTH = 30;
+
+    private static final String INSERT_TOTALS_SQL = "INSERT INTO author_stats (author_id, likes_received, "
+            + "comments_received, views_received, likes_7d, comments_7d, views_7d, likes_30d, comments_30d, "
+            + "views_30d, updated_at) VALUES (?, 0, 0, 0, 0, 0, 0, 0, 0, 0, ?) ON CONFLICT DO NOTHING";
+
+    private static final String UPDATE_TOTALS_SQL = "UPDATE author_stats SET "
+            + "likes_received = likes_received + ?, comments_received = comments_received + ?, "
+            + "views_received = views_received + ?, "
+            + "likes_7d = likes_7d + ?, comments_7d = comments_7d + ?, views_7d = views_7d + ?, "
+            + "likes_30d = likes_30d + ?, comments_30d = comments_30d + ?, views_30d = views_30d + ?, "
+            + "updated_at = ? WHERE author_id = ?";
+
+    private static final String INSERT_DAILY_SQL = "INSERT INTO author_stats_daily (author_id, stat_date, likes, "
+            + "comments, views) VALUES (?, ?, 0, 0, 0) ON CONFLICT DO NOTHING";
+
+    private static final String UPDATE_DAILY_SQL = "UPDATE author_stats_daily SET likes = likes + ?, "
+            + "comments = comments + ?, views = views + ? WHERE author_id = ? AND stat_date = ?";
+
+    private static final String INSERT_MISSING_SQL = "INSERT INTO author_stats (author_id, likes_received, "
+            + "comments_received, views_received, likes_7d, comments_7d, views_7d, likes_30d, comments_30d, "
+            + "views_30d, updated_at) SELECT DISTINCT p.author_id, 0, 0, 0, 0, 0, 0, 0, 0, 0, ? FROM posts p "
+            + "WHERE NOT EXISTS (SELECT 1 FROM author_stats s WHERE s.author_id = p.author_id)";
+
+    private static final String RECONCILE_TOTALS_SQL = "UPDATE author_stats SET "
+            + "likes_received = " + postsSum("like_count") + ", "
+            + "comments_received = " + postsSum("comment_count") + ", "
+            + "views_received = " + postsSum("view_count");
+
+    private static final String WINDOWS_SQL = "UPDATE author_stats SET "
+            + "likes_7d = " + dailySum("likes") + ", comments_7d = " + dailySum("comments") + ", "
+            + "views_7d = " + dailySum("views") + ", "
+            + "likes_30d = " + dailySum("likes") + ", comments_30d = " + dailySum("comments") + ", "
+            + "views_30d = " + dailySum("views") + ", updated_at = ?";
+
+    private static final String PRUNE_DAILY_SQL = "DELETE FROM author_stats_daily WHERE stat_date < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PostRepository postRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public AuthorStatsService(JdbcTemplate jdbcTemplate,
+                              PostRepository postRepository,
+                              PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.postRepository = postRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEngagement(PostEngagementEvent event) {
+        Delta delta = switch (event.getType()) {
+            case LIKE -> new Delta(1, 0, 0);
+            case UNLIKE -> new Delta(-1, 0, 0);
+            case COMMENT -> new Delta(0, 1, 0);
+            // просмотры приходят пачкой в onViewsFlushed
+            case VIEW -> null;
+        };
+        if (delta == null) {
+            return;
+        }
+
+        LocalDate day = event.getOccurredAt().toLocalDate();
+        postRepository.findAuthorsByPostIds(List.of(event.getPostId()))
+                .forEach(post -> apply(Map.of(new DayKey(post.getAuthorId(), day), delta)));
+    }
+
+    @EventListener
+    public void onViewsFlushed(PostViewsFlushedEvent event) {
+        Map<Long, Long> views = event.getViews();
+        if (views.isEmpty()) {
+            return;
+        }
+
+        LocalDate today = LocalDate.now();
+        Map<DayKey, Delta> deltas = new HashMap<>();
+        for (PostRepository.PostAuthor post : postRepository.findAuthorsByPostIds(views.keySet())) {
+            deltas.merge(new DayKey(post.getAuthorId(), today),
+                    new Delta(0, 0, views.get(post.getPostId())), Delta::plus);
+        }
+
+        try {
+            apply(deltas);
+        } catch (RuntimeException e) {
+            // просмотры уже в posts.view_count: итоги поправит суточная сверка, окна — нет
+            log.error("Failed to add views to stats of {} authors: {}", deltas.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Пересчёт окон 7 и 30 дней по дневным строкам, сверка итогов с постами
+     * и удаление дневных строк старше 30 дней.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${blog.stats.rollup-cron:0 5 0 * * *}")
+    public void rollup() {
+        LocalDate today = LocalDate.now();
+        LocalDate weekStart = today.minusDays(WEEK - 1);
+        LocalDate monthStart = today.minusDays(MONTH - 1);
+        LocalDateTime now = LocalDateTime.now();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            int created = jdbcTemplate.update(INSERT_MISSING_SQL, now);
+            jdbcTemplate.update(RECONCILE_TOTALS_SQL);
+            jdbcTemplate.update(WINDOWS_SQL, weekStart, weekStart, weekStart,
+                    monthStart, monthStart, monthStart, now);
+            int pruned = jdbcTemplate.update(PRUNE_DAILY_SQL, monthStart);
+            log.debug("Rolled up author stats: {} new authors, {} daily rows pruned", created, pruned);
+        });
+    }
+
+    void apply(Map<DayKey, Delta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        LocalDate today = LocalDate.now();
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> totals = new ArrayList<>();
+        List<Object[]> dailyInserts = new ArrayList<>();
+        List<Object[]> daily = new ArrayList<>();
+
+        deltas.forEach((key, delta) -> {
+            Delta week = key.day().isBefore(today.minusDays(WEEK - 1)) ? Delta.ZERO : delta;
+            Delta month = key.day().isBefore(today.minusDays(MONTH - 1)) ? Delta.ZERO : delta;
+            inserts.add(new Object[]{key.authorId(), now});
+            totals.add(new Object[]{delta.likes(), delta.comments(), delta.views(),
+                    week.likes(), week.comments(), week.views(),
+                    month.likes(), month.comments(), month.views(),
+                    now, key.authorId()});
+            dailyInserts.add(new Object[]{key.authorId(), key.day()});
+            daily.add(new Object[]{delta.likes(), delta.comments(), delta.views(), key.authorId(), key.day()});
+        });
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(INSERT_TOTALS_SQL, inserts);
+            jdbcTemplate.batchUpdate(UPDATE_TOTALS_SQL, totals);
+            jdbcTemplate.batchUpdate(INSERT_DAILY_SQL, dailyInserts);
+            jdbcTemplate.batchUpdate(UPDATE_DAILY_SQL, daily);
+        });
+    }
+
+    private static String postsSum(String column) {
+        return "COALESCE((SELECT SUM(p." + column + ") FROM posts p WHERE p.author_id = author_stats.author_id), 0)";
+    }
+
+    private static String dailySum(String column) {
+        return "COALESCE((SELECT SUM(d." + column + ") FROM author_stats_daily d "
+                + "WHERE d.author_id = author_stats.author_id AND d.stat_date >= ?), 0)";
+    }
+
+    record DayKey(Long authorId, LocalDate day) {
+    }
+
+    record Delta(long likes, long comments, long views) {
+
+        static final Delta ZERO = new Delta(0, 0, 0);
+
+        Delta plus(Delta other) {
+            return new Delta(likes + other.likes, comments + other.comments, views + other.views);
+        }
+    }
+}
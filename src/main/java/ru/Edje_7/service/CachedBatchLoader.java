@@ -0,0 +1,87 @@
+package ru.Edje_7.service;
+
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.stereotype.Component;
+import ru.Edje_7.dto.response.BatchResponse;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Пакетное чтение по id через кэш: все ключи проверяются в кэше за один проход,
+ * промахи загружаются одним запросом и кладутся в кэш под теми же ключами,
+ * что и у @Cacheable-методов чтения по одному id.
+ */
+@Component
+@RequiredArgsConstructor
+public class CachedBatchLoader {
+
+    public static final int MAX_IDS = 100;
+
+    private final CacheManager cacheManager;
+
+    /**
+     * @param loader загружает объекты по id одним запросом; отсутствующих id в результате нет
+     */
+    public <T> BatchResponse<T> load(String cacheName, Class<T> type, Collection<Long> ids,
+                                     Function<Collection<Long>, Map<Long, T>> loader) {
+        Set<Long> keys = new LinkedHashSet<>(ids);
+        keys.remove(null);
+        if (keys.size() > MAX_IDS) {
+            throw new IllegalArgumentException("Cannot request more than " + MAX_IDS + " ids at once");
+        }
+
+        Cache cache = cacheManager.getCache(cacheName);
+        Map<Long, T> found = cached(cache, type, keys);
+
+        List<Long> missing = keys.stream().filter(id -> !found.containsKey(id)).toList();
+        if (!missing.isEmpty()) {
+            Map<Long, T> loaded = loader.apply(missing);
+            found.putAll(loaded);
+            if (cache != null) {
+                loaded.forEach(cache::put);
+            }
+        }
+
+        List<T> items = new ArrayList<>(found.size());
+        List<Long> notFound = new ArrayList<>();
+        for (Long id : keys) {
+            T item = found.get(id);
+            if (item != null) {
+                items.add(item);
+            } else {
+                notFound.add(id);
+            }
+        }
+        return new BatchResponse<>(items, notFound);
+    }
+
+    private static <T> Map<Long, T> cached(Cache cache, Class<T> type, Set<Long> keys) {
+        Map<Long, T> found = new HashMap<>();
+        if (cache instanceof CaffeineCache caffeineCache) {
+            caffeineCache.getNativeCache().getAllPresent(keys).forEach((key, value) -> {
+                if (type.isInstance(value)) {
+                    found.put((Long) key, type.cast(value));
+                }
+            });
+        } else if (cache != null) {
+            for (Long key : keys) {
+                T value = cache.get(key, type);
+                if (value != null) {
+                    found.put(key, value);
+                }
+            }
+        }
+        return found;
+    }
+}
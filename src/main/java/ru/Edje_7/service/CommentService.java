@@ -5,6 +5,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -14,6 +15,7 @@ import ru.Edje_7.dto.response.CommentResponse;
 import ru.Edje_7.entity.Comment;
 import ru.Edje_7.entity.Post;
 import ru.Edje_7.entity.User;
+import ru.Edje_7.event.PostEngagementEvent;
 import ru.Edje_7.exceptions.ResourceNotFoundException;
 import ru.Edje_7.exceptions.UnauthorizedException;
 import ru.Edje_7.repository.CommentRepository;
@@ -32,6 +34,7 @@ public class CommentService {
     private final CommentRepository commentRepository;
     private final PostRepository postRepository;
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional(readOnly = true)
     public Page<CommentResponse> getCommentsByPostId(Long postId, Pageable pageable) {
@@ -71,6 +74,7 @@ public class CommentService {
 
         post.incrementCommentCount();
         postRepository.save(post);
+        eventPublisher.publishEvent(PostEngagementEvent.of(post.getId(), PostEngagementEvent.Type.COMMENT));
 
         log.info("Created comment with id: {} by user: {}", savedComment.getId(), user.getUsername());
 
@@ -93,6 +97,7 @@ public class CommentService {
         Post post = parent.getPost();
         post.incrementCommentCount();
         postRepository.save(post);
+        eventPublisher.publishEvent(PostEngagementEvent.of(post.getId(), PostEngagementEvent.Type.COMMENT));
 
         log.info("Created reply with id: {} to comment: {} by user: {}",
                 savedReply.getId(), parentId, user.getUsername());
@@ -0,0 +1,124 @@
+package ru.Edje_7.service;
+
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import ru.Edje_7.config.DatabasePlatform;
+import ru.Edje_7.config.PaginationProperties;
+import ru.Edje_7.dto.CountMode;
+import ru.Edje_7.dto.CountedPage;
+
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Собирает страницу из Slice-запроса и считает totalElements по стратегии,
+ * настроенной для endpoint'а в blog.pagination.count-modes. Режим ESTIMATED
+ * допустим только для endpoint'ов, которые передают запрос для оценки.
+ */
+@Service
+@Slf4j
+public class CountStrategyService {
+
+    // endpoint'ы, передающие EstimateQuery
+    static final Set<String> ESTIMATED_ENDPOINTS = Set.of("search");
+
+    private final PaginationProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final DatabasePlatform databasePlatform;
+    private final ObjectMapper objectMapper;
+
+    private final Cache<String, Long> countCache;
+
+    public CountStrategyService(PaginationProperties properties,
+                                JdbcTemplate jdbcTemplate,
+                                DatabasePlatform databasePlatform,
+                                ObjectMapper objectMapper) {
+        properties.getCountModes().forEach((endpoint, mode) -> {
+            if (mode == CountMode.ESTIMATED && !ESTIMATED_ENDPOINTS.contains(endpoint)) {
+                throw new IllegalArgumentException("blog.pagination.count-modes." + endpoint
+                        + ": estimated is supported only for " + ESTIMATED_ENDPOINTS);
+            }
+        });
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.databasePlatform = databasePlatform;
+        this.objectMapper = objectMapper;
+        this.countCache = Caffeine.newBuilder()
+                .expireAfterWrite(properties.getCountCacheTtl())
+                .maximumSize(properties.getCountCacheSize())
+                .build();
+    }
+
+    public <T> CountedPage<T> page(String endpoint,
+                                   String signature,
+                                   Pageable pageable,
+                                   Function<Pageable, Slice<T>> contentQuery,
+                                   LongSupplier exactCount) {
+        return page(endpoint, signature, pageable, contentQuery, exactCount, null);
+    }
+
+    /**
+     * @param estimateQuery SELECT по тем же условиям, что и основной запрос; используется
+     *                    для оценки числа строк планировщиком PostgreSQL (EXPLAIN)
+     */
+    public <T> CountedPage<T> page(String endpoint,
+                                   String signature,
+                                   Pageable pageable,
+                                   Function<Pageable, Slice<T>> contentQuery,
+                                   LongSupplier exactCount,
+                                   EstimateQuery estimateQuery) {
+        Slice<T> slice = contentQuery.apply(pageable);
+
+        // последняя страница: total известен без отдельного запроса
+        if (!slice.hasNext() && (slice.hasContent() || pageable.getOffset() == 0)) {
+            long total = pageable.getOffset() + slice.getNumberOfElements();
+            return new CountedPage<>(slice.getContent(), pageable, total, true, false);
+        }
+
+        CountMode mode = properties.getCountMode(endpoint);
+        String cacheKey = endpoint + ":" + signature;
+
+        return switch (mode) {
+            case EXACT -> new CountedPage<>(slice.getContent(), pageable,
+                    exactCount.getAsLong(), true, slice.hasNext());
+            case CACHED -> new CountedPage<>(slice.getContent(), pageable,
+                    cachedCount(cacheKey, exactCount), false, slice.hasNext());
+            case ESTIMATED -> new CountedPage<>(slice.getContent(), pageable,
+                    estimate(estimateQuery).orElseGet(() -> cachedCount(cacheKey, exactCount)), false, slice.hasNext());
+            case NONE -> CountedPage.withoutTotal(slice.getContent(), pageable, slice.hasNext());
+        };
+    }
+
+    private long cachedCount(String cacheKey, LongSupplier exactCount) {
+        return countCache.get(cacheKey, key -> exactCount.getAsLong());
+    }
+
+    private OptionalLong estimate(EstimateQuery query) {
+        if (query == null || !databasePlatform.isPostgres()) {
+            return OptionalLong.empty();
+        }
+
+        try {
+            String plan = jdbcTemplate.queryForObject(
+                    "EXPLAIN (FORMAT JSON) " + query.sql(), String.class, query.args());
+            JsonNode rows = objectMapper.readTree(plan).path(0).path("Plan").path("Plan Rows");
+            return rows.isNumber() ? OptionalLong.of(rows.asLong()) : OptionalLong.empty();
+        } catch (Exception e) {
+            log.warn("Failed to estimate row count from query plan: {}", e.getMessage());
+            return OptionalLong.empty();
+        }
+    }
+
+    public record EstimateQuery(String sql, Object... args) {
+    }
+}
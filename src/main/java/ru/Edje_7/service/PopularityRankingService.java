@@ -0,0 +1,208 @@
+package ru.Edje_7.service;
+
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.Edje_7.config.PopularityProperties;
+import ru.Edje_7.event.PostChangedEvent;
+import ru.Edje_7.event.PostEngagementEvent;
+import ru.Edje_7.repository.PostRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.UnaryOperator;
+
+/**
+ * Рейтинг популярных постов с затуханием по времени (forward decay).
+ * <p>
+ * Событие с весом w в момент t добавляет к рейтингу w * 2^((t - LANDMARK) / halfLife).
+ * Множитель растёт со временем вместо того, чтобы уменьшать старые вклады, поэтому
+ * порядок постов не меняется сам по себе и пересчитывать весь рейтинг не нужно.
+ * Значения хранятся в логарифмах, чтобы не переполнить double.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PopularityRankingService {
+
+    private static final LocalDateTime LANDMARK = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private static final Comparator<RankedPost> ORDER = Comparator
+            .comparingDouble(RankedPost::score).reversed()
+            .thenComparing(Comparator.comparingLong(RankedPost::postId).reversed());
+
+    private final PostRepository postRepository;
+    private final PopularityProperties properties;
+
+    private final ConcurrentHashMap<Long, Double> scores = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<RankedPost> ranking = new ConcurrentSkipListSet<>(ORDER);
+
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        return scores.size();
+    }
+
+    public List<Long> getTopPostIds(long offset, int limit) {
+        List<Long> postIds = new ArrayList<>(limit);
+        Iterator<RankedPost> iterator = ranking.iterator();
+        for (long skipped = 0; skipped < offset && iterator.hasNext(); skipped++) {
+            iterator.next();
+        }
+        while (postIds.size() < limit && iterator.hasNext()) {
+            postIds.add(iterator.next().postId());
+        }
+        return postIds;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEngagement(PostEngagementEvent event) {
+        switch (event.getType()) {
+            case VIEW -> add(event.getPostId(), properties.getViewWeight(), event.getOccurredAt());
+            case LIKE -> add(event.getPostId(), properties.getLikeWeight(), event.getOccurredAt());
+            case UNLIKE -> subtract(event.getPostId(), properties.getLikeWeight(), event.getOccurredAt());
+            case COMMENT -> add(event.getPostId(), properties.getCommentWeight(), event.getOccurredAt());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostChanged(PostChangedEvent event) {
+        if (event.getType() == PostChangedEvent.Type.DELETED || !event.isPublished()) {
+            remove(event.getPostId());
+            return;
+        }
+        LocalDateTime publishedAt = event.getPublishedAt() != null ? event.getPublishedAt() : LocalDateTime.now();
+        double base = logWeight(properties.getPublishWeight(), publishedAt);
+        update(event.getPostId(), current -> current != null ? Math.max(current, base) : base);
+        trim();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Пересобирает рейтинг по счётчикам из БД. Точное время прошлых событий неизвестно,
+     * поэтому они считаются произошедшими в момент публикации; накопленные в памяти
+     * значения не уменьшаются — берётся максимум.
+     */
+    @Scheduled(fixedDelayString = "${blog.popularity.rebuild-interval:600000}",
+            initialDelayString = "${blog.popularity.rebuild-interval:600000}")
+    public synchronized void rebuild() {
+        List<PostRepository.PostEngagement> rows = postRepository.findPublishedEngagement(LocalDateTime.now());
+
+        Set<Long> published = new HashSet<>();
+        long maxId = 0;
+        for (PostRepository.PostEngagement row : rows) {
+            published.add(row.getId());
+            maxId = Math.max(maxId, row.getId());
+
+            double weight = properties.getPublishWeight()
+                    + properties.getViewWeight() * row.getViewCount()
+                    + properties.getLikeWeight() * row.getLikeCount()
+                    + properties.getCommentWeight() * row.getCommentCount();
+            double stored = logWeight(weight, row.getPublishedAt());
+            update(row.getId(), current -> current != null ? Math.max(current, stored) : stored);
+        }
+
+        // посты новее выборки могли появиться через события во время пересборки
+        long newestLoaded = maxId;
+        scores.keySet().stream()
+                .filter(postId -> postId <= newestLoaded && !published.contains(postId))
+                .toList()
+                .forEach(this::remove);
+
+        trim();
+        ready = true;
+        log.debug("Rebuilt popularity ranking for {} posts", scores.size());
+    }
+
+    private void add(Long postId, double weight, LocalDateTime at) {
+        double delta = logWeight(weight, at);
+        // посты вне рейтинга (черновики, вытесненные) добавляются только через пересборку
+        updateIfPresent(postId, current -> logAdd(current, delta));
+    }
+
+    private void subtract(Long postId, double weight, LocalDateTime at) {
+        double delta = logWeight(weight, at);
+        updateIfPresent(postId, current -> logSubtract(current, delta));
+    }
+
+    private void remove(Long postId) {
+        scores.computeIfPresent(postId, (id, current) -> {
+            ranking.remove(new RankedPost(id, current));
+            return null;
+        });
+    }
+
+    private void update(Long postId, UnaryOperator<Double> scoreFunction) {
+        scores.compute(postId, (id, current) -> {
+            double next = scoreFunction.apply(current);
+            if (current != null) {
+                ranking.remove(new RankedPost(id, current));
+            }
+            ranking.add(new RankedPost(id, next));
+            return next;
+        });
+    }
+
+    private void updateIfPresent(Long postId, DoubleUnaryOperator scoreFunction) {
+        scores.computeIfPresent(postId, (id, current) -> {
+            double next = scoreFunction.applyAsDouble(current);
+            ranking.remove(new RankedPost(id, current));
+            ranking.add(new RankedPost(id, next));
+            return next;
+        });
+    }
+
+    private void trim() {
+        while (scores.size() > properties.getCapacity()) {
+            RankedPost last = ranking.pollLast();
+            if (last == null) {
+                return;
+            }
+            scores.remove(last.postId(), last.score());
+        }
+    }
+
+    double logWeight(double weight, LocalDateTime at) {
+        double seconds = Duration.between(LANDMARK, at).toMillis() / 1000.0;
+        double rate = Math.log(2) / properties.getHalfLife().toSeconds();
+        return Math.log(weight) + rate * seconds;
+    }
+
+    static double logAdd(double a, double b) {
+        double max = Math.max(a, b);
+        return max + Math.log1p(Math.exp(Math.min(a, b) - max));
+    }
+
+    static double logSubtract(double a, double b) {
+        if (b >= a) {
+            // лайк был поставлен раньше и весит меньше, чем сейчас; точный вклад неизвестен
+            return a;
+        }
+        return a + Math.log1p(-Math.exp(b - a));
+    }
+
+    private record RankedPost(long postId, double score) {
+    }
+}
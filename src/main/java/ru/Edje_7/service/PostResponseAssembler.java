@@ -0,0 +1,164 @@
+package ru.Edje_7.service;
+
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.stereotype.Component;
+import ru.Edje_7.dto.CountedPage;
+import ru.Edje_7.dto.PostSummary;
+import ru.Edje_7.dto.PostView;
+import ru.Edje_7.dto.response.PostResponse;
+import ru.Edje_7.entity.Post;
+import ru.Edje_7.entity.User;
+import ru.Edje_7.repository.PostRepository;
+import ru.Edje_7.repository.UserRepository;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Сборка PostResponse для списков: авторы и теги всей страницы загружаются
+ * двумя запросами (IN по id), а не лениво для каждой строки.
+ * Списочные запросы возвращают только id, строки догружаются здесь в нужном представлении.
+ */
+@Component
+@RequiredArgsConstructor
+public class PostResponseAssembler {
+
+    private final PostRepository postRepository;
+    private final UserRepository userRepository;
+
+    public PostResponse toResponse(Post post) {
+        Set<String> tagNames = post.getTags().stream()
+                .map(tag -> tag.getName())
+                .collect(Collectors.toSet());
+        return convert(post, post.getAuthor(), tagNames);
+    }
+
+    public Page<PostResponse> toResponsePage(Page<Post> page) {
+        Map<Long, PostResponse> responses = toResponses(page.getContent()).stream()
+                .collect(Collectors.toMap(PostResponse::getId, Function.identity()));
+        return page.map(post -> responses.get(post.getId()));
+    }
+
+    public Page<PostResponse> toResponsePage(Page<Long> postIds, PostView view) {
+        List<PostResponse> content = toResponses(postIds.getContent(), view);
+        if (postIds instanceof CountedPage<Long> counted) {
+            return counted.withContent(content);
+        }
+        return new PageImpl<>(content, postIds.getPageable(), postIds.getTotalElements());
+    }
+
+    /**
+     * Догружает посты по id одним запросом и сохраняет порядок id;
+     * удалённые между двумя запросами посты пропускаются.
+     */
+    public List<PostResponse> toResponses(List<Long> postIds, PostView view) {
+        if (postIds.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Set<String>> tagNames = loadTagNames(postIds);
+        Map<Long, PostResponse> responses = new HashMap<>();
+
+        if (view == PostView.SUMMARY) {
+            for (PostSummary summary : postRepository.findSummariesByIdIn(postIds)) {
+                responses.put(summary.getId(), convert(summary, tagNames.getOrDefault(summary.getId(), new HashSet<>())));
+            }
+        } else {
+            for (Post post : postRepository.findAllWithAuthorByIdIn(postIds)) {
+                responses.put(post.getId(), convert(post, post.getAuthor(), tagNames.getOrDefault(post.getId(), new HashSet<>())));
+            }
+        }
+
+        return postIds.stream()
+                .map(responses::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    public List<PostResponse> toResponses(List<Post> posts) {
+        if (posts.isEmpty()) {
+            return List.of();
+        }
+
+        // getId() у lazy-прокси автора не инициализирует его
+        Set<Long> authorIds = posts.stream()
+                .map(Post::getAuthor)
+                .filter(Objects::nonNull)
+                .map(User::getId)
+                .collect(Collectors.toSet());
+        Map<Long, User> authors = userRepository.findAllById(authorIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        Map<Long, Set<String>> tagNames = loadTagNames(posts.stream().map(Post::getId).toList());
+
+        return posts.stream()
+                .map(post -> {
+                    User author = post.getAuthor() != null
+                            ? authors.getOrDefault(post.getAuthor().getId(), post.getAuthor())
+                            : null;
+                    return convert(post, author, tagNames.getOrDefault(post.getId(), new HashSet<>()));
+                })
+                .collect(Collectors.toList());
+    }
+
+    private Map<Long, Set<String>> loadTagNames(List<Long> postIds) {
+        Map<Long, Set<String>> tagNames = new HashMap<>();
+        for (PostRepository.PostTagName row : postRepository.findTagNamesByPostIds(postIds)) {
+            tagNames.computeIfAbsent(row.getPostId(), id -> new HashSet<>()).add(row.getName());
+        }
+        return tagNames;
+    }
+
+    private PostResponse convert(PostSummary summary, Set<String> tagNames) {
+        PostResponse response = new PostResponse();
+        response.setId(summary.getId());
+        response.setTitle(summary.getTitle());
+        response.setSlug(summary.getSlug());
+        response.setExcerpt(summary.getExcerpt());
+        response.setStatus(summary.getStatus().name());
+        response.setViewCount(summary.getViewCount());
+        response.setLikeCount(summary.getLikeCount());
+        response.setCommentCount(summary.getCommentCount());
+        response.setFeatured(summary.getFeatured());
+        response.setCreatedAt(summary.getCreatedAt());
+        response.setUpdatedAt(summary.getUpdatedAt());
+        response.setPublishedAt(summary.getPublishedAt());
+        response.setAuthorId(summary.getAuthorId());
+        response.setAuthorUsername(summary.getAuthorUsername());
+        response.setAuthorAvatar(summary.getAuthorAvatar());
+        response.setTags(tagNames);
+
+        return response;
+    }
+
+    private PostResponse convert(Post post, User author, Set<String> tagNames) {
+        PostResponse response = new PostResponse();
+        response.setId(post.getId());
+        response.setTitle(post.getTitle());
+        response.setSlug(post.getSlug());
+        response.setContent(post.getContent());
+        response.setExcerpt(post.getExcerpt());
+        response.setStatus(post.getStatus().name());
+        response.setViewCount(post.getViewCount());
+        response.setLikeCount(post.getLikeCount());
+        response.setCommentCount(post.getCommentCount());
+        response.setFeatured(post.getFeatured());
+        response.setCreatedAt(post.getCreatedAt());
+        response.setUpdatedAt(post.getUpdatedAt());
+        response.setPublishedAt(post.getPublishedAt());
+
+        if (author != null) {
+            response.setAuthorId(author.getId());
+            response.setAuthorUsername(author.getUsername());
+            response.setAuthorAvatar(author.getAvatarUrl());
+        }
+
+        response.setTags(tagNames);
+
+        return response;
+    }
+}
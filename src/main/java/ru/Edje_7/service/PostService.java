@@ -5,22 +5,39 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.Edje_7.config.PaginationProperties;
+import ru.Edje_7.dto.CountedPage;
+import ru.Edje_7.dto.CursorPage;
+import ru.Edje_7.dto.PostCursor;
+import ru.Edje_7.dto.PostView;
 import ru.Edje_7.dto.request.PostRequest;
+import ru.Edje_7.dto.response.BatchResponse;
 import ru.Edje_7.dto.response.PostResponse;
 import ru.Edje_7.entity.Post;
 import ru.Edje_7.entity.User;
+import ru.Edje_7.event.PostChangedEvent;
+import ru.Edje_7.event.PostEngagementEvent;
 import ru.Edje_7.exceptions.ResourceNotFoundException;
 import ru.Edje_7.exceptions.UnauthorizedException;
 import ru.Edje_7.repository.PostRepository;
 import ru.Edje_7.repository.UserRepository;
+import ru.Edje_7.search.PostSearchIndex;
+import ru.Edje_7.search.RelatedPostIndex;
+import ru.Edje_7.search.SearchQueries;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -31,11 +48,30 @@ public class PostService {
     private final PostRepository postRepository;
     private final UserRepository userRepository;
     private final TagService tagService;
+    private final CountStrategyService countStrategyService;
+    private final PostResponseAssembler postResponseAssembler;
+    private final PopularityRankingService popularityRankingService;
+    private final PostSearchIndex postSearchIndex;
+    private final RelatedPostIndex relatedPostIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CachedBatchLoader cachedBatchLoader;
+    private final PaginationProperties paginationProperties;
 
     @Transactional(readOnly = true)
-    public Page<PostResponse> getAllPosts(Pageable pageable) {
-        return postRepository.findPublishedPosts(LocalDateTime.now(), pageable)
-                .map(this::convertToResponse);
+    public Page<PostResponse> getAllPosts(Pageable pageable, PostView view) {
+        LocalDateTime now = LocalDateTime.now();
+        Page<Long> postIds = countStrategyService.page("posts", "all", pageable,
+                p -> postRepository.findPublishedPostIds(now, p),
+                () -> postRepository.countPublishedPosts(now));
+        return postResponseAssembler.toResponsePage(postIds, view);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<PostResponse> getAllPosts(String cursor, int size, PostView view) {
+        LocalDateTime now = LocalDateTime.now();
+        return keysetPage(cursor, size, view,
+                (publishedAt, id, limit) -> postRepository.findPublishedPostsBefore(now, publishedAt, id, limit),
+                (publishedAt, id, limit) -> postRepository.findPublishedPostsAfter(now, publishedAt, id, limit));
     }
 
     @Cacheable(value = "post", key = "#id")
@@ -48,10 +84,22 @@ public class PostService {
             throw new ResourceNotFoundException("Post is not published");
         }
 
-        post.incrementViewCount();
-        postRepository.save(post);
+        return postResponseAssembler.toResponse(post);
+    }
 
-        return convertToResponse(post);
+    /**
+     * Опубликованные посты по списку id в порядке запроса; кэш "post" общий с getPostById,
+     * неопубликованные попадают в notFound.
+     */
+    @Transactional(readOnly = true)
+    public BatchResponse<PostResponse> getPostsByIds(Collection<Long> ids) {
+        return cachedBatchLoader.load("post", PostResponse.class, ids, missing -> {
+            List<Post> posts = postRepository.findAllWithAuthorByIdIn(missing).stream()
+                    .filter(Post::isPublished)
+                    .toList();
+            return postResponseAssembler.toResponses(posts).stream()
+                    .collect(Collectors.toMap(PostResponse::getId, Function.identity()));
+        });
     }
 
     @Transactional
@@ -79,10 +127,12 @@ public class PostService {
         }
 
         Post savedPost = postRepository.save(post);
+        userRepository.adjustPostCount(author.getId(), 1);
         log.info("Created new post with id: {} by user: {} with status: {}", 
                 savedPost.getId(), author.getUsername(), savedPost.getStatus());
+        eventPublisher.publishEvent(PostChangedEvent.created(savedPost));
 
-        return convertToResponse(savedPost);
+        return postResponseAssembler.toResponse(savedPost);
     }
 
     @CacheEvict(value = "post", key = "#id")
@@ -103,6 +153,8 @@ public class PostService {
             post.setStatus(Post.Status.valueOf(request.getStatus().toUpperCase()));
         }
 
+        Set<Long> previousTagIds = PostChangedEvent.tagIds(post);
+
         if (request.getTags() != null) {
             post.getTags().forEach(tag -> tag.decrementPostCount());
             post.getTags().clear();
@@ -114,8 +166,9 @@ public class PostService {
 
         Post updatedPost = postRepository.save(post);
         log.info("Updated post with id: {} by user: {}", id, currentUser.getUsername());
+        eventPublisher.publishEvent(PostChangedEvent.saved(updatedPost, previousTagIds));
 
-        return convertToResponse(updatedPost);
+        return postResponseAssembler.toResponse(updatedPost);
     }
 
     @CacheEvict(value = "post", key = "#id")
@@ -128,25 +181,71 @@ public class PostService {
             throw new UnauthorizedException("You are not authorized to delete this post");
         }
 
+        PostChangedEvent event = PostChangedEvent.deleted(post);
         postRepository.delete(post);
+        userRepository.adjustPostCount(post.getAuthor().getId(), -1);
         log.info("Deleted post with id: {} by user: {}", id, currentUser.getUsername());
+        eventPublisher.publishEvent(event);
     }
 
-    @Cacheable(value = "popularPosts", key = "#pageable.pageNumber + '-' + #pageable.pageSize")
     @Transactional(readOnly = true)
-    public Page<PostResponse> getPopularPosts(Pageable pageable) {
-        return postRepository.findPopularPosts(LocalDateTime.now(), pageable)
-                .map(this::convertToResponse);
+    public Page<PostResponse> getPopularPosts(Pageable pageable, PostView view) {
+        if (popularityRankingService.isReady()) {
+            List<Long> postIds = popularityRankingService.getTopPostIds(pageable.getOffset(), pageable.getPageSize() + 1);
+            boolean hasNext = postIds.size() > pageable.getPageSize();
+            CountedPage<Long> page = new CountedPage<>(
+                    postIds.subList(0, Math.min(postIds.size(), pageable.getPageSize())),
+                    pageable, popularityRankingService.size(), true, hasNext);
+            return postResponseAssembler.toResponsePage(page, view);
+        }
+
+        // рейтинг ещё не построен после старта
+        LocalDateTime now = LocalDateTime.now();
+        Page<Long> postIds = countStrategyService.page("popular", "all", pageable,
+                p -> postRepository.findPopularPostIds(now, p),
+                () -> postRepository.countPublishedPosts(now));
+        return postResponseAssembler.toResponsePage(postIds, view);
     }
 
     @Transactional(readOnly = true)
-    public Page<PostResponse> searchPosts(String query, Pageable pageable) {
+    public Page<PostResponse> searchPosts(String query, Pageable pageable, PostView view) {
         if (query == null || query.trim().isEmpty()) {
-            return getAllPosts(pageable);
+            return getAllPosts(pageable, view);
+        }
+
+        String searchQuery = query.trim();
+        if (!postSearchIndex.isReady()) {
+            // индекс ещё строится после старта
+            Page<Long> postIds = countStrategyService.page("search", SearchQueries.normalize(searchQuery), pageable,
+                    p -> postRepository.fullTextSearchIds(searchQuery, p),
+                    () -> postRepository.countFullTextSearch(searchQuery),
+                    fullTextSearchEstimate(searchQuery));
+            return postResponseAssembler.toResponsePage(postIds, view);
         }
 
-        return postRepository.fullTextSearch(query.trim(), pageable)
-                .map(this::convertToResponse);
+        PostSearchIndex.Hits hits = postSearchIndex.search(searchQuery, pageable.getOffset(), pageable.getPageSize());
+        boolean hasNext = pageable.getOffset() + hits.postIds().size() < hits.total();
+        Page<Long> postIds = new CountedPage<>(hits.postIds(), pageable, hits.total(), true, hasNext);
+        return postResponseAssembler.toResponsePage(postIds, view);
+    }
+
+    @Transactional(readOnly = true)
+    public List<PostResponse> getRelatedPosts(Long id, int limit, PostView view) {
+        int size = Math.min(Math.max(limit, 1), paginationProperties.getMaxPageSize());
+        if (!relatedPostIndex.isReady()) {
+            // индекс строится после старта — до этого посты с общими тегами из БД
+            if (postRepository.findPublishedText(id).isEmpty()) {
+                throw new ResourceNotFoundException("Post not found with id: " + id);
+            }
+            return postResponseAssembler.toResponses(postRepository.findPublishedIdsSharingTags(id, Limit.of(size)), view);
+        }
+        // в индексе только опубликованные посты
+        if (!relatedPostIndex.contains(id)) {
+            throw new ResourceNotFoundException("Post not found with id: " + id);
+        }
+
+        List<Long> postIds = relatedPostIndex.findRelated(id, size);
+        return postResponseAssembler.toResponses(postIds, view);
     }
 
     @Transactional
@@ -158,10 +257,12 @@ public class PostService {
             post.getLikedBy().remove(user);
             user.getLikedPosts().remove(post);
             post.decrementLikeCount();
+            eventPublisher.publishEvent(PostEngagementEvent.of(postId, PostEngagementEvent.Type.UNLIKE));
         } else {
             post.getLikedBy().add(user);
             user.getLikedPosts().add(post);
             post.incrementLikeCount();
+            eventPublisher.publishEvent(PostEngagementEvent.of(postId, PostEngagementEvent.Type.LIKE));
         }
 
         postRepository.save(post);
@@ -169,59 +270,115 @@ public class PostService {
     }
 
     @Transactional(readOnly = true)
-    public Page<PostResponse> getPostsByTag(String tagName, Pageable pageable) {
-        return postRepository.findByTagName(tagName, pageable)
-                .map(this::convertToResponse);
+    public Page<PostResponse> getPostsByTag(String tagName, Pageable pageable, PostView view) {
+        LocalDateTime now = LocalDateTime.now();
+        Page<Long> postIds = countStrategyService.page("tag", tagName, pageable,
+                p -> postRepository.findPostIdsByTagName(tagName, now, p),
+                () -> postRepository.countByTagName(tagName, now));
+        return postResponseAssembler.toResponsePage(postIds, view);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<PostResponse> getPostsByTag(String tagName, String cursor, int size, PostView view) {
+        LocalDateTime now = LocalDateTime.now();
+        return keysetPage(cursor, size, view,
+                (publishedAt, id, limit) -> postRepository.findByTagNameBefore(tagName, now, publishedAt, id, limit),
+                (publishedAt, id, limit) -> postRepository.findByTagNameAfter(tagName, now, publishedAt, id, limit));
+    }
+
+    @Transactional(readOnly = true)
+    public Page<PostResponse> getPostsByAuthor(Long authorId, Pageable pageable, PostView view) {
+        Page<Long> postIds = countStrategyService.page("author", String.valueOf(authorId), pageable,
+                p -> postRepository.findPostIdsByAuthorIdAndStatus(authorId, Post.Status.PUBLISHED, p),
+                () -> postRepository.countByAuthorIdAndStatus(authorId, Post.Status.PUBLISHED));
+        return postResponseAssembler.toResponsePage(postIds, view);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<PostResponse> getPostsByAuthor(Long authorId, String cursor, int size, PostView view) {
+        return keysetPage(cursor, size, view,
+                (publishedAt, id, limit) -> postRepository.findByAuthorIdAndStatusBefore(
+                        authorId, Post.Status.PUBLISHED, publishedAt, id, limit),
+                (publishedAt, id, limit) -> postRepository.findByAuthorIdAndStatusAfter(
+                        authorId, Post.Status.PUBLISHED, publishedAt, id, limit));
     }
 
     @Transactional(readOnly = true)
-    public Page<PostResponse> getPostsByAuthor(Long authorId, Pageable pageable) {
-        return postRepository.findByAuthorIdAndStatus(authorId, Post.Status.PUBLISHED, pageable)
-                .map(this::convertToResponse);
+    public Page<PostResponse> getSubscriptionFeed(User currentUser, Pageable pageable, PostView view) {
+        Page<Long> postIds = postRepository.findPostIdsFromSubscriptions(currentUser.getId(), LocalDateTime.now(), pageable);
+        return postResponseAssembler.toResponsePage(postIds, view);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<PostResponse> getSubscriptionFeed(User currentUser, String cursor, int size, PostView view) {
+        Long userId = currentUser.getId();
+        LocalDateTime now = LocalDateTime.now();
+        return keysetPage(cursor, size, view,
+                (publishedAt, id, limit) -> postRepository.findPostsFromSubscriptionsBefore(userId, now, publishedAt, id, limit),
+                (publishedAt, id, limit) -> postRepository.findPostsFromSubscriptionsAfter(userId, now, publishedAt, id, limit));
     }
 
     @Transactional(readOnly = true)
     public Page<PostResponse> getMyPosts(User currentUser, Pageable pageable) {
-        return postRepository.findByAuthorId(currentUser.getId(), pageable)
-                .map(this::convertToResponse);
+        return postResponseAssembler.toResponsePage(postRepository.findByAuthorId(currentUser.getId(), pageable));
     }
 
     @Transactional(readOnly = true)
     public List<PostResponse> getRecentPosts(int days) {
         LocalDateTime startDate = LocalDateTime.now().minusDays(days);
-        return postRepository.findRecentPosts(startDate).stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
-    }
-
-    private PostResponse convertToResponse(Post post) {
-        PostResponse response = new PostResponse();
-        response.setId(post.getId());
-        response.setTitle(post.getTitle());
-        response.setSlug(post.getSlug());
-        response.setContent(post.getContent());
-        response.setExcerpt(post.getExcerpt());
-        response.setStatus(post.getStatus().name());
-        response.setViewCount(post.getViewCount());
-        response.setLikeCount(post.getLikeCount());
-        response.setCommentCount(post.getCommentCount());
-        response.setFeatured(post.getFeatured());
-        response.setCreatedAt(post.getCreatedAt());
-        response.setUpdatedAt(post.getUpdatedAt());
-        response.setPublishedAt(post.getPublishedAt());
-
-        User author = post.getAuthor();
-        if (author != null) {
-            response.setAuthorId(author.getId());
-            response.setAuthorUsername(author.getUsername());
-            response.setAuthorAvatar(author.getAvatarUrl());
-        }
-
-        Set<String> tagNames = post.getTags().stream()
-                .map(tag -> tag.getName())
-                .collect(Collectors.toSet());
-        response.setTags(tagNames);
-
-        return response;
-    }
-}
\ No newline at end of file
+        return postResponseAssembler.toResponses(postRepository.findRecentPosts(startDate));
+    }
+
+    private CursorPage<PostResponse> keysetPage(String cursor, int size, PostView view,
+                                                KeysetQuery older, KeysetQuery newer) {
+        int pageSize = Math.min(Math.max(size, 1), paginationProperties.getMaxPageSize());
+        boolean firstPage = cursor == null || cursor.isBlank();
+        PostCursor position = firstPage ? PostCursor.first(LocalDateTime.now()) : PostCursor.decode(cursor);
+        boolean backward = position.getDirection() == PostCursor.Direction.PREV;
+
+        KeysetQuery query = backward ? newer : older;
+        List<PostRepository.PostKey> rows = new ArrayList<>(
+                query.fetch(position.getPublishedAt(), position.getId(), Limit.of(pageSize + 1)));
+
+        boolean hasMore = rows.size() > pageSize;
+        if (hasMore) {
+            rows = new ArrayList<>(rows.subList(0, pageSize));
+        }
+        if (backward) {
+            Collections.reverse(rows);
+        }
+
+        String nextCursor = null;
+        String prevCursor = null;
+        if (!rows.isEmpty()) {
+            PostRepository.PostKey firstRow = rows.get(0);
+            PostRepository.PostKey lastRow = rows.get(rows.size() - 1);
+            if (backward || hasMore) {
+                nextCursor = new PostCursor(lastRow.getPublishedAt(), lastRow.getId(), PostCursor.Direction.NEXT).encode();
+            }
+            if (backward ? hasMore : !firstPage) {
+                prevCursor = new PostCursor(firstRow.getPublishedAt(), firstRow.getId(), PostCursor.Direction.PREV).encode();
+            }
+        }
+
+        List<Long> postIds = rows.stream().map(PostRepository.PostKey::getId).toList();
+        List<PostResponse> content = postResponseAssembler.toResponses(postIds, view);
+
+        return new CursorPage<>(content, pageSize, nextCursor, prevCursor, nextCursor != null, prevCursor != null);
+    }
+
+    // тот же предикат, что и в PostRepository.fullTextSearch, — только для EXPLAIN
+    static CountStrategyService.EstimateQuery fullTextSearchEstimate(String query) {
+        String like = "%" + query.toLowerCase() + "%";
+        return new CountStrategyService.EstimateQuery(
+                "SELECT p.id FROM posts p WHERE p.status = 'PUBLISHED' " +
+                        "AND (p.search_vector @@ plainto_tsquery('english', ?) " +
+                        "OR LOWER(p.title) LIKE ? OR LOWER(p.content) LIKE ?)",
+                query, like, like);
+    }
+
+    @FunctionalInterface
+    private interface KeysetQuery {
+        List<PostRepository.PostKey> fetch(LocalDateTime publishedAt, Long id, Limit limit);
+    }
+}
@@ -0,0 +1,172 @@
+package ru.Edje_7.service;
+
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.Edje_7.config.RecommendationProperties;
+import ru.Edje_7.dto.response.RecommendationResponse;
+import ru.Edje_7.entity.User;
+import ru.Edje_7.repository.PostRepository;
+import ru.Edje_7.repository.TagRepository;
+import ru.Edje_7.repository.UserRepository;
+import ru.Edje_7.search.FollowGraph;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * «На кого подписаться»: кандидаты — друзья друзей из FollowGraph, ранжируются
+ * по числу общих подписок плюс тематическая близость (косинус по тегам постов
+ * кандидата и авторов, на которых подписан пользователь). Если друзей друзей
+ * не хватает, добираются самые популярные авторы. Пока граф не построен,
+ * кандидаты и подписки читаются запросами к БД.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RecommendationService {
+
+    private static final int MAX_RECOMMENDATIONS = 50;
+
+    private static final int COMMON_TAGS = 3;
+
+    private final FollowGraph followGraph;
+    private final UserRepository userRepository;
+    private final PostRepository postRepository;
+    private final TagRepository tagRepository;
+    private final RecommendationProperties properties;
+
+    @Transactional(readOnly = true)
+    public List<RecommendationResponse> recommend(Long userId, int limit) {
+        int size = Math.min(Math.max(limit, 1), MAX_RECOMMENDATIONS);
+        int poolSize = Math.max(size, properties.getCandidatePoolSize());
+
+        // пока граф строится, те же данные читаются из БД
+        List<Long> following = new ArrayList<>();
+        Map<Long, Integer> mutualCounts = new LinkedHashMap<>();
+        if (followGraph.isReady()) {
+            for (int followed : followGraph.following(userId)) {
+                following.add((long) followed);
+            }
+            followGraph.friendsOfFriends(userId, poolSize, properties.getMaxScannedEdges())
+                    .forEach(candidate -> mutualCounts.put(candidate.userId(), candidate.mutualCount()));
+        } else {
+            following.addAll(userRepository.findFollowingIds(userId));
+            userRepository.findFriendsOfFriends(userId, poolSize)
+                    .forEach(candidate -> mutualCounts.put(candidate.getUserId(), candidate.getMutualCount().intValue()));
+        }
+
+        if (mutualCounts.size() < size) {
+            Set<Long> followed = new HashSet<>(following);
+            for (Long popular : userRepository.findMostFollowedIds(Limit.of(size * 2 + 1))) {
+                if (!popular.equals(userId) && !followed.contains(popular)) {
+                    mutualCounts.putIfAbsent(popular, 0);
+                }
+            }
+        }
+        if (mutualCounts.isEmpty()) {
+            return List.of();
+        }
+
+        Set<Long> profileAuthors = new LinkedHashSet<>();
+        profileAuthors.add(userId);
+        for (Long followed : following) {
+            if (profileAuthors.size() > properties.getProfileAuthors()) {
+                break;
+            }
+            profileAuthors.add(followed);
+        }
+
+        Set<Long> authorIds = new LinkedHashSet<>(profileAuthors);
+        authorIds.addAll(mutualCounts.keySet());
+        Map<Long, Map<Long, Long>> tagsByAuthor = new HashMap<>();
+        postRepository.findAuthorTagCounts(authorIds).forEach(row -> tagsByAuthor
+                .computeIfAbsent(row.getAuthorId(), id -> new HashMap<>())
+                .put(row.getTagId(), row.getPostCount()));
+
+        Map<Long, Long> profile = new HashMap<>();
+        profileAuthors.forEach(author -> tagsByAuthor.getOrDefault(author, Map.of())
+                .forEach((tagId, count) -> profile.merge(tagId, count, Long::sum)));
+
+        Map<Long, User> users = userRepository.findAllById(mutualCounts.keySet()).stream()
+                .filter(user -> Boolean.TRUE.equals(user.getEnabled()) && !Boolean.TRUE.equals(user.getLocked()))
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        List<Scored> scored = new ArrayList<>();
+        mutualCounts.forEach((candidateId, mutual) -> {
+            User user = users.get(candidateId);
+            if (user != null) {
+                Map<Long, Long> tags = tagsByAuthor.getOrDefault(candidateId, Map.of());
+                double score = mutual + properties.getTagWeight() * cosine(profile, tags);
+                scored.add(new Scored(user, mutual, score, commonTags(profile, tags)));
+            }
+        });
+        scored.sort(Comparator.comparingDouble(Scored::score).reversed()
+                .thenComparing(Comparator.comparingInt((Scored s) -> s.user().getFollowerCount()).reversed())
+                .thenComparing(s -> s.user().getId()));
+        List<Scored> top = scored.subList(0, Math.min(size, scored.size()));
+
+        Set<Long> tagIds = top.stream().flatMap(s -> s.commonTagIds().stream()).collect(Collectors.toSet());
+        Map<Long, String> tagNames = tagIds.isEmpty() ? Map.of() : tagRepository.findNamesByIdIn(tagIds).stream()
+                .collect(Collectors.toMap(TagRepository.TagName::getId, TagRepository.TagName::getName));
+
+        log.debug("Recommended {} of {} candidates for user {}", top.size(), mutualCounts.size(), userId);
+        return top.stream()
+                .map(s -> new RecommendationResponse(
+                        s.user().getId(),
+                        s.user().getUsername(),
+                        s.user().getFullName(),
+                        s.user().getAvatarUrl(),
+                        s.user().getFollowerCount(),
+                        s.mutual(),
+                        s.commonTagIds().stream().map(tagNames::get).filter(Objects::nonNull).toList()))
+                .toList();
+    }
+
+    static double cosine(Map<Long, Long> a, Map<Long, Long> b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return 0;
+        }
+        double dot = 0;
+        for (Map.Entry<Long, Long> entry : b.entrySet()) {
+            Long weight = a.get(entry.getKey());
+            if (weight != null) {
+                dot += (double) weight * entry.getValue();
+            }
+        }
+        return dot == 0 ? 0 : dot / (norm(a) * norm(b));
+    }
+
+    private static double norm(Map<Long, Long> vector) {
+        double sum = 0;
+        for (long value : vector.values()) {
+            sum += (double) value * value;
+        }
+        return Math.sqrt(sum);
+    }
+
+    private static List<Long> commonTags(Map<Long, Long> profile, Map<Long, Long> tags) {
+        return tags.keySet().stream()
+                .filter(profile::containsKey)
+                .sorted(Comparator.comparingLong((Long tagId) -> profile.get(tagId) * tags.get(tagId)).reversed()
+                        .thenComparing(Comparator.naturalOrder()))
+                .limit(COMMON_TAGS)
+                .toList();
+    }
+
+    private record Scored(User user, int mutual, double score, List<Long> commonTagIds) {
+    }
+}
@@ -3,87 +3,124 @@ package ru.Edje_7.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.Edje_7.dto.CountedPage;
+import ru.Edje_7.dto.CursorPage;
+import ru.Edje_7.dto.IdCursor;
 import ru.Edje_7.dto.PaginationResponse;
+import ru.Edje_7.dto.PostView;
+import ru.Edje_7.dto.request.PostFilter;
 import ru.Edje_7.dto.response.PostResponse;
+import ru.Edje_7.dto.response.SearchFacetsResponse;
 import ru.Edje_7.dto.response.UserResponse;
 import ru.Edje_7.entity.Post;
+import ru.Edje_7.entity.Tag;
 import ru.Edje_7.entity.User;
 import ru.Edje_7.repository.PostRepository;
+import ru.Edje_7.repository.PostSpecifications;
+import ru.Edje_7.repository.TagRepository;
 import ru.Edje_7.repository.UserRepository;
+import ru.Edje_7.search.PostFacetIndex;
+import ru.Edje_7.search.PostQueryPlanner;
+import ru.Edje_7.search.PostSearchIndex;
+import ru.Edje_7.search.SearchFanOut;
+import ru.Edje_7.search.TagBitmapIndex;
 
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class SearchService {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private static final int FACET_BATCH_SIZE = 1000;
+
     private final PostRepository postRepository;
     private final UserRepository userRepository;
     private final PostService postService;
     private final UserService userService;
-
-    @Transactional(readOnly = true)
+    private final AuthService authService;
+    private final CountStrategyService countStrategyService;
+    private final PostSearchIndex postSearchIndex;
+    private final TagBitmapIndex tagBitmapIndex;
+    private final TagRepository tagRepository;
+    private final PostResponseAssembler postResponseAssembler;
+    private final PostQueryPlanner postQueryPlanner;
+    private final SearchFanOut searchFanOut;
+    private final PostFacetIndex postFacetIndex;
+
+    /**
+     * Посты и пользователи ищутся параллельно. Ветка, не успевшая к дедлайну,
+     * даёт пустую страницу, а в ответе выставляется partial = true.
+     */
     public Map<String, Object> globalSearch(String query, Pageable pageable) {
-        Map<String, Object> results = new HashMap<>();
-
-        Page<PostResponse> posts = searchPosts(query, pageable);
-        results.put("posts", PaginationResponse.fromPage(posts));
+        long deadline = searchFanOut.deadline();
+        // контекст безопасности в потоки веток не передаётся — роль проверяется здесь
+        boolean withEmail = authService.isAdmin();
+        Future<Page<PostResponse>> postsBranch = searchFanOut.submit(() -> searchPosts(query, pageable), deadline);
+        Future<Page<UserResponse>> usersBranch = searchFanOut.submit(() -> searchUsers(query, withEmail, pageable), deadline);
 
-        Page<UserResponse> users = searchUsers(query, pageable);
-        results.put("users", PaginationResponse.fromPage(users));
+        Optional<Page<PostResponse>> posts = searchFanOut.await(postsBranch, deadline, "posts");
+        Optional<Page<UserResponse>> users = searchFanOut.await(usersBranch, deadline, "users");
 
+        Map<String, Object> results = new HashMap<>();
+        results.put("posts", PaginationResponse.fromPage(posts.orElseGet(() -> Page.empty(pageable))));
+        results.put("users", PaginationResponse.fromPage(users.orElseGet(() -> Page.empty(pageable))));
         results.put("query", query);
-        results.put("totalResults", posts.getTotalElements() + users.getTotalElements());
+        results.put("totalResults", posts.map(Page::getTotalElements).orElse(0L)
+                + users.map(Page::getTotalElements).orElse(0L));
+        results.put("partial", posts.isEmpty() || users.isEmpty());
 
         return results;
     }
 
-    @Cacheable(value = "searchPosts", key = "#query + '-' + #pageable.pageNumber + '-' + #pageable.pageSize")
+    @Cacheable(value = "searchPosts",
+            key = "T(ru.Edje_7.search.SearchQueries).normalize(#query) + '-' + #pageable.pageNumber + '-' + #pageable.pageSize")
     @Transactional(readOnly = true)
     public Page<PostResponse> searchPosts(String query, Pageable pageable) {
         if (query == null || query.trim().isEmpty() || query.trim().length() < 2) {
             return Page.empty(pageable);
         }
 
-        String searchQuery = query.trim().toLowerCase();
-
-        log.debug("Searching posts with query: {}", searchQuery);
-
-        Page<Post> posts = postRepository.fullTextSearch(searchQuery, pageable);
-
-        return posts.map(post -> {
-            PostResponse response = new PostResponse();
-            response.setId(post.getId());
-            response.setTitle(post.getTitle());
-            response.setSlug(post.getSlug());
-            response.setExcerpt(post.getExcerpt());
-            response.setViewCount(post.getViewCount());
-            response.setLikeCount(post.getLikeCount());
-            response.setCommentCount(post.getCommentCount());
-            response.setCreatedAt(post.getCreatedAt());
-            response.setPublishedAt(post.getPublishedAt());
-
-            if (post.getAuthor() != null) {
-                response.setAuthorId(post.getAuthor().getId());
-                response.setAuthorUsername(post.getAuthor().getUsername());
-                response.setAuthorAvatar(post.getAuthor().getAvatarUrl());
-            }
+        log.debug("Searching posts with query: {}", query.trim());
 
-            return response;
-        });
+        return postService.searchPosts(query, pageable, PostView.SUMMARY);
     }
 
-    @Cacheable(value = "searchUsers", key = "#query + '-' + #pageable.pageNumber + '-' + #pageable.pageSize")
+    /**
+     * @param withEmail искать и по email — только для администраторов
+     */
+    @Cacheable(value = "searchUsers",
+            key = "T(ru.Edje_7.search.SearchQueries).normalize(#query) + '-' + #withEmail + '-' "
+                    + "+ #pageable.pageNumber + '-' + #pageable.pageSize")
     @Transactional(readOnly = true)
-    public Page<UserResponse> searchUsers(String query, Pageable pageable) {
+    public Page<UserResponse> searchUsers(String query, boolean withEmail, Pageable pageable) {
         if (query == null || query.trim().isEmpty() || query.trim().length() < 2) {
             return Page.empty(pageable);
         }
@@ -92,7 +129,7 @@ public class SearchService {
 
         log.debug("Searching users with query: {}", searchQuery);
 
-        Page<User> users = userRepository.searchUsers(searchQuery, pageable);
+        Page<User> users = userService.findMatchingUsers(searchQuery, withEmail, pageable);
 
         return users.map(user -> {
             UserResponse response = new UserResponse();
@@ -107,92 +144,246 @@ public class SearchService {
             response.setCreatedAt(user.getCreatedAt());
             response.setLastLoginAt(user.getLastLoginAt());
 
-            long postCount = postRepository.countByAuthorId(user.getId());
-            response.setPostCount((int) postCount);
+            response.setPostCount(user.getPostCount());
 
             return response;
         });
     }
 
+    /**
+     * Посты по набору фильтров; порядок применения условий выбирает PostQueryPlanner.
+     * Без явной сортировки текстовый запрос упорядочивается по релевантности,
+     * остальные — от новых к старым.
+     */
     @Transactional(readOnly = true)
-    public Page<PostResponse> advancedPostSearch(
-            String query,
-            Long authorId,
-            Long tagId,
-            LocalDateTime startDate,
-            LocalDateTime endDate,
-            Boolean featured,
-            Integer minViews,
-            Integer minLikes,
-            Pageable pageable) {
-
-        
-        if (query != null && !query.trim().isEmpty()) {
-            return searchPosts(query, pageable);
-        }
-
-        
-        if (authorId != null) {
-            return postService.getPostsByAuthor(authorId, pageable);
-        }
-
-       
-        return postRepository.findPublishedPosts(LocalDateTime.now(), pageable)
-                .map(post -> {
-                    PostResponse response = new PostResponse();
-                    response.setId(post.getId());
-                    response.setTitle(post.getTitle());
-                    response.setSlug(post.getSlug());
-                    response.setExcerpt(post.getExcerpt());
-                    
-                    return response;
-                });
+    public Page<PostResponse> advancedPostSearch(PostFilter filter, Pageable pageable, PostView view) {
+        Pageable page = PageRequest.of(pageable.getPageNumber(),
+                Math.min(Math.max(pageable.getPageSize(), 1), MAX_PAGE_SIZE), pageable.getSort());
+        PostQueryPlanner.Plan plan = postQueryPlanner.plan(filter, page.getSort(), LocalDateTime.now());
+        log.debug("Advanced post search {}: {}", filter, plan.explain());
+
+        if (plan.empty()) {
+            return Page.empty(page);
+        }
+
+        Page<Long> postIds;
+        if (plan.rankedIds() != null) {
+            Set<Long> matching = new HashSet<>(postRepository.findIds(plan.filter(), Pageable.unpaged()).getContent());
+            postIds = pageInMemory(plan.rankedIds().stream().filter(matching::contains).toList(), page);
+        } else if (plan.textIds() != null) {
+            // широкий текстовый запрос: id из SQL уже в нужном порядке, текст фильтрует их по карте индекса
+            List<Long> ordered = postRepository.findIds(plan.filter(), Pageable.unpaged(plan.sort())).getContent();
+            postIds = pageInMemory(ordered.stream()
+                    .filter(id -> plan.textIds().contains(Math.toIntExact(id)))
+                    .toList(), page);
+        } else {
+            Pageable sorted = PageRequest.of(page.getPageNumber(), page.getPageSize(), plan.sort());
+            postIds = countStrategyService.page("advanced-search", filter.toString(), sorted,
+                    p -> postRepository.findIds(plan.filter(), p),
+                    () -> postRepository.count(plan.filter()));
+        }
+        return postResponseAssembler.toResponsePage(postIds, view);
+    }
+
+    private static CountedPage<Long> pageInMemory(List<Long> ids, Pageable page) {
+        int from = (int) Math.min(page.getOffset(), ids.size());
+        int to = Math.min(from + page.getPageSize(), ids.size());
+        return new CountedPage<>(ids.subList(from, to), page, ids.size(), true, to < ids.size());
     }
 
     @Transactional(readOnly = true)
     public Map<String, Long> getSearchStatistics(String query) {
-        Map<String, Long> stats = new HashMap<>();
+        if (query == null || query.trim().isEmpty()) {
+            return new HashMap<>();
+        }
+        String searchQuery = query.trim();
+        return countByType(searchQuery, matchingPostIds(searchQuery));
+    }
 
+    /**
+     * Число совпадений по типам и фасеты найденных постов по тегам, авторам и месяцам
+     * публикации. Считается по битовым картам и агрегатным запросам, посты не загружаются.
+     */
+    @Transactional(readOnly = true)
+    public SearchFacetsResponse getSearchFacets(String query, int limit) {
+        SearchFacetsResponse response = new SearchFacetsResponse();
+        response.setQuery(query);
         if (query == null || query.trim().isEmpty()) {
-            return stats;
+            response.setCounts(Map.of());
+            response.setTags(List.of());
+            response.setAuthors(List.of());
+            response.setMonths(List.of());
+            return response;
         }
 
         String searchQuery = query.trim();
+        int facetLimit = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+        RoaringBitmap postIds = matchingPostIds(searchQuery);
+        response.setCounts(countByType(searchQuery, postIds));
+
+        Map<Long, Long> byTag;
+        Map<Long, Long> byAuthor;
+        Map<YearMonth, Long> byMonth;
+        if (tagBitmapIndex.isReady() && postFacetIndex.isReady()) {
+            byTag = tagBitmapIndex.countByTag(postIds, facetLimit);
+            byAuthor = postFacetIndex.countByAuthor(postIds, facetLimit);
+            byMonth = postFacetIndex.countByMonth(postIds);
+        } else {
+            Map<Long, Long> tagCounts = new HashMap<>();
+            Map<Long, Long> authorCounts = new HashMap<>();
+            byMonth = new TreeMap<>(Comparator.reverseOrder());
+            countFacetsInDb(postIds, tagCounts, authorCounts, byMonth);
+            byTag = PostFacetIndex.top(tagCounts, facetLimit, Comparator.naturalOrder());
+            byAuthor = PostFacetIndex.top(authorCounts, facetLimit, Comparator.naturalOrder());
+        }
 
-        Page<Post> posts = postRepository.fullTextSearch(searchQuery, Pageable.unpaged());
-        stats.put("posts", posts.getTotalElements());
-
-        Page<User> users = userRepository.searchUsers(searchQuery, Pageable.unpaged());
-        stats.put("users", users.getTotalElements());
+        Map<Long, String> tagNames = byTag.isEmpty() ? Map.of() : tagRepository.findNamesByIdIn(byTag.keySet()).stream()
+                .collect(Collectors.toMap(TagRepository.TagName::getId, TagRepository.TagName::getName));
+        response.setTags(byTag.entrySet().stream()
+                .map(entry -> new SearchFacetsResponse.FacetCount(
+                        entry.getKey().toString(), tagNames.get(entry.getKey()), entry.getValue()))
+                .toList());
+
+        Map<Long, String> usernames = byAuthor.isEmpty() ? Map.of() : userRepository.findUsernamesByIdIn(byAuthor.keySet()).stream()
+                .collect(Collectors.toMap(UserRepository.UserName::getId, UserRepository.UserName::getUsername));
+        response.setAuthors(byAuthor.entrySet().stream()
+                .map(entry -> new SearchFacetsResponse.FacetCount(
+                        entry.getKey().toString(), usernames.get(entry.getKey()), entry.getValue()))
+                .toList());
+
+        response.setMonths(byMonth.entrySet().stream()
+                .map(entry -> new SearchFacetsResponse.FacetCount(entry.getKey().toString(), null, entry.getValue()))
+                .toList());
+
+        return response;
+    }
 
-        stats.put("tags", 0L);
+    /**
+     * Фасеты по БД пачками id — пока битовые карты строятся после старта.
+     */
+    private void countFacetsInDb(RoaringBitmap postIds,
+                                 Map<Long, Long> byTag,
+                                 Map<Long, Long> byAuthor,
+                                 Map<YearMonth, Long> byMonth) {
+        List<Long> batch = new ArrayList<>(FACET_BATCH_SIZE);
+        IntIterator iterator = postIds.getIntIterator();
+        while (iterator.hasNext()) {
+            batch.add(Integer.toUnsignedLong(iterator.next()));
+            if (batch.size() == FACET_BATCH_SIZE || !iterator.hasNext()) {
+                List<Long> published = new ArrayList<>(batch.size());
+                for (PostRepository.PostFacetKey key : postRepository.findPublishedFacetKeysByIdIn(batch)) {
+                    published.add(key.getId());
+                    byAuthor.merge(key.getAuthorId(), 1L, Long::sum);
+                    if (key.getPublishedAt() != null) {
+                        byMonth.merge(YearMonth.from(key.getPublishedAt()), 1L, Long::sum);
+                    }
+                }
+                if (!published.isEmpty()) {
+                    postRepository.findTagLinksByPostIds(published)
+                            .forEach(link -> byTag.merge(link.getTagId(), 1L, Long::sum));
+                }
+                batch.clear();
+            }
+        }
+    }
 
-        return stats;
+    private RoaringBitmap matchingPostIds(String query) {
+        if (postSearchIndex.isReady()) {
+            return postSearchIndex.matchingIds(query);
+        }
+        RoaringBitmap postIds = new RoaringBitmap();
+        postRepository.fullTextSearchIds(query, Pageable.unpaged())
+                .forEach(postId -> postIds.add(Math.toIntExact(postId)));
+        return postIds;
     }
 
-    @Transactional(readOnly = true)
-    public Page<PostResponse> searchByTags(String[] tags, Pageable pageable) {
-        log.warn("Search by multiple tags not yet implemented");
-        return Page.empty(pageable);
+    private Map<String, Long> countByType(String query, RoaringBitmap postIds) {
+        Map<String, Long> counts = new HashMap<>();
+        counts.put("posts", postIds.getLongCardinality());
+        counts.put("users", userService.countMatchingUsers(query, authService.isAdmin()));
+        counts.put("tags", tagRepository.countSearchTags(query));
+        return counts;
     }
 
+    /**
+     * Посты со всеми тегами allOf, хотя бы одним из anyOf и без тегов noneOf,
+     * от новых к старым. Неизвестные теги в allOf дают пустой результат,
+     * в anyOf и noneOf — игнорируются.
+     */
     @Transactional(readOnly = true)
-    public Page<PostResponse> searchSimilarPosts(Long postId, Pageable pageable) {
-        Post post = postRepository.findById(postId)
-                .orElseThrow(() -> new RuntimeException("Post not found"));
+    public CursorPage<PostResponse> searchByTags(Collection<String> allOf,
+                                                 Collection<String> anyOf,
+                                                 Collection<String> noneOf,
+                                                 String cursor,
+                                                 int size,
+                                                 PostView view) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        long beforeId = cursor == null || cursor.isBlank() ? Long.MAX_VALUE : IdCursor.decode(cursor);
+
+        Map<String, Long> tagIds = resolveTagIds(allOf, anyOf, noneOf);
+        if (!tagIds.keySet().containsAll(allOf)) {
+            return new CursorPage<>(List.of(), pageSize, null, null, false, false, 0L);
+        }
+        List<Long> anyOfIds = anyOf.stream().map(tagIds::get).filter(Objects::nonNull).toList();
+        if (!anyOf.isEmpty() && anyOfIds.isEmpty()) {
+            return new CursorPage<>(List.of(), pageSize, null, null, false, false, 0L);
+        }
 
-        String tagsQuery = String.join(" ", post.getTags().stream()
-                .map(tag -> tag.getName())
-                .toArray(String[]::new));
+        List<Long> allOfIds = allOf.stream().map(tagIds::get).toList();
+        List<Long> noneOfIds = noneOf.stream().map(tagIds::get).filter(Objects::nonNull).toList();
+        TagBitmapIndex.Result result = tagBitmapIndex.isReady()
+                ? tagBitmapIndex.query(allOfIds, anyOfIds, noneOfIds, beforeId, pageSize)
+                : queryTagsInDb(allOfIds, anyOfIds, noneOfIds, beforeId, pageSize);
+
+        List<PostResponse> content = postResponseAssembler.toResponses(result.postIds(), view);
+        String nextCursor = result.hasMore()
+                ? IdCursor.encode(result.postIds().get(result.postIds().size() - 1))
+                : null;
+        return new CursorPage<>(content, pageSize, nextCursor, null, result.hasMore(), false, result.total());
+    }
 
-        if (!tagsQuery.isEmpty()) {
-            return searchPosts(tagsQuery, pageable);
+    /**
+     * То же, что TagBitmapIndex.query, запросом к БД — пока битовые карты не построены.
+     */
+    private TagBitmapIndex.Result queryTagsInDb(List<Long> allOf, List<Long> anyOf, List<Long> noneOf,
+                                                long beforeId, int limit) {
+        Specification<Post> spec = PostSpecifications.status(Post.Status.PUBLISHED);
+        for (Long tagId : allOf) {
+            spec = spec.and(PostSpecifications.hasTag(tagId));
+        }
+        if (!anyOf.isEmpty()) {
+            spec = spec.and(PostSpecifications.hasAnyTag(anyOf));
         }
+        if (!noneOf.isEmpty()) {
+            spec = spec.and(Specification.not(PostSpecifications.hasAnyTag(noneOf)));
+        }
+        long total = postRepository.count(spec);
+        Slice<Long> page = postRepository.findIds(spec.and(PostSpecifications.idBefore(beforeId)),
+                PageRequest.of(0, limit, Sort.by(Sort.Direction.DESC, "id")));
+        return new TagBitmapIndex.Result(page.getContent(), total, page.hasNext());
+    }
 
-        String contentSnippet = post.getContent().length() > 100
-                ? post.getContent().substring(0, 100)
-                : post.getContent();
+    @SafeVarargs
+    private Map<String, Long> resolveTagIds(Collection<String>... names) {
+        Set<String> allNames = new HashSet<>();
+        for (Collection<String> group : names) {
+            allNames.addAll(group);
+        }
+        if (allNames.isEmpty()) {
+            return Map.of();
+        }
+        return tagRepository.findByNameIn(allNames).stream()
+                .collect(Collectors.toMap(Tag::getName, Tag::getId));
+    }
+
+    @Transactional(readOnly = true)
+    public Page<PostResponse> searchSimilarPosts(Long postId, Pageable pageable) {
+        int requested = (int) Math.min(pageable.getOffset() + pageable.getPageSize() + 1, Integer.MAX_VALUE);
+        List<PostResponse> related = postService.getRelatedPosts(postId, requested, PostView.SUMMARY);
 
-        return searchPosts(contentSnippet, pageable);
+        int from = (int) Math.min(pageable.getOffset(), related.size());
+        int to = Math.min(from + pageable.getPageSize(), related.size());
+        boolean hasNext = related.size() > to;
+        return CountedPage.withoutTotal(related.subList(from, to), pageable, hasNext);
     }
 }
\ No newline at end of file
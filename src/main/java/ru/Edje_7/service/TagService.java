@@ -5,18 +5,30 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.Edje_7.dto.response.SuggestionResponse;
 import ru.Edje_7.dto.response.TagResponse;
+import ru.Edje_7.entity.Post;
 import ru.Edje_7.entity.Tag;
+import ru.Edje_7.event.PostChangedEvent;
+import ru.Edje_7.event.TagChangedEvent;
 import ru.Edje_7.exceptions.ResourceNotFoundException;
 import ru.Edje_7.repository.TagRepository;
+import ru.Edje_7.search.SuggestIndex;
+import ru.Edje_7.trending.TrendingTagTracker;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -24,7 +36,12 @@ import java.util.stream.Collectors;
 @Slf4j
 public class TagService {
 
+    private static final int MAX_SUGGESTIONS = 20;
+
     private final TagRepository tagRepository;
+    private final TrendingTagTracker trendingTagTracker;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SuggestIndex suggestIndex;
 
     @Transactional(readOnly = true)
     public Page<TagResponse> getAllTags(Pageable pageable) {
@@ -48,7 +65,9 @@ public class TagService {
                     Tag newTag = new Tag();
                     newTag.setName(tagName);
                     newTag.setSlug(generateSlug(tagName));
-                    return Optional.of(tagRepository.save(newTag));
+                    Tag savedTag = tagRepository.save(newTag);
+                    eventPublisher.publishEvent(new TagChangedEvent(savedTag.getId()));
+                    return Optional.of(savedTag);
                 });
     }
 
@@ -69,6 +88,13 @@ public class TagService {
         return convertToResponse(tag);
     }
 
+    /**
+     * Теги, имя которых начинается с prefix, по убыванию числа постов; из памяти (до первой сборки индекса — из БД).
+     */
+    public List<SuggestionResponse> suggestTags(String prefix, int limit) {
+        return suggestIndex.suggestTags(prefix, Math.min(Math.max(limit, 1), MAX_SUGGESTIONS));
+    }
+
     @Transactional(readOnly = true)
     public Page<TagResponse> searchTags(String query, Pageable pageable) {
         return tagRepository.searchTags(query, pageable)
@@ -103,6 +129,7 @@ public class TagService {
         tag.setSlug(generateSlug(name));
 
         Tag savedTag = tagRepository.save(tag);
+        eventPublisher.publishEvent(new TagChangedEvent(savedTag.getId()));
         log.info("Created tag with id: {} and name: {}", savedTag.getId(), name);
 
         return convertToResponse(savedTag);
@@ -127,6 +154,7 @@ public class TagService {
         }
 
         Tag updatedTag = tagRepository.save(tag);
+        eventPublisher.publishEvent(new TagChangedEvent(id));
         log.info("Updated tag with id: {}", id);
 
         return convertToResponse(updatedTag);
@@ -143,14 +171,28 @@ public class TagService {
         }
 
         tagRepository.delete(tag);
+        eventPublisher.publishEvent(new TagChangedEvent(id));
         log.info("Deleted tag with id: {}", id);
     }
 
     @Transactional(readOnly = true)
     public List<TagResponse> getTrendingTags(int days, int limit) {
-        LocalDateTime since = LocalDateTime.now().minusDays(days);
-        return tagRepository.findTrendingTagsWithLimit(since, limit)
-                .stream()
+        if (!trendingTagTracker.isReady() || days < 1 || days > trendingTagTracker.getMaxDays()) {
+            LocalDateTime since = LocalDateTime.now().minusDays(days);
+            return tagRepository.findTrendingTagsWithLimit(since, limit)
+                    .stream()
+                    .map(this::convertToResponse)
+                    .collect(Collectors.toList());
+        }
+
+        List<Long> tagIds = trendingTagTracker.getTopTagIds(days, limit);
+        Map<Long, Tag> tags = tagRepository.findAllById(tagIds).stream()
+                .collect(Collectors.toMap(Tag::getId, Function.identity()));
+
+        // удалённые или слитые теги могут ещё оставаться в окне
+        return tagIds.stream()
+                .map(tags::get)
+                .filter(Objects::nonNull)
                 .map(this::convertToResponse)
                 .collect(Collectors.toList());
     }
@@ -163,16 +205,22 @@ public class TagService {
         Tag targetTag = tagRepository.findById(targetTagId)
                 .orElseThrow(() -> new ResourceNotFoundException("Target tag not found"));
 
-        sourceTag.getPosts().forEach(post -> {
+        List<PostChangedEvent> events = new ArrayList<>();
+        for (Post post : new ArrayList<>(sourceTag.getPosts())) {
+            Set<Long> previousTagIds = PostChangedEvent.tagIds(post);
             post.removeTag(sourceTag);
             post.addTag(targetTag);
-        });
+            events.add(PostChangedEvent.saved(post, previousTagIds));
+        }
 
         targetTag.setPostCount(targetTag.getPostCount() + sourceTag.getPostCount());
 
         tagRepository.delete(sourceTag);
 
         Tag savedTag = tagRepository.save(targetTag);
+        events.forEach(eventPublisher::publishEvent);
+        eventPublisher.publishEvent(new TagChangedEvent(sourceTagId));
+        eventPublisher.publishEvent(new TagChangedEvent(targetTagId));
         log.info("Merged tag {} into tag {}", sourceTagId, targetTagId);
 
         return convertToResponse(savedTag);
@@ -0,0 +1,67 @@
+package ru.Edje_7.service;
+
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.Edje_7.config.CounterProperties;
+
+import java.util.List;
+
+/**
+ * Сверка счётчиков follower_count, following_count и post_count с фактическими данными.
+ * Счётчики могут разойтись при удалении пользователей (каскад в subscriptions)
+ * и при гонках с пересчётом, поэтому они периодически пересчитываются.
+ * Пользователи обходятся по id порциями; каждая порция — один UPDATE в своей
+ * транзакции, который трогает только строки с расхождениями.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UserCounterService {
+
+    private static final String FOLLOWERS = "(SELECT COUNT(*) FROM subscriptions s WHERE s.author_id = users.id)";
+    private static final String FOLLOWING = "(SELECT COUNT(*) FROM subscriptions s WHERE s.subscriber_id = users.id)";
+    private static final String POSTS = "(SELECT COUNT(*) FROM posts p WHERE p.author_id = users.id)";
+
+    private static final String CHUNK_SQL = "SELECT id FROM users WHERE id > ? ORDER BY id LIMIT ?";
+
+    private static final String REPAIR_SQL = "UPDATE users SET follower_count = " + FOLLOWERS
+            + ", following_count = " + FOLLOWING
+            + ", post_count = " + POSTS
+            + " WHERE id > ? AND id <= ?"
+            + " AND (follower_count <> " + FOLLOWERS
+            + " OR following_count <> " + FOLLOWING
+            + " OR post_count <> " + POSTS + ")";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CounterProperties properties;
+
+    /**
+     * @return число пользователей, у которых счётчики были исправлены
+     */
+    @Scheduled(fixedDelayString = "${blog.counters.repair-interval:86400000}",
+            initialDelayString = "${blog.counters.repair-interval:86400000}")
+    public int repairAll() {
+        int repaired = 0;
+        long afterId = 0;
+        while (true) {
+            List<Long> ids = jdbcTemplate.queryForList(CHUNK_SQL, Long.class, afterId, properties.getRepairChunkSize());
+            if (ids.isEmpty()) {
+                break;
+            }
+            long lastId = ids.get(ids.size() - 1);
+            repaired += jdbcTemplate.update(REPAIR_SQL, afterId, lastId);
+            afterId = lastId;
+        }
+
+        if (repaired > 0) {
+            log.warn("Repaired counters for {} users", repaired);
+        } else {
+            log.debug("User counters are consistent");
+        }
+        return repaired;
+    }
+}
@@ -4,25 +4,46 @@ package ru.Edje_7.service;
 import jakarta.validation.ValidationException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.Edje_7.config.DatabasePlatform;
+import ru.Edje_7.dto.CountedPage;
 import ru.Edje_7.dto.request.UpdateUserRequest;
+import ru.Edje_7.dto.response.BatchResponse;
+import ru.Edje_7.dto.response.SuggestionResponse;
 import ru.Edje_7.dto.response.UserResponse;
+import ru.Edje_7.entity.AuthorStats;
 import ru.Edje_7.entity.Role;
 import ru.Edje_7.entity.User;
+import ru.Edje_7.event.FollowChangedEvent;
+import ru.Edje_7.event.UserChangedEvent;
+import ru.Edje_7.event.UserSecurityChangedEvent;
 import ru.Edje_7.exceptions.ResourceNotFoundException;
 import ru.Edje_7.exceptions.UnauthorizedException;
-import ru.Edje_7.repository.PostRepository;
+import ru.Edje_7.repository.AuthorStatsRepository;
 import ru.Edje_7.repository.RoleRepository;
 import ru.Edje_7.repository.UserRepository;
+import ru.Edje_7.search.SearchQueries;
+import ru.Edje_7.search.SuggestIndex;
+import ru.Edje_7.search.UserTrigramIndex;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -31,15 +52,28 @@ import java.util.stream.Collectors;
 @Slf4j
 public class UserService {
 
+    private static final int MAX_SUGGESTIONS = 20;
+
+    private static final int MAX_BULK_FOLLOW = 100;
+
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
     private final PasswordEncoder passwordEncoder;
     private final PostService postService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SuggestIndex suggestIndex;
+    private final UserTrigramIndex userTrigramIndex;
+    private final DatabasePlatform databasePlatform;
+    private final CountStrategyService countStrategyService;
+    private final AuthService authService;
+    private final CacheManager cacheManager;
+    private final AuthorStatsRepository authorStatsRepository;
+    private final CachedBatchLoader cachedBatchLoader;
 
     @Transactional(readOnly = true)
     public Page<UserResponse> getAllUsers(String search, Pageable pageable) {
         if (search != null && !search.trim().isEmpty()) {
-            return userRepository.searchUsers(search.trim(), pageable)
+            return findMatchingUsers(search, authService.isAdmin(), pageable)
                     .map(this::convertToResponse);
         }
 
@@ -56,6 +90,16 @@ public class UserService {
         return convertToResponse(user);
     }
 
+    /**
+     * Пользователи по списку id в порядке запроса; кэш "user" общий с getUserById.
+     */
+    @Transactional(readOnly = true)
+    public BatchResponse<UserResponse> getUsersByIds(Collection<Long> ids) {
+        return cachedBatchLoader.load("user", UserResponse.class, ids, missing ->
+                userRepository.findAllById(missing).stream()
+                        .collect(Collectors.toMap(User::getId, this::convertToResponse)));
+    }
+
     @Cacheable(value = "user", key = "#username")
     @Transactional(readOnly = true)
     public UserResponse getUserByUsername(String username) {
@@ -65,12 +109,87 @@ public class UserService {
         return convertToResponse(user);
     }
 
+    /**
+     * Пользователи, логин, имя или фамилия которых начинается с prefix,
+     * по убыванию числа подписчиков; из памяти (до первой сборки индекса — из БД).
+     */
+    public List<SuggestionResponse> suggestUsers(String prefix, int limit) {
+        return suggestIndex.suggestUsers(prefix, Math.min(Math.max(limit, 1), MAX_SUGGESTIONS));
+    }
+
     @Transactional(readOnly = true)
     public Page<UserResponse> searchUsers(String query, Pageable pageable) {
-        return userRepository.searchUsers(query, pageable)
+        return findMatchingUsers(query, authService.isAdmin(), pageable)
                 .map(this::convertToResponse);
     }
 
+    /**
+     * Пользователи, похожие на запрос по логину и имени, а при withEmail — и по email.
+     * На PostgreSQL поиск идёт по триграммным GIN-индексам, на H2 — по UserTrigramIndex,
+     * а пока он не построен — по вхождению подстроки в БД.
+     * Порядок — по похожести, сортировка из pageable не применяется.
+     */
+    @Transactional(readOnly = true)
+    public CountedPage<User> findMatchingUsers(String query, boolean withEmail, Pageable pageable) {
+        String normalized = SearchQueries.normalize(query);
+        Pageable page = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize());
+        if (normalized.isEmpty()) {
+            return new CountedPage<>(List.of(), page, 0, true, false);
+        }
+
+        String pattern = likePattern(normalized);
+        String countKey = (withEmail ? "email:" : "") + normalized;
+        CountedPage<Long> userIds;
+        if (databasePlatform.isPostgres()) {
+            userIds = countStrategyService.page("users-search", countKey, page,
+                    p -> userRepository.trigramSearchIds(normalized, pattern, withEmail, p),
+                    () -> userRepository.countTrigramSearch(normalized, pattern, withEmail));
+        } else if (userTrigramIndex.isReady()) {
+            List<Long> ranked = userTrigramIndex.search(normalized, withEmail);
+            int from = (int) Math.min(page.getOffset(), ranked.size());
+            int to = Math.min(from + page.getPageSize(), ranked.size());
+            userIds = new CountedPage<>(ranked.subList(from, to), page, ranked.size(), true, to < ranked.size());
+        } else {
+            // индекс ещё строится: точные вхождения без нечётких совпадений
+            userIds = countStrategyService.page("users-search", countKey, page,
+                    p -> userRepository.searchIdsLike(pattern, withEmail, p),
+                    () -> userRepository.countSearchLike(pattern, withEmail));
+        }
+
+        Map<Long, User> users = userRepository.findAllById(userIds.getContent()).stream()
+                .collect(Collectors.toMap(User::getId, user -> user));
+        return userIds.withContent(userIds.getContent().stream()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .toList());
+    }
+
+    /**
+     * Число пользователей, которых нашёл бы findMatchingUsers, без загрузки самих пользователей.
+     */
+    @Transactional(readOnly = true)
+    public long countMatchingUsers(String query, boolean withEmail) {
+        String normalized = SearchQueries.normalize(query);
+        if (normalized.isEmpty()) {
+            return 0;
+        }
+        String pattern = likePattern(normalized);
+        if (databasePlatform.isPostgres()) {
+            return userRepository.countTrigramSearch(normalized, pattern, withEmail);
+        }
+        if (userTrigramIndex.isReady()) {
+            return userTrigramIndex.search(normalized, withEmail).size();
+        }
+        return userRepository.countSearchLike(pattern, withEmail);
+    }
+
+    private static String likePattern(String normalized) {
+        return "%" + normalized
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_") + "%";
+    }
+
     @CacheEvict(value = "user", key = "#id")
     @Transactional
     public UserResponse updateUser(Long id, UpdateUserRequest request) {
@@ -89,6 +208,7 @@ public class UserService {
                 throw new ValidationException("Username already exists: " + request.getUsername());
             }
             user.setUsername(request.getUsername());
+            revokeTokens(user);
         }
 
         if (request.getFirstName() != null) {
@@ -109,9 +229,11 @@ public class UserService {
 
         if (request.getPassword() != null && !request.getPassword().isEmpty()) {
             user.setPasswordHash(passwordEncoder.encode(request.getPassword()));
+            revokeTokens(user);
         }
 
         User updatedUser = userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(id));
         log.info("Updated user with id: {}", id);
 
         return convertToResponse(updatedUser);
@@ -124,7 +246,9 @@ public class UserService {
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
 
         user.setEnabled(false);
+        revokeTokens(user);
         userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(id));
 
         log.info("Disabled user with id: {}", id);
     }
@@ -139,48 +263,92 @@ public class UserService {
         }
 
         user.setPasswordHash(passwordEncoder.encode(newPassword));
+        revokeTokens(user);
         userRepository.save(user);
 
         log.info("Changed password for user: {}", user.getUsername());
     }
 
+    @Caching(evict = {
+            @CacheEvict(value = "user", key = "#followerId"),
+            @CacheEvict(value = "user", key = "#followedId")
+    })
     @Transactional
     public void followUser(Long followerId, Long followedId) {
         if (followerId.equals(followedId)) {
             throw new ValidationException("Cannot follow yourself");
         }
+        if (!userRepository.existsById(followerId)) {
+            throw new ResourceNotFoundException("Follower not found");
+        }
+        if (!userRepository.existsById(followedId)) {
+            throw new ResourceNotFoundException("Followed user not found");
+        }
+
+        // коллекции подписок не загружаются: одна вставка, повторная подписка ничего не меняет
+        if (userRepository.insertSubscription(followerId, followedId) > 0) {
+            userRepository.adjustFollowingCount(followerId, 1);
+            userRepository.adjustFollowerCount(followedId, 1);
+            eventPublisher.publishEvent(new FollowChangedEvent(followerId, List.of(followedId), true));
+
+            log.info("User {} followed user {}", followerId, followedId);
+        }
+    }
 
-        User follower = userRepository.findById(followerId)
-                .orElseThrow(() -> new ResourceNotFoundException("Follower not found"));
+    /**
+     * Подписка сразу на нескольких пользователей (например, при онбординге).
+     * Себя, несуществующих и уже отслеживаемых пользователей пропускает.
+     *
+     * @return id пользователей, на которых подписка добавлена
+     */
+    @Transactional
+    public List<Long> followUsers(Long followerId, Collection<Long> followedIds) {
+        if (followedIds.size() > MAX_BULK_FOLLOW) {
+            throw new IllegalArgumentException("Cannot follow more than " + MAX_BULK_FOLLOW + " users at once");
+        }
 
-        User followed = userRepository.findById(followedId)
-                .orElseThrow(() -> new ResourceNotFoundException("Followed user not found"));
+        Set<Long> candidates = new LinkedHashSet<>(followedIds);
+        candidates.remove(followerId);
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
 
-        if (!follower.getSubscriptions().contains(followed)) {
-            follower.getSubscriptions().add(followed);
-            followed.getSubscribers().add(follower);
+        Set<Long> existing = new HashSet<>(userRepository.findExistingIds(candidates));
+        List<Long> authorIds = candidates.stream().filter(existing::contains).toList();
+        List<Long> followed = userRepository.insertSubscriptions(followerId, authorIds);
 
-            userRepository.save(follower);
-            userRepository.save(followed);
+        if (!followed.isEmpty()) {
+            userRepository.adjustFollowingCount(followerId, followed.size());
+            userRepository.adjustFollowerCounts(followed, 1);
+            eventPublisher.publishEvent(new FollowChangedEvent(followerId, followed, true));
 
-            log.info("User {} followed user {}", followerId, followedId);
+            Cache cache = cacheManager.getCache("user");
+            if (cache != null) {
+                cache.evict(followerId);
+                followed.forEach(cache::evict);
+            }
+            log.info("User {} followed {} users", followerId, followed.size());
         }
+        return followed;
     }
 
+    @Caching(evict = {
+            @CacheEvict(value = "user", key = "#followerId"),
+            @CacheEvict(value = "user", key = "#followedId")
+    })
     @Transactional
     public void unfollowUser(Long followerId, Long followedId) {
-        User follower = userRepository.findById(followerId)
-                .orElseThrow(() -> new ResourceNotFoundException("Follower not found"));
-
-        User followed = userRepository.findById(followedId)
-                .orElseThrow(() -> new ResourceNotFoundException("Followed user not found"));
-
-        if (follower.getSubscriptions().contains(followed)) {
-            follower.getSubscriptions().remove(followed);
-            followed.getSubscribers().remove(follower);
+        if (!userRepository.existsById(followerId)) {
+            throw new ResourceNotFoundException("Follower not found");
+        }
+        if (!userRepository.existsById(followedId)) {
+            throw new ResourceNotFoundException("Followed user not found");
+        }
 
-            userRepository.save(follower);
-            userRepository.save(followed);
+        if (userRepository.deleteSubscription(followerId, followedId) > 0) {
+            userRepository.adjustFollowingCount(followerId, -1);
+            userRepository.adjustFollowerCount(followedId, -1);
+            eventPublisher.publishEvent(new FollowChangedEvent(followerId, List.of(followedId), false));
 
             log.info("User {} unfollowed user {}", followerId, followedId);
         }
@@ -217,6 +385,7 @@ public class UserService {
 
         user.setAvatarUrl(avatarUrl);
         User updatedUser = userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(userId));
 
         log.info("Updated avatar for user: {}", user.getUsername());
 
@@ -248,15 +417,24 @@ public class UserService {
         stats.put("username", user.getUsername());
         stats.put("joinedDate", user.getCreatedAt());
 
-        long totalPosts = postRepository.countByAuthorId(userId);
-        stats.put("totalPosts", totalPosts);
-
-        stats.put("followersCount", user.getFollowers().size());
-        stats.put("followingCount", user.getSubscriptions().size());
-
-        stats.put("totalLikesReceived", 0);
-        stats.put("totalCommentsReceived", 0);
-        stats.put("totalViews", 0);
+        stats.put("totalPosts", user.getPostCount());
+
+        stats.put("followersCount", user.getFollowerCount());
+        stats.put("followingCount", user.getFollowingCount());
+
+        // строки нет, пока автор не получил ни одного лайка, комментария или просмотра
+        AuthorStats authorStats = authorStatsRepository.findById(userId).orElseGet(AuthorStats::new);
+        stats.put("totalLikesReceived", authorStats.getLikesReceived());
+        stats.put("totalCommentsReceived", authorStats.getCommentsReceived());
+        stats.put("totalViews", authorStats.getViewsReceived());
+        stats.put("last7Days", Map.of(
+                "likes", authorStats.getLikes7d(),
+                "comments", authorStats.getComments7d(),
+                "views", authorStats.getViews7d()));
+        stats.put("last30Days", Map.of(
+                "likes", authorStats.getLikes30d(),
+                "comments", authorStats.getComments30d(),
+                "views", authorStats.getViews30d()));
 
         stats.put("lastLogin", user.getLastLoginAt());
         stats.put("accountAgeDays",
@@ -311,10 +489,12 @@ public class UserService {
         if (add) {
             if (!user.getRoles().contains(role)) {
                 user.addRole(role);
+                revokeTokens(user);
             }
         } else {
             if (user.getRoles().contains(role)) {
                 user.removeRole(role);
+                revokeTokens(user);
             }
         }
 
@@ -335,6 +515,11 @@ public class UserService {
         return userRepository.existsByUsername(username);
     }
 
+    private void revokeTokens(User user) {
+        user.revokeTokens();
+        eventPublisher.publishEvent(UserSecurityChangedEvent.of(user));
+    }
+
     public UserResponse convertToResponse(User user) {
         UserResponse response = new UserResponse();
         response.setId(user.getId());
@@ -350,11 +535,9 @@ public class UserService {
         response.setLastLoginAt(user.getLastLoginAt());
         response.setEmailVerified(user.getEmailVerified());
 
-        long postCount = postRepository.countByAuthorId(user.getId());
-        response.setPostCount((int) postCount);
-
-        response.setFollowerCount(user.getFollowers().size());
-        response.setFollowingCount(user.getSubscriptions().size());
+        response.setPostCount(user.getPostCount());
+        response.setFollowerCount(user.getFollowerCount());
+        response.setFollowingCount(user.getFollowingCount());
 
         Set<String> roles = user.getRoles().stream()
                 .map(role -> role.getName().name())
@@ -363,11 +546,4 @@ public class UserService {
 
         return response;
     }
-
-    private PostRepository postRepository;
-
-    @org.springframework.beans.factory.annotation.Autowired
-    public void setPostRepository(PostRepository postRepository) {
-        this.postRepository = postRepository;
-    }
 }
\ No newline at end of file
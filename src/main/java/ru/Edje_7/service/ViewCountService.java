@@ -0,0 +1,146 @@
+package ru.Edje_7.service;
+
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.Edje_7.dto.response.PostResponse;
+import ru.Edje_7.event.PostEngagementEvent;
+import ru.Edje_7.event.PostViewsFlushedEvent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind счётчик просмотров постов.
+ * Просмотры копятся в памяти и периодически сбрасываются в БД одним batch UPDATE,
+ * поэтому чтение поста больше не пишет в таблицу posts.
+ * <p>
+ * Счётчики — LongAdder без блокировок на запись. Сброс подменяет всю карту новой,
+ * дожидается записей, начатых до подмены, и записывает снятую карту целиком.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ViewCountService {
+
+    private static final String FLUSH_SQL = "UPDATE posts SET view_count = view_count + ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CacheManager cacheManager;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final AtomicReference<Generation> pendingViews = new AtomicReference<>(new Generation());
+
+    public PostResponse recordView(PostResponse post) {
+        add(post.getId(), 1);
+        eventPublisher.publishEvent(PostEngagementEvent.of(post.getId(), PostEngagementEvent.Type.VIEW));
+        return withPendingViews(post);
+    }
+
+    public PostResponse withPendingViews(PostResponse post) {
+        long pending = getPendingViews(post.getId());
+        if (pending == 0) {
+            return post;
+        }
+        int base = post.getViewCount() != null ? post.getViewCount() : 0;
+        return post.withViewCount((int) Math.min(Integer.MAX_VALUE, base + pending));
+    }
+
+    public long getPendingViews(Long postId) {
+        LongAdder pending = pendingViews.get().views.get(postId);
+        return pending != null ? pending.sum() : 0;
+    }
+
+    @Scheduled(fixedDelayString = "${blog.views.flush-interval:5000}")
+    public synchronized void flush() {
+        Generation retired = pendingViews.getAndSet(new Generation());
+        retired.awaitWriters();
+
+        List<Object[]> batch = new ArrayList<>();
+        retired.views.forEach((postId, views) -> {
+            long delta = views.sum();
+            if (delta != 0) {
+                batch.add(new Object[]{delta, postId});
+            }
+        });
+
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(FLUSH_SQL, batch);
+        } catch (RuntimeException e) {
+            log.error("Failed to flush view counts for {} posts, will retry: {}", batch.size(), e.getMessage());
+            batch.forEach(args -> add((Long) args[1], (Long) args[0]));
+            return;
+        }
+
+        Cache postCache = cacheManager.getCache("post");
+        if (postCache != null) {
+            batch.forEach(args -> postCache.evict(args[1]));
+        }
+
+        Map<Long, Long> flushed = new HashMap<>();
+        batch.forEach(args -> flushed.put((Long) args[1], (Long) args[0]));
+        eventPublisher.publishEvent(new PostViewsFlushedEvent(flushed));
+
+        log.debug("Flushed view counts for {} posts", batch.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void add(Long postId, long delta) {
+        while (true) {
+            Generation generation = pendingViews.get();
+            generation.entered.increment();
+            try {
+                // поколение уже снято сбросом — пишем в новое
+                if (pendingViews.get() == generation) {
+                    LongAdder views = generation.views.get(postId);
+                    if (views == null) {
+                        views = generation.views.computeIfAbsent(postId, id -> new LongAdder());
+                    }
+                    views.add(delta);
+                    return;
+                }
+            } finally {
+                generation.exited.increment();
+            }
+        }
+    }
+
+    /**
+     * Счётчики между двумя сбросами. Писатели отмечаются в entered и exited, чтобы сброс
+     * после подмены мог дождаться записей в снятую карту.
+     */
+    private static final class Generation {
+
+        final ConcurrentHashMap<Long, LongAdder> views = new ConcurrentHashMap<>();
+        final LongAdder entered = new LongAdder();
+        final LongAdder exited = new LongAdder();
+
+        void awaitWriters() {
+            // exited читается раньше entered: оба только растут, и равенство значит, что между
+            // чтениями писателей не было, а пришедшие позже увидят подмену и уйдут в новое поколение
+            while (exited.sum() != entered.sum()) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+}
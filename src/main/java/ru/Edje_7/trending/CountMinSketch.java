@@ -0,0 +1,77 @@
+package ru.Edje_7.trending;
+
+
+import java.util.Arrays;
+
+
+/**
+ * Count-min sketch для long-ключей.
+ * Оценка никогда не меньше истинного значения и с вероятностью 1 - delta
+ * превышает его не более чем на epsilon * total, где epsilon = e / width, delta = e^-depth.
+ * Допускает уменьшение счётчиков, пока истинные значения остаются неотрицательными.
+ */
+public class CountMinSketch {
+
+    private static final long[] SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L,
+            0xFF51AFD7ED558CCDL, 0xC4CEB9FE1A85EC53L, 0x94D049BB133111EBL, 0xBF58476D1CE4E5B9L
+    };
+
+    private final int width;
+    private final int depth;
+    private final long[][] counters;
+
+    public CountMinSketch(int width, int depth) {
+        if (width < 1 || depth < 1 || depth > SEEDS.length) {
+            throw new IllegalArgumentException("Invalid count-min sketch dimensions: " + width + "x" + depth);
+        }
+        this.width = width;
+        this.depth = depth;
+        this.counters = new long[depth][width];
+    }
+
+    public CountMinSketch copy() {
+        CountMinSketch copy = new CountMinSketch(width, depth);
+        for (int row = 0; row < depth; row++) {
+            System.arraycopy(counters[row], 0, copy.counters[row], 0, width);
+        }
+        return copy;
+    }
+
+    public void add(long key, long delta) {
+        for (int row = 0; row < depth; row++) {
+            counters[row][index(key, row)] += delta;
+        }
+    }
+
+    public long estimate(long key) {
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, counters[row][index(key, row)]);
+        }
+        return Math.max(min, 0);
+    }
+
+    public void clear() {
+        for (long[] row : counters) {
+            Arrays.fill(row, 0);
+        }
+    }
+
+    public double epsilon() {
+        return Math.E / width;
+    }
+
+    public double delta() {
+        return Math.exp(-depth);
+    }
+
+    private int index(long key, int row) {
+        // финализатор splitmix64: хорошее перемешивание для последовательных id
+        long h = key ^ SEEDS[row];
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        h = h ^ (h >>> 31);
+        return (int) Math.floorMod(h, (long) width);
+    }
+}
@@ -0,0 +1,376 @@
+package ru.Edje_7.trending;
+
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.Edje_7.config.TrendingProperties;
+import ru.Edje_7.event.PostChangedEvent;
+import ru.Edje_7.repository.PostRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Самые частые теги новых постов за последние N дней без запроса к БД.
+ * <p>
+ * Окно разбито на интервалы (blog.trending.bucket). В каждом интервале хранится
+ * count-min sketch по id тега и не больше candidatesPerBucket самых частых тегов.
+ * Ответ собирается из кандидатов интервалов окна, частота каждого — сумма оценок
+ * по sketch'ам. Оценка завышена не больше чем на epsilon * N, где N — число событий
+ * в окне, с вероятностью не меньше 1 - delta для каждого интервала.
+ * <p>
+ * Интервалы после публикации не меняются: запись подменяет массив интервалов копией
+ * с обновлённым интервалом, поэтому чтение идёт без блокировки. Топ окна запоминается
+ * до следующей записи или следующего интервала.
+ * <p>
+ * Пост учитывается в интервале своего создания, как и в прежнем SQL-запросе;
+ * изменение тегов поста переносит его вклад со старых тегов на новые.
+ */
+@Component
+@Slf4j
+public class TrendingTagTracker {
+
+    private static final int[] METRIC_DAYS = {1, 7};
+
+    private final PostRepository postRepository;
+    private final TrendingProperties properties;
+
+    private final long bucketMillis;
+    private final int bucketsPerDay;
+    private final int bucketCount;
+
+    private final Object rebuildLock = new Object();
+
+    // снимок интервалов; ни массив, ни интервалы в нём после публикации не меняются
+    private volatile Bucket[] buckets;
+
+    // days -> топ, посчитанный по снимку buckets
+    private final Map<Integer, TopTags> topTags = new ConcurrentHashMap<>();
+
+    // изменения тегов во время пересборки; null — пересборка не идёт
+    private List<PostChangedEvent> changedDuringRebuild;
+
+    private volatile boolean ready;
+
+    public TrendingTagTracker(PostRepository postRepository,
+                              TrendingProperties properties,
+                              MeterRegistry meterRegistry) {
+        this.postRepository = postRepository;
+        this.properties = properties;
+
+        Duration bucket = properties.getBucket();
+        if (bucket.isZero() || bucket.isNegative() || Duration.ofDays(1).toMillis() % bucket.toMillis() != 0) {
+            throw new IllegalArgumentException("blog.trending.bucket must divide one day: " + bucket);
+        }
+        this.bucketMillis = bucket.toMillis();
+        this.bucketsPerDay = (int) (Duration.ofDays(1).toMillis() / bucketMillis);
+        // лишний интервал под текущий, ещё не закончившийся
+        this.bucketCount = properties.getMaxDays() * bucketsPerDay + 1;
+        this.buckets = new Bucket[bucketCount];
+
+        CountMinSketch probe = new CountMinSketch(properties.getSketchWidth(), properties.getSketchDepth());
+        Gauge.builder("blog.trending.sketch.epsilon", probe::epsilon)
+                .description("Relative error of trending tag frequencies")
+                .register(meterRegistry);
+        Gauge.builder("blog.trending.sketch.delta", probe::delta)
+                .description("Probability that a bucket estimate exceeds the error bound")
+                .register(meterRegistry);
+        for (int days : METRIC_DAYS) {
+            String window = String.valueOf(days);
+            Gauge.builder("blog.trending.window.events", this, tracker -> tracker.totalEvents(days))
+                    .tag("days", window)
+                    .register(meterRegistry);
+            Gauge.builder("blog.trending.error.bound", this, tracker -> tracker.errorBound(days))
+                    .description("Maximum overestimate of a tag frequency, in posts")
+                    .tag("days", window)
+                    .register(meterRegistry);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int getMaxDays() {
+        return properties.getMaxDays();
+    }
+
+    public List<Long> getTopTagIds(int days, int limit) {
+        return getTopTagIds(days, limit, LocalDateTime.now());
+    }
+
+    List<Long> getTopTagIds(int days, int limit, LocalDateTime now) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        Bucket[] snapshot = buckets;
+        long newest = bucketIndex(now);
+        TopTags cached = topTags.get(days);
+        if (cached != null && cached.source() == snapshot && cached.newest() == newest && cached.limit() >= limit) {
+            return cached.tagIds().subList(0, Math.min(limit, cached.tagIds().size()));
+        }
+
+        List<Bucket> window = window(snapshot, days, newest);
+        Set<Long> candidates = new HashSet<>();
+        for (Bucket bucket : window) {
+            candidates.addAll(bucket.candidates.keySet());
+        }
+
+        Comparator<Map.Entry<Long, Long>> order = Map.Entry.<Long, Long>comparingByValue()
+                .thenComparing(Map.Entry.comparingByKey(Comparator.reverseOrder()));
+        PriorityQueue<Map.Entry<Long, Long>> top = new PriorityQueue<>(limit + 1, order);
+        for (Long tagId : candidates) {
+            long count = 0;
+            for (Bucket bucket : window) {
+                count += bucket.sketch.estimate(tagId);
+            }
+            if (count <= 0) {
+                continue;
+            }
+            top.add(Map.entry(tagId, count));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+
+        List<Long> tagIds = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            tagIds.add(top.poll().getKey());
+        }
+        Collections.reverse(tagIds);
+        List<Long> result = List.copyOf(tagIds);
+        topTags.put(days, new TopTags(snapshot, newest, limit, result));
+        return result;
+    }
+
+    public long totalEvents(int days) {
+        return totalEvents(days, LocalDateTime.now());
+    }
+
+    long totalEvents(int days, LocalDateTime now) {
+        long total = 0;
+        for (Bucket bucket : window(buckets, days, bucketIndex(now))) {
+            total += bucket.total;
+        }
+        return total;
+    }
+
+    public double errorBound(int days) {
+        return Math.E / properties.getSketchWidth() * totalEvents(days);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onPostChanged(PostChangedEvent event) {
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.add(event);
+        }
+        LocalDateTime createdAt = createdAt(event);
+        for (Long tagId : event.getTagIds()) {
+            if (!event.getPreviousTagIds().contains(tagId)) {
+                record(tagId, createdAt, 1);
+            }
+        }
+        for (Long tagId : event.getPreviousTagIds()) {
+            if (!event.getTagIds().contains(tagId)) {
+                record(tagId, createdAt, -1);
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild(LocalDateTime.now());
+    }
+
+    /**
+     * Загружает связи постов с тегами без блокировки и подменяет интервалы. Изменения,
+     * пришедшие во время загрузки, применяются к новым интервалам, если выборка их ещё
+     * не отражает.
+     */
+    void rebuild(LocalDateTime now) {
+        synchronized (rebuildLock) {
+            synchronized (this) {
+                changedDuringRebuild = new ArrayList<>();
+            }
+
+            LocalDateTime since = LocalDateTime.ofEpochSecond(
+                    (bucketIndex(now) - bucketCount + 1) * bucketMillis / 1000, 0, ZoneOffset.UTC);
+            List<PostRepository.PostTagRef> rows;
+            try {
+                rows = postRepository.findTagRefsCreatedSince(since);
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    changedDuringRebuild = null;
+                }
+                throw e;
+            }
+
+            Bucket[] rebuilt = new Bucket[bucketCount];
+            for (PostRepository.PostTagRef row : rows) {
+                rebuilt = update(rebuilt, row.getTagId(), row.getCreatedAt(), 1, now, false);
+            }
+
+            int replayed;
+            synchronized (this) {
+                replayed = changedDuringRebuild.size();
+                buckets = replay(rebuilt, rows, changedDuringRebuild, now);
+                changedDuringRebuild = null;
+            }
+
+            ready = true;
+            log.debug("Rebuilt trending tags from {} post-tag links, replayed {} post changes", rows.size(), replayed);
+        }
+    }
+
+    void record(Long tagId, LocalDateTime at, long delta) {
+        record(tagId, at, delta, LocalDateTime.now());
+    }
+
+    synchronized void record(Long tagId, LocalDateTime at, long delta, LocalDateTime now) {
+        buckets = update(buckets, tagId, at, delta, now, true);
+    }
+
+    /**
+     * Применяет изменения к собранным интервалам. Выборка могла увидеть пост до или после
+     * изменения, поэтому связь добавляется, только если её ещё нет, и убирается, только если она есть.
+     */
+    private Bucket[] replay(Bucket[] rebuilt, List<PostRepository.PostTagRef> rows,
+                            List<PostChangedEvent> events, LocalDateTime now) {
+        Set<Long> touched = new HashSet<>();
+        events.forEach(event -> touched.add(event.getPostId()));
+        Set<List<Long>> present = new HashSet<>();
+        for (PostRepository.PostTagRef row : rows) {
+            if (touched.contains(row.getPostId())) {
+                present.add(List.of(row.getPostId(), row.getTagId()));
+            }
+        }
+
+        Bucket[] result = rebuilt;
+        for (PostChangedEvent event : events) {
+            LocalDateTime createdAt = createdAt(event);
+            for (Long tagId : event.getTagIds()) {
+                if (!event.getPreviousTagIds().contains(tagId) && present.add(List.of(event.getPostId(), tagId))) {
+                    result = update(result, tagId, createdAt, 1, now, false);
+                }
+            }
+            for (Long tagId : event.getPreviousTagIds()) {
+                if (!event.getTagIds().contains(tagId) && present.remove(List.of(event.getPostId(), tagId))) {
+                    result = update(result, tagId, createdAt, -1, now, false);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param copy true — source опубликован: меняются копии массива и интервала
+     */
+    private Bucket[] update(Bucket[] source, Long tagId, LocalDateTime at, long delta, LocalDateTime now, boolean copy) {
+        long index = bucketIndex(at);
+        if (index <= bucketIndex(now) - bucketCount) {
+            // старше максимального окна
+            return source;
+        }
+
+        int slot = (int) Math.floorMod(index, (long) bucketCount);
+        Bucket bucket = source[slot];
+        Bucket updated;
+        if (bucket == null || bucket.index < index) {
+            updated = new Bucket(index);
+        } else if (bucket.index > index) {
+            // место уже занято более новым интервалом
+            return source;
+        } else {
+            updated = copy ? bucket.copy() : bucket;
+        }
+        updated.add(tagId, delta);
+
+        Bucket[] result = copy ? source.clone() : source;
+        result[slot] = updated;
+        return result;
+    }
+
+    private List<Bucket> window(Bucket[] snapshot, int days, long newest) {
+        int size = Math.min(Math.max(days, 0) * bucketsPerDay + 1, bucketCount);
+        List<Bucket> window = new ArrayList<>(size);
+        for (Bucket bucket : snapshot) {
+            if (bucket != null && bucket.index <= newest && bucket.index > newest - size) {
+                window.add(bucket);
+            }
+        }
+        return window;
+    }
+
+    private static LocalDateTime createdAt(PostChangedEvent event) {
+        return event.getCreatedAt() != null ? event.getCreatedAt() : LocalDateTime.now();
+    }
+
+    private long bucketIndex(LocalDateTime at) {
+        return Math.floorDiv(at.toInstant(ZoneOffset.UTC).toEpochMilli(), bucketMillis);
+    }
+
+    private record TopTags(Bucket[] source, long newest, int limit, List<Long> tagIds) {
+    }
+
+    private class Bucket {
+
+        private final CountMinSketch sketch;
+        private final Map<Long, Long> candidates;
+        private final long index;
+        private long total;
+
+        Bucket(long index) {
+            this(index, new CountMinSketch(properties.getSketchWidth(), properties.getSketchDepth()), new HashMap<>(), 0);
+        }
+
+        private Bucket(long index, CountMinSketch sketch, Map<Long, Long> candidates, long total) {
+            this.index = index;
+            this.sketch = sketch;
+            this.candidates = candidates;
+            this.total = total;
+        }
+
+        Bucket copy() {
+            return new Bucket(index, sketch.copy(), new HashMap<>(candidates), total);
+        }
+
+        void add(Long tagId, long delta) {
+            sketch.add(tagId, delta);
+            total = Math.max(total + delta, 0);
+
+            long estimate = sketch.estimate(tagId);
+            if (candidates.containsKey(tagId) || candidates.size() < properties.getCandidatesPerBucket()) {
+                candidates.put(tagId, estimate);
+                return;
+            }
+
+            // вытесняется самый редкий кандидат, если новый тег встречается чаще
+            Map.Entry<Long, Long> weakest = null;
+            for (Map.Entry<Long, Long> candidate : candidates.entrySet()) {
+                if (weakest == null || candidate.getValue() < weakest.getValue()) {
+                    weakest = candidate;
+                }
+            }
+            if (weakest != null && estimate > weakest.getValue()) {
+                candidates.remove(weakest.getKey());
+                candidates.put(tagId, estimate);
+            }
+        }
+    }
+}
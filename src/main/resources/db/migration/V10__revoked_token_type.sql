@@ -0,0 +1,5 @@
+-- Тип отозванного токена: в фильтр отзыва загружаются только access-токены.
+-- Существующие строки считаются access-токенами — лишняя запись в фильтре безопасна
+ALTER TABLE revoked_tokens ADD COLUMN token_type VARCHAR(16) NOT NULL DEFAULT 'ACCESS';
+
+CREATE INDEX idx_revoked_tokens_type_expires_at ON revoked_tokens(token_type, expires_at);
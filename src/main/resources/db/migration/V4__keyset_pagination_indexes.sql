@@ -0,0 +1,3 @@
+-- Индексы для keyset-пагинации по (published_at, id)
+CREATE INDEX idx_posts_status_published_id ON posts(status, published_at DESC, id DESC);
+CREATE INDEX idx_posts_author_status_published_id ON posts(author_id, status, published_at DESC, id DESC);
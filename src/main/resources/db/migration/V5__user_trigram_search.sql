@@ -0,0 +1,9 @@
+-- Триграммный поиск пользователей: подстроки (LIKE '%q%') и похожесть (<%) идут через GIN
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX idx_users_username_trgm ON users USING gin (lower(username) gin_trgm_ops);
+
+CREATE INDEX idx_users_full_name_trgm ON users
+    USING gin (lower(coalesce(first_name, '') || ' ' || coalesce(last_name, '')) gin_trgm_ops);
+
+CREATE INDEX idx_users_email_trgm ON users USING gin (lower(email) gin_trgm_ops);
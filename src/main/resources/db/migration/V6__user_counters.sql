@@ -0,0 +1,9 @@
+-- Денормализованные счётчики подписчиков, подписок и постов
+ALTER TABLE users ADD COLUMN follower_count INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE users ADD COLUMN following_count INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE users ADD COLUMN post_count INTEGER NOT NULL DEFAULT 0;
+
+UPDATE users SET
+    follower_count = (SELECT COUNT(*) FROM subscriptions s WHERE s.author_id = users.id),
+    following_count = (SELECT COUNT(*) FROM subscriptions s WHERE s.subscriber_id = users.id),
+    post_count = (SELECT COUNT(*) FROM posts p WHERE p.author_id = users.id);
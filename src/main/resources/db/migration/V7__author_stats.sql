@@ -0,0 +1,30 @@
+-- Сводная статистика авторов: итоги и окна 7/30 дней по лайкам, комментариям и просмотрам
+CREATE TABLE author_stats (
+    author_id BIGINT PRIMARY KEY REFERENCES users(id) ON DELETE CASCADE,
+    likes_received BIGINT NOT NULL DEFAULT 0,
+    comments_received BIGINT NOT NULL DEFAULT 0,
+    views_received BIGINT NOT NULL DEFAULT 0,
+    likes_7d BIGINT NOT NULL DEFAULT 0,
+    comments_7d BIGINT NOT NULL DEFAULT 0,
+    views_7d BIGINT NOT NULL DEFAULT 0,
+    likes_30d BIGINT NOT NULL DEFAULT 0,
+    comments_30d BIGINT NOT NULL DEFAULT 0,
+    views_30d BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Дневные приращения, из которых пересчитываются окна; хранятся 30 дней
+CREATE TABLE author_stats_daily (
+    author_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    stat_date DATE NOT NULL,
+    likes BIGINT NOT NULL DEFAULT 0,
+    comments BIGINT NOT NULL DEFAULT 0,
+    views BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (author_id, stat_date)
+);
+
+-- Итоги по уже накопленным счётчикам постов; окна заполнятся с новыми событиями
+INSERT INTO author_stats (author_id, likes_received, comments_received, views_received)
+SELECT author_id, SUM(like_count), SUM(comment_count), SUM(view_count)
+FROM posts
+GROUP BY author_id;
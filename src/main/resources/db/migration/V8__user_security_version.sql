@@ -0,0 +1,2 @@
+-- Версия учётных данных пользователя, зашитая в JWT: токены со старой версией отклоняются
+ALTER TABLE users ADD COLUMN security_version INTEGER NOT NULL DEFAULT 0;
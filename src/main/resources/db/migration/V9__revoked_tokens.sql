@@ -0,0 +1,7 @@
+-- Отозванные до истечения срока JWT (выход, обмен refresh-токена); строки удаляются после expires_at
+CREATE TABLE revoked_tokens (
+    jti VARCHAR(36) PRIMARY KEY,
+    expires_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_revoked_tokens_expires_at ON revoked_tokens(expires_at);
@@ -0,0 +1,92 @@
+package ru.Edje_7.integration;
+
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import ru.Edje_7.dto.PostView;
+import ru.Edje_7.dto.request.PostFilter;
+import ru.Edje_7.dto.request.PostRequest;
+import ru.Edje_7.dto.response.PostResponse;
+import ru.Edje_7.entity.User;
+import ru.Edje_7.repository.UserRepository;
+import ru.Edje_7.service.PostService;
+import ru.Edje_7.service.SearchService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Текстовый запрос, совпадений по которому больше, чем помещается в id IN (...),
+ * фильтруется индексом в памяти: общее число — все совпадения по любому терму,
+ * порядок — запрошенный или по релевантности.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class AdvancedSearchTest {
+
+    private static final int POSTS = 1005;
+
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void advancedPostSearch_shouldCountAndSortAllMatchesOfBroadQuery() {
+        String word = "broad" + System.nanoTime() % 1_000_000;
+        User author = new User();
+        author.setUsername(word + "-author");
+        author.setEmail(word + "@example.com");
+        author.setPasswordHash("hash");
+        author = userRepository.save(author);
+
+        List<Object[]> dates = new ArrayList<>();
+        LocalDateTime base = LocalDateTime.now().minusDays(30).withNano(0);
+        for (int i = 0; i < POSTS; i++) {
+            PostRequest request = new PostRequest();
+            request.setTitle(word + " post " + i);
+            request.setContent("Advanced search content");
+            request.setTags(Set.of());
+            Long postId = postService.createPost(request, author).getId();
+            // даты вразнобой с id, чтобы порядок по дате отличался от порядка по id
+            dates.add(new Object[]{base.plusMinutes((i * 37L) % POSTS), postId});
+        }
+        jdbcTemplate.batchUpdate("UPDATE posts SET published_at = ? WHERE id = ?", dates);
+
+        PostFilter filter = new PostFilter();
+        filter.setQuery(word + " unrelatedterm");
+        Page<PostResponse> byDate = searchService.advancedPostSearch(filter,
+                PageRequest.of(0, 50, Sort.by(Sort.Order.desc("publishedAt"))), PostView.SUMMARY);
+        Page<PostResponse> byRelevance = searchService.advancedPostSearch(filter, PageRequest.of(20, 50), PostView.SUMMARY);
+
+        // совпадение по любому терму, как у индекса, а не по фразе целиком
+        assertEquals(POSTS, byDate.getTotalElements());
+        assertEquals(50, byDate.getContent().size());
+        assertEquals(byDate.getContent().stream()
+                        .sorted(Comparator.comparing(PostResponse::getPublishedAt).reversed())
+                        .map(PostResponse::getId)
+                        .toList(),
+                byDate.getContent().stream().map(PostResponse::getId).toList());
+        assertEquals(base.plusMinutes(POSTS - 1), byDate.getContent().get(0).getPublishedAt());
+        assertEquals(POSTS, byRelevance.getTotalElements());
+        assertEquals(5, byRelevance.getContent().size());
+    }
+}
@@ -0,0 +1,107 @@
+package ru.Edje_7.integration;
+
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import ru.Edje_7.dto.request.PostRequest;
+import ru.Edje_7.dto.response.PostResponse;
+import ru.Edje_7.entity.User;
+import ru.Edje_7.event.PostEngagementEvent;
+import ru.Edje_7.repository.UserRepository;
+import ru.Edje_7.service.AuthorStatsService;
+import ru.Edje_7.service.PostService;
+import ru.Edje_7.service.UserService;
+import ru.Edje_7.service.ViewCountService;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Статистика автора обновляется приращениями от лайков, комментариев и сброса просмотров,
+ * а суточный пересчёт сверяет итоги с постами и окна — с дневными строками.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class AuthorStatsTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private ViewCountService viewCountService;
+
+    @Autowired
+    private AuthorStatsService authorStatsService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User author;
+
+    private PostResponse post;
+
+    @BeforeEach
+    void setUp() {
+        String username = "stats" + System.nanoTime() % 1_000_000;
+        author = new User();
+        author.setUsername(username);
+        author.setEmail(username + "@example.com");
+        author.setPasswordHash("hash");
+        author = userRepository.save(author);
+
+        PostRequest request = new PostRequest();
+        request.setTitle(username + " post");
+        request.setContent("Stats content");
+        request.setTags(Set.of("stats"));
+        post = postService.createPost(request, author);
+    }
+
+    @Test
+    void engagementAndFlushedViews_shouldUpdateSingleStatsRow() {
+        authorStatsService.onEngagement(PostEngagementEvent.of(post.getId(), PostEngagementEvent.Type.LIKE));
+        authorStatsService.onEngagement(PostEngagementEvent.of(post.getId(), PostEngagementEvent.Type.LIKE));
+        authorStatsService.onEngagement(PostEngagementEvent.of(post.getId(), PostEngagementEvent.Type.UNLIKE));
+        authorStatsService.onEngagement(PostEngagementEvent.of(post.getId(), PostEngagementEvent.Type.COMMENT));
+        viewCountService.recordView(post);
+        viewCountService.recordView(post);
+        viewCountService.recordView(post);
+        viewCountService.flush();
+
+        Map<String, Object> stats = userService.getUserStatistics(author.getId());
+
+        assertEquals(1L, stats.get("totalLikesReceived"));
+        assertEquals(1L, stats.get("totalCommentsReceived"));
+        assertEquals(3L, stats.get("totalViews"));
+        assertEquals(Map.of("likes", 1L, "comments", 1L, "views", 3L), stats.get("last7Days"));
+        assertEquals(Map.of("likes", 1L, "comments", 1L, "views", 3L), stats.get("last30Days"));
+    }
+
+    @Test
+    void rollup_shouldReconcileTotalsAndDropExpiredDays() {
+        authorStatsService.onEngagement(new PostEngagementEvent(post.getId(), PostEngagementEvent.Type.LIKE,
+                LocalDate.now().minusDays(10).atStartOfDay()));
+        authorStatsService.onEngagement(PostEngagementEvent.of(post.getId(), PostEngagementEvent.Type.COMMENT));
+        jdbcTemplate.update("UPDATE posts SET like_count = 4, comment_count = 2 WHERE id = ?", post.getId());
+
+        authorStatsService.rollup();
+
+        Map<String, Object> stats = userService.getUserStatistics(author.getId());
+        assertEquals(4L, stats.get("totalLikesReceived"));
+        assertEquals(2L, stats.get("totalCommentsReceived"));
+        assertEquals(Map.of("likes", 0L, "comments", 1L, "views", 0L), stats.get("last7Days"));
+        assertEquals(Map.of("likes", 1L, "comments", 1L, "views", 0L), stats.get("last30Days"));
+    }
+}
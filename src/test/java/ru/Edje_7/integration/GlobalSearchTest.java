@@ -0,0 +1,47 @@
+package ru.Edje_7.integration;
+
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import ru.Edje_7.repository.UserRepository;
+import ru.Edje_7.search.SearchFanOut;
+
+import java.util.Optional;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ветка глобального поиска успевает выполнить запросы в своей транзакции,
+ * пока не наступил дедлайн запроса, даже если он меньше секунды.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class GlobalSearchTest {
+
+    @Autowired
+    private SearchFanOut searchFanOut;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void submit_shouldRunQueriesUntilSubSecondDeadline() {
+        long deadline = searchFanOut.deadline();
+        Future<Long> branch = searchFanOut.submit(() -> {
+            long before = userRepository.count();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return before + userRepository.count();
+        }, deadline);
+
+        Optional<Long> users = searchFanOut.await(branch, deadline, "users");
+
+        assertTrue(users.isPresent());
+    }
+}
@@ -0,0 +1,90 @@
+package ru.Edje_7.integration;
+
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import ru.Edje_7.dto.CursorPage;
+import ru.Edje_7.dto.PostView;
+import ru.Edje_7.dto.request.PostRequest;
+import ru.Edje_7.dto.response.PostResponse;
+import ru.Edje_7.entity.User;
+import ru.Edje_7.repository.UserRepository;
+import ru.Edje_7.service.PostService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Keyset-страницы отдают те же посты, что и постраничные запросы: посты без даты
+ * публикации идут последними, запланированные на будущее не видны.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class KeysetPaginationTest {
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void tagPages_shouldWalkNullPublishedAtTailAndSkipScheduledPosts() {
+        String tag = "keyset" + System.nanoTime() % 1_000_000;
+        User author = new User();
+        author.setUsername(tag + "-author");
+        author.setEmail(tag + "@example.com");
+        author.setPasswordHash("hash");
+        author = userRepository.save(author);
+
+        LocalDateTime base = LocalDateTime.now().minusDays(1).withNano(0);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            PostRequest request = new PostRequest();
+            request.setTitle(tag + " post " + i);
+            request.setContent("Keyset content " + i);
+            request.setTags(Set.of(tag));
+            ids.add(postService.createPost(request, author).getId());
+        }
+        // 0..2 — с датой (1 и 2 в одну секунду), 3 и 4 — без даты, 5 — запланирован
+        jdbcTemplate.update("UPDATE posts SET published_at = ? WHERE id = ?", base, ids.get(0));
+        jdbcTemplate.update("UPDATE posts SET published_at = ? WHERE id IN (?, ?)", base.plusHours(1), ids.get(1), ids.get(2));
+        jdbcTemplate.update("UPDATE posts SET published_at = NULL WHERE id IN (?, ?)", ids.get(3), ids.get(4));
+        jdbcTemplate.update("UPDATE posts SET published_at = ? WHERE id = ?", base.plusDays(7), ids.get(5));
+
+        List<Long> expected = List.of(ids.get(2), ids.get(1), ids.get(0), ids.get(4), ids.get(3));
+
+        List<Long> forward = new ArrayList<>();
+        String cursor = "";
+        CursorPage<PostResponse> page;
+        String lastPrev;
+        do {
+            page = postService.getPostsByTag(tag, cursor, 2, PostView.SUMMARY);
+            page.getContent().forEach(post -> forward.add(post.getId()));
+            lastPrev = page.getPrevCursor();
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        assertEquals(expected, forward);
+
+        List<Long> backward = new ArrayList<>();
+        for (String prev = lastPrev; prev != null; prev = page.getPrevCursor()) {
+            page = postService.getPostsByTag(tag, prev, 2, PostView.SUMMARY);
+            List<Long> chunk = new ArrayList<>(page.getContent().stream().map(PostResponse::getId).toList());
+            Collections.reverse(chunk);
+            backward.addAll(chunk);
+        }
+        Collections.reverse(backward);
+        assertEquals(expected.subList(0, 4), backward);
+    }
+}
@@ -0,0 +1,138 @@
+package ru.Edje_7.integration;
+
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.Edje_7.dto.request.PostRequest;
+import ru.Edje_7.entity.User;
+import ru.Edje_7.repository.UserRepository;
+import ru.Edje_7.service.PostService;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Число SQL-запросов на списочных endpoint'ах не должно зависеть от размера страницы:
+ * страница постов + COUNT (если страница полная) + авторы + теги.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class PostQueryCountTest {
+
+    private static final long MAX_STATEMENTS = 4;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    private Long authorId;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+
+        if (authorId != null || userRepository.findByEmail("author1@example.com").isPresent()) {
+            authorId = userRepository.findByEmail("author1@example.com").get().getId();
+            return;
+        }
+
+        for (int a = 1; a <= 3; a++) {
+            User author = new User();
+            author.setEmail("author" + a + "@example.com");
+            author.setUsername("author" + a);
+            author.setPasswordHash("hash");
+            author = userRepository.save(author);
+            if (a == 1) {
+                authorId = author.getId();
+            }
+
+            for (int i = 1; i <= 8; i++) {
+                PostRequest request = new PostRequest();
+                request.setTitle("Post " + a + "-" + i);
+                request.setContent("Content of post " + a + "-" + i);
+                request.setTags(Set.of("java", "tag" + i));
+                postService.createPost(request, author);
+            }
+        }
+    }
+
+    @Test
+    void allPosts_shouldUseConstantNumberOfStatements() throws Exception {
+        assertStatementsIndependentOfPageSize("/posts?size=%d");
+    }
+
+    @Test
+    void popularPosts_shouldUseConstantNumberOfStatements() throws Exception {
+        assertStatementsIndependentOfPageSize("/posts/popular?size=%d");
+    }
+
+    @Test
+    void postsByTag_shouldUseConstantNumberOfStatements() throws Exception {
+        assertStatementsIndependentOfPageSize("/posts/tag/java?size=%d");
+    }
+
+    @Test
+    void postsByAuthor_shouldUseConstantNumberOfStatements() throws Exception {
+        assertStatementsIndependentOfPageSize("/posts/author/" + authorId + "?size=%d");
+    }
+
+    @Test
+    void keysetFeed_shouldUseConstantNumberOfStatements() throws Exception {
+        assertStatementsIndependentOfPageSize("/posts?cursor=&size=%d");
+    }
+
+    @Test
+    void summaryView_shouldUseConstantNumberOfStatementsAndOmitContent() throws Exception {
+        assertStatementsIndependentOfPageSize("/posts?view=summary&size=%d");
+
+        mockMvc.perform(get("/posts?view=summary&size=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.content[0].excerpt").exists())
+                .andExpect(jsonPath("$.data.content[0].content").doesNotExist());
+    }
+
+    private void assertStatementsIndependentOfPageSize(String urlTemplate) throws Exception {
+        long small = countStatements(String.format(urlTemplate, 2));
+        long large = countStatements(String.format(urlTemplate, 10));
+
+        assertTrue(small <= MAX_STATEMENTS, "Expected at most " + MAX_STATEMENTS + " statements, got " + small);
+        assertTrue(large <= small, "Statement count must not grow with page size: " + small + " -> " + large);
+    }
+
+    private long countStatements(String url) throws Exception {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        statistics.clear();
+
+        mockMvc.perform(get(url)).andExpect(status().isOk());
+
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,75 @@
+package ru.Edje_7.integration;
+
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.Edje_7.dto.response.RecommendationResponse;
+import ru.Edje_7.entity.User;
+import ru.Edje_7.repository.UserRepository;
+import ru.Edje_7.search.FollowGraph;
+import ru.Edje_7.service.RecommendationService;
+import ru.Edje_7.service.UserService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Пока граф подписок не построен, друзья друзей считаются запросом к БД
+ * и совпадают с кандидатами из графа.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class RecommendationFallbackTest {
+
+    @Autowired
+    private RecommendationService recommendationService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private FollowGraph followGraph;
+
+    @AfterEach
+    void restoreGraph() {
+        ReflectionTestUtils.setField(followGraph, "ready", true);
+    }
+
+    @Test
+    void recommend_shouldMatchGraphBeforeItIsBuilt() {
+        String prefix = "recommend" + System.nanoTime() % 1_000_000;
+        List<Long> users = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            User user = new User();
+            user.setUsername(prefix + "-user" + i);
+            user.setEmail(prefix + i + "@example.com");
+            user.setPasswordHash("hash");
+            users.add(userRepository.save(user).getId());
+        }
+        // 0 -> 1, 2; 1 -> 3, 4, 0; 2 -> 3, 5
+        userService.followUsers(users.get(0), List.of(users.get(1), users.get(2)));
+        userService.followUsers(users.get(1), List.of(users.get(3), users.get(4), users.get(0)));
+        userService.followUsers(users.get(2), List.of(users.get(3), users.get(5)));
+        followGraph.rebuild();
+
+        List<RecommendationResponse> fromGraph = recommendationService.recommend(users.get(0), 3);
+
+        ReflectionTestUtils.setField(followGraph, "ready", false);
+        List<RecommendationResponse> fromDb = recommendationService.recommend(users.get(0), 3);
+
+        assertEquals(List.of(users.get(3), users.get(4), users.get(5)),
+                fromGraph.stream().map(RecommendationResponse::getId).toList());
+        assertEquals(List.of(2, 1, 1), fromDb.stream().map(RecommendationResponse::getMutualCount).toList());
+        assertEquals(fromGraph, fromDb);
+        assertFalse(followGraph.isReady());
+    }
+}
@@ -0,0 +1,192 @@
+package ru.Edje_7.integration;
+
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.Edje_7.dto.CursorPage;
+import ru.Edje_7.dto.PostView;
+import ru.Edje_7.dto.request.PostRequest;
+import ru.Edje_7.dto.response.PostResponse;
+import ru.Edje_7.dto.response.SearchFacetsResponse;
+import ru.Edje_7.dto.response.SuggestionResponse;
+import ru.Edje_7.entity.User;
+import ru.Edje_7.repository.UserRepository;
+import ru.Edje_7.search.PostFacetIndex;
+import ru.Edje_7.search.SuggestIndex;
+import ru.Edje_7.search.TagBitmapIndex;
+import ru.Edje_7.search.UserTrigramIndex;
+import ru.Edje_7.service.PostService;
+import ru.Edje_7.service.SearchService;
+import ru.Edje_7.service.UserService;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Пока индексы в памяти не построены, поиск по тегам, фасеты, подсказки и поиск пользователей
+ * считаются запросами к БД и совпадают с результатами по индексам.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class SearchFallbackTest {
+
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TagBitmapIndex tagBitmapIndex;
+
+    @Autowired
+    private PostFacetIndex postFacetIndex;
+
+    @Autowired
+    private SuggestIndex suggestIndex;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserTrigramIndex userTrigramIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void restoreIndexes() {
+        ReflectionTestUtils.setField(tagBitmapIndex, "ready", true);
+        ReflectionTestUtils.setField(postFacetIndex, "ready", true);
+        ReflectionTestUtils.setField(suggestIndex, "ready", true);
+        ReflectionTestUtils.setField(userTrigramIndex, "ready", true);
+    }
+
+    @Test
+    void searchByTagsAndFacets_shouldMatchBitmapsBeforeIndexesAreBuilt() {
+        String prefix = "fallback" + System.nanoTime() % 1_000_000;
+        User author = new User();
+        author.setUsername(prefix + "-author");
+        author.setEmail(prefix + "@example.com");
+        author.setPasswordHash("hash");
+        author = userRepository.save(author);
+
+        String red = prefix + "red";
+        String blue = prefix + "blue";
+        String green = prefix + "green";
+        List<Set<String>> tags = List.of(Set.of(red), Set.of(red, blue), Set.of(red, green), Set.of(blue), Set.of(red));
+        for (int i = 0; i < tags.size(); i++) {
+            PostRequest request = new PostRequest();
+            request.setTitle(prefix + " post " + i);
+            request.setContent("Fallback content " + i);
+            request.setTags(tags.get(i));
+            Long postId = postService.createPost(request, author).getId();
+            jdbcTemplate.update("UPDATE posts SET published_at = ? WHERE id = ?",
+                    LocalDateTime.of(2024, 1 + i % 2, 10, 12, 0), postId);
+        }
+        // фасеты по месяцам читают дату публикации из карт, перестраиваем их с новыми датами
+        postFacetIndex.rebuild();
+
+        CursorPage<PostResponse> firstPage = searchService.searchByTags(
+                List.of(red), List.of(), List.of(green), null, 1, PostView.SUMMARY);
+        CursorPage<PostResponse> secondPage = searchService.searchByTags(
+                List.of(red), List.of(), List.of(green), firstPage.getNextCursor(), 2, PostView.SUMMARY);
+        SearchFacetsResponse facets = searchService.getSearchFacets(prefix, 10);
+
+        ReflectionTestUtils.setField(tagBitmapIndex, "ready", false);
+        ReflectionTestUtils.setField(postFacetIndex, "ready", false);
+
+        CursorPage<PostResponse> firstPageInDb = searchService.searchByTags(
+                List.of(red), List.of(), List.of(green), null, 1, PostView.SUMMARY);
+        CursorPage<PostResponse> secondPageInDb = searchService.searchByTags(
+                List.of(red), List.of(), List.of(green), firstPageInDb.getNextCursor(), 2, PostView.SUMMARY);
+        SearchFacetsResponse facetsInDb = searchService.getSearchFacets(prefix, 10);
+
+        assertFalse(tagBitmapIndex.isReady());
+        assertEquals(ids(firstPage), ids(firstPageInDb));
+        assertEquals(ids(secondPage), ids(secondPageInDb));
+        assertEquals(3, firstPageInDb.getTotalElements());
+        assertTrue(firstPageInDb.isHasNext());
+        assertFalse(secondPageInDb.isHasNext());
+        assertEquals(facets.getTags(), facetsInDb.getTags());
+        assertEquals(facets.getAuthors(), facetsInDb.getAuthors());
+        assertEquals(facets.getMonths(), facetsInDb.getMonths());
+        assertEquals(2, facetsInDb.getMonths().size());
+    }
+
+    @Test
+    void suggestions_shouldMatchIndexBeforeItIsBuilt() {
+        String prefix = "suggest" + System.nanoTime() % 1_000_000;
+        for (int i = 0; i < 3; i++) {
+            User user = new User();
+            user.setUsername(prefix + "_user" + i);
+            user.setEmail(prefix + i + "@example.com");
+            user.setPasswordHash("hash");
+            user.setFirstName("Suggest");
+            user.setLastName(prefix + "Last" + i);
+            user.setFollowerCount(i * 10);
+            userRepository.save(user);
+        }
+        suggestIndex.rebuild();
+
+        List<String> fromIndex = suggestIndex.suggestUsers(prefix, 10).stream().map(SuggestionResponse::getName).toList();
+        List<String> byLastName = suggestIndex.suggestUsers(prefix + "last1", 10).stream().map(SuggestionResponse::getName).toList();
+
+        ReflectionTestUtils.setField(suggestIndex, "ready", false);
+
+        assertEquals(List.of(prefix + "_user2", prefix + "_user1", prefix + "_user0"), fromIndex);
+        assertEquals(List.of(prefix + "_user1"), byLastName);
+        assertEquals(fromIndex, suggestIndex.suggestUsers(prefix, 10).stream().map(SuggestionResponse::getName).toList());
+        assertEquals(byLastName, suggestIndex.suggestUsers(prefix + "LAST1", 10).stream().map(SuggestionResponse::getName).toList());
+        // _ в префиксе — буква, а не шаблон LIKE
+        assertTrue(suggestIndex.suggestUsers(prefix + "xuser", 10).isEmpty());
+        assertEquals(1, suggestIndex.suggestUsers(prefix + "_user1", 10).size());
+    }
+
+    @Test
+    void userSearch_shouldFindSubstringsBeforeIndexIsBuilt() {
+        String prefix = "finder" + System.nanoTime() % 1_000_000;
+        for (int i = 0; i < 3; i++) {
+            User user = new User();
+            user.setUsername(prefix + "_user" + i);
+            user.setEmail(prefix + i + "@corp.io");
+            user.setPasswordHash("hash");
+            user.setLastName(prefix + "Last" + i);
+            userRepository.save(user);
+        }
+
+        userTrigramIndex.rebuild();
+        assertEquals(3, userService.countMatchingUsers(prefix, false));
+        assertEquals(userService.findMatchingUsers(prefix + "1@corp", true, PageRequest.of(0, 1)).getTotalElements(),
+                userService.countMatchingUsers(prefix + "1@corp", true));
+
+        ReflectionTestUtils.setField(userTrigramIndex, "ready", false);
+
+        assertEquals(3, userService.findMatchingUsers(prefix, false, PageRequest.of(0, 2)).getTotalElements());
+        assertEquals(3, userService.countMatchingUsers(prefix, false));
+        assertEquals(0, userService.countMatchingUsers(prefix + "1@corp", false));
+        assertEquals(1, userService.countMatchingUsers(prefix + "1@corp", true));
+        assertEquals(List.of(prefix + "_user1"), userService.findMatchingUsers(prefix + "LAST1", false, PageRequest.of(0, 10))
+                .getContent().stream().map(User::getUsername).toList());
+        assertTrue(userService.findMatchingUsers(prefix + "1@corp", false, PageRequest.of(0, 10)).getContent().isEmpty());
+        assertEquals(1, userService.findMatchingUsers(prefix + "1@corp", true, PageRequest.of(0, 10)).getContent().size());
+        // _ в запросе — буква, а не шаблон LIKE
+        assertTrue(userService.findMatchingUsers(prefix + "xuser", false, PageRequest.of(0, 10)).getContent().isEmpty());
+    }
+
+    private List<Long> ids(CursorPage<PostResponse> page) {
+        return page.getContent().stream().map(PostResponse::getId).toList();
+    }
+}
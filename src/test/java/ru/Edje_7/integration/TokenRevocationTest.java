@@ -0,0 +1,164 @@
+package ru.Edje_7.integration;
+
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import ru.Edje_7.dto.request.LoginRequest;
+import ru.Edje_7.dto.request.RefreshTokenRequest;
+import ru.Edje_7.dto.request.RegisterRequest;
+import ru.Edje_7.dto.response.AuthResponse;
+import ru.Edje_7.entity.RevokedToken;
+import ru.Edje_7.exceptions.UnauthorizedException;
+import ru.Edje_7.repository.RevokedTokenRepository;
+import ru.Edje_7.security.JwtAuthenticationFilter;
+import ru.Edje_7.security.JwtService;
+import ru.Edje_7.security.TokenRevocationStore;
+import ru.Edje_7.service.AdminService;
+import ru.Edje_7.service.AuthService;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JWT-фильтр восстанавливает пользователя из claims без запросов к БД,
+ * а блокировка, смена ролей, выход и повторный обмен refresh-токена делают
+ * выданные токены недействительными.
+ */
+// секрет тестового профиля слишком короткий для HS256
+@SpringBootTest(properties = "blog.jwt.secret=dGVzdC1zZWNyZXQta2V5LWZvci10b2tlbi1yZXZvY2F0aW9uLXRlc3Rz")
+@ActiveProfiles("test")
+class TokenRevocationTest {
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private AdminService adminService;
+
+    @Autowired
+    private JwtAuthenticationFilter jwtAuthenticationFilter;
+
+    @Autowired
+    private TokenRevocationStore tokenRevocationStore;
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private AuthResponse registered;
+
+    @BeforeEach
+    void setUp() {
+        String username = "token" + System.nanoTime() % 1_000_000;
+        RegisterRequest request = new RegisterRequest();
+        request.setUsername(username);
+        request.setEmail(username + "@example.com");
+        request.setPassword("password123");
+        registered = authService.register(request);
+        SecurityContextHolder.clearContext();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void filter_shouldAuthenticateFromClaimsWithoutStatements() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        Authentication authentication = authenticate(registered.getToken());
+
+        assertNotNull(authentication);
+        assertEquals(registered.getUser().getUsername(), authentication.getName());
+        assertTrue(authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .anyMatch("ROLE_USER"::equals));
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void banAndRoleChange_shouldRevokeIssuedTokens() throws Exception {
+        Long userId = registered.getUser().getId();
+
+        adminService.assignModeratorRole(userId);
+        assertNull(authenticate(registered.getToken()));
+
+        LoginRequest login = new LoginRequest();
+        login.setUsernameOrEmail(registered.getUser().getUsername());
+        login.setPassword("password123");
+        String token = authService.login(login).getToken();
+        assertTrue(authenticate(token).getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .anyMatch("ROLE_MODERATOR"::equals));
+
+        adminService.banUser(userId);
+        assertNull(authenticate(token));
+    }
+
+    @Test
+    void refresh_shouldRotateAndRevokeAllTokensOnReuse() throws Exception {
+        assertNull(authenticate(registered.getRefreshToken()));
+
+        AuthResponse refreshed = authService.refresh(refreshRequest(registered.getRefreshToken()));
+        assertNotNull(authenticate(refreshed.getToken()));
+
+        // старый refresh-токен уже обменян: повторное предъявление отзывает всё
+        assertThrows(UnauthorizedException.class,
+                () -> authService.refresh(refreshRequest(registered.getRefreshToken())));
+        assertNull(authenticate(refreshed.getToken()));
+        assertThrows(UnauthorizedException.class,
+                () -> authService.refresh(refreshRequest(refreshed.getRefreshToken())));
+    }
+
+    @Test
+    void logout_shouldRevokeAccessAndRefreshTokens() throws Exception {
+        authService.logout(refreshRequest(registered.getRefreshToken()), registered.getToken());
+
+        assertNull(authenticate(registered.getToken()));
+        tokenRevocationStore.rebuild();
+        assertNull(authenticate(registered.getToken()));
+        // в фильтр загружается только access-токен
+        List<String> filtered = revokedTokenRepository.findActiveJtis(RevokedToken.Type.ACCESS, LocalDateTime.now());
+        assertTrue(filtered.contains(jwtService.parseClaims(registered.getToken()).getId()));
+        assertFalse(filtered.contains(jwtService.parseClaims(registered.getRefreshToken()).getId()));
+        assertThrows(UnauthorizedException.class,
+                () -> authService.refresh(refreshRequest(registered.getRefreshToken())));
+    }
+
+    private static RefreshTokenRequest refreshRequest(String refreshToken) {
+        RefreshTokenRequest request = new RefreshTokenRequest();
+        request.setRefreshToken(refreshToken);
+        return request;
+    }
+
+    private Authentication authenticate(String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users/me");
+        request.addHeader("Authorization", "Bearer " + token);
+        jwtAuthenticationFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
@@ -0,0 +1,155 @@
+package ru.Edje_7.integration;
+
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import ru.Edje_7.dto.request.PostRequest;
+import ru.Edje_7.dto.response.PostResponse;
+import ru.Edje_7.entity.User;
+import ru.Edje_7.repository.UserRepository;
+import ru.Edje_7.service.PostService;
+import ru.Edje_7.service.UserCounterService;
+import ru.Edje_7.service.UserService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Счётчики подписчиков, подписок и постов обновляются вместе с данными,
+ * а список подписчиков не считает их запросами на каждого пользователя.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class UserCountersTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private UserCounterService userCounterService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final List<Long> followers = new ArrayList<>();
+
+    private User author;
+
+    @BeforeEach
+    void setUp() {
+        String prefix = "counters" + System.nanoTime() % 1_000_000;
+        author = userRepository.save(user(prefix + "-author"));
+        for (int i = 0; i < 6; i++) {
+            Long followerId = userRepository.save(user(prefix + "-follower" + i)).getId();
+            userService.followUser(followerId, author.getId());
+            followers.add(followerId);
+        }
+    }
+
+    @Test
+    void followAndPosts_shouldKeepCountersInSync() {
+        userService.unfollowUser(followers.get(0), author.getId());
+        userService.unfollowUser(followers.get(0), author.getId());
+        PostResponse post = postService.createPost(post(author.getUsername() + " first"), author);
+        postService.createPost(post(author.getUsername() + " second"), author);
+        postService.deletePost(post.getId(), author);
+
+        User reloaded = userRepository.findById(author.getId()).orElseThrow();
+        assertEquals(5, reloaded.getFollowerCount());
+        assertEquals(1, reloaded.getPostCount());
+        assertEquals(0, userRepository.findById(followers.get(0)).orElseThrow().getFollowingCount());
+        assertEquals(1, userRepository.findById(followers.get(1)).orElseThrow().getFollowingCount());
+    }
+
+    @Test
+    void followUsers_shouldInsertOnlyMissingSubscriptions() {
+        userService.followUser(followers.get(0), author.getId());
+        Long newcomer = userRepository.save(user(author.getUsername() + "-newcomer")).getId();
+
+        List<Long> followed = userService.followUsers(newcomer,
+                List.of(author.getId(), followers.get(0), newcomer, -1L, author.getId()));
+        List<Long> again = userService.followUsers(newcomer, List.of(author.getId(), followers.get(1)));
+
+        assertEquals(List.of(author.getId(), followers.get(0)), followed);
+        assertEquals(List.of(followers.get(1)), again);
+        assertEquals(7, userRepository.findById(author.getId()).orElseThrow().getFollowerCount());
+        assertEquals(3, userRepository.findById(newcomer).orElseThrow().getFollowingCount());
+        assertTrue(userService.isFollowing(newcomer, followers.get(1)));
+        assertEquals(0, userCounterService.repairAll());
+    }
+
+    @Test
+    void save_shouldNotOverwriteCountersWithStaleValues() {
+        // author загружен до подписок: в сущности всё ещё 0 подписчиков
+        author.setFirstName("Stale");
+        userRepository.save(author);
+
+        User reloaded = userRepository.findById(author.getId()).orElseThrow();
+        assertEquals("Stale", reloaded.getFirstName());
+        assertEquals(6, reloaded.getFollowerCount());
+    }
+
+    @Test
+    void repairAll_shouldFixDriftedCounters() {
+        jdbcTemplate.update("UPDATE users SET follower_count = 42, post_count = 7 WHERE id = ?", author.getId());
+
+        assertTrue(userCounterService.repairAll() >= 1);
+
+        User reloaded = userRepository.findById(author.getId()).orElseThrow();
+        assertEquals(6, reloaded.getFollowerCount());
+        assertEquals(0, reloaded.getPostCount());
+        assertEquals(0, userCounterService.repairAll());
+    }
+
+    @Test
+    void followers_shouldUseConstantNumberOfStatements() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+
+        statistics.clear();
+        userService.getFollowers(author.getId(), PageRequest.of(0, 2));
+        long small = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        userService.getFollowers(author.getId(), PageRequest.of(0, 6));
+        long large = statistics.getPrepareStatementCount();
+
+        assertTrue(large <= small, "Statement count must not grow with page size: " + small + " -> " + large);
+    }
+
+    private static User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPasswordHash("hash");
+        return user;
+    }
+
+    private static PostRequest post(String title) {
+        PostRequest request = new PostRequest();
+        request.setTitle(title);
+        request.setContent("Counters content");
+        request.setTags(Set.of("counters"));
+        return request;
+    }
+}
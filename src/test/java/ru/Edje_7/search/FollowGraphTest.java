@@ -0,0 +1,87 @@
+package ru.Edje_7.search;
+
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.Edje_7.event.FollowChangedEvent;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+
+class FollowGraphTest {
+
+    private FollowGraph graph;
+
+    @BeforeEach
+    void setUp() {
+        graph = new FollowGraph(mock(DataSource.class), mock(PlatformTransactionManager.class));
+        // 1 -> 2, 3; 2 -> 4, 5, 1; 3 -> 4, 6
+        graph.onFollowChanged(new FollowChangedEvent(1L, List.of(3L, 2L), true));
+        graph.onFollowChanged(new FollowChangedEvent(2L, List.of(5L, 4L, 1L), true));
+        graph.onFollowChanged(new FollowChangedEvent(3L, List.of(4L, 6L), true));
+    }
+
+    @Test
+    void friendsOfFriends_shouldCountMutualFollowsAndSkipSelfAndFollowed() {
+        assertArrayEquals(new int[]{2, 3}, graph.following(1L));
+        assertEquals(7, graph.edgeCount());
+
+        assertEquals(List.of(
+                new FollowGraph.Candidate(4L, 2),
+                new FollowGraph.Candidate(5L, 1),
+                new FollowGraph.Candidate(6L, 1)), graph.friendsOfFriends(1L, 10, 100));
+        assertEquals(List.of(new FollowGraph.Candidate(4L, 2)), graph.friendsOfFriends(1L, 1, 100));
+        // просмотрены только рёбра пользователя 2
+        assertEquals(List.of(
+                new FollowGraph.Candidate(4L, 1),
+                new FollowGraph.Candidate(5L, 1)), graph.friendsOfFriends(1L, 10, 3));
+    }
+
+    @Test
+    void unfollow_shouldRemoveEdgeAndKeepOldRowsUnchanged() {
+        int[] before = graph.following(2L);
+
+        graph.onFollowChanged(new FollowChangedEvent(1L, List.of(3L), false));
+        graph.unfollow(2L, 5L);
+        graph.unfollow(2L, 5L);
+
+        assertArrayEquals(new int[]{1, 4, 5}, before);
+        assertArrayEquals(new int[]{1, 4}, graph.following(2L));
+        assertFalse(graph.follows(1L, 3L));
+        assertEquals(List.of(new FollowGraph.Candidate(4L, 1)), graph.friendsOfFriends(1L, 10, 100));
+        assertEquals(5, graph.edgeCount());
+    }
+
+    @Test
+    void rebuild_shouldReplayFollowChangesMadeWhileLoading() {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:follow-graph-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE subscriptions (subscriber_id BIGINT, author_id BIGINT)");
+        jdbcTemplate.update("INSERT INTO subscriptions VALUES (1, 2), (1, 3), (2, 4)");
+
+        FollowGraph loading = spy(new FollowGraph(dataSource, new DataSourceTransactionManager(dataSource)));
+        doAnswer(invocation -> {
+            // подписка и отписка записаны в БД после того, как снимок рёбер прочитан
+            FollowGraph.RowsBuilder edges = (FollowGraph.RowsBuilder) invocation.callRealMethod();
+            loading.onFollowChanged(new FollowChangedEvent(2L, List.of(5L), true));
+            loading.onFollowChanged(new FollowChangedEvent(1L, List.of(3L), false));
+            return edges;
+        }).when(loading).loadEdges();
+
+        loading.rebuild();
+
+        assertTrue(loading.isReady());
+        assertArrayEquals(new int[]{2}, loading.following(1L));
+        assertArrayEquals(new int[]{4, 5}, loading.following(2L));
+        assertEquals(3, loading.edgeCount());
+    }
+}
@@ -0,0 +1,107 @@
+package ru.Edje_7.search;
+
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.roaringbitmap.RoaringBitmap;
+import ru.Edje_7.event.PostChangedEvent;
+import ru.Edje_7.repository.PostRepository;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PostFacetIndexTest {
+
+    private static final LocalDateTime SEPTEMBER = LocalDateTime.of(2026, 9, 10, 12, 0);
+    private static final LocalDateTime OCTOBER = LocalDateTime.of(2026, 10, 1, 9, 0);
+
+    @Mock
+    private PostRepository postRepository;
+
+    private PostFacetIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new PostFacetIndex(postRepository);
+        when(postRepository.findAllPublishedFacetKeys()).thenReturn(List.of(
+                key(1L, 10L, SEPTEMBER),
+                key(2L, 10L, OCTOBER),
+                key(3L, 20L, OCTOBER)));
+        index.rebuild();
+    }
+
+    @Test
+    void count_shouldAggregateOnlyGivenPosts() {
+        RoaringBitmap posts = RoaringBitmap.bitmapOf(1, 2, 3, 42);
+
+        assertEquals(Map.of(10L, 2L, 20L, 1L), index.countByAuthor(posts, 10));
+        assertEquals(List.of(10L), List.copyOf(index.countByAuthor(posts, 1).keySet()));
+        assertEquals(List.of(YearMonth.of(2026, 10), YearMonth.of(2026, 9)),
+                List.copyOf(index.countByMonth(posts).keySet()));
+        assertEquals(Map.of(YearMonth.of(2026, 10), 1L), index.countByMonth(RoaringBitmap.bitmapOf(3)));
+    }
+
+    @Test
+    void onPostChanged_shouldMoveAndDropPosts() {
+        when(postRepository.findPublishedFacetKey(1L)).thenReturn(Optional.of(key(1L, 20L, OCTOBER)));
+
+        index.onPostChanged(new PostChangedEvent(1L, PostChangedEvent.Type.SAVED, true, OCTOBER, SEPTEMBER,
+                Set.of(), Set.of()));
+        index.onPostChanged(new PostChangedEvent(2L, PostChangedEvent.Type.DELETED, false, null, OCTOBER,
+                Set.of(), Set.of()));
+
+        RoaringBitmap all = RoaringBitmap.bitmapOf(1, 2, 3);
+        assertEquals(Map.of(20L, 2L), index.countByAuthor(all, 10));
+        assertEquals(Map.of(YearMonth.of(2026, 10), 2L), index.countByMonth(all));
+    }
+
+    @Test
+    void rebuild_shouldRereadPostsChangedWhileLoading() {
+        when(postRepository.findPublishedFacetKey(3L)).thenReturn(Optional.of(key(3L, 10L, SEPTEMBER)));
+        when(postRepository.findAllPublishedFacetKeys()).thenAnswer(invocation -> {
+            // пост 3 сменил автора после чтения, пост 2 снят с публикации
+            index.onPostChanged(new PostChangedEvent(3L, PostChangedEvent.Type.SAVED, true, SEPTEMBER, SEPTEMBER,
+                    Set.of(), Set.of()));
+            index.onPostChanged(new PostChangedEvent(2L, PostChangedEvent.Type.SAVED, false, null, OCTOBER,
+                    Set.of(), Set.of()));
+            return List.of(key(1L, 10L, SEPTEMBER), key(2L, 10L, OCTOBER), key(3L, 20L, OCTOBER));
+        });
+        when(postRepository.findPublishedFacetKey(2L)).thenReturn(Optional.empty());
+
+        index.rebuild();
+
+        RoaringBitmap all = RoaringBitmap.bitmapOf(1, 2, 3);
+        assertEquals(Map.of(10L, 2L), index.countByAuthor(all, 10));
+        assertEquals(Map.of(YearMonth.of(2026, 9), 2L), index.countByMonth(all));
+    }
+
+    private PostRepository.PostFacetKey key(Long id, Long authorId, LocalDateTime publishedAt) {
+        return new PostRepository.PostFacetKey() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Long getAuthorId() {
+                return authorId;
+            }
+
+            @Override
+            public LocalDateTime getPublishedAt() {
+                return publishedAt;
+            }
+        };
+    }
+}
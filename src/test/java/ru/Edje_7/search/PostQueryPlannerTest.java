@@ -0,0 +1,124 @@
+package ru.Edje_7.search;
+
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.data.domain.Sort;
+import ru.Edje_7.dto.request.PostFilter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PostQueryPlannerTest {
+
+    @Mock
+    private PostSearchIndex postSearchIndex;
+
+    @Mock
+    private TagBitmapIndex tagBitmapIndex;
+
+    @InjectMocks
+    private PostQueryPlanner planner;
+
+    @Test
+    void plan_shouldIntersectTextAndTagInMemoryAndKeepRelevanceOrder() {
+        when(postSearchIndex.isReady()).thenReturn(true);
+        when(postSearchIndex.search(eq("spring"), eq(0L), anyInt()))
+                .thenReturn(new PostSearchIndex.Hits(List.of(5L, 2L, 9L), 3));
+        when(tagBitmapIndex.isReady()).thenReturn(true);
+        when(tagBitmapIndex.query(eq(List.of(7L)), eq(List.of()), eq(List.of()), anyLong(), anyInt()))
+                .thenReturn(new TagBitmapIndex.Result(List.of(9L, 5L), 2, false));
+
+        PostFilter filter = new PostFilter();
+        filter.setQuery("spring");
+        filter.setTagId(7L);
+        filter.setMinViews(10);
+
+        PostQueryPlanner.Plan plan = planner.plan(filter, Sort.unsorted(), LocalDateTime.now());
+
+        assertEquals(List.of(5L, 9L), plan.rankedIds());
+        assertFalse(plan.empty());
+        assertNotNull(plan.filter());
+        assertFalse(plan.explain().contains("EXISTS"));
+        assertTrue(plan.explain().contains("view_count"));
+    }
+
+    @Test
+    void plan_shouldPushLargeTagToSqlAndSortByPublication() {
+        when(tagBitmapIndex.isReady()).thenReturn(true);
+        when(tagBitmapIndex.query(eq(List.of(7L)), eq(List.of()), eq(List.of()), anyLong(), anyInt()))
+                .thenReturn(new TagBitmapIndex.Result(List.of(), 5000, true));
+
+        PostFilter filter = new PostFilter();
+        filter.setTagId(7L);
+        filter.setAuthorId(1L);
+
+        PostQueryPlanner.Plan plan = planner.plan(filter, Sort.unsorted(), LocalDateTime.now());
+
+        assertNull(plan.rankedIds());
+        assertEquals(Sort.by(Sort.Order.desc("publishedAt"), Sort.Order.desc("id")), plan.sort());
+        assertTrue(plan.explain().indexOf("author_id") < plan.explain().indexOf("EXISTS"));
+    }
+
+    @Test
+    void plan_shouldFilterBroadTextInMemoryInsteadOfLike() {
+        long total = PostQueryPlanner.MAX_DRIVING_IDS + 1;
+        when(postSearchIndex.isReady()).thenReturn(true);
+        when(postSearchIndex.search(eq("spring boot"), eq(0L), anyInt())).thenAnswer(invocation ->
+                invocation.getArgument(2, Integer.class) >= total
+                        ? new PostSearchIndex.Hits(List.of(9L, 5L, 2L), total)
+                        : new PostSearchIndex.Hits(List.of(9L), total));
+        when(postSearchIndex.matchingIds("spring boot")).thenReturn(RoaringBitmap.bitmapOf(2, 5, 9));
+
+        PostFilter filter = new PostFilter();
+        filter.setQuery("spring boot");
+
+        PostQueryPlanner.Plan ranked = planner.plan(filter, Sort.unsorted(), LocalDateTime.now());
+        PostQueryPlanner.Plan sorted = planner.plan(filter, Sort.by(Sort.Order.desc("publishedAt")), LocalDateTime.now());
+
+        // без сортировки — все совпадения по релевантности, а не первые MAX_DRIVING_IDS
+        assertEquals(List.of(9L, 5L, 2L), ranked.rankedIds());
+        assertNull(ranked.textIds());
+        assertNull(sorted.rankedIds());
+        assertEquals(RoaringBitmap.bitmapOf(2, 5, 9), sorted.textIds());
+        for (PostQueryPlanner.Plan plan : List.of(ranked, sorted)) {
+            assertFalse(plan.explain().contains("id IN"));
+            assertFalse(plan.explain().contains("LIKE"));
+        }
+    }
+
+    @Test
+    void plan_shouldUseLikeOnlyWhileIndexIsBuilding() {
+        PostFilter filter = new PostFilter();
+        filter.setQuery("spring");
+
+        PostQueryPlanner.Plan plan = planner.plan(filter, Sort.unsorted(), LocalDateTime.now());
+
+        assertNull(plan.rankedIds());
+        assertNull(plan.textIds());
+        assertTrue(plan.explain().contains("LIKE"));
+    }
+
+    @Test
+    void plan_shouldRejectUnknownSortAndInvertedRange() {
+        PostFilter filter = new PostFilter();
+        assertThrows(IllegalArgumentException.class,
+                () -> planner.plan(filter, Sort.by("content"), LocalDateTime.now()));
+
+        filter.setFrom(LocalDateTime.now());
+        filter.setTo(LocalDateTime.now().minusDays(1));
+        assertThrows(IllegalArgumentException.class,
+                () -> planner.plan(filter, Sort.unsorted(), LocalDateTime.now()));
+    }
+}
@@ -0,0 +1,156 @@
+package ru.Edje_7.search;
+
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import ru.Edje_7.config.SearchProperties;
+import ru.Edje_7.repository.PostRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PostSearchIndexTest {
+
+    @Mock
+    private PostRepository postRepository;
+
+    @TempDir
+    private Path indexDir;
+
+    private SearchProperties properties;
+
+    private PostSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        properties = new SearchProperties();
+        properties.setIndexDir(indexDir);
+        index = new PostSearchIndex(postRepository, properties);
+    }
+
+    @Test
+    void search_shouldMatchStemmedEnglishAndRussianWords() {
+        rebuildWith(
+                text(1L, "Running Spring Boot", "Connections and caching"),
+                text(2L, "Кэширование в Spring", "Настройка кэшей и соединений"));
+
+        assertEquals(List.of(1L), index.search("run", 0, 10).postIds());
+        assertEquals(List.of(1L), index.search("connected", 0, 10).postIds());
+        assertEquals(List.of(2L), index.search("кэширования", 0, 10).postIds());
+        assertEquals(List.of(2L), index.search("соединения", 0, 10).postIds());
+        assertEquals(2, index.search("spring", 0, 10).total());
+    }
+
+    @Test
+    void search_shouldRankTitleMatchesAndRareTermsHigher() {
+        rebuildWith(
+                text(1L, "Notes", "java java java streams"),
+                text(2L, "Java streams", "A short note"),
+                text(3L, "Kotlin", "Something unrelated"));
+
+        PostSearchIndex.Hits hits = index.search("java streams", 0, 1);
+
+        assertEquals(List.of(2L), hits.postIds());
+        assertEquals(2, hits.total());
+    }
+
+    @Test
+    void index_shouldApplyUpdatesAndDeletesOnTopOfSegment() {
+        rebuildWith(text(1L, "Spring tips", "Old body"), text(2L, "Java tips", "Body"));
+
+        index.index(text(1L, "Kotlin tips", "New body"), Map.of(1L, List.of("jvm")));
+        index.remove(2L);
+
+        assertTrue(index.search("spring", 0, 10).postIds().isEmpty());
+        assertEquals(List.of(1L), index.search("kotlin", 0, 10).postIds());
+        assertEquals(List.of(1L), index.search("jvm", 0, 10).postIds());
+        assertEquals(List.of(1L), index.search("tips", 0, 10).postIds());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void mergeIfNeeded_shouldWriteBufferAsNewSegment() throws IOException {
+        rebuildWith(text(1L, "Spring tips", "Body"));
+        index.index(text(2L, "Java tips", "Body"), Map.of());
+
+        index.mergeIfNeeded();
+
+        assertEquals(List.of("segment-000001.idx", "segment-000002.idx"), segmentFiles());
+        assertEquals(List.of(2L, 1L), index.search("tips", 0, 10).postIds());
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void mergeIfNeeded_shouldMergeFullTierWithoutDeletedDocuments() throws IOException {
+        properties.setSegmentsPerTier(3);
+        rebuildWith(text(1L, "Spring tips", "Body"), text(2L, "Java tips", "Body"));
+        index.index(text(3L, "Kotlin tips", "Body"), Map.of());
+        index.mergeIfNeeded();
+        index.index(text(4L, "Scala tips", "Body"), Map.of());
+        index.remove(2L);
+
+        index.mergeIfNeeded();
+
+        assertEquals(List.of("segment-000004.idx"), segmentFiles());
+        assertEquals(1, index.segmentCount());
+        assertEquals(List.of(4L, 3L, 1L), index.search("tips", 0, 10).postIds());
+        assertEquals(List.of(1L), index.search("spring", 0, 10).postIds());
+        assertTrue(index.search("java", 0, 10).postIds().isEmpty());
+        assertEquals(3, index.size());
+    }
+
+    private void rebuildWith(PostRepository.PostText... texts) {
+        when(postRepository.findPublishedTextsAfter(eq(0L), any(Limit.class))).thenReturn(List.of(texts));
+        when(postRepository.findPublishedTextsAfter(eq(texts[texts.length - 1].getId()), any(Limit.class)))
+                .thenReturn(List.of());
+        when(postRepository.findTagNamesByPostIds(anyList())).thenReturn(List.of());
+        index.rebuild();
+        assertTrue(index.isReady());
+    }
+
+    private List<String> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(indexDir)) {
+            return files.map(file -> file.getFileName().toString()).sorted().toList();
+        }
+    }
+
+    private PostRepository.PostText text(Long id, String title, String content) {
+        return new PostRepository.PostText() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getTitle() {
+                return title;
+            }
+
+            @Override
+            public String getExcerpt() {
+                return null;
+            }
+
+            @Override
+            public String getContent() {
+                return content;
+            }
+        };
+    }
+}
@@ -0,0 +1,86 @@
+package ru.Edje_7.search;
+
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrefixIndexTest {
+
+    @Test
+    void suggest_shouldReturnHeaviestMatchesForPrefixOnce() {
+        PrefixIndex<String> index = new PrefixIndex<>(100);
+        index.rebuild(List.of(
+                entry(1, 5, "java"),
+                entry(2, 50, "javascript"),
+                entry(3, 20, "jvm", "java virtual machine"),
+                entry(4, 100, "kotlin"),
+                entry(5, 1, "Ёлка")));
+
+        assertEquals(List.of("javascript", "jvm", "java"), index.suggest("j", 10));
+        assertEquals(List.of("javascript", "jvm"), index.suggest("JAVA", 2));
+        assertEquals(List.of("kotlin"), index.suggest("  ko ", 10));
+        assertEquals(List.of("Ёлка"), index.suggest("ел", 10));
+        assertTrue(index.suggest("x", 10).isEmpty());
+        assertTrue(index.suggest("", 10).isEmpty());
+    }
+
+    @Test
+    void putAndRemove_shouldApplyOnTopOfSnapshotAndAfterCompaction() {
+        PrefixIndex<String> index = new PrefixIndex<>(2);
+        index.rebuild(List.of(entry(1, 5, "spring"), entry(2, 3, "sql")));
+
+        index.put(entry(1, 5, "summer"));
+        index.put(entry(3, 10, "scala"));
+        assertEquals(List.of("scala", "summer", "sql"), index.suggest("s", 10));
+        assertEquals(List.of(), index.suggest("spr", 10));
+
+        index.compactIfNeeded();
+        assertEquals(List.of("scala", "summer", "sql"), index.suggest("s", 10));
+
+        // третье изменение превышает maxPending, и слияние перестраивает снимок
+        index.remove(2);
+        assertEquals(List.of("scala", "summer"), index.suggest("s", 10));
+        index.compactIfNeeded();
+        assertEquals(List.of("scala", "summer"), index.suggest("s", 10));
+        assertEquals(List.of(), index.suggest("spr", 10));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void rebuild_shouldKeepChangesMadeWhileLoading() {
+        PrefixIndex<String> index = new PrefixIndex<>(100);
+        index.rebuild(List.of(entry(1, 5, "spring"), entry(2, 3, "sql")));
+
+        index.rebuild(() -> {
+            // изменения, пришедшие после чтения БД, но до подмены снимка
+            index.put(entry(3, 10, "scala"));
+            index.remove(2);
+            return List.of(entry(1, 5, "spring"), entry(2, 3, "sql"));
+        });
+
+        assertEquals(List.of("scala", "spring"), index.suggest("s", 10));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void suggest_shouldPickTopWeightsFromLargeRange() {
+        List<PrefixIndex.Entry<String>> entries = new ArrayList<>();
+        IntStream.range(0, 10_000).forEach(i -> entries.add(entry(i, i % 997, "user" + i)));
+        PrefixIndex<String> index = new PrefixIndex<>(100);
+        index.rebuild(entries);
+
+        List<String> top = index.suggest("user", 3);
+
+        // вес 996 у user996, user1993, user2990, ...; при равном весе — по алфавиту
+        assertEquals(List.of("user1993", "user2990", "user3987"), top);
+    }
+
+    private static PrefixIndex.Entry<String> entry(long id, long weight, String... keys) {
+        return new PrefixIndex.Entry<>(id, List.of(keys), weight, keys[0]);
+    }
+}
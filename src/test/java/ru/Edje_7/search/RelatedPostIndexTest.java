@@ -0,0 +1,130 @@
+package ru.Edje_7.search;
+
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import ru.Edje_7.config.RelatedProperties;
+import ru.Edje_7.event.PostChangedEvent;
+import ru.Edje_7.repository.PostRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RelatedPostIndexTest {
+
+    @Mock
+    private PostRepository postRepository;
+
+    private RelatedPostIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new RelatedPostIndex(postRepository, new RelatedProperties());
+    }
+
+    @Test
+    void findRelated_shouldRankBySharedTagsAndShingles() {
+        save(1L, "Spring Boot caching with Caffeine", "Configure a cache manager and cache eviction", 1L, 2L);
+        save(2L, "Caching with Caffeine in Spring Boot", "Configure a cache manager for hot entities", 1L, 2L);
+        save(3L, "Spring Boot security", "JWT filters and password encoders", 1L, 2L);
+        save(4L, "Sourdough bread", "Flour, water and patience", 4L);
+
+        List<Long> related = index.findRelated(1L, 10);
+
+        assertEquals(2L, related.get(0));
+        assertTrue(related.contains(3L));
+        assertFalse(related.contains(4L));
+        assertFalse(related.contains(1L));
+    }
+
+    @Test
+    void findRelated_shouldCapCandidatesFromCommonTagBuckets() {
+        RelatedProperties properties = new RelatedProperties();
+        properties.setMaxBucketCandidates(3);
+        index = new RelatedPostIndex(postRepository, properties);
+        String[] topics = {"kafka", "redis", "docker", "gradle", "hibernate", "kotlin", "nginx", "lucene"};
+        save(1L, "Spring Boot caching with Caffeine", "Configure a cache manager and cache eviction", 1L);
+        for (int i = 0; i < topics.length; i++) {
+            save(i + 2L, topics[i] + " notes", topics[i] + " " + topics[i] + " notes", 1L);
+        }
+        save(20L, "Spring Boot caching with Caffeine", "Configure a cache manager and cache eviction", 1L);
+
+        // из корзин тега — только три самых новых поста, похожий по тексту пост находится по полосам текста
+        assertEquals(List.of(1L, 9L, 8L, 7L), index.findRelated(20L, 10));
+    }
+
+    @Test
+    void onPostChanged_shouldDropUnpublishedPosts() {
+        save(1L, "Spring Boot caching", "Cache manager", 1L);
+        save(2L, "Spring Boot caching", "Cache manager", 1L);
+
+        index.onPostChanged(new PostChangedEvent(2L, PostChangedEvent.Type.SAVED, false, null,
+                LocalDateTime.now(), Set.of(1L), Set.of(1L)));
+
+        assertFalse(index.contains(2L));
+        assertTrue(index.findRelated(1L, 10).isEmpty());
+    }
+
+    @Test
+    void rebuild_shouldKeepChangesMadeDuringLoad() {
+        PostRepository.PostText first = text(1L, "Spring Boot caching", "Cache manager");
+        when(postRepository.findPublishedTextsAfter(eq(0L), any(Limit.class))).thenAnswer(invocation -> {
+            // пост опубликован, пока перестройка читает БД
+            save(2L, "Spring Boot caching", "Cache manager", 1L);
+            return List.of(first);
+        });
+        when(postRepository.findPublishedTextsAfter(eq(1L), any(Limit.class))).thenReturn(List.of());
+        when(postRepository.findTagLinksByPostIds(anyList())).thenReturn(List.of());
+
+        index.rebuild();
+
+        assertTrue(index.isReady());
+        assertTrue(index.contains(1L));
+        assertTrue(index.contains(2L));
+        assertEquals(List.of(1L), index.findRelated(2L, 10));
+    }
+
+    private void save(Long id, String title, String content, Long... tagIds) {
+        when(postRepository.findPublishedText(id)).thenReturn(Optional.of(text(id, title, content)));
+        LocalDateTime now = LocalDateTime.now();
+        index.onPostChanged(new PostChangedEvent(id, PostChangedEvent.Type.SAVED, true, now, now,
+                Set.of(tagIds), Set.of()));
+    }
+
+    private PostRepository.PostText text(Long id, String title, String content) {
+        return new PostRepository.PostText() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getTitle() {
+                return title;
+            }
+
+            @Override
+            public String getExcerpt() {
+                return null;
+            }
+
+            @Override
+            public String getContent() {
+                return content;
+            }
+        };
+    }
+}
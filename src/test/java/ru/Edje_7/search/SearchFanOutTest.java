@@ -0,0 +1,105 @@
+package ru.Edje_7.search;
+
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import ru.Edje_7.config.SearchProperties;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class SearchFanOutTest {
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SearchFanOut fanOut;
+
+    @BeforeEach
+    void setUp() {
+        SearchProperties properties = new SearchProperties();
+        properties.setGlobalSearchTimeout(Duration.ofMillis(200));
+        properties.setFanOutThreads(2);
+        properties.setFanOutQueueCapacity(1);
+        fanOut = new SearchFanOut(properties, transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        fanOut.shutdown();
+    }
+
+    @Test
+    void await_shouldReturnFastBranchAndDropSlowOneAtDeadline() {
+        CountDownLatch never = new CountDownLatch(1);
+        long deadline = fanOut.deadline();
+        Future<String> fast = fanOut.submit(() -> "posts", deadline);
+        Future<String> slow = fanOut.submit(() -> {
+            try {
+                never.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "users";
+        }, deadline);
+
+        long started = System.nanoTime();
+        assertEquals(Optional.of("posts"), fanOut.await(fast, deadline, "posts"));
+        assertEquals(Optional.empty(), fanOut.await(slow, deadline, "users"));
+        assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(2));
+        assertTrue(slow.isCancelled());
+    }
+
+    @Test
+    void submit_shouldLimitBranchTransactionToRemainingTime() throws Exception {
+        fanOut.submit(() -> "posts", System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(1500)).get();
+
+        ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager).getTransaction(definition.capture());
+        assertTrue(definition.getValue().isReadOnly());
+        assertEquals(3, definition.getValue().getTimeout());
+    }
+
+    @Test
+    void submit_shouldSkipBranchQueuedPastDeadline() {
+        Future<String> late = fanOut.submit(() -> "posts", System.nanoTime() - 1);
+
+        assertEquals(Optional.empty(), fanOut.await(late, fanOut.deadline(), "posts"));
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    void submit_shouldFailBranchWhenPoolIsSaturated() {
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 3; i++) {
+            fanOut.submit(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }, fanOut.deadline());
+        }
+
+        Future<String> rejected = fanOut.submit(() -> "late", fanOut.deadline());
+
+        assertEquals(Optional.empty(), fanOut.await(rejected, fanOut.deadline(), "posts"));
+        release.countDown();
+    }
+}
@@ -0,0 +1,112 @@
+package ru.Edje_7.search;
+
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.Edje_7.event.PostChangedEvent;
+import ru.Edje_7.repository.PostRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TagBitmapIndexTest {
+
+    private static final long JAVA = 1L;
+    private static final long SPRING = 2L;
+    private static final long KOTLIN = 3L;
+
+    @Mock
+    private PostRepository postRepository;
+
+    private TagBitmapIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new TagBitmapIndex(postRepository);
+        when(postRepository.findAllTagLinks()).thenReturn(List.of(
+                link(1L, JAVA), link(1L, SPRING),
+                link(2L, JAVA),
+                link(3L, KOTLIN), link(3L, SPRING),
+                link(4L, JAVA), link(4L, SPRING)));
+        // пост 4 — черновик
+        when(postRepository.findAllPublishedIds()).thenReturn(List.of(1L, 2L, 3L));
+        index.rebuild();
+    }
+
+    @Test
+    void query_shouldCombineAndOrNot() {
+        assertEquals(List.of(1L), index.query(List.of(JAVA, SPRING), List.of(), List.of(), Long.MAX_VALUE, 10).postIds());
+        assertEquals(List.of(3L, 2L, 1L), index.query(List.of(), List.of(JAVA, KOTLIN), List.of(), Long.MAX_VALUE, 10).postIds());
+        assertEquals(List.of(2L), index.query(List.of(JAVA), List.of(), List.of(SPRING), Long.MAX_VALUE, 10).postIds());
+        assertEquals(List.of(3L), index.query(List.of(), List.of(), List.of(JAVA), Long.MAX_VALUE, 10).postIds());
+    }
+
+    @Test
+    void query_shouldPageByDescendingIdAndKeepTotal() {
+        TagBitmapIndex.Result first = index.query(List.of(), List.of(), List.of(), Long.MAX_VALUE, 2);
+        TagBitmapIndex.Result second = index.query(List.of(), List.of(), List.of(), first.postIds().get(1), 2);
+
+        assertEquals(List.of(3L, 2L), first.postIds());
+        assertTrue(first.hasMore());
+        assertEquals(List.of(1L), second.postIds());
+        assertFalse(second.hasMore());
+        assertEquals(3, second.total());
+    }
+
+    @Test
+    void onPostChanged_shouldApplyTagDiffAndPublication() {
+        LocalDateTime now = LocalDateTime.now();
+        index.onPostChanged(new PostChangedEvent(2L, PostChangedEvent.Type.SAVED, true, now, now,
+                Set.of(KOTLIN), Set.of(JAVA)));
+        index.onPostChanged(new PostChangedEvent(4L, PostChangedEvent.Type.SAVED, true, now, now,
+                Set.of(JAVA, SPRING), Set.of(JAVA, SPRING)));
+        index.onPostChanged(new PostChangedEvent(1L, PostChangedEvent.Type.DELETED, false, null, now,
+                Set.of(), Set.of(JAVA, SPRING)));
+
+        assertEquals(List.of(4L), index.query(List.of(JAVA), List.of(), List.of(), Long.MAX_VALUE, 10).postIds());
+        assertEquals(List.of(3L, 2L), index.query(List.of(KOTLIN), List.of(), List.of(), Long.MAX_VALUE, 10).postIds());
+    }
+
+    @Test
+    void rebuild_shouldReplayChangesMadeWhileLoading() {
+        LocalDateTime now = LocalDateTime.now();
+        when(postRepository.findAllTagLinks()).thenAnswer(invocation -> {
+            // пост 2 перетегирован после чтения связей, пост 5 опубликован после чтения id
+            index.onPostChanged(new PostChangedEvent(2L, PostChangedEvent.Type.SAVED, true, now, now,
+                    Set.of(KOTLIN), Set.of(JAVA)));
+            return List.of(link(1L, JAVA), link(2L, JAVA), link(3L, KOTLIN));
+        });
+        when(postRepository.findAllPublishedIds()).thenAnswer(invocation -> {
+            index.onPostChanged(new PostChangedEvent(5L, PostChangedEvent.Type.SAVED, true, now, now,
+                    Set.of(JAVA), Set.of()));
+            return List.of(1L, 2L, 3L);
+        });
+
+        index.rebuild();
+
+        assertEquals(List.of(5L, 1L), index.query(List.of(JAVA), List.of(), List.of(), Long.MAX_VALUE, 10).postIds());
+        assertEquals(List.of(3L, 2L), index.query(List.of(KOTLIN), List.of(), List.of(), Long.MAX_VALUE, 10).postIds());
+    }
+
+    private PostRepository.PostTagLink link(Long postId, Long tagId) {
+        return new PostRepository.PostTagLink() {
+            @Override
+            public Long getPostId() {
+                return postId;
+            }
+
+            @Override
+            public Long getTagId() {
+                return tagId;
+            }
+        };
+    }
+}
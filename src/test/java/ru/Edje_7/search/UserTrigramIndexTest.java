@@ -0,0 +1,121 @@
+package ru.Edje_7.search;
+
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.Edje_7.config.DatabasePlatform;
+import ru.Edje_7.config.SearchProperties;
+import ru.Edje_7.event.UserChangedEvent;
+import ru.Edje_7.repository.UserRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserTrigramIndexTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private DatabasePlatform databasePlatform;
+
+    private UserTrigramIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new UserTrigramIndex(userRepository, new SearchProperties(), databasePlatform);
+        when(userRepository.findAllSearchKeys()).thenReturn(List.of(
+                key(1L, "alice", "alice@example.com", "Alice", "Johansson"),
+                key(2L, "bob", "bob@corp.io", "Bob", "Alison"),
+                key(3L, "carol", "carol@example.com", null, null)));
+        index.rebuild();
+    }
+
+    @Test
+    void search_shouldMatchSubstringsAndTyposRankedBySimilarity() {
+        assertEquals(List.of(1L, 2L), index.search("ali", false));
+        assertEquals(List.of(1L), index.search("johans", false));
+        assertEquals(List.of(1L), index.search("JOHANSON", false));
+        assertEquals(List.of(3L), index.search("ro", false));
+        assertTrue(index.search("zzz", false).isEmpty());
+    }
+
+    @Test
+    void search_shouldUseEmailOnlyWhenAllowedAndFollowUserChanges() {
+        assertTrue(index.search("corp.io", false).isEmpty());
+        assertEquals(List.of(2L), index.search("corp.io", true));
+        assertEquals(List.of(2L), index.search("alison", false));
+
+        when(userRepository.findSearchKey(2L)).thenReturn(Optional.of(key(2L, "robert", "bob@corp.io", "Bob", null)));
+        when(userRepository.findSearchKey(3L)).thenReturn(Optional.empty());
+        index.onUserChanged(new UserChangedEvent(2L));
+        index.onUserChanged(new UserChangedEvent(3L));
+
+        assertTrue(index.search("alison", false).isEmpty());
+        assertEquals(List.of(2L), index.search("ro", false));
+    }
+
+    @Test
+    void rebuild_shouldKeepChangesMadeWhileLoading() {
+        when(userRepository.findAllSearchKeys()).thenAnswer(invocation -> {
+            // пользователь переименован, пока загружается старый снимок
+            index.onUserChanged(new UserChangedEvent(3L));
+            return List.of(key(3L, "carol", "carol@example.com", null, null));
+        });
+        when(userRepository.findSearchKey(3L)).thenReturn(Optional.of(key(3L, "caroline", "carol@example.com", null, null)));
+
+        index.rebuild();
+
+        assertEquals(List.of(3L), index.search("caroline", false));
+    }
+
+    @Test
+    void onApplicationReady_shouldNotBuildIndexOnPostgres() {
+        UserTrigramIndex postgresIndex = new UserTrigramIndex(userRepository, new SearchProperties(), databasePlatform);
+        when(databasePlatform.isPostgres()).thenReturn(true);
+
+        postgresIndex.onApplicationReady();
+        postgresIndex.onUserChanged(new UserChangedEvent(1L));
+
+        assertFalse(postgresIndex.isReady());
+        verify(userRepository, never()).findSearchKey(1L);
+    }
+
+    private UserRepository.UserSearchKey key(Long id, String username, String email, String firstName, String lastName) {
+        return new UserRepository.UserSearchKey() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getUsername() {
+                return username;
+            }
+
+            @Override
+            public String getEmail() {
+                return email;
+            }
+
+            @Override
+            public String getFirstName() {
+                return firstName;
+            }
+
+            @Override
+            public String getLastName() {
+                return lastName;
+            }
+        };
+    }
+}
@@ -0,0 +1,78 @@
+package ru.Edje_7.security;
+
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import ru.Edje_7.config.PasswordHashingProperties;
+import ru.Edje_7.exceptions.ServiceUnavailableException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedPasswordEncoderTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(new BlockingEncoder(),
+            properties(), meterRegistry);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        encoder.destroy();
+    }
+
+    @Test
+    void saturatedPool_shouldRejectImmediately() throws Exception {
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("first"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("second"));
+        while (meterRegistry.get("blog.password.hash.queued").gauge().value() < 1) {
+            Thread.onSpinWait();
+        }
+
+        ServiceUnavailableException busy = assertThrows(ServiceUnavailableException.class,
+                () -> encoder.matches("third", "{hash}third"));
+        assertEquals(1, busy.getRetryAfterSeconds());
+        assertEquals(1.0, meterRegistry.get("blog.password.hash.rejected").counter().count());
+
+        release.countDown();
+        assertEquals("{hash}first", running.get(5, TimeUnit.SECONDS));
+        assertEquals("{hash}second", queued.get(5, TimeUnit.SECONDS));
+        assertTrue(encoder.matches("second", "{hash}second"));
+        assertEquals(2, meterRegistry.get("blog.password.hash").tag("operation", "encode").timer().count());
+    }
+
+    private static PasswordHashingProperties properties() {
+        PasswordHashingProperties properties = new PasswordHashingProperties();
+        properties.setThreads(1);
+        properties.setQueueCapacity(1);
+        return properties;
+    }
+
+    private class BlockingEncoder implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "{hash}" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encodedPassword.equals("{hash}" + rawPassword);
+        }
+    }
+}
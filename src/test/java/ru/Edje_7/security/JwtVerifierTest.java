@@ -0,0 +1,52 @@
+package ru.Edje_7.security;
+
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.SignatureException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtVerifierTest {
+
+    private static final String SECRET = "dGVzdC1zZWNyZXQta2V5LWZvci10b2tlbi1yZXZvY2F0aW9uLXRlc3Rz";
+
+    private final JwtVerifier verifier = new JwtVerifier(SECRET, 100);
+
+    @Test
+    void verify_shouldCacheVerifiedClaims() {
+        String token = token("alice", 60_000);
+
+        Claims first = verifier.verify(token);
+        Claims second = verifier.verify(token);
+
+        assertEquals("alice", first.getSubject());
+        assertSame(first, second);
+    }
+
+    @Test
+    void verify_shouldRejectTamperedAndExpiredTokens() {
+        String token = token("alice", 60_000);
+        verifier.verify(token);
+        String[] parts = token.split("\\.");
+        String forged = parts[0] + "." + token("mallory", 60_000).split("\\.")[1] + "." + parts[2];
+
+        assertThrows(SignatureException.class, () -> verifier.verify(forged));
+        assertThrows(ExpiredJwtException.class, () -> verifier.verify(token("bob", -1_000)));
+    }
+
+    private String token(String subject, long ttlMillis) {
+        long now = System.currentTimeMillis();
+        return Jwts.builder()
+                .setSubject(subject)
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + ttlMillis))
+                .signWith(verifier.signingKey(), SignatureAlgorithm.HS256)
+                .compact();
+    }
+}
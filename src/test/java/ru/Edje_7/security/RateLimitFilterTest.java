@@ -0,0 +1,60 @@
+package ru.Edje_7.security;
+
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import ru.Edje_7.config.RateLimitProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitFilterTest {
+
+    private final RateLimitProperties properties = new RateLimitProperties();
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void routeClass_shouldLimitOnlyCredentialEndpointsAsAuth() {
+        assertEquals(RateLimiter.RouteClass.AUTH, RateLimitFilter.routeClass(request("POST", "/api/auth/login")));
+        assertEquals(RateLimiter.RouteClass.AUTH, RateLimitFilter.routeClass(request("POST", "/api/auth/refresh")));
+        assertNull(RateLimitFilter.routeClass(request("GET", "/api/auth/me")));
+        assertEquals(RateLimiter.RouteClass.WRITE, RateLimitFilter.routeClass(request("POST", "/api/auth/logout")));
+    }
+
+    @Test
+    void doFilter_shouldChargeIpBucketForEveryAccountBehindIt() throws Exception {
+        properties.setWrite(new RateLimitProperties.Budget(2, Duration.ofHours(1)));
+        RateLimitFilter filter = new RateLimitFilter(new RateLimiter(properties), properties, new ObjectMapper().findAndRegisterModules());
+
+        List<Integer> statuses = new ArrayList<>();
+        for (String username : List.of("alice", "bob", "carol")) {
+            SecurityContextHolder.getContext().setAuthentication(
+                    new UsernamePasswordAuthenticationToken(username, null, List.of()));
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(request("POST", "/api/posts"), response, new MockFilterChain());
+            statuses.add(response.getStatus());
+        }
+
+        assertEquals(List.of(200, 200, 429), statuses);
+    }
+
+    private static MockHttpServletRequest request(String method, String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setContextPath("/api");
+        request.setRemoteAddr("203.0.113.7");
+        return request;
+    }
+}
@@ -0,0 +1,70 @@
+package ru.Edje_7.security;
+
+
+import org.junit.jupiter.api.Test;
+import ru.Edje_7.config.RateLimitProperties;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+
+    private RateLimiter limiter(int capacity, Duration period) {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setSearch(new RateLimitProperties.Budget(capacity, period));
+        return new RateLimiter(properties, now::get);
+    }
+
+    @Test
+    void tryAcquire_shouldAllowBurstThenRefillOneTokenPerInterval() {
+        RateLimiter limiter = limiter(3, Duration.ofSeconds(3));
+
+        assertEquals(2, limiter.tryAcquire(RateLimiter.RouteClass.SEARCH, "ip:1").remaining());
+        assertEquals(1, limiter.tryAcquire(RateLimiter.RouteClass.SEARCH, "ip:1").remaining());
+        RateLimiter.Decision last = limiter.tryAcquire(RateLimiter.RouteClass.SEARCH, "ip:1");
+        assertTrue(last.allowed());
+        assertEquals(0, last.remaining());
+        assertEquals(3, last.reset());
+
+        RateLimiter.Decision rejected = limiter.tryAcquire(RateLimiter.RouteClass.SEARCH, "ip:1");
+        assertFalse(rejected.allowed());
+        assertEquals(1, rejected.retryAfter());
+        // другой клиент и другой класс маршрута — свои бакеты
+        assertTrue(limiter.tryAcquire(RateLimiter.RouteClass.SEARCH, "ip:2").allowed());
+        assertTrue(limiter.tryAcquire(RateLimiter.RouteClass.AUTH, "ip:1").allowed());
+
+        now.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertTrue(limiter.tryAcquire(RateLimiter.RouteClass.SEARCH, "ip:1").allowed());
+        assertFalse(limiter.tryAcquire(RateLimiter.RouteClass.SEARCH, "ip:1").allowed());
+
+        now.addAndGet(Duration.ofMinutes(1).toNanos());
+        assertEquals(2, limiter.tryAcquire(RateLimiter.RouteClass.SEARCH, "ip:1").remaining());
+    }
+
+    @Test
+    void tryAcquire_shouldNotOverspendUnderContention() throws InterruptedException {
+        RateLimiter limiter = limiter(100, Duration.ofHours(1));
+        AtomicLong allowed = new AtomicLong();
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 50; j++) {
+                    if (limiter.tryAcquire(RateLimiter.RouteClass.SEARCH, "user:alice").allowed()) {
+                        allowed.incrementAndGet();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(100, allowed.get());
+        assertEquals(1, limiter.size());
+    }
+}
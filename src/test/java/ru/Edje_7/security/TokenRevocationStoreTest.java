@@ -0,0 +1,54 @@
+package ru.Edje_7.security;
+
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import ru.Edje_7.entity.RevokedToken;
+import ru.Edje_7.event.TokenRevokedEvent;
+import ru.Edje_7.repository.RevokedTokenRepository;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TokenRevocationStoreTest {
+
+    private final RevokedTokenRepository repository = mock(RevokedTokenRepository.class);
+
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+
+    private final TokenRevocationStore store = new TokenRevocationStore(repository, eventPublisher, 1000, 100, 60_000);
+
+    @Test
+    void rebuild_shouldLoadAccessTokensAndKeepRevocationsMadeDuringLoad() {
+        when(repository.findActiveJtis(eq(RevokedToken.Type.ACCESS), any())).thenAnswer(invocation -> {
+            // отзыв закоммичен после того, как активные jti прочитаны
+            store.onTokenRevoked(new TokenRevokedEvent("late"));
+            return List.of("loaded");
+        });
+        when(repository.existsById(anyString())).thenReturn(true);
+
+        store.rebuild();
+
+        assertTrue(store.isRevoked("loaded"));
+        assertTrue(store.isRevoked("late"));
+        verify(repository, never()).findActiveJtis(eq(RevokedToken.Type.REFRESH), any());
+    }
+
+    @Test
+    void revoke_shouldKeepRefreshTokensOutOfFilter() {
+        when(repository.insertIfAbsent(anyString(), any(), anyString())).thenReturn(1);
+
+        assertTrue(store.revoke("refresh", new Date(), RevokedToken.Type.REFRESH));
+        assertTrue(store.revoke("access", new Date(), RevokedToken.Type.ACCESS));
+
+        verify(repository).insertIfAbsent(eq("refresh"), any(), eq("REFRESH"));
+        verify(eventPublisher).publishEvent(new TokenRevokedEvent("access"));
+        verifyNoMoreInteractions(eventPublisher);
+    }
+}
@@ -0,0 +1,73 @@
+package ru.Edje_7.security;
+
+
+import org.junit.jupiter.api.Test;
+import ru.Edje_7.event.UserSecurityChangedEvent;
+import ru.Edje_7.repository.UserRepository;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TokenVersionRegistryTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+
+    private final TokenVersionRegistry registry = new TokenVersionRegistry(userRepository);
+
+    @Test
+    void onSecurityChanged_shouldIgnoreOlderVersionsAndKeepDeleted() {
+        registry.onSecurityChanged(new UserSecurityChangedEvent(1L, 3));
+        registry.onSecurityChanged(new UserSecurityChangedEvent(1L, 2));
+        registry.onSecurityChanged(UserSecurityChangedEvent.deleted(2L));
+        registry.onSecurityChanged(new UserSecurityChangedEvent(2L, 5));
+
+        assertTrue(registry.isCurrent(1L, 3));
+        assertFalse(registry.isCurrent(1L, 2));
+        assertFalse(registry.isCurrent(2L, 5));
+        assertTrue(registry.isCurrent(7L, 0));
+    }
+
+    @Test
+    void reload_shouldPickUpChangesFromOtherInstances() {
+        registry.onSecurityChanged(new UserSecurityChangedEvent(1L, 1));
+        registry.onSecurityChanged(new UserSecurityChangedEvent(2L, 4));
+        registry.onSecurityChanged(new UserSecurityChangedEvent(3L, 1));
+        // 1 сменил роли на другом экземпляре, 3 там же удалён
+        when(userRepository.findChangedSecurityVersions()).thenReturn(List.of(version(1L, 2), version(2L, 3)));
+
+        registry.reload();
+
+        assertTrue(registry.isCurrent(1L, 2));
+        assertTrue(registry.isCurrent(2L, 4));
+        assertFalse(registry.isCurrent(3L, 1));
+    }
+
+    @Test
+    void reload_shouldNotDeleteUsersChangedWhileLoading() {
+        when(userRepository.findChangedSecurityVersions()).thenAnswer(invocation -> {
+            // первая смена версии закоммичена после чтения
+            registry.onSecurityChanged(new UserSecurityChangedEvent(1L, 1));
+            return List.of();
+        });
+
+        registry.reload();
+
+        assertTrue(registry.isCurrent(1L, 1));
+    }
+
+    private static UserRepository.UserSecurityVersion version(Long id, int securityVersion) {
+        return new UserRepository.UserSecurityVersion() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Integer getSecurityVersion() {
+                return securityVersion;
+            }
+        };
+    }
+}
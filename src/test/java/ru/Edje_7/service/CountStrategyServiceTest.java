@@ -0,0 +1,33 @@
+package ru.Edje_7.service;
+
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.Edje_7.config.DatabasePlatform;
+import ru.Edje_7.config.PaginationProperties;
+import ru.Edje_7.dto.CountMode;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class CountStrategyServiceTest {
+
+    @Test
+    void constructor_shouldRejectEstimatedModeWithoutEstimateQuery() {
+        PaginationProperties properties = new PaginationProperties();
+        properties.getCountModes().put("search", CountMode.ESTIMATED);
+        properties.getCountModes().put("tag", CountMode.CACHED);
+        assertDoesNotThrow(() -> create(properties));
+
+        properties.getCountModes().put("tag", CountMode.ESTIMATED);
+
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class, () -> create(properties));
+        assertTrue(error.getMessage().contains("count-modes.tag"));
+    }
+
+    private static CountStrategyService create(PaginationProperties properties) {
+        return new CountStrategyService(properties, mock(JdbcTemplate.class), mock(DatabasePlatform.class),
+                new ObjectMapper());
+    }
+}
@@ -0,0 +1,126 @@
+package ru.Edje_7.service;
+
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.Edje_7.config.PopularityProperties;
+import ru.Edje_7.event.PostChangedEvent;
+import ru.Edje_7.event.PostEngagementEvent;
+import ru.Edje_7.repository.PostRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PopularityRankingServiceTest {
+
+    @Mock
+    private PostRepository postRepository;
+
+    private PopularityProperties properties;
+
+    private PopularityRankingService rankingService;
+
+    private LocalDateTime now;
+
+    @BeforeEach
+    void setUp() {
+        properties = new PopularityProperties();
+        rankingService = new PopularityRankingService(postRepository, properties);
+        now = LocalDateTime.now();
+    }
+
+    @Test
+    void rebuild_shouldPreferRecentPostsOverOldViralOnes() {
+        when(postRepository.findPublishedEngagement(any(LocalDateTime.class))).thenReturn(List.of(
+                engagement(1L, now.minusDays(30), 10_000, 500, 100),
+                engagement(2L, now.minusHours(2), 50, 5, 1)));
+
+        rankingService.rebuild();
+
+        assertTrue(rankingService.isReady());
+        assertEquals(List.of(2L, 1L), rankingService.getTopPostIds(0, 10));
+    }
+
+    @Test
+    void onEngagement_shouldReorderIncrementally() {
+        publish(1L, now.minusHours(1));
+        publish(2L, now.minusHours(1).minusMinutes(1));
+        assertEquals(List.of(1L, 2L), rankingService.getTopPostIds(0, 10));
+
+        rankingService.onEngagement(new PostEngagementEvent(2L, PostEngagementEvent.Type.LIKE, now));
+
+        assertEquals(List.of(2L, 1L), rankingService.getTopPostIds(0, 10));
+    }
+
+    @Test
+    void onEngagement_shouldIgnoreUnknownPosts() {
+        rankingService.onEngagement(new PostEngagementEvent(42L, PostEngagementEvent.Type.VIEW, now));
+
+        assertEquals(0, rankingService.size());
+    }
+
+    @Test
+    void unlike_shouldCancelLike() {
+        publish(1L, now.minusHours(1));
+        publish(2L, now.minusHours(1).minusMinutes(1));
+
+        rankingService.onEngagement(new PostEngagementEvent(2L, PostEngagementEvent.Type.LIKE, now));
+        rankingService.onEngagement(new PostEngagementEvent(2L, PostEngagementEvent.Type.UNLIKE, now));
+
+        assertEquals(List.of(1L, 2L), rankingService.getTopPostIds(0, 10));
+    }
+
+    @Test
+    void onPostChanged_shouldRemoveDeletedAndUnpublishedPosts() {
+        publish(1L, now);
+        publish(2L, now);
+        publish(3L, now);
+
+        rankingService.onPostChanged(new PostChangedEvent(1L, PostChangedEvent.Type.DELETED, false, null,
+                now, Set.of(), Set.of()));
+        rankingService.onPostChanged(new PostChangedEvent(2L, PostChangedEvent.Type.SAVED, false, null,
+                now, Set.of(), Set.of()));
+
+        assertEquals(List.of(3L), rankingService.getTopPostIds(0, 10));
+    }
+
+    @Test
+    void rebuild_shouldDropPostsMissingFromDatabaseAndKeepCapacity() {
+        properties.setCapacity(2);
+        publish(1L, now);
+        when(postRepository.findPublishedEngagement(any(LocalDateTime.class))).thenReturn(List.of(
+                engagement(2L, now, 0, 0, 0),
+                engagement(3L, now, 10, 0, 0),
+                engagement(4L, now, 20, 0, 0)));
+
+        rankingService.rebuild();
+
+        assertEquals(List.of(4L, 3L), rankingService.getTopPostIds(0, 10));
+        assertEquals(List.of(3L), rankingService.getTopPostIds(1, 10));
+    }
+
+    private void publish(Long postId, LocalDateTime publishedAt) {
+        rankingService.onPostChanged(new PostChangedEvent(postId, PostChangedEvent.Type.SAVED, true, publishedAt,
+                publishedAt, Set.of(), Set.of()));
+    }
+
+    private PostRepository.PostEngagement engagement(Long id, LocalDateTime publishedAt,
+                                                     int views, int likes, int comments) {
+        return new PostRepository.PostEngagement() {
+            public Long getId() { return id; }
+            public LocalDateTime getPublishedAt() { return publishedAt; }
+            public Integer getViewCount() { return views; }
+            public Integer getLikeCount() { return likes; }
+            public Integer getCommentCount() { return comments; }
+        };
+    }
+}
@@ -1,17 +1,27 @@
 package ru.Edje_7.service;
 
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import ru.Edje_7.config.PaginationProperties;
+import ru.Edje_7.dto.CountMode;
+import ru.Edje_7.dto.CountedPage;
+import ru.Edje_7.dto.PaginationResponse;
+import ru.Edje_7.dto.PostSummary;
+import ru.Edje_7.dto.PostView;
 import ru.Edje_7.dto.request.PostRequest;
+import ru.Edje_7.dto.response.BatchResponse;
 import ru.Edje_7.dto.response.PostResponse;
 import ru.Edje_7.entity.Post;
 import ru.Edje_7.entity.User;
@@ -19,6 +29,8 @@ import ru.Edje_7.exceptions.ResourceNotFoundException;
 import ru.Edje_7.exceptions.UnauthorizedException;
 import ru.Edje_7.repository.PostRepository;
 import ru.Edje_7.repository.UserRepository;
+import ru.Edje_7.search.PostSearchIndex;
+import ru.Edje_7.search.RelatedPostIndex;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -41,7 +53,26 @@ class PostServiceTest {
     @Mock
     private TagService tagService;
 
-    @InjectMocks
+    @Mock
+    private PopularityRankingService popularityRankingService;
+
+    @Mock
+    private PostSearchIndex postSearchIndex;
+
+    @Mock
+    private RelatedPostIndex relatedPostIndex;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private final ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager("post");
+
+    private final PaginationProperties paginationProperties = new PaginationProperties();
+
+    @Spy
+    private CountStrategyService countStrategyService =
+            new CountStrategyService(paginationProperties, null, null, new ObjectMapper());
+
     private PostService postService;
 
     private User testUser;
@@ -49,6 +80,10 @@ class PostServiceTest {
 
     @BeforeEach
     void setUp() {
+        postService = new PostService(postRepository, userRepository, tagService, countStrategyService,
+                new PostResponseAssembler(postRepository, userRepository), popularityRankingService, postSearchIndex, relatedPostIndex, eventPublisher,
+                new CachedBatchLoader(cacheManager), paginationProperties);
+
         testUser = new User();
         testUser.setId(1L);
         testUser.setUsername("testuser");
@@ -72,7 +107,7 @@ class PostServiceTest {
         assertNotNull(response);
         assertEquals("Test Post", response.getTitle());
         verify(postRepository, times(1)).findById(1L);
-        verify(postRepository, times(1)).save(any(Post.class));
+        verify(postRepository, never()).save(any(Post.class));
     }
 
     @Test
@@ -84,6 +119,35 @@ class PostServiceTest {
         });
     }
 
+    @Test
+    void getRelatedPosts_shouldNotBuildIndexOnRequestThread() {
+        when(postRepository.findPublishedText(1L)).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> postService.getRelatedPosts(1L, 5, PostView.SUMMARY));
+        verify(relatedPostIndex, never()).rebuild();
+    }
+
+    @Test
+    void getPostsByIds_shouldLoadOnlyCacheMissesAndKeepRequestOrder() {
+        PostResponse cached = new PostResponse();
+        cached.setId(3L);
+        cacheManager.getCache("post").put(3L, cached);
+
+        Post draft = new Post();
+        draft.setId(2L);
+        draft.setAuthor(testUser);
+        draft.setStatus(Post.Status.DRAFT);
+        when(postRepository.findAllWithAuthorByIdIn(List.of(1L, 2L))).thenReturn(List.of(draft, testPost));
+
+        BatchResponse<PostResponse> response = postService.getPostsByIds(List.of(3L, 1L, 2L, 1L));
+        BatchResponse<PostResponse> again = postService.getPostsByIds(List.of(1L));
+
+        assertEquals(List.of(3L, 1L), response.getItems().stream().map(PostResponse::getId).toList());
+        assertEquals(List.of(2L), response.getNotFound());
+        assertEquals("Test Post", again.getItems().get(0).getTitle());
+        verify(postRepository, times(1)).findAllWithAuthorByIdIn(any());
+    }
+
     @Test
     void createPost_shouldCreateNewPost() {
         PostRequest request = new PostRequest();
@@ -133,33 +197,92 @@ class PostServiceTest {
     @Test
     void getAllPosts_shouldReturnPageOfPosts() {
         Pageable pageable = PageRequest.of(0, 10);
-        Page<Post> postPage = new PageImpl<>(List.of(testPost));
 
-        when(postRepository.findPublishedPosts(any(LocalDateTime.class), eq(pageable)))
-                .thenReturn(postPage);
+        when(postRepository.findPublishedPostIds(any(LocalDateTime.class), eq(pageable)))
+                .thenReturn(new SliceImpl<>(List.of(1L), pageable, false));
+        when(postRepository.findAllWithAuthorByIdIn(List.of(1L))).thenReturn(List.of(testPost));
 
-        Page<PostResponse> response = postService.getAllPosts(pageable);
+        Page<PostResponse> response = postService.getAllPosts(pageable, PostView.FULL);
 
         assertNotNull(response);
         assertEquals(1, response.getTotalElements());
+        assertEquals("Test Content", response.getContent().get(0).getContent());
         verify(postRepository, times(1))
-                .findPublishedPosts(any(LocalDateTime.class), eq(pageable));
+                .findPublishedPostIds(any(LocalDateTime.class), eq(pageable));
+        // неполная страница — отдельный COUNT не нужен
+        verify(postRepository, never()).countPublishedPosts(any(LocalDateTime.class));
+    }
+
+    @Test
+    void getAllPosts_shouldCountOnlyWhenPageIsFull() {
+        Pageable pageable = PageRequest.of(0, 1);
+
+        when(postRepository.findPublishedPostIds(any(LocalDateTime.class), eq(pageable)))
+                .thenReturn(new SliceImpl<>(List.of(1L), pageable, true));
+        when(postRepository.countPublishedPosts(any(LocalDateTime.class))).thenReturn(42L);
+        when(postRepository.findAllWithAuthorByIdIn(List.of(1L))).thenReturn(List.of(testPost));
+
+        Page<PostResponse> response = postService.getAllPosts(pageable, PostView.FULL);
+
+        assertEquals(42, response.getTotalElements());
+        assertTrue(response.hasNext());
+        assertTrue(((CountedPage<PostResponse>) response).isTotalExact());
+    }
+
+    @Test
+    void getAllPosts_shouldSkipTotal_whenCountModeIsNone() {
+        paginationProperties.getCountModes().put("posts", CountMode.NONE);
+        Pageable pageable = PageRequest.of(0, 1);
+
+        when(postRepository.findPublishedPostIds(any(LocalDateTime.class), eq(pageable)))
+                .thenReturn(new SliceImpl<>(List.of(1L), pageable, true));
+        when(postRepository.findAllWithAuthorByIdIn(List.of(1L))).thenReturn(List.of(testPost));
+
+        PaginationResponse<PostResponse> response = PaginationResponse.fromPage(
+                postService.getAllPosts(pageable, PostView.FULL));
+
+        assertNull(response.getTotalElements());
+        assertNull(response.getTotalPages());
+        assertTrue(response.getHasNext());
+        verify(postRepository, never()).countPublishedPosts(any(LocalDateTime.class));
     }
 
     @Test
     void searchPosts_shouldReturnSearchResults() {
         Pageable pageable = PageRequest.of(0, 10);
-        Page<Post> postPage = new PageImpl<>(List.of(testPost));
         String query = "test";
 
-        when(postRepository.fullTextSearch(eq(query), eq(pageable)))
-                .thenReturn(postPage);
+        when(postRepository.fullTextSearchIds(eq(query), eq(pageable)))
+                .thenReturn(new SliceImpl<>(List.of(1L), pageable, false));
+        when(postRepository.findSummariesByIdIn(List.of(1L))).thenReturn(List.of(new PostSummary(
+                1L, "Test Post", "test-post", "Test", Post.Status.PUBLISHED, 0, 0, 0, false,
+                testPost.getCreatedAt(), testPost.getCreatedAt(), testPost.getCreatedAt(), 1L, "testuser", null)));
 
-        Page<PostResponse> response = postService.searchPosts(query, pageable);
+        Page<PostResponse> response = postService.searchPosts(query, pageable, PostView.SUMMARY);
 
         assertNotNull(response);
         assertEquals(1, response.getTotalElements());
-        verify(postRepository, times(1)).fullTextSearch(eq(query), eq(pageable));
+        assertEquals("Test Post", response.getContent().get(0).getTitle());
+        assertNull(response.getContent().get(0).getContent());
+        verify(postRepository, times(1)).fullTextSearchIds(eq(query), eq(pageable));
+        verify(postRepository, never()).findAllWithAuthorByIdIn(any());
+    }
+
+    @Test
+    void searchPosts_shouldUseIndexWhenReady() {
+        Pageable pageable = PageRequest.of(0, 1);
+        when(postSearchIndex.isReady()).thenReturn(true);
+        when(postSearchIndex.search("test", 0, 1)).thenReturn(new PostSearchIndex.Hits(List.of(1L), 3));
+        when(postRepository.findSummariesByIdIn(List.of(1L))).thenReturn(List.of(new PostSummary(
+                1L, "Test Post", "test-post", "Test", Post.Status.PUBLISHED, 0, 0, 0, false,
+                testPost.getCreatedAt(), testPost.getCreatedAt(), testPost.getCreatedAt(), 1L, "testuser", null)));
+
+        Page<PostResponse> response = postService.searchPosts(" test ", pageable, PostView.SUMMARY);
+
+        assertEquals(3, response.getTotalElements());
+        assertTrue(response.hasNext());
+        assertEquals(1L, response.getContent().get(0).getId());
+        verify(postRepository, never()).fullTextSearchIds(any(), any());
     }
 
     @Test
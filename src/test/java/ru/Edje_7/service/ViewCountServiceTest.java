@@ -0,0 +1,126 @@
+package ru.Edje_7.service;
+
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.Edje_7.dto.response.PostResponse;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ViewCountServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private CacheManager cacheManager;
+
+    @Mock
+    private Cache postCache;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private ViewCountService viewCountService;
+
+    private PostResponse cachedPost;
+
+    @BeforeEach
+    void setUp() {
+        cachedPost = new PostResponse();
+        cachedPost.setId(1L);
+        cachedPost.setViewCount(10);
+    }
+
+    @Test
+    void recordView_shouldOverlayPendingViewsWithoutMutatingCachedPost() {
+        viewCountService.recordView(cachedPost);
+        PostResponse response = viewCountService.recordView(cachedPost);
+
+        assertEquals(12, response.getViewCount());
+        assertEquals(10, cachedPost.getViewCount());
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_shouldWriteBatchedDeltasAndEvictCache() {
+        when(cacheManager.getCache("post")).thenReturn(postCache);
+        viewCountService.recordView(cachedPost);
+        viewCountService.recordView(cachedPost);
+
+        viewCountService.flush();
+
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), batch.capture());
+        assertEquals(1, batch.getValue().size());
+        assertArrayEquals(new Object[]{2L, 1L}, batch.getValue().get(0));
+        assertEquals(0, viewCountService.getPendingViews(1L));
+        verify(postCache).evict(1L);
+    }
+
+    @Test
+    void flush_shouldKeepDeltasWhenUpdateFails() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("db down"));
+        viewCountService.recordView(cachedPost);
+
+        viewCountService.flush();
+
+        assertEquals(1, viewCountService.getPendingViews(1L));
+        verifyNoInteractions(cacheManager);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_shouldNotLoseViewsRecordedConcurrently() throws InterruptedException {
+        AtomicLong flushed = new AtomicLong();
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            ((List<Object[]>) invocation.getArgument(1)).forEach(args -> flushed.addAndGet((Long) args[0]));
+            return new int[0];
+        });
+        Thread[] recorders = new Thread[4];
+        for (int i = 0; i < recorders.length; i++) {
+            recorders[i] = new Thread(() -> {
+                for (int j = 0; j < 5_000; j++) {
+                    viewCountService.recordView(cachedPost);
+                }
+            });
+            recorders[i].start();
+        }
+        for (Thread recorder : recorders) {
+            while (recorder.isAlive()) {
+                viewCountService.flush();
+            }
+        }
+        viewCountService.flush();
+
+        assertEquals(20_000, flushed.get());
+        assertEquals(0, viewCountService.getPendingViews(1L));
+    }
+
+    @Test
+    void flush_shouldSkipDatabaseWhenNothingPending() {
+        viewCountService.flush();
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+}
@@ -0,0 +1,147 @@
+package ru.Edje_7.trending;
+
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.Edje_7.config.TrendingProperties;
+import ru.Edje_7.event.PostChangedEvent;
+import ru.Edje_7.repository.PostRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TrendingTagTrackerTest {
+
+    @Mock
+    private PostRepository postRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private TrendingTagTracker tracker;
+
+    private LocalDateTime now;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        tracker = new TrendingTagTracker(postRepository, new TrendingProperties(), meterRegistry);
+        now = LocalDateTime.now();
+    }
+
+    @Test
+    void getTopTagIds_shouldOrderByFrequencyWithinWindow() {
+        recordTimes(1L, now.minusHours(1), 3);
+        recordTimes(2L, now.minusDays(2), 5);
+        recordTimes(3L, now.minusDays(10), 50);
+
+        assertEquals(List.of(1L), tracker.getTopTagIds(1, 10, now));
+        assertEquals(List.of(2L, 1L), tracker.getTopTagIds(7, 10, now));
+        assertEquals(List.of(3L, 2L), tracker.getTopTagIds(30, 2, now));
+    }
+
+    @Test
+    void onPostChanged_shouldMoveCountsToNewTags() {
+        tracker.onPostChanged(new PostChangedEvent(1L, PostChangedEvent.Type.SAVED, true, now, now,
+                Set.of(1L, 2L), Set.of()));
+        tracker.onPostChanged(new PostChangedEvent(2L, PostChangedEvent.Type.SAVED, true, now, now,
+                Set.of(2L), Set.of()));
+        tracker.onPostChanged(new PostChangedEvent(1L, PostChangedEvent.Type.SAVED, true, now, now,
+                Set.of(3L), Set.of(1L, 2L)));
+
+        assertEquals(List.of(2L, 3L), tracker.getTopTagIds(7, 10));
+        assertEquals(2, tracker.totalEvents(7));
+    }
+
+    @Test
+    void rebuild_shouldLoadRecentLinksAndIgnoreExpired() {
+        when(postRepository.findTagRefsCreatedSince(any(LocalDateTime.class))).thenReturn(List.of(
+                tagRef(1L, now.minusDays(1), 5L),
+                tagRef(2L, now.minusDays(3), 5L),
+                tagRef(3L, now.minusDays(2), 6L),
+                tagRef(4L, now.minusDays(40), 7L)));
+
+        tracker.rebuild(now);
+
+        assertTrue(tracker.isReady());
+        assertEquals(List.of(5L, 6L), tracker.getTopTagIds(30, 10, now));
+        assertEquals(3, tracker.totalEvents(30, now));
+    }
+
+    @Test
+    void rebuild_shouldReplayChangesMissedByLoadedRows() {
+        // пост 1 перетегирован до выборки (она видит новый тег), пост 2 — после (видит старый)
+        when(postRepository.findTagRefsCreatedSince(any(LocalDateTime.class))).thenAnswer(invocation -> {
+            tracker.onPostChanged(new PostChangedEvent(1L, PostChangedEvent.Type.SAVED, true, now, now,
+                    Set.of(8L), Set.of(5L)));
+            tracker.onPostChanged(new PostChangedEvent(2L, PostChangedEvent.Type.SAVED, true, now, now,
+                    Set.of(9L), Set.of(5L)));
+            return List.of(
+                    tagRef(1L, now, 8L),
+                    tagRef(2L, now, 5L),
+                    tagRef(3L, now, 5L));
+        });
+
+        tracker.rebuild(now);
+
+        assertEquals(List.of(5L, 8L, 9L), tracker.getTopTagIds(7, 10, now));
+        assertEquals(3, tracker.totalEvents(7, now));
+    }
+
+    @Test
+    void getTopTagIds_shouldNotServeCachedTopAfterRecord() {
+        recordTimes(1L, now, 2);
+        assertEquals(List.of(1L), tracker.getTopTagIds(7, 1, now));
+        assertEquals(List.of(1L), tracker.getTopTagIds(7, 1, now));
+
+        recordTimes(2L, now, 3);
+
+        assertEquals(List.of(2L), tracker.getTopTagIds(7, 1, now));
+        assertEquals(List.of(2L, 1L), tracker.getTopTagIds(7, 5, now));
+    }
+
+    @Test
+    void metrics_shouldExposeErrorBounds() {
+        recordTimes(1L, now, 100);
+
+        double epsilon = meterRegistry.get("blog.trending.sketch.epsilon").gauge().value();
+        assertEquals(Math.E / 512, epsilon, 1e-9);
+        assertEquals(Math.exp(-4), meterRegistry.get("blog.trending.sketch.delta").gauge().value(), 1e-9);
+        assertEquals(100 * epsilon,
+                meterRegistry.get("blog.trending.error.bound").tag("days", "7").gauge().value(), 1e-9);
+    }
+
+    private void recordTimes(Long tagId, LocalDateTime at, int times) {
+        for (int i = 0; i < times; i++) {
+            tracker.record(tagId, at, 1, now);
+        }
+    }
+
+    private PostRepository.PostTagRef tagRef(Long postId, LocalDateTime createdAt, Long tagId) {
+        return new PostRepository.PostTagRef() {
+            @Override
+            public Long getPostId() {
+                return postId;
+            }
+
+            @Override
+            public LocalDateTime getCreatedAt() {
+                return createdAt;
+            }
+
+            @Override
+            public Long getTagId() {
+                return tagId;
+            }
+        };
+    }
+}